@@ -236,6 +236,11 @@ public abstract class ChartView extends Component {
             chartViewSeriesListeners.seriesInserted(ChartView.this, index);
         }
 
+        @Override
+        public void itemsInserted(List<Object> list, int index, int count) {
+            chartViewSeriesListeners.seriesInserted(ChartView.this, index, count);
+        }
+
         @Override
         public void itemsRemoved(List<Object> list, int index, Sequence<Object> items) {
             int count = items.getLength();
@@ -355,6 +360,13 @@ public abstract class ChartView extends Component {
             }
         }
 
+        @Override
+        public void seriesInserted(ChartView chartView, int index, int count) {
+            for (ChartViewSeriesListener listener : this) {
+                listener.seriesInserted(chartView, index, count);
+            }
+        }
+
         @Override
         public void seriesRemoved(ChartView chartView, int index, int count) {
             for (ChartViewSeriesListener listener : this) {
@@ -20,6 +20,42 @@ package org.apache.pivot.charts;
  * Chart view series listener interface.
  */
 public interface ChartViewSeriesListener {
+    /**
+     * Chart view series listener adapter.
+     */
+    public static class Adapter implements ChartViewSeriesListener {
+        @Override
+        public void seriesInserted(ChartView chartView, int index) {
+        }
+
+        /**
+         * Calls {@link #seriesInserted(ChartView, int)} once for each
+         * inserted series.
+         */
+        @Override
+        public void seriesInserted(ChartView chartView, int index, int count) {
+            for (int i = 0; i < count; i++) {
+                seriesInserted(chartView, index + i);
+            }
+        }
+
+        @Override
+        public void seriesRemoved(ChartView chartView, int index, int count) {
+        }
+
+        @Override
+        public void seriesCleared(ChartView chartView) {
+        }
+
+        @Override
+        public void seriesUpdated(ChartView chartView, int index) {
+        }
+
+        @Override
+        public void seriesSorted(ChartView chartView) {
+        }
+    }
+
     /**
      * Fired when a series is inserted into a chart view's data set.
      *
@@ -28,6 +64,16 @@ public interface ChartViewSeriesListener {
      */
     public void seriesInserted(ChartView chartView, int index);
 
+    /**
+     * Fired when a contiguous range of series is inserted into a chart view's
+     * data set.
+     *
+     * @param chartView
+     * @param index
+     * @param count
+     */
+    public void seriesInserted(ChartView chartView, int index, int count);
+
     /**
      * Fired when a series is removed from a chart view's data set.
      *
@@ -118,6 +118,11 @@ public abstract class ChartViewSkin extends ComponentSkin
         repaintComponent();
     }
 
+    @Override
+    public void seriesInserted(ChartView chartView, int index, int count) {
+        repaintComponent();
+    }
+
     @Override
     public void seriesRemoved(ChartView chartView, int index, int count) {
         repaintComponent();
@@ -16,6 +16,7 @@
  */
 package org.apache.pivot.beans;
 
+import java.lang.ref.SoftReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -24,10 +25,14 @@ import java.lang.reflect.Type;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.pivot.collections.Map;
 import org.apache.pivot.collections.MapListener;
+import org.apache.pivot.util.CalendarDate;
 import org.apache.pivot.util.ListenerList;
+import org.apache.pivot.util.Time;
 
 /**
  * Exposes Java bean properties of an object via the {@link Map}
@@ -38,29 +43,27 @@ import org.apache.pivot.util.ListenerList;
  * Properties may provide multiple setters; the appropriate setter to invoke
  * is determined by the type of the value being set. If the value is
  * <tt>null</tt>, the return type of the getter method is used.
+ * <p>
+ * Getter methods, setter methods, and fields are resolved only once per bean
+ * class and property; subsequent lookups (including those made via the
+ * static helper methods) are served from a per-class cache.
  */
 public class BeanAdapter implements Map<String, Object> {
     /**
-     * Property iterator. Walks the list of methods defined by the bean and
-     * returns a value for each getter method.
+     * Property iterator. Walks the cached list of properties defined by the
+     * bean class.
      */
     private class PropertyIterator implements Iterator<String> {
-        private Method[] methods = null;
-        private Field[] fields = null;
-
-        int i = 0, j = 0;
-        private String nextProperty = null;
+        private String[] properties;
+        private int i = 0;
 
         public PropertyIterator() {
-            Class<?> type = bean.getClass();
-            methods = type.getMethods();
-            fields = type.getFields();
-            nextProperty();
+            properties = classProperties.getPropertyNames(ignoreReadOnlyProperties);
         }
 
         @Override
         public boolean hasNext() {
-            return (nextProperty != null);
+            return (i < properties.length);
         }
 
         @Override
@@ -69,77 +72,141 @@ public class BeanAdapter implements Map<String, Object> {
                 throw new NoSuchElementException();
             }
 
-            String nextProperty = this.nextProperty;
-            nextProperty();
+            return properties[i++];
+        }
 
-            return nextProperty;
+        public void remove() {
+            throw new UnsupportedOperationException();
         }
+    }
 
-        private void nextProperty() {
-            nextProperty = null;
+    /**
+     * Introspection cache for a single bean class. Lookups that fail are
+     * cached as well, using the {@link #NONE} placeholder.
+     */
+    private static class ClassProperties {
+        private Class<?> beanClass;
 
-            while (i < methods.length
-                && nextProperty == null) {
-                Method method = methods[i++];
+        private ConcurrentHashMap<String, Object> getterMethods =
+            new ConcurrentHashMap<String, Object>();
+        private ConcurrentHashMap<String, Object> fields =
+            new ConcurrentHashMap<String, Object>();
+        private ConcurrentHashMap<String, ConcurrentHashMap<Class<?>, Object>> setterMethods =
+            new ConcurrentHashMap<String, ConcurrentHashMap<Class<?>, Object>>();
 
-                if (method.getParameterTypes().length == 0
-                    && (method.getModifiers() & Modifier.STATIC) == 0) {
-                    String methodName = method.getName();
+        private volatile String[] propertyNames = null;
+        private volatile String[] writablePropertyNames = null;
 
-                    String prefix = null;
-                    if (methodName.startsWith(GET_PREFIX)) {
-                        prefix = GET_PREFIX;
-                    } else {
-                        if (methodName.startsWith(IS_PREFIX)) {
-                            prefix = IS_PREFIX;
-                        }
-                    }
+        private static final Object NONE = new Object();
 
-                    if (prefix != null) {
-                        int propertyOffset = prefix.length();
-                        nextProperty = Character.toLowerCase(methodName.charAt(propertyOffset))
-                            + methodName.substring(propertyOffset + 1);
+        public ClassProperties(Class<?> beanClass) {
+            this.beanClass = beanClass;
+        }
 
-                        if (nextProperty.equals("class")) {
-                            nextProperty = null;
-                        }
-                    }
+        public Method getGetterMethod(String key) {
+            Object getterMethod = getterMethods.get(key);
 
-                    if (nextProperty != null
-                        && ignoreReadOnlyProperties
-                        && isReadOnly(nextProperty)) {
-                        nextProperty = null;
-                    }
+            if (getterMethod == null) {
+                getterMethod = findGetterMethod(beanClass, key);
+                getterMethods.put(key, (getterMethod == null) ? NONE : getterMethod);
+            }
+
+            return (getterMethod == NONE) ? null : (Method)getterMethod;
+        }
+
+        public Method getSetterMethod(String key, Class<?> valueType) {
+            ConcurrentHashMap<Class<?>, Object> setterMethodsByType = setterMethods.get(key);
+
+            if (setterMethodsByType == null) {
+                setterMethodsByType = new ConcurrentHashMap<Class<?>, Object>(4);
+                ConcurrentHashMap<Class<?>, Object> previousSetterMethodsByType =
+                    setterMethods.putIfAbsent(key, setterMethodsByType);
+
+                if (previousSetterMethodsByType != null) {
+                    setterMethodsByType = previousSetterMethodsByType;
                 }
             }
 
-            if (nextProperty == null) {
-                while (j < fields.length
-                    && nextProperty == null) {
-                    Field field = fields[j++];
+            Object setterMethod = setterMethodsByType.get(valueType);
+
+            if (setterMethod == null) {
+                setterMethod = findSetterMethod(beanClass, key, valueType);
+                setterMethodsByType.put(valueType, (setterMethod == null) ? NONE : setterMethod);
+            }
+
+            return (setterMethod == NONE) ? null : (Method)setterMethod;
+        }
+
+        public Field getField(String fieldName) {
+            Object field = fields.get(fieldName);
+
+            if (field == null) {
+                field = findField(beanClass, fieldName);
+                fields.put(fieldName, (field == null) ? NONE : field);
+            }
+
+            return (field == NONE) ? null : (Field)field;
+        }
+
+        public String[] getPropertyNames(boolean writableOnly) {
+            if (propertyNames == null) {
+                java.util.ArrayList<String> propertyNames = new java.util.ArrayList<String>();
+                java.util.ArrayList<String> writablePropertyNames = new java.util.ArrayList<String>();
+
+                for (Method method : beanClass.getMethods()) {
+                    if (method.getParameterTypes().length == 0
+                        && (method.getModifiers() & Modifier.STATIC) == 0) {
+                        String methodName = method.getName();
+
+                        String prefix = null;
+                        if (methodName.startsWith(GET_PREFIX)) {
+                            prefix = GET_PREFIX;
+                        } else {
+                            if (methodName.startsWith(IS_PREFIX)) {
+                                prefix = IS_PREFIX;
+                            }
+                        }
+
+                        if (prefix != null) {
+                            int propertyOffset = prefix.length();
+                            String property = Character.toLowerCase(methodName.charAt(propertyOffset))
+                                + methodName.substring(propertyOffset + 1);
+
+                            if (!property.equals("class")) {
+                                propertyNames.add(property);
 
+                                if (!BeanAdapter.isReadOnly(beanClass, property)) {
+                                    writablePropertyNames.add(property);
+                                }
+                            }
+                        }
+                    }
+                }
+
+                for (Field field : beanClass.getFields()) {
                     int modifiers = field.getModifiers();
                     if ((modifiers & Modifier.PUBLIC) != 0
                         && (modifiers & Modifier.STATIC) == 0) {
-                        nextProperty = FIELD_PREFIX + field.getName();
-                    }
+                        String property = FIELD_PREFIX + field.getName();
+                        propertyNames.add(property);
 
-                    if (nextProperty != null
-                        && ignoreReadOnlyProperties
-                        && (modifiers & Modifier.FINAL) != 0) {
-                        nextProperty = null;
+                        if ((modifiers & Modifier.FINAL) == 0) {
+                            writablePropertyNames.add(property);
+                        }
                     }
                 }
+
+                this.writablePropertyNames = writablePropertyNames.toArray(new String[writablePropertyNames.size()]);
+                this.propertyNames = propertyNames.toArray(new String[propertyNames.size()]);
             }
-        }
 
-        public void remove() {
-            throw new UnsupportedOperationException();
+            return writableOnly ? writablePropertyNames : propertyNames;
         }
     }
 
     private Object bean;
     private boolean ignoreReadOnlyProperties;
+    private ClassProperties classProperties;
 
     private MapListenerList<String, Object> mapListeners = new MapListenerList<String, Object>();
 
@@ -151,6 +218,11 @@ public class BeanAdapter implements Map<String, Object> {
     private static final String PROPERTY_EXCEPTION_MESSAGE_FORMAT =
         "Unable to access property \"%s\" for type %s.";
 
+    private static final Object[] EMPTY_ARGUMENTS = new Object[] {};
+
+    private static final WeakHashMap<Class<?>, SoftReference<ClassProperties>> classPropertiesCache =
+        new WeakHashMap<Class<?>, SoftReference<ClassProperties>>();
+
     /**
      * Creates a new bean dictionary.
      *
@@ -170,6 +242,10 @@ public class BeanAdapter implements Map<String, Object> {
     public BeanAdapter(Object bean, boolean ignoreReadOnlyProperties) {
         this.bean = bean;
         this.ignoreReadOnlyProperties = ignoreReadOnlyProperties;
+
+        if (bean != null) {
+            classProperties = getClassProperties(bean.getClass());
+        }
     }
 
     /**
@@ -220,7 +296,7 @@ public class BeanAdapter implements Map<String, Object> {
 
             if (getterMethod != null) {
                 try {
-                    value = getterMethod.invoke(bean, new Object[] {});
+                    value = getterMethod.invoke(bean, EMPTY_ARGUMENTS);
                 } catch (IllegalAccessException exception) {
                     throw new RuntimeException(String.format(PROPERTY_EXCEPTION_MESSAGE_FORMAT,
                         key, bean.getClass().getName()), exception);
@@ -481,7 +557,7 @@ public class BeanAdapter implements Map<String, Object> {
      * The getter method, or <tt>null</tt> if the method does not exist.
      */
     private Method getGetterMethod(String key) {
-        return getGetterMethod(bean.getClass(), key);
+        return classProperties.getGetterMethod(key);
     }
 
     /**
@@ -494,7 +570,7 @@ public class BeanAdapter implements Map<String, Object> {
      * The getter method, or <tt>null</tt> if the method does not exist.
      */
     private Method getSetterMethod(String key, Class<?> valueType) {
-        return getSetterMethod(bean.getClass(), key, valueType);
+        return (valueType == null) ? null : classProperties.getSetterMethod(key, valueType);
     }
 
     /**
@@ -509,7 +585,7 @@ public class BeanAdapter implements Map<String, Object> {
      * non-public or static
      */
     private Field getField(String fieldName) {
-        return getField(bean.getClass(), fieldName);
+        return classProperties.getField(fieldName);
     }
 
     /**
@@ -640,6 +716,10 @@ public class BeanAdapter implements Map<String, Object> {
      * non-public or static.
      */
     public static Field getField(Class<?> type, String fieldName) {
+        return getClassProperties(type).getField(fieldName);
+    }
+
+    private static Field findField(Class<?> type, String fieldName) {
         Field field = null;
 
         try {
@@ -672,6 +752,10 @@ public class BeanAdapter implements Map<String, Object> {
      * The getter method, or <tt>null</tt> if the method does not exist.
      */
     public static Method getGetterMethod(Class<?> beanClass, String key) {
+        return getClassProperties(beanClass).getGetterMethod(key);
+    }
+
+    private static Method findGetterMethod(Class<?> beanClass, String key) {
         // Upper-case the first letter
         key = Character.toUpperCase(key.charAt(0)) + key.substring(1);
         Method getterMethod = null;
@@ -706,6 +790,11 @@ public class BeanAdapter implements Map<String, Object> {
      * The getter method, or <tt>null</tt> if the method does not exist.
      */
     public static Method getSetterMethod(Class<?> beanClass, String key, Class<?> valueType) {
+        return (valueType == null) ? null
+            : getClassProperties(beanClass).getSetterMethod(key, valueType);
+    }
+
+    private static Method findSetterMethod(Class<?> beanClass, String key, Class<?> valueType) {
         Method setterMethod = null;
 
         if (valueType != null) {
@@ -723,7 +812,7 @@ public class BeanAdapter implements Map<String, Object> {
             if (setterMethod == null) {
                 // Look for a match on the value's super type
                 Class<?> superType = valueType.getSuperclass();
-                setterMethod = getSetterMethod(beanClass, key, superType);
+                setterMethod = findSetterMethod(beanClass, key, superType);
             }
 
             if (setterMethod == null) {
@@ -754,7 +843,7 @@ public class BeanAdapter implements Map<String, Object> {
                 while (setterMethod == null
                     && i < n) {
                     Class<?> interfaceType = interfaces[i++];
-                    setterMethod = getSetterMethod(beanClass, key, interfaceType);
+                    setterMethod = findSetterMethod(beanClass, key, interfaceType);
                 }
             }
         }
@@ -762,6 +851,46 @@ public class BeanAdapter implements Map<String, Object> {
         return setterMethod;
     }
 
+    /**
+     * Returns the introspection cache for a bean class, creating it if
+     * necessary. Entries are held weakly by class and softly by value so
+     * that neither the class nor the cached metadata prevent unloading.
+     */
+    private static ClassProperties getClassProperties(Class<?> beanClass) {
+        if (beanClass == null) {
+            throw new IllegalArgumentException("beanClass is null.");
+        }
+
+        ClassProperties classProperties = getCachedClassProperties(beanClass);
+
+        if (classProperties == null) {
+            // Introspect outside of the lock, so that lookups of other classes
+            // are not held up; if another thread cached the class in the
+            // meantime, use its instance
+            ClassProperties newClassProperties = new ClassProperties(beanClass);
+
+            synchronized (classPropertiesCache) {
+                classProperties = getCachedClassProperties(beanClass);
+
+                if (classProperties == null) {
+                    classProperties = newClassProperties;
+                    classPropertiesCache.put(beanClass,
+                        new SoftReference<ClassProperties>(classProperties));
+                }
+            }
+        }
+
+        return classProperties;
+    }
+
+    private static ClassProperties getCachedClassProperties(Class<?> beanClass) {
+        // WeakHashMap modifies its table on lookup, so reads must be locked too
+        synchronized (classPropertiesCache) {
+            SoftReference<ClassProperties> reference = classPropertiesCache.get(beanClass);
+            return (reference == null) ? null : reference.get();
+        }
+    }
+
     /**
      * Coerces a value to a given type.
      *
@@ -838,6 +967,10 @@ public class BeanAdapter implements Map<String, Object> {
                     }
                 } else if (type == String.class) {
                     coercedValue = value.toString();
+                } else if (type == CalendarDate.class) {
+                    coercedValue = CalendarDate.decode(value.toString());
+                } else if (type == Time.class) {
+                    coercedValue = Time.decode(value.toString());
                 } else {
                     throw new IllegalArgumentException("Unable to coerce " + value.getClass().getName()
                         + " to " + type + ".");
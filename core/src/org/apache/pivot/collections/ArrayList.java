@@ -340,6 +340,169 @@ public class ArrayList<T> implements List<T>, Serializable {
         }
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public void addAll(Sequence<T> items) {
+        verifyNotNull("items", items);
+
+        if (comparator == null) {
+            insertAll(items, length);
+        } else {
+            Object[] addedItems = copyItems(items);
+            int count = addedItems.length;
+
+            if (count > 0) {
+                Arrays.sort(addedItems, (Comparator<Object>)comparator);
+
+                // Merge the new items into the list, starting at the end; new
+                // items are placed after any existing items that compare equal
+                ensureCapacity(length + count);
+
+                int n = length + count;
+                boolean[] added = new boolean[n];
+
+                int i = length - 1;
+                int j = count - 1;
+                int k = n - 1;
+                while (j >= 0) {
+                    if (i >= 0
+                        && comparator.compare((T)this.items[i], (T)addedItems[j]) > 0) {
+                        this.items[k] = this.items[i--];
+                    } else {
+                        this.items[k] = addedItems[j--];
+                        added[k] = true;
+                    }
+
+                    k--;
+                }
+
+                length = n;
+                modificationCount++;
+
+                if (listListeners != null) {
+                    // Fire an event for each contiguous range of new items
+                    k++;
+                    while (k < n) {
+                        if (added[k]) {
+                            int start = k;
+                            while (k < n
+                                && added[k]) {
+                                k++;
+                            }
+
+                            listListeners.itemsInserted(this, start, k - start);
+                        } else {
+                            k++;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void insertAll(Sequence<T> items, int index) {
+        verifyNotNull("items", items);
+        verifyIndexBounds(index, 0, length);
+
+        if (comparator != null) {
+            throw new IllegalStateException("List is sorted.");
+        }
+
+        Object[] insertedItems = copyItems(items);
+        int count = insertedItems.length;
+
+        if (count > 0) {
+            ensureCapacity(length + count);
+            System.arraycopy(this.items, index, this.items, index + count, length - index);
+            System.arraycopy(insertedItems, 0, this.items, index, count);
+
+            length += count;
+            modificationCount++;
+
+            if (listListeners != null) {
+                listListeners.itemsInserted(this, index, count);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int removeAll(Sequence<T> items) {
+        verifyNotNull("items", items);
+
+        java.util.HashSet<Object> removedItems =
+            new java.util.HashSet<Object>(Arrays.asList(copyItems(items)));
+
+        ArrayList<Integer> rangeIndexes = new ArrayList<Integer>();
+        ArrayList<ArrayList<T>> ranges = new ArrayList<ArrayList<T>>();
+
+        // Compact the remaining items, collecting the removed ranges
+        ArrayList<T> range = null;
+        int j = 0;
+        for (int i = 0; i < length; i++) {
+            Object item = this.items[i];
+
+            if (removedItems.contains(item)) {
+                if (range == null) {
+                    range = new ArrayList<T>();
+                    rangeIndexes.add(i);
+                    ranges.add(range);
+                }
+
+                range.add((T)item);
+            } else {
+                range = null;
+                this.items[j++] = item;
+            }
+        }
+
+        int count = length - j;
+
+        if (count > 0) {
+            Arrays.fill(this.items, j, length, null);
+
+            length = j;
+            modificationCount++;
+
+            if (listListeners != null) {
+                for (int i = ranges.getLength() - 1; i >= 0; i--) {
+                    listListeners.itemsRemoved(this, rangeIndexes.get(i), ranges.get(i));
+                }
+            }
+        }
+
+        return count;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setAll(Sequence<T> items) {
+        verifyNotNull("items", items);
+
+        Object[] newItems = copyItems(items);
+        if (comparator != null) {
+            Arrays.sort(newItems, (Comparator<Object>)comparator);
+        }
+
+        int previousLength = length;
+
+        this.items = (newItems.length < DEFAULT_CAPACITY) ?
+            Arrays.copyOf(newItems, DEFAULT_CAPACITY) : newItems;
+        length = newItems.length;
+        modificationCount++;
+
+        if (listListeners != null) {
+            if (previousLength > 0) {
+                listListeners.listCleared(this);
+            }
+
+            if (length > 0) {
+                listListeners.itemsInserted(this, 0, length);
+            }
+        }
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public T get(int index) {
@@ -560,6 +723,30 @@ public class ArrayList<T> implements List<T>, Serializable {
         });
     }
 
+    static Object[] copyItems(Sequence<?> items) {
+        Object[] array;
+
+        if (items instanceof ArrayList<?>) {
+            ArrayList<?> arrayList = (ArrayList<?>)items;
+            array = Arrays.copyOf(arrayList.items, arrayList.length);
+        } else {
+            array = new Object[items.getLength()];
+
+            if (items instanceof Iterable<?>) {
+                int i = 0;
+                for (Object item : (Iterable<?>)items) {
+                    array[i++] = item;
+                }
+            } else {
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = items.get(i);
+                }
+            }
+        }
+
+        return array;
+    }
+
     private static void verifyNotNull(String argument, Object value) {
         if (value == null) {
             throw new IllegalArgumentException(argument + " cannot be null.");
@@ -16,66 +16,198 @@
  */
 package org.apache.pivot.collections;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
-import org.apache.pivot.util.ImmutableIterator;
 import org.apache.pivot.util.ListenerList;
 
 
 /**
  * Implementation of the {@link Queue} interface that is backed by an
  * array.
+ * <p>
+ * When no comparator is set, items are stored in a circular buffer, so
+ * enqueue and dequeue run in amortized constant time. When a comparator is
+ * set, items are stored in a binary heap, and enqueue and dequeue run in
+ * logarithmic time; {@link #iterator()} then returns the items in sorted
+ * order.
  */
 public class ArrayQueue<T> implements Queue<T>, Serializable {
-    private static final long serialVersionUID = -3856732506886968324L;
+    private static final long serialVersionUID = 6283047186512397214L;
 
-    private ArrayList<T> arrayList = new ArrayList<T>();
+    private class ArrayQueueIterator implements Iterator<T> {
+        private int index;
+        private int modificationCount;
+
+        public ArrayQueueIterator() {
+            index = length;
+            modificationCount = ArrayQueue.this.modificationCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (modificationCount != ArrayQueue.this.modificationCount) {
+                throw new ConcurrentModificationException();
+            }
+
+            return (index > 0);
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return get(--index);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class SortedArrayQueueIterator implements Iterator<T> {
+        private Object[] items;
+        private int index = 0;
+        private int modificationCount;
+
+        @SuppressWarnings("unchecked")
+        public SortedArrayQueueIterator() {
+            items = Arrays.copyOf(ArrayQueue.this.items, length);
+            Arrays.sort(items, (Comparator<Object>)comparator);
+            modificationCount = ArrayQueue.this.modificationCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (modificationCount != ArrayQueue.this.modificationCount) {
+                throw new ConcurrentModificationException();
+            }
+
+            return (index < items.length);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return (T)items[index++];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private transient Object[] items;
+    private transient int head = 0;
+    private transient int length = 0;
+
+    private Comparator<T> comparator = null;
+
+    private transient int modificationCount = 0;
     private transient QueueListenerList<T> queueListeners = new QueueListenerList<T>();
 
+    public static final int DEFAULT_CAPACITY = 10;
+
     public ArrayQueue() {
         this(null);
     }
 
     public ArrayQueue(Comparator<T> comparator) {
+        items = new Object[DEFAULT_CAPACITY];
         setComparator(comparator);
     }
 
     public ArrayQueue(int capacity) {
-        ensureCapacity(capacity);
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity is negative.");
+        }
+
+        items = new Object[capacity];
     }
 
     @Override
     public void enqueue(T item) {
-        if (getComparator() == null) {
-            arrayList.insert(item, 0);
+        ensureCapacity(length + 1);
+
+        if (comparator == null) {
+            int index = head + length;
+            if (index >= items.length) {
+                index -= items.length;
+            }
+
+            items[index] = item;
+            length++;
         } else {
-            arrayList.add(item);
+            siftUp(length++, item);
         }
 
+        modificationCount++;
+
         queueListeners.itemEnqueued(this, item);
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public T dequeue() {
-        int length = arrayList.getLength();
         if (length == 0) {
             throw new IllegalStateException("queue is empty");
         }
 
-        T item = arrayList.remove(length - 1, 1).get(0);
+        T item;
+        if (comparator == null) {
+            item = (T)items[head];
+            items[head] = null;
+
+            head++;
+            if (head == items.length) {
+                head = 0;
+            }
+
+            length--;
+        } else {
+            item = (T)items[0];
+
+            length--;
+            T last = (T)items[length];
+            items[length] = null;
+
+            if (length > 0) {
+                siftDown(0, last);
+            }
+        }
+
+        if (length == 0) {
+            head = 0;
+        }
+
+        modificationCount++;
+
         queueListeners.itemDequeued(this, item);
 
         return item;
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public T peek() {
         T item = null;
-        int length = arrayList.getLength();
         if (length > 0) {
-            item = arrayList.get(length - 1);
+            item = (T)items[comparator == null ? head : 0];
         }
 
         return item;
@@ -83,46 +215,206 @@ public class ArrayQueue<T> implements Queue<T>, Serializable {
 
     @Override
     public void clear() {
-        if (arrayList.getLength() > 0) {
-            arrayList.clear();
+        if (length > 0) {
+            clearItems();
+            modificationCount++;
+
             queueListeners.queueCleared(this);
         }
     }
 
     @Override
     public boolean isEmpty() {
-        return (arrayList.getLength() == 0);
+        return (length == 0);
     }
 
     @Override
     public int getLength() {
-        return arrayList.getLength();
+        return length;
     }
 
     public void ensureCapacity(int capacity) {
-        arrayList.ensureCapacity(capacity);
+        if (capacity > items.length) {
+            capacity = Math.max(items.length * 3 / 2, capacity);
+            items = copyItems(capacity);
+            head = 0;
+        }
+    }
+
+    public int getCapacity() {
+        return items.length;
     }
 
     @Override
     public Comparator<T> getComparator() {
-        return arrayList.getComparator();
+        return comparator;
     }
 
     @Override
     public void setComparator(Comparator<T> comparator) {
-        Comparator<T> previousComparator = getComparator();
-        arrayList.setComparator(comparator);
+        Comparator<T> previousComparator = this.comparator;
+
+        if (comparator != null) {
+            // Move the items to the start of the array and build the heap
+            if (previousComparator == null
+                && head != 0) {
+                items = copyItems(items.length);
+                head = 0;
+            }
+
+            this.comparator = comparator;
+            heapify();
+        } else if (previousComparator != null) {
+            // Store the items in dequeue order (i.e. reverse sorted order)
+            sortItems(previousComparator);
+            this.comparator = null;
+        }
+
+        modificationCount++;
 
         queueListeners.comparatorChanged(this, previousComparator);
     }
 
+    /**
+     * Returns an iterator over the items in the queue. If the queue is
+     * unsorted, items are returned from the tail of the queue to the head
+     * (i.e. in reverse dequeue order); otherwise, they are returned in
+     * ascending sort order.
+     */
     @Override
     public Iterator<T> iterator() {
-        return new ImmutableIterator<T>(arrayList.iterator());
+        return (comparator == null) ? new ArrayQueueIterator() : new SortedArrayQueueIterator();
     }
 
     @Override
     public ListenerList<QueueListener<T>> getQueueListeners() {
         return queueListeners;
     }
+
+    /**
+     * Returns the item at the given position in dequeue order of an unsorted
+     * queue.
+     */
+    @SuppressWarnings("unchecked")
+    private T get(int index) {
+        index += head;
+        if (index >= items.length) {
+            index -= items.length;
+        }
+
+        return (T)items[index];
+    }
+
+    private Object[] copyItems(int capacity) {
+        Object[] items = new Object[capacity];
+
+        int count = Math.min(length, this.items.length - head);
+        System.arraycopy(this.items, head, items, 0, count);
+        System.arraycopy(this.items, 0, items, count, length - count);
+
+        return items;
+    }
+
+    private void clearItems() {
+        if (comparator == null) {
+            for (int i = 0; i < length; i++) {
+                int index = head + i;
+                if (index >= items.length) {
+                    index -= items.length;
+                }
+
+                items[index] = null;
+            }
+        } else {
+            Arrays.fill(items, 0, length, null);
+        }
+
+        head = 0;
+        length = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void sortItems(Comparator<T> comparator) {
+        Arrays.sort(items, 0, length, (Comparator<Object>)comparator);
+
+        // Reverse the items so the largest is dequeued first
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            Object item = items[i];
+            items[i] = items[j];
+            items[j] = item;
+        }
+
+        head = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void heapify() {
+        for (int i = (length >>> 1) - 1; i >= 0; i--) {
+            siftDown(i, (T)items[i]);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void siftUp(int index, T item) {
+        while (index > 0) {
+            int parentIndex = (index - 1) >>> 1;
+            T parent = (T)items[parentIndex];
+
+            if (comparator.compare(item, parent) <= 0) {
+                break;
+            }
+
+            items[index] = parent;
+            index = parentIndex;
+        }
+
+        items[index] = item;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void siftDown(int index, T item) {
+        int half = length >>> 1;
+
+        while (index < half) {
+            int childIndex = (index << 1) + 1;
+            T child = (T)items[childIndex];
+
+            int rightIndex = childIndex + 1;
+            if (rightIndex < length
+                && comparator.compare((T)items[rightIndex], child) > 0) {
+                childIndex = rightIndex;
+                child = (T)items[childIndex];
+            }
+
+            if (comparator.compare(item, child) >= 0) {
+                break;
+            }
+
+            items[index] = child;
+            index = childIndex;
+        }
+
+        items[index] = item;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+
+        out.writeInt(length);
+        for (int i = 0; i < length; i++) {
+            out.writeObject(comparator == null ? get(i) : items[i]);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        length = in.readInt();
+        items = new Object[Math.max(length, DEFAULT_CAPACITY)];
+        for (int i = 0; i < length; i++) {
+            items[i] = in.readObject();
+        }
+
+        queueListeners = new QueueListenerList<T>();
+    }
 }
@@ -0,0 +1,1153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.collections;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.pivot.util.ListenerList;
+
+/**
+ * Implementation of the {@link List} interface that is backed by a B+tree
+ * of small arrays. Each branch node records the number of items beneath
+ * it, so positional access, insertion and removal are all O(log n). This
+ * makes the class a better fit than {@link ArrayList} or {@link LinkedList}
+ * for large lists that are frequently modified in the middle.
+ * <p>
+ * NOTE This class is not thread-safe. For concurrent access, use a
+ * {@link org.apache.pivot.collections.concurrent.SynchronizedList}.
+ */
+public class BTreeList<T> implements List<T>, Serializable {
+    private static final long serialVersionUID = -6027371383447413476L;
+
+    private static abstract class Node {
+        // The number of items in this subtree
+        protected int size = 0;
+    }
+
+    private static final class Leaf extends Node {
+        private Object[] items = new Object[NODE_CAPACITY];
+
+        private Leaf previous = null;
+        private Leaf next = null;
+    }
+
+    private static final class Branch extends Node {
+        private Node[] children = new Node[NODE_CAPACITY];
+        private int count = 0;
+    }
+
+    private class BTreeListItemIterator implements ItemIterator<T> {
+        private int index = 0;
+        private int modificationCount;
+        private boolean forward = true;
+
+        private Leaf leaf = null;
+        private int leafStart = 0;
+
+        public BTreeListItemIterator() {
+            modificationCount = BTreeList.this.modificationCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (modificationCount != BTreeList.this.modificationCount) {
+                throw new ConcurrentModificationException();
+            }
+
+            return (index < root.size);
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            forward = true;
+            return getItem(index++);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            if (modificationCount != BTreeList.this.modificationCount) {
+                throw new ConcurrentModificationException();
+            }
+
+            return (index > 0);
+        }
+
+        @Override
+        public T previous() {
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+
+            forward = false;
+            return getItem(--index);
+        }
+
+        @Override
+        public void toStart() {
+            index = 0;
+        }
+
+        @Override
+        public void toEnd() {
+            index = root.size;
+        }
+
+        @Override
+        public void insert(T item) {
+            indexBoundsCheck();
+
+            BTreeList.this.insert(item, index);
+            modificationCount++;
+            leaf = null;
+        }
+
+        @Override
+        public void update(T item) {
+            indexBoundsCheck();
+
+            BTreeList.this.update(forward ? index - 1 : index, item);
+            modificationCount++;
+            leaf = null;
+        }
+
+        @Override
+        public void remove() {
+            indexBoundsCheck();
+
+            if (forward) {
+                index--;
+            }
+
+            BTreeList.this.remove(index, 1);
+            modificationCount++;
+            leaf = null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T getItem(int index) {
+            // Step to an adjacent leaf when possible, so that iteration does
+            // not need to descend the tree for every item
+            if (leaf == null
+                || index < leafStart
+                || index >= leafStart + leaf.size) {
+                if (leaf != null
+                    && index == leafStart + leaf.size
+                    && leaf.next != null) {
+                    leafStart += leaf.size;
+                    leaf = leaf.next;
+                } else if (leaf != null
+                    && index == leafStart - 1
+                    && leaf.previous != null) {
+                    leaf = leaf.previous;
+                    leafStart -= leaf.size;
+                } else {
+                    Node node = root;
+                    int offset = index;
+
+                    while (node instanceof Branch) {
+                        Branch branch = (Branch)node;
+
+                        int i = 0;
+                        while (offset >= branch.children[i].size) {
+                            offset -= branch.children[i].size;
+                            i++;
+                        }
+
+                        node = branch.children[i];
+                    }
+
+                    leaf = (Leaf)node;
+                    leafStart = index - offset;
+                }
+            }
+
+            return (T)leaf.items[index - leafStart];
+        }
+
+        private void indexBoundsCheck() {
+            if (index < 0 || index > root.size) {
+                throw new IllegalStateException("index  " + index + " out of bounds");
+            }
+        }
+    }
+
+    private transient Node root = new Leaf();
+
+    private Comparator<T> comparator = null;
+
+    private transient int modificationCount = 0;
+    private transient ListListenerList<T> listListeners = null;
+
+    // The maximum number of items in a leaf or children in a branch
+    private static final int NODE_CAPACITY = 64;
+
+    // Nodes smaller than this are merged with or borrow from a sibling
+    private static final int MINIMUM_NODE_SIZE = NODE_CAPACITY / 4;
+
+    public BTreeList() {
+    }
+
+    public BTreeList(Comparator<T> comparator) {
+        this.comparator = comparator;
+    }
+
+    @SuppressWarnings("unchecked")
+    public BTreeList(T... items) {
+        if (items == null) {
+            throw new IllegalArgumentException("items is null.");
+        }
+
+        build(items, items.length);
+    }
+
+    public BTreeList(Sequence<T> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("items is null.");
+        }
+
+        Object[] array = ArrayList.copyItems(items);
+        build(array, array.length);
+    }
+
+    @Override
+    public int add(T item) {
+        int index;
+
+        if (comparator == null) {
+            index = root.size;
+        } else {
+            index = getInsertionIndex(item);
+        }
+
+        insert(item, index, false);
+
+        return index;
+    }
+
+    @Override
+    public void insert(T item, int index) {
+        insert(item, index, true);
+    }
+
+    private void insert(T item, int index, boolean validate) {
+        verifyIndexBounds(index, 0, root.size);
+
+        if (comparator != null
+            && validate) {
+            verifyLocation(item, index - 1, index);
+        }
+
+        insertItem(index, item);
+        modificationCount++;
+
+        if (listListeners != null) {
+            listListeners.itemInserted(this, index);
+        }
+    }
+
+    private void insertItem(int index, Object item) {
+        Node sibling = insert(root, index, item);
+
+        // Grow the tree if the root was split
+        if (sibling != null) {
+            Branch branch = new Branch();
+            branch.children[0] = root;
+            branch.children[1] = sibling;
+            branch.count = 2;
+            branch.size = root.size + sibling.size;
+
+            root = branch;
+        }
+    }
+
+    /**
+     * Inserts an item into a subtree.
+     *
+     * @return
+     * The new right sibling of the node if the node was split; <tt>null</tt>,
+     * otherwise.
+     */
+    private static Node insert(Node node, int index, Object item) {
+        Node sibling = null;
+
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf)node;
+
+            if (leaf.size == NODE_CAPACITY) {
+                Leaf right = splitLeaf(leaf);
+                sibling = right;
+
+                if (index > leaf.size) {
+                    index -= leaf.size;
+                    leaf = right;
+                }
+            }
+
+            System.arraycopy(leaf.items, index, leaf.items, index + 1, leaf.size - index);
+            leaf.items[index] = item;
+            leaf.size++;
+        } else {
+            Branch branch = (Branch)node;
+
+            int i = 0;
+            while (i < branch.count - 1
+                && index > branch.children[i].size) {
+                index -= branch.children[i].size;
+                i++;
+            }
+
+            Node childSibling = insert(branch.children[i], index, item);
+            branch.size++;
+
+            if (childSibling != null) {
+                i++;
+
+                if (branch.count == NODE_CAPACITY) {
+                    Branch right = splitBranch(branch);
+                    sibling = right;
+
+                    if (i > branch.count) {
+                        i -= branch.count;
+                        branch = right;
+                    }
+                }
+
+                System.arraycopy(branch.children, i, branch.children, i + 1, branch.count - i);
+                branch.children[i] = childSibling;
+                branch.count++;
+
+                // The new child's items are already counted in the size of
+                // the node that was split; only adjust the size if the new
+                // child landed in a different branch
+                if (branch == sibling) {
+                    branch.size += childSibling.size;
+                    ((Branch)node).size -= childSibling.size;
+                }
+            }
+        }
+
+        return sibling;
+    }
+
+    private static Leaf splitLeaf(Leaf leaf) {
+        Leaf right = new Leaf();
+
+        int n = leaf.size / 2;
+        right.size = leaf.size - n;
+        System.arraycopy(leaf.items, n, right.items, 0, right.size);
+        Arrays.fill(leaf.items, n, leaf.size, null);
+        leaf.size = n;
+
+        right.next = leaf.next;
+        if (right.next != null) {
+            right.next.previous = right;
+        }
+
+        right.previous = leaf;
+        leaf.next = right;
+
+        return right;
+    }
+
+    private static Branch splitBranch(Branch branch) {
+        Branch right = new Branch();
+
+        int n = branch.count / 2;
+        right.count = branch.count - n;
+        System.arraycopy(branch.children, n, right.children, 0, right.count);
+        Arrays.fill(branch.children, n, branch.count, null);
+        branch.count = n;
+
+        for (int i = 0; i < right.count; i++) {
+            right.size += right.children[i].size;
+        }
+
+        branch.size -= right.size;
+
+        return right;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T update(int index, T item) {
+        verifyIndexBounds(index, 0, root.size - 1);
+
+        Node node = root;
+        int offset = index;
+
+        while (node instanceof Branch) {
+            Branch branch = (Branch)node;
+
+            int i = 0;
+            while (offset >= branch.children[i].size) {
+                offset -= branch.children[i].size;
+                i++;
+            }
+
+            node = branch.children[i];
+        }
+
+        Leaf leaf = (Leaf)node;
+        T previousItem = (T)leaf.items[offset];
+
+        if (previousItem != item) {
+            if (comparator != null) {
+                verifyLocation(item, index - 1, index + 1);
+            }
+
+            leaf.items[offset] = item;
+
+            modificationCount++;
+        }
+
+        if (listListeners != null) {
+            listListeners.itemUpdated(this, index, previousItem);
+        }
+
+        return previousItem;
+    }
+
+    private void verifyLocation(T item, int previousIndex, int nextIndex) {
+        // Ensure that the new item is greater or equal to its predecessor
+        // and less than or equal to its successor
+        if ((previousIndex >= 0
+            && comparator.compare(item, get(previousIndex)) < 0)
+            || (nextIndex < root.size
+            && comparator.compare(item, get(nextIndex)) > 0)) {
+            throw new IllegalArgumentException("Illegal item modification.");
+        }
+    }
+
+    /**
+     * Returns the index after the last item that compares less than or equal
+     * to the given item.
+     */
+    @SuppressWarnings("unchecked")
+    private int getInsertionIndex(T item) {
+        Node node = root;
+        int index = 0;
+
+        while (node instanceof Branch) {
+            Branch branch = (Branch)node;
+
+            // Find the last child whose first item is less than or equal to
+            // the item
+            int low = 1;
+            int high = branch.count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+
+                if (comparator.compare((T)getFirst(branch.children[mid]), item) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+
+            for (int i = 0; i < high; i++) {
+                index += branch.children[i].size;
+            }
+
+            node = branch.children[high];
+        }
+
+        Leaf leaf = (Leaf)node;
+
+        int low = 0;
+        int high = leaf.size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+
+            if (comparator.compare((T)leaf.items[mid], item) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return index + low;
+    }
+
+    private static Object getFirst(Node node) {
+        while (node instanceof Branch) {
+            node = ((Branch)node).children[0];
+        }
+
+        return ((Leaf)node).items[0];
+    }
+
+    private static Leaf getFirstLeaf(Node node) {
+        while (node instanceof Branch) {
+            node = ((Branch)node).children[0];
+        }
+
+        return (Leaf)node;
+    }
+
+    @Override
+    public int remove(T item) {
+        int index = indexOf(item);
+
+        if (index >= 0) {
+            remove(index, 1);
+        }
+
+        return index;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Sequence<T> remove(int index, int count) {
+        verifyIndexBounds(index, count, 0, root.size);
+
+        ArrayList<T> removed = new ArrayList<T>(count);
+
+        if (count > 0) {
+            if (count * 8 > root.size) {
+                // Removing a large range; rebuild the tree from the remaining
+                // items rather than removing them one at a time
+                Object[] items = toArray();
+                int length = items.length;
+
+                for (int i = index, n = index + count; i < n; i++) {
+                    removed.add((T)items[i]);
+                }
+
+                System.arraycopy(items, index + count, items, index, length - (index + count));
+                build(items, length - count);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    removed.add((T)remove(root, index));
+
+                    // Collapse the root if it has a single child
+                    while (root instanceof Branch
+                        && ((Branch)root).count == 1) {
+                        root = ((Branch)root).children[0];
+                    }
+                }
+            }
+
+            modificationCount++;
+
+            if (listListeners != null) {
+                listListeners.itemsRemoved(this, index, removed);
+            }
+        }
+
+        return removed;
+    }
+
+    private static Object remove(Node node, int index) {
+        Object item;
+
+        node.size--;
+
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf)node;
+
+            item = leaf.items[index];
+            System.arraycopy(leaf.items, index + 1, leaf.items, index, leaf.size - index);
+            leaf.items[leaf.size] = null;
+        } else {
+            Branch branch = (Branch)node;
+
+            int i = 0;
+            while (index >= branch.children[i].size) {
+                index -= branch.children[i].size;
+                i++;
+            }
+
+            Node child = branch.children[i];
+            item = remove(child, index);
+
+            if (getEntryCount(child) < MINIMUM_NODE_SIZE
+                && branch.count > 1) {
+                rebalance(branch, (i > 0) ? i - 1 : i);
+            }
+        }
+
+        return item;
+    }
+
+    private static int getEntryCount(Node node) {
+        return (node instanceof Leaf) ? node.size : ((Branch)node).count;
+    }
+
+    /**
+     * Merges two adjacent children of a branch, or moves entries between them
+     * if they will not fit in a single node.
+     */
+    private static void rebalance(Branch branch, int i) {
+        Node left = branch.children[i];
+        Node right = branch.children[i + 1];
+
+        int n = getEntryCount(left) + getEntryCount(right);
+
+        if (n <= NODE_CAPACITY) {
+            if (left instanceof Leaf) {
+                Leaf leftLeaf = (Leaf)left;
+                Leaf rightLeaf = (Leaf)right;
+
+                System.arraycopy(rightLeaf.items, 0, leftLeaf.items, leftLeaf.size, rightLeaf.size);
+
+                leftLeaf.next = rightLeaf.next;
+                if (leftLeaf.next != null) {
+                    leftLeaf.next.previous = leftLeaf;
+                }
+            } else {
+                Branch leftBranch = (Branch)left;
+                Branch rightBranch = (Branch)right;
+
+                System.arraycopy(rightBranch.children, 0, leftBranch.children, leftBranch.count,
+                    rightBranch.count);
+                leftBranch.count = n;
+            }
+
+            left.size += right.size;
+
+            System.arraycopy(branch.children, i + 2, branch.children, i + 1, branch.count - (i + 2));
+            branch.count--;
+            branch.children[branch.count] = null;
+        } else {
+            int leftCount = n / 2;
+
+            if (left instanceof Leaf) {
+                Leaf leftLeaf = (Leaf)left;
+                Leaf rightLeaf = (Leaf)right;
+
+                int k = leftLeaf.size - leftCount;
+                if (k > 0) {
+                    // Move items from the end of the left leaf
+                    System.arraycopy(rightLeaf.items, 0, rightLeaf.items, k, rightLeaf.size);
+                    System.arraycopy(leftLeaf.items, leftCount, rightLeaf.items, 0, k);
+                    Arrays.fill(leftLeaf.items, leftCount, leftLeaf.size, null);
+                } else {
+                    // Move items from the start of the right leaf
+                    k = -k;
+                    System.arraycopy(rightLeaf.items, 0, leftLeaf.items, leftLeaf.size, k);
+                    System.arraycopy(rightLeaf.items, k, rightLeaf.items, 0, rightLeaf.size - k);
+                    Arrays.fill(rightLeaf.items, rightLeaf.size - k, rightLeaf.size, null);
+                }
+
+                leftLeaf.size = leftCount;
+                rightLeaf.size = n - leftCount;
+            } else {
+                Branch leftBranch = (Branch)left;
+                Branch rightBranch = (Branch)right;
+
+                int size = 0;
+                int k = leftBranch.count - leftCount;
+                if (k > 0) {
+                    // Move children from the end of the left branch
+                    System.arraycopy(rightBranch.children, 0, rightBranch.children, k,
+                        rightBranch.count);
+                    System.arraycopy(leftBranch.children, leftCount, rightBranch.children, 0, k);
+                    Arrays.fill(leftBranch.children, leftCount, leftBranch.count, null);
+
+                    for (int j = 0; j < k; j++) {
+                        size += rightBranch.children[j].size;
+                    }
+
+                    leftBranch.size -= size;
+                    rightBranch.size += size;
+                } else {
+                    // Move children from the start of the right branch
+                    k = -k;
+                    System.arraycopy(rightBranch.children, 0, leftBranch.children, leftBranch.count,
+                        k);
+                    System.arraycopy(rightBranch.children, k, rightBranch.children, 0,
+                        rightBranch.count - k);
+                    Arrays.fill(rightBranch.children, rightBranch.count - k, rightBranch.count,
+                        null);
+
+                    for (int j = 0; j < k; j++) {
+                        size += leftBranch.children[leftBranch.count + j].size;
+                    }
+
+                    leftBranch.size += size;
+                    rightBranch.size -= size;
+                }
+
+                leftBranch.count = leftCount;
+                rightBranch.count = n - leftCount;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        if (root.size > 0) {
+            root = new Leaf();
+            modificationCount++;
+
+            if (listListeners != null) {
+                listListeners.listCleared(this);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void addAll(Sequence<T> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("items is null.");
+        }
+
+        if (comparator == null) {
+            insertAll(items, root.size);
+        } else {
+            Object[] addedItems = ArrayList.copyItems(items);
+            int count = addedItems.length;
+
+            if (count > 0) {
+                Arrays.sort(addedItems, (Comparator<Object>)comparator);
+
+                // Merge the new items into the list; new items are placed
+                // after any existing items that compare equal
+                Object[] existingItems = toArray();
+                int n = existingItems.length + count;
+
+                Object[] mergedItems = new Object[n];
+                boolean[] added = new boolean[n];
+
+                int i = 0;
+                int j = 0;
+                for (int k = 0; k < n; k++) {
+                    if (j == count
+                        || (i < existingItems.length
+                        && comparator.compare((T)existingItems[i], (T)addedItems[j]) <= 0)) {
+                        mergedItems[k] = existingItems[i++];
+                    } else {
+                        mergedItems[k] = addedItems[j++];
+                        added[k] = true;
+                    }
+                }
+
+                build(mergedItems, n);
+                modificationCount++;
+
+                if (listListeners != null) {
+                    // Fire an event for each contiguous range of new items
+                    int k = 0;
+                    while (k < n) {
+                        if (added[k]) {
+                            int start = k;
+                            while (k < n
+                                && added[k]) {
+                                k++;
+                            }
+
+                            listListeners.itemsInserted(this, start, k - start);
+                        } else {
+                            k++;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void insertAll(Sequence<T> items, int index) {
+        if (items == null) {
+            throw new IllegalArgumentException("items is null.");
+        }
+
+        verifyIndexBounds(index, 0, root.size);
+
+        if (comparator != null) {
+            throw new IllegalStateException("List is sorted.");
+        }
+
+        Object[] insertedItems = ArrayList.copyItems(items);
+        int count = insertedItems.length;
+
+        if (count > 0) {
+            if (count * 8 > root.size) {
+                // Inserting a large range; rebuild the tree
+                Object[] existingItems = toArray();
+                int length = existingItems.length;
+
+                Object[] newItems = new Object[length + count];
+                System.arraycopy(existingItems, 0, newItems, 0, index);
+                System.arraycopy(insertedItems, 0, newItems, index, count);
+                System.arraycopy(existingItems, index, newItems, index + count, length - index);
+
+                build(newItems, newItems.length);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    insertItem(index + i, insertedItems[i]);
+                }
+            }
+
+            modificationCount++;
+
+            if (listListeners != null) {
+                listListeners.itemsInserted(this, index, count);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int removeAll(Sequence<T> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("items is null.");
+        }
+
+        java.util.HashSet<Object> removedItems =
+            new java.util.HashSet<Object>(Arrays.asList(ArrayList.copyItems(items)));
+
+        ArrayList<Integer> rangeIndexes = new ArrayList<Integer>();
+        ArrayList<ArrayList<T>> ranges = new ArrayList<ArrayList<T>>();
+
+        // Collect the remaining items and the removed ranges
+        Object[] remainingItems = new Object[root.size];
+        ArrayList<T> range = null;
+        int index = 0;
+        int j = 0;
+
+        for (Leaf leaf = getFirstLeaf(root); leaf != null; leaf = leaf.next) {
+            for (int i = 0; i < leaf.size; i++) {
+                Object item = leaf.items[i];
+
+                if (removedItems.contains(item)) {
+                    if (range == null) {
+                        range = new ArrayList<T>();
+                        rangeIndexes.add(index);
+                        ranges.add(range);
+                    }
+
+                    range.add((T)item);
+                } else {
+                    range = null;
+                    remainingItems[j++] = item;
+                }
+
+                index++;
+            }
+        }
+
+        int count = index - j;
+
+        if (count > 0) {
+            build(remainingItems, j);
+            modificationCount++;
+
+            if (listListeners != null) {
+                for (int i = ranges.getLength() - 1; i >= 0; i--) {
+                    listListeners.itemsRemoved(this, rangeIndexes.get(i), ranges.get(i));
+                }
+            }
+        }
+
+        return count;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setAll(Sequence<T> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("items is null.");
+        }
+
+        Object[] newItems = ArrayList.copyItems(items);
+        if (comparator != null) {
+            Arrays.sort(newItems, (Comparator<Object>)comparator);
+        }
+
+        int previousLength = root.size;
+
+        build(newItems, newItems.length);
+        modificationCount++;
+
+        if (listListeners != null) {
+            if (previousLength > 0) {
+                listListeners.listCleared(this);
+            }
+
+            if (root.size > 0) {
+                listListeners.itemsInserted(this, 0, root.size);
+            }
+        }
+    }
+
+    /**
+     * Replaces the contents of the tree with the given items. Items are
+     * distributed evenly across full leaves, so that no node is left
+     * underfilled.
+     */
+    private void build(Object[] items, int length) {
+        int leafCount = Math.max((length + NODE_CAPACITY - 1) / NODE_CAPACITY, 1);
+        Node[] nodes = new Node[leafCount];
+
+        Leaf previousLeaf = null;
+        for (int i = 0, start = 0; i < leafCount; i++) {
+            int end = (int)((long)length * (i + 1) / leafCount);
+
+            Leaf leaf = new Leaf();
+            System.arraycopy(items, start, leaf.items, 0, end - start);
+            leaf.size = end - start;
+
+            leaf.previous = previousLeaf;
+            if (previousLeaf != null) {
+                previousLeaf.next = leaf;
+            }
+
+            previousLeaf = leaf;
+            nodes[i] = leaf;
+            start = end;
+        }
+
+        while (nodes.length > 1) {
+            int branchCount = (nodes.length + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            Node[] branches = new Node[branchCount];
+
+            for (int i = 0, start = 0; i < branchCount; i++) {
+                int end = (int)((long)nodes.length * (i + 1) / branchCount);
+
+                Branch branch = new Branch();
+                System.arraycopy(nodes, start, branch.children, 0, end - start);
+                branch.count = end - start;
+
+                for (int j = start; j < end; j++) {
+                    branch.size += nodes[j].size;
+                }
+
+                branches[i] = branch;
+                start = end;
+            }
+
+            nodes = branches;
+        }
+
+        root = nodes[0];
+    }
+
+    private Object[] toArray() {
+        Object[] items = new Object[root.size];
+
+        int i = 0;
+        for (Leaf leaf = getFirstLeaf(root); leaf != null; leaf = leaf.next) {
+            System.arraycopy(leaf.items, 0, items, i, leaf.size);
+            i += leaf.size;
+        }
+
+        return items;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        verifyIndexBounds(index, 0, root.size - 1);
+
+        Node node = root;
+        while (node instanceof Branch) {
+            Branch branch = (Branch)node;
+
+            int i = 0;
+            while (index >= branch.children[i].size) {
+                index -= branch.children[i].size;
+                i++;
+            }
+
+            node = branch.children[i];
+        }
+
+        return (T)((Leaf)node).items[index];
+    }
+
+    @Override
+    public int indexOf(T item) {
+        int index = 0;
+
+        for (Leaf leaf = getFirstLeaf(root); leaf != null; leaf = leaf.next) {
+            for (int i = 0; i < leaf.size; i++) {
+                if (item == null ? leaf.items[i] == null : item.equals(leaf.items[i])) {
+                    return index + i;
+                }
+            }
+
+            index += leaf.size;
+        }
+
+        return -1;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return (root.size == 0);
+    }
+
+    @Override
+    public int getLength() {
+        return root.size;
+    }
+
+    @Override
+    public Comparator<T> getComparator() {
+        return comparator;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setComparator(Comparator<T> comparator) {
+        Comparator<T> previousComparator = this.comparator;
+
+        if (comparator != null) {
+            Object[] items = toArray();
+            Arrays.sort(items, (Comparator<Object>)comparator);
+            build(items, items.length);
+
+            modificationCount++;
+        }
+
+        this.comparator = comparator;
+
+        if (listListeners != null) {
+            listListeners.comparatorChanged(this, previousComparator);
+        }
+    }
+
+    @Override
+    public ItemIterator<T> iterator() {
+        return new BTreeListItemIterator();
+    }
+
+    @Override
+    public ListenerList<ListListener<T>> getListListeners() {
+        if (listListeners == null) {
+            listListeners = new ListListenerList<T>();
+        }
+
+        return listListeners;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+
+        out.writeInt(root.size);
+        for (Leaf leaf = getFirstLeaf(root); leaf != null; leaf = leaf.next) {
+            for (int i = 0; i < leaf.size; i++) {
+                out.writeObject(leaf.items[i]);
+            }
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        int length = in.readInt();
+        Object[] items = new Object[length];
+        for (int i = 0; i < length; i++) {
+            items[i] = in.readObject();
+        }
+
+        build(items, length);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean equals(Object o) {
+        boolean equals = false;
+
+        if (this == o) {
+            equals = true;
+        } else if (o instanceof List) {
+            List<T> otherList = (List<T>)o;
+
+            if (root.size == otherList.getLength()) {
+                Iterator<T> iterator = otherList.iterator();
+                equals = true;
+
+                for (T element : this) {
+                    if (!(iterator.hasNext()
+                        && (element == null ? iterator.next() == null : element.equals(iterator.next())))) {
+                        equals = false;
+                        break;
+                    }
+                }
+            }
+        }
+
+        return equals;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 1;
+        for (T item : this) {
+            hashCode = 31 * hashCode + (item == null ? 0 : item.hashCode());
+        }
+
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(getClass().getName());
+        sb.append(" [");
+
+        int i = 0;
+        for (T item : this) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+
+            sb.append(item);
+            i++;
+        }
+
+        sb.append("]");
+
+        return sb.toString();
+    }
+
+    private static void verifyIndexBounds(int index, int start, int end) {
+        if (index < start || index > end) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds.");
+        }
+    }
+
+    private static void verifyIndexBounds(int index, int count, int start, int end) {
+        if (count < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        if (index < start) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds.");
+        }
+
+        if (index + count > end) {
+            throw new IndexOutOfBoundsException("index + count " + index + "," + count + " out of range.");
+        }
+    }
+}
@@ -100,6 +100,26 @@ public class EnumList<E extends Enum<E>> implements List<E>, Serializable {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void addAll(Sequence<E> items) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void insertAll(Sequence<E> items, int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int removeAll(Sequence<E> items) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAll(Sequence<E> items) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public E get(int index) {
         return items[index];
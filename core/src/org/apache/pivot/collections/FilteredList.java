@@ -23,11 +23,28 @@ import org.apache.pivot.util.EmptyIterator;
 import org.apache.pivot.util.Filter;
 import org.apache.pivot.util.ImmutableIterator;
 import org.apache.pivot.util.ListenerList;
+import org.apache.pivot.util.concurrent.Task;
+import org.apache.pivot.util.concurrent.TaskBatch;
+import org.apache.pivot.util.concurrent.TaskExecutionException;
 
 /**
  * Provides a filtered view of a list that can be sorted independently, but
  * remains backed by the original data. Modifications to the filtered list
  * are propagated to the source.
+ * <p>
+ * While the view is unsorted, its items appear in the same order as in the
+ * source, and the view keeps the source index of each item. Changes to the
+ * source are located in the view by binary search, so each one fires at most
+ * one event per affected range. When the view is sorted, items are located
+ * by comparator.
+ * <p>
+ * Changing the filter re-evaluates it and fires a single batched change
+ * (<tt>listCleared()</tt> followed by <tt>itemsInserted()</tt>). If the new
+ * filter is known to be narrower than the previous one (for example, when a
+ * character is added to a prefix), {@link #setFilter(Filter, boolean)} only
+ * re-evaluates the items that are currently in the view. In parallel mode
+ * (see {@link #setParallel(boolean)}), large lists are filtered in parallel,
+ * and {@link FilterTask} can be used to filter a list in the background.
  */
 public class FilteredList<T> implements List<T> {
     private static class FilteredListListenerList<T> extends ListenerList<FilteredListListener<T>>
@@ -47,103 +64,166 @@ public class FilteredList<T> implements List<T> {
         }
     }
 
+    /**
+     * Task that evaluates a filter against a snapshot of the list. The task
+     * may be executed on a background thread; once it has completed,
+     * {@link #apply()} must be called on the thread that owns the list to
+     * update the view. If the source has changed in the meantime, the filter
+     * is re-evaluated synchronously when it is applied.
+     */
+    public class FilterTask extends Task<Void> {
+        private Filter<T> filter;
+        private boolean narrowing;
+
+        private Object[] items;
+        private int[] indexes;
+        private int modificationCount;
+
+        private volatile boolean[] included = null;
+
+        private FilterTask(Filter<T> filter, boolean narrowing) {
+            if (view == null) {
+                throw new IllegalStateException();
+            }
+
+            this.filter = filter;
+            this.narrowing = narrowing;
+
+            if (narrowing) {
+                items = ArrayList.copyItems(view);
+                indexes = (sourceIndexes == null) ? null : sourceIndexes.toArray();
+            } else {
+                items = ArrayList.copyItems(source);
+            }
+
+            modificationCount = FilteredList.this.modificationCount;
+        }
+
+        @Override
+        public Void execute() throws TaskExecutionException {
+            included = evaluate(filter, items);
+            return null;
+        }
+
+        /**
+         * Sets the list's filter to the task's filter, using the results of
+         * the task.
+         */
+        public void apply() {
+            if (included == null) {
+                throw new IllegalStateException("Task has not been executed.");
+            }
+
+            if (modificationCount == FilteredList.this.modificationCount) {
+                update(filter, items, indexes, included);
+            } else {
+                setFilter(filter, narrowing);
+            }
+        }
+    }
+
     private List<T> source = null;
     private Filter<T> filter = null;
     private Comparator<T> comparator = null;
+    private boolean parallel = false;
 
     private ArrayList<T> view = null;
 
+    // The source index of each item in the view; only maintained while the
+    // view is unsorted, in which case the indexes are in ascending order
+    private IntArrayList sourceIndexes = null;
+
+    // Incremented whenever the source, filter, or sort order changes
+    private int modificationCount = 0;
+
     private boolean updating = false;
 
+    /**
+     * The minimum number of items in each chunk of a list that is filtered in
+     * parallel; smaller lists are filtered sequentially.
+     */
+    public static final int MINIMUM_CHUNK_SIZE = 8192;
+
     private ListListener<T> listListener = new ListListener<T>() {
         @Override
         public void itemInserted(List<T> list, int index) {
             if (!updating) {
-                T item = list.get(index);
+                sourceItemsInserted(index, 1);
+            }
+        }
 
-                if (filter == null
-                    || filter.include(item)) {
-                    // Add the item to the view
-                    int viewIndex = view.add(item);
-                    listListeners.itemInserted(FilteredList.this, viewIndex);
-                }
+        @Override
+        public void itemsInserted(List<T> list, int index, int count) {
+            if (!updating) {
+                sourceItemsInserted(index, count);
             }
         }
 
         @Override
         public void itemsRemoved(List<T> list, int index, Sequence<T> items) {
             if (!updating) {
-                // Remove the items from the view
-                for (int i = 0, n = items.getLength(); i < n; i++) {
-                    T item = items.get(i);
-
-                    int viewIndex = view.indexOf(item);
-
-                    if (viewIndex != -1) {
-                        Sequence<T> removed = view.remove(viewIndex, 1);
-                        listListeners.itemsRemoved(FilteredList.this, viewIndex, removed);
-                    }
-                }
+                sourceItemsRemoved(index, items);
             }
         }
 
         @Override
         public void itemUpdated(List<T> list, int index, T previousItem) {
             if (!updating) {
-                T item = list.get(index);
-
-                int viewIndex = view.indexOf(previousItem);
-
-                if (filter == null
-                    || filter.include(item)) {
-                    if (viewIndex == -1) {
-                        // Add the item to the view
-                        viewIndex = view.add(item);
-                        listListeners.itemInserted(FilteredList.this, viewIndex);
-                    } else {
-                        // Update the item in the view
-                        Comparator<T> comparator = view.getComparator();
-
-                        if (comparator == null) {
-                            // Add the item to the view
-                            viewIndex = view.add(item);
-                            listListeners.itemInserted(FilteredList.this, viewIndex);
-                        } else {
-                            int previousViewIndex = ArrayList.binarySearch(view, item, comparator);
-
-                            if (previousViewIndex == viewIndex) {
-                                // Update the item in the view
-                                view.update(viewIndex, item);
-                            } else {
-                                // Remove the item from the view
-                                Sequence<T> removed = view.remove(previousViewIndex, 1);
-                                listListeners.itemsRemoved(FilteredList.this, previousViewIndex, removed);
-
-                                // Re-add the item to the view
-                                viewIndex = view.add(item);
-                                listListeners.itemInserted(FilteredList.this, viewIndex);
-                            }
-                        }
-                    }
-                } else {
-                    if (viewIndex != -1) {
-                        // Remove the item from the view
-                        Sequence<T> removed = view.remove(viewIndex, 1);
-                        listListeners.itemsRemoved(FilteredList.this, viewIndex, removed);
-                    }
-                }
+                sourceItemUpdated(index, previousItem);
             }
         }
 
         @Override
         public void listCleared(List<T> list) {
             if (!updating) {
+                modificationCount++;
+
                 // Remove all items from the view
-                view.clear();
-                listListeners.listCleared(FilteredList.this);
+                clearView();
             }
         }
 
+        @Override
+        public void comparatorChanged(List<T> list, Comparator<T> previousComparator) {
+            if (!updating
+                && sourceIndexes != null) {
+                // The view follows the source order, so it must be rebuilt
+                modificationCount++;
+
+                clearView();
+                Object[] items = ArrayList.copyItems(source);
+                setView(items, null, evaluate(filter, items));
+            }
+        }
+    };
+
+    // Re-fires the events generated by bulk operations on the view
+    private ListListener<T> viewListener = new ListListener<T>() {
+        @Override
+        public void itemInserted(List<T> list, int index) {
+            listListeners.itemInserted(FilteredList.this, index);
+        }
+
+        @Override
+        public void itemsInserted(List<T> list, int index, int count) {
+            listListeners.itemsInserted(FilteredList.this, index, count);
+        }
+
+        @Override
+        public void itemsRemoved(List<T> list, int index, Sequence<T> items) {
+            listListeners.itemsRemoved(FilteredList.this, index, items);
+        }
+
+        @Override
+        public void itemUpdated(List<T> list, int index, T previousItem) {
+            listListeners.itemUpdated(FilteredList.this, index, previousItem);
+        }
+
+        @Override
+        public void listCleared(List<T> list) {
+            listListeners.listCleared(FilteredList.this);
+        }
+
         @Override
         public void comparatorChanged(List<T> list, Comparator<T> previousComparator) {
             // No-op
@@ -166,8 +246,8 @@ public class FilteredList<T> implements List<T> {
     }
 
     public FilteredList(List<T> source, Filter<T> filter) {
+        this.filter = filter;
         setSource(source);
-        setFilter(filter);
     }
 
     /**
@@ -190,10 +270,11 @@ public class FilteredList<T> implements List<T> {
         List<T> previousSource = this.source;
 
         if (previousSource != source) {
+            modificationCount++;
+
             // Clear any existing view
             if (view != null) {
-                view.clear();
-                listListeners.listCleared(this);
+                clearView();
             }
 
             // Stop listening for changes
@@ -208,19 +289,10 @@ public class FilteredList<T> implements List<T> {
             // Refresh the view
             if (source == null) {
                 view = null;
+                sourceIndexes = null;
             } else {
-                view = new ArrayList<T>();
-
-                for (T item : source) {
-                    if (filter == null
-                        || filter.include(item)) {
-                        int index = view.add(item);
-                        listListeners.itemInserted(this, index);
-                    }
-                }
-
-                // Re-apply comparator
-                view.setComparator(comparator);
+                Object[] items = ArrayList.copyItems(source);
+                setView(items, null, evaluate(filter, items));
             }
 
             // Listen for changes
@@ -247,37 +319,438 @@ public class FilteredList<T> implements List<T> {
      * The filter to apply, or <tt>null</tt> to clear the filter.
      */
     public void setFilter(Filter<T> filter) {
-        Filter<T> previousFilter = this.filter;
+        setFilter(filter, false);
+    }
 
-        if (previousFilter != filter) {
-            // Clear any existing view
-            if (view != null) {
-                view.clear();
-                listListeners.listCleared(this);
+    /**
+     * Sets the filter.
+     *
+     * @param filter
+     * The filter to apply, or <tt>null</tt> to clear the filter.
+     *
+     * @param narrowing
+     * <tt>true</tt> if the new filter only excludes items that the current
+     * filter includes, in which case only the items currently in the view are
+     * evaluated; <tt>false</tt> to evaluate every item in the source.
+     */
+    public void setFilter(Filter<T> filter, boolean narrowing) {
+        if (this.filter != filter) {
+            if (view == null) {
+                Filter<T> previousFilter = this.filter;
+                this.filter = filter;
+                filteredListListeners.filterChanged(this, previousFilter);
+            } else {
+                Object[] items;
+                int[] indexes = null;
+
+                if (narrowing) {
+                    items = ArrayList.copyItems(view);
+
+                    if (sourceIndexes != null) {
+                        indexes = sourceIndexes.toArray();
+                    }
+                } else {
+                    items = ArrayList.copyItems(source);
+                }
+
+                update(filter, items, indexes, evaluate(filter, items));
             }
+        }
+    }
 
-            // Update the filter
-            this.filter = filter;
-            filteredListListeners.filterChanged(this, previousFilter);
+    /**
+     * Returns a task that evaluates a filter in the background.
+     *
+     * @param filter
+     * The filter to apply, or <tt>null</tt> to clear the filter.
+     *
+     * @param narrowing
+     * See {@link #setFilter(Filter, boolean)}.
+     */
+    public FilterTask getFilterTask(Filter<T> filter, boolean narrowing) {
+        return new FilterTask(filter, narrowing);
+    }
 
-            // Refresh the view
-            if (view != null) {
-                for (T item : source) {
-                    if (filter == null
-                        || filter.include(item)) {
-                        int index = view.add(item);
-                        listListeners.itemInserted(this, index);
+    /**
+     * Returns the list's parallel flag.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Sets the list's parallel flag. When parallel mode is enabled, filters
+     * are evaluated against large lists on multiple threads, so they must be
+     * thread-safe.
+     *
+     * @param parallel
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Replaces the filter and the contents of the view.
+     *
+     * @param filter
+     * The new filter.
+     *
+     * @param items
+     * The items that were evaluated.
+     *
+     * @param indexes
+     * The source indexes of the items, or <tt>null</tt> if the items are the
+     * contents of the source.
+     *
+     * @param included
+     * The result of the filter for each item.
+     */
+    private void update(Filter<T> filter, Object[] items, int[] indexes, boolean[] included) {
+        Filter<T> previousFilter = this.filter;
+
+        modificationCount++;
+        clearView();
+
+        this.filter = filter;
+        filteredListListeners.filterChanged(this, previousFilter);
+
+        setView(items, indexes, included);
+    }
+
+    /**
+     * Evaluates a filter against a set of items.
+     */
+    private boolean[] evaluate(final Filter<T> filter, final Object[] items) {
+        final boolean[] included = new boolean[items.length];
+
+        int chunkCount = parallel ? Math.min(Runtime.getRuntime().availableProcessors(),
+            items.length / MINIMUM_CHUNK_SIZE) : 1;
+
+        if (chunkCount < 2) {
+            evaluate(filter, items, included, 0, items.length);
+        } else {
+            TaskBatch<Void> taskBatch = new TaskBatch<Void>(TaskBatch.FailurePolicy.FAIL_FAST,
+                chunkCount);
+
+            for (int i = 0; i < chunkCount; i++) {
+                final int start = (int)((long)items.length * i / chunkCount);
+                final int end = (int)((long)items.length * (i + 1) / chunkCount);
+
+                taskBatch.add(new Task<Void>() {
+                    @Override
+                    public Void execute() {
+                        evaluate(filter, items, included, start, end);
+                        return null;
                     }
+                });
+            }
+
+            try {
+                taskBatch.execute();
+            } catch (TaskExecutionException exception) {
+                Throwable cause = exception;
+                while (cause instanceof TaskExecutionException
+                    && cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException)cause;
+                }
+
+                throw new RuntimeException(cause);
+            }
+        }
+
+        return included;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void evaluate(Filter<T> filter, Object[] items, boolean[] included,
+        int start, int end) {
+        for (int i = start; i < end; i++) {
+            included[i] = (filter == null
+                || filter.include((T)items[i]));
+        }
+    }
+
+    /**
+     * Clears the view, notifying listeners if it was not empty.
+     */
+    private void clearView() {
+        int length = view.getLength();
+
+        view = new ArrayList<T>();
+        sourceIndexes = (comparator == null) ? new IntArrayList() : null;
+
+        if (length > 0) {
+            listListeners.listCleared(this);
+        }
+    }
+
+    /**
+     * Populates an empty view with the included items, notifying listeners
+     * with a single event.
+     */
+    @SuppressWarnings("unchecked")
+    private void setView(Object[] items, int[] indexes, boolean[] included) {
+        int count = 0;
+        for (int i = 0; i < included.length; i++) {
+            if (included[i]) {
+                count++;
+            }
+        }
+
+        view = new ArrayList<T>(count);
+
+        if (comparator == null) {
+            sourceIndexes = new IntArrayList(count);
+        }
+
+        for (int i = 0; i < items.length; i++) {
+            if (included[i]) {
+                view.add((T)items[i]);
+
+                if (sourceIndexes != null) {
+                    sourceIndexes.add((indexes == null) ? i : indexes[i]);
+                }
+            }
+        }
+
+        if (comparator != null) {
+            view.setComparator(comparator);
+        }
+
+        if (count > 0) {
+            listListeners.itemsInserted(this, 0, count);
+        }
+    }
+
+    private void sourceItemsInserted(int index, int count) {
+        modificationCount++;
+
+        ArrayList<T> items = new ArrayList<T>();
+        IntArrayList indexes = new IntArrayList();
+
+        for (int i = 0; i < count; i++) {
+            T item = source.get(index + i);
+
+            if (filter == null
+                || filter.include(item)) {
+                items.add(item);
+                indexes.add(index + i);
+            }
+        }
+
+        if (sourceIndexes == null) {
+            if (items.getLength() == 1) {
+                int viewIndex = view.add(items.get(0));
+                listListeners.itemInserted(this, viewIndex);
+            } else {
+                addToView(items);
+            }
+        } else {
+            // Shift the indexes of the items that follow the inserted items,
+            // then insert the included items as a single range
+            int viewIndex = getViewInsertionIndex(index);
+            sourceIndexes.increment(viewIndex, sourceIndexes.getLength() - viewIndex, count);
+
+            int n = items.getLength();
+            if (n > 0) {
+                view.insertAll(items, viewIndex);
+                sourceIndexes.insertAll(indexes, viewIndex);
+
+                if (count == 1) {
+                    listListeners.itemInserted(this, viewIndex);
+                } else {
+                    listListeners.itemsInserted(this, viewIndex, n);
                 }
             }
         }
     }
 
+    private void sourceItemsRemoved(int index, Sequence<T> items) {
+        modificationCount++;
+
+        int count = items.getLength();
+
+        if (sourceIndexes == null) {
+            for (int i = 0; i < count; i++) {
+                T item = items.get(i);
+
+                int viewIndex = indexOfItem(item, false);
+                if (viewIndex != -1) {
+                    Sequence<T> removed = view.remove(viewIndex, 1);
+                    listListeners.itemsRemoved(this, viewIndex, removed);
+                }
+            }
+        } else {
+            // The removed items that are in the view form a single range
+            int start = getViewInsertionIndex(index);
+            int end = getViewInsertionIndex(index + count);
+
+            Sequence<T> removed = null;
+            if (end > start) {
+                removed = view.remove(start, end - start);
+                sourceIndexes.remove(start, end - start);
+            }
+
+            sourceIndexes.increment(start, sourceIndexes.getLength() - start, -count);
+
+            if (removed != null) {
+                listListeners.itemsRemoved(this, start, removed);
+            }
+        }
+    }
+
+    private void sourceItemUpdated(int index, T previousItem) {
+        modificationCount++;
+
+        T item = source.get(index);
+        boolean include = (filter == null
+            || filter.include(item));
+
+        if (sourceIndexes == null) {
+            int viewIndex = indexOfItem(previousItem, true);
+
+            if (viewIndex != -1
+                && include
+                && isOrdered(item, viewIndex)) {
+                // Update the item in place
+                view.update(viewIndex, item);
+                listListeners.itemUpdated(this, viewIndex, previousItem);
+            } else {
+                if (viewIndex != -1) {
+                    // Remove the item from the view
+                    Sequence<T> removed = view.remove(viewIndex, 1);
+                    listListeners.itemsRemoved(this, viewIndex, removed);
+                }
+
+                if (include) {
+                    // Re-add the item to the view
+                    viewIndex = view.add(item);
+                    listListeners.itemInserted(this, viewIndex);
+                }
+            }
+        } else {
+            int viewIndex = IntArrayList.binarySearch(sourceIndexes, index);
+
+            if (viewIndex >= 0) {
+                if (include) {
+                    // Update the item in the view
+                    view.update(viewIndex, item);
+                    listListeners.itemUpdated(this, viewIndex, previousItem);
+                } else {
+                    // Remove the item from the view
+                    Sequence<T> removed = view.remove(viewIndex, 1);
+                    sourceIndexes.remove(viewIndex, 1);
+                    listListeners.itemsRemoved(this, viewIndex, removed);
+                }
+            } else {
+                if (include) {
+                    // Add the item to the view
+                    viewIndex = -(viewIndex + 1);
+                    view.insert(item, viewIndex);
+                    sourceIndexes.insert(index, viewIndex);
+                    listListeners.itemInserted(this, viewIndex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the first item in the unsorted view whose source
+     * index is greater than or equal to the given source index.
+     */
+    private int getViewInsertionIndex(int sourceIndex) {
+        int viewIndex = IntArrayList.binarySearch(sourceIndexes, sourceIndex);
+        if (viewIndex < 0) {
+            viewIndex = -(viewIndex + 1);
+        }
+
+        return viewIndex;
+    }
+
     /**
-     * Adds an item to the view and the backing list.
+     * Locates an item in the sorted view.
+     *
+     * @param item
+     *
+     * @param modified
+     * <tt>true</tt> if the item may have been modified since it was added to
+     * the view, in which case it may no longer be in sort order or pass the
+     * filter.
+     */
+    private int indexOfItem(T item, boolean modified) {
+        if (!modified
+            && filter != null
+            && !filter.include(item)) {
+            return -1;
+        }
+
+        int index = ArrayList.binarySearch(view, item, comparator);
+
+        if (index >= 0) {
+            // Search the run of items that compare equal to the item
+            while (index > 0
+                && comparator.compare(view.get(index - 1), item) == 0) {
+                index--;
+            }
+
+            int n = view.getLength();
+            while (index < n
+                && comparator.compare(view.get(index), item) == 0) {
+                if (view.get(index) == item) {
+                    break;
+                }
+
+                index++;
+            }
+
+            if (index == n
+                || view.get(index) != item) {
+                index = -1;
+            }
+        }
+
+        if (index < 0) {
+            index = modified ? indexOfIdentical(item) : view.indexOf(item);
+        }
+
+        return index;
+    }
+
+    private int indexOfIdentical(T item) {
+        for (int i = 0, n = view.getLength(); i < n; i++) {
+            if (view.get(i) == item) {
+                return i;
+            }
+        }
+
+        return view.indexOf(item);
+    }
+
+    /**
+     * Tests whether an item may be placed at the given index of the sorted
+     * view.
+     */
+    private boolean isOrdered(T item, int index) {
+        return ((index == 0
+            || comparator.compare(view.get(index - 1), item) <= 0)
+            && (index == view.getLength() - 1
+            || comparator.compare(item, view.get(index + 1)) <= 0));
+    }
+
+    /**
+     * Adds an item to the backing list. The item is also added to the view if
+     * it passes the filter.
      *
      * @param item
      * The item to add.
+     *
+     * @return
+     * The index of the item in the view, or <tt>-1</tt> if the item did not
+     * pass the filter.
      */
     @Override
     public int add(T item) {
@@ -285,29 +758,26 @@ public class FilteredList<T> implements List<T> {
             throw new IllegalStateException();
         }
 
-        int index = -1;
-
-        updating = true;
-        try {
-            // If it passes the filter, add to the view
-            if (filter != null
-                && filter.include(item)) {
-                index = view.add(item);
+        int sourceIndex = source.add(item);
 
-                listListeners.itemInserted(this, index);
+        int index;
+        if (sourceIndexes == null) {
+            index = indexOfItem(item, false);
+        } else {
+            index = IntArrayList.binarySearch(sourceIndexes, sourceIndex);
+            if (index < 0) {
+                index = -1;
             }
-
-            // Add to source list
-            source.add(item);
-        } finally {
-            updating = false;
         }
 
         return index;
     }
 
     /**
-     * Inserts an item into the view and adds the item to the backing list.
+     * Inserts an item into the backing list. While the view is unsorted, the
+     * item is inserted into the source before the item at the given index of
+     * the view; otherwise, the item is added to the source. The item is also
+     * added to the view if it passes the filter.
      *
      * @param item
      * The item to insert.
@@ -321,23 +791,27 @@ public class FilteredList<T> implements List<T> {
             throw new IllegalStateException();
         }
 
-        updating = true;
-        try {
-            // If it passes the filter, insert it into the view
-            if (filter != null
-                && filter.include(item)) {
-                view.insert(item, index);
-
-                listListeners.itemInserted(this, index);
-            }
+        if (index < 0 || index > view.getLength()) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds.");
+        }
 
-            // Add to source list
+        if (sourceIndexes == null
+            || source.getComparator() != null) {
             source.add(item);
-        } finally {
-            updating = false;
+        } else {
+            source.insert(item, getSourceIndex(index));
         }
     }
 
+    /**
+     * Returns the source index at which an item inserted at the given index
+     * of the unsorted view should be placed.
+     */
+    private int getSourceIndex(int index) {
+        return (index < sourceIndexes.getLength()) ?
+            sourceIndexes.get(index) : source.getLength();
+    }
+
     /**
      * Updates an item in the view and in the backing list.
      *
@@ -359,18 +833,12 @@ public class FilteredList<T> implements List<T> {
             throw new IllegalArgumentException();
         }
 
-        T previousItem;
+        T previousItem = view.get(index);
 
-        updating = true;
-        try {
-            // Update the item in the view
-            previousItem = view.update(index, item);
-            listListeners.itemUpdated(this, index, previousItem);
-
-            // Update the item in the source
+        if (sourceIndexes == null) {
             source.update(source.indexOf(previousItem), item);
-        } finally {
-            updating = false;
+        } else {
+            source.update(sourceIndexes.get(index), item);
         }
 
         return previousItem;
@@ -388,21 +856,13 @@ public class FilteredList<T> implements List<T> {
             throw new IllegalStateException();
         }
 
-        int index;
-
-        updating = true;
-        try {
-            // Remove the item from the view
-            index = view.indexOf(item);
-            if (index != -1) {
-                Sequence<T> removed = view.remove(index, 1);
-                listListeners.itemsRemoved(this, index, removed);
-            }
+        int index = indexOf(item);
 
-            // Remove the item from the source
+        if (index != -1
+            && sourceIndexes != null) {
+            source.remove(sourceIndexes.get(index), 1);
+        } else {
             source.remove(item);
-        } finally {
-            updating = false;
         }
 
         return index;
@@ -423,20 +883,28 @@ public class FilteredList<T> implements List<T> {
             throw new IllegalStateException();
         }
 
-        Sequence<T> removed;
+        ArrayList<T> removed = new ArrayList<T>(view, index, count);
 
-        updating = true;
-        try {
-            // Remove the items from the view
-            removed = view.remove(index, count);
-            listListeners.itemsRemoved(this, index, removed);
-
-            // Remove the items from the source
-            for (int i = 0, n = removed.getLength(); i < n; i++) {
+        if (sourceIndexes == null) {
+            for (int i = 0; i < count; i++) {
                 source.remove(removed.get(i));
             }
-        } finally {
-            updating = false;
+        } else {
+            // Remove each contiguous range of source items, starting with the
+            // last
+            int[] indexes = sourceIndexes.toArray();
+
+            int end = index + count;
+            while (end > index) {
+                int start = end - 1;
+                while (start > index
+                    && indexes[start - 1] == indexes[start] - 1) {
+                    start--;
+                }
+
+                source.remove(indexes[start], end - start);
+                end = start;
+            }
         }
 
         return removed;
@@ -451,19 +919,128 @@ public class FilteredList<T> implements List<T> {
             throw new IllegalStateException();
         }
 
+        if (view.getLength() > 0) {
+            modificationCount++;
+
+            updating = true;
+            try {
+                // Remove the items from the source; since every item in the
+                // view is removed, the source indexes do not need to be
+                // adjusted
+                source.removeAll(new ArrayList<T>(view));
+            } finally {
+                updating = false;
+            }
+
+            clearView();
+        }
+    }
+
+    /**
+     * Adds a sequence of items to the backing list. The items that pass the
+     * filter are also added to the view.
+     *
+     * @param items
+     * The items to add.
+     */
+    @Override
+    public void addAll(Sequence<T> items) {
+        if (view == null) {
+            throw new IllegalStateException();
+        }
+
+        source.addAll(items);
+    }
+
+    /**
+     * Inserts a sequence of items into the backing list, as described in
+     * {@link #insert(Object, int)}. The items that pass the filter are also
+     * added to the view.
+     *
+     * @param items
+     * The items to insert.
+     *
+     * @param index
+     * The index at which the items should be inserted.
+     */
+    @Override
+    public void insertAll(Sequence<T> items, int index) {
+        if (view == null) {
+            throw new IllegalStateException();
+        }
+
+        if (index < 0 || index > view.getLength()) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds.");
+        }
+
+        if (sourceIndexes == null
+            || source.getComparator() != null) {
+            source.addAll(items);
+        } else {
+            source.insertAll(items, getSourceIndex(index));
+        }
+    }
+
+    /**
+     * Removes a sequence of items from the view and the backing list.
+     *
+     * @param items
+     * The items to remove.
+     *
+     * @return
+     * The number of items that were removed from the view.
+     */
+    @Override
+    public int removeAll(Sequence<T> items) {
+        if (view == null) {
+            throw new IllegalStateException();
+        }
+
+        int length = view.getLength();
+        source.removeAll(items);
+
+        return length - view.getLength();
+    }
+
+    /**
+     * Replaces the items in the view with the given items. The items
+     * previously in the view are removed from the backing list, and the new
+     * items are added to it.
+     *
+     * @param items
+     * The new items.
+     */
+    @Override
+    public void setAll(Sequence<T> items) {
+        if (view == null) {
+            throw new IllegalStateException();
+        }
+
+        modificationCount++;
+
         updating = true;
         try {
-            // Remove all items from the view
-            Sequence<T> removed = view.remove(0, view.getLength());
-            listListeners.listCleared(this);
-
-            // Remove the items from the source
-            for (int i = 0, n = removed.getLength(); i < n; i++) {
-                source.remove(removed.get(i));
-            }
+            // Replace the items in the source
+            source.removeAll(new ArrayList<T>(view));
+            source.addAll(items);
         } finally {
             updating = false;
         }
+
+        // Rebuild the view
+        clearView();
+
+        Object[] sourceItems = ArrayList.copyItems(source);
+        setView(sourceItems, null, evaluate(filter, sourceItems));
+    }
+
+    private void addToView(Sequence<T> items) {
+        view.getListListeners().add(viewListener);
+        try {
+            view.addAll(items);
+        } finally {
+            view.getListListeners().remove(viewListener);
+        }
     }
 
     @Override
@@ -497,7 +1074,18 @@ public class FilteredList<T> implements List<T> {
         this.comparator = comparator;
 
         if (view != null) {
-            view.setComparator(comparator);
+            modificationCount++;
+
+            if (comparator == null) {
+                // Restore the source order
+                clearView();
+
+                Object[] items = ArrayList.copyItems(source);
+                setView(items, null, evaluate(filter, items));
+            } else {
+                view.setComparator(comparator);
+                sourceIndexes = null;
+            }
         }
 
         listListeners.comparatorChanged(this, previousComparator);
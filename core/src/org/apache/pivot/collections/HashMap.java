@@ -22,28 +22,36 @@ import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
-import org.apache.pivot.util.EmptyIterator;
 import org.apache.pivot.util.ImmutableIterator;
 import org.apache.pivot.util.ListenerList;
 
 /**
- * Implementation of the {@link Map} interface that is backed by a
- * hash table.
+ * Implementation of the {@link Map} interface that is backed by an
+ * open-addressing hash table. Keys and values are stored in parallel flat
+ * arrays and collisions are resolved by linear probing, so no per-entry node
+ * is allocated on insert, update, or lookup.
  */
 public class HashMap<K, V> implements Map<K, V>, Serializable {
-    private static final long serialVersionUID = -7079717428744528670L;
+    private static final long serialVersionUID = 3472384829167519582L;
 
     private class KeyIterator implements Iterator<K> {
-        private int bucketIndex;
-        private Iterator<Pair<K, V>> entryIterator;
+        private int start;
+        private int offset;
         private int count;
 
-        private Pair<K, V> entry = null;
+        private int index = -1;
 
         public KeyIterator() {
-            bucketIndex = 0;
-            entryIterator = getBucketIterator(bucketIndex);
+            // Start iterating just after an empty slot; since no probe
+            // sequence can wrap past an empty slot, entries moved by a
+            // removal are always moved to a slot we have not yet visited
+            int capacity = keys.length;
+            start = 0;
+            while (keys[start] != null) {
+                start = (start + 1) & (capacity - 1);
+            }
 
+            offset = 1;
             count = HashMap.this.count;
         }
 
@@ -53,56 +61,60 @@ public class HashMap<K, V> implements Map<K, V>, Serializable {
                 throw new ConcurrentModificationException();
             }
 
-            // Move to the next bucket
-            while (entryIterator != null
-                && !entryIterator.hasNext()) {
-                entryIterator = (++bucketIndex < buckets.getLength()) ?
-                    getBucketIterator(bucketIndex) : null;
+            // Move to the next occupied slot
+            int capacity = keys.length;
+            while (offset < capacity
+                && keys[(start + offset) & (capacity - 1)] == null) {
+                offset++;
             }
 
-            return (entryIterator != null);
+            return (offset < capacity);
         }
 
         @Override
+        @SuppressWarnings("unchecked")
         public K next() {
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
 
-            entry = entryIterator.next();
-            return entry.key;
+            index = (start + offset) & (keys.length - 1);
+            offset++;
+
+            return (K)keys[index];
         }
 
         @Override
+        @SuppressWarnings("unchecked")
         public void remove() {
-            if (entry == null
-                || entryIterator == null) {
+            if (index == -1) {
                 throw new IllegalStateException();
             }
 
-            entryIterator.remove();
+            K key = (K)keys[index];
+            V value = (V)values[index];
+
+            delete(index);
             count--;
-            HashMap.this.count--;
+
+            // A subsequent entry may have been shifted into the vacated slot
+            offset--;
 
             if (mapListeners != null) {
-                mapListeners.valueRemoved(HashMap.this, entry.key, entry.value);
+                mapListeners.valueRemoved(HashMap.this, key, value);
             }
 
-            entry = null;
-        }
-
-        private Iterator<Pair<K, V>> getBucketIterator(int bucketIndex) {
-            LinkedList<Pair<K, V>> bucket = buckets.get(bucketIndex);
-
-            return (bucket == null) ? new EmptyIterator<Pair<K,V>>() : bucket.iterator();
+            index = -1;
         }
     }
 
-    private ArrayList<LinkedList<Pair<K, V>>> buckets;
+    private Object[] keys;
+    private Object[] values;
     private float loadFactor;
 
     private int count = 0;
-    private ArrayList<K> keys = null;
+    private int threshold = 0;
+    private ArrayList<K> sortedKeys = null;
 
     private transient MapListenerList<K, V> mapListeners = null;
 
@@ -118,6 +130,15 @@ public class HashMap<K, V> implements Map<K, V>, Serializable {
     }
 
     public HashMap(int capacity, float loadFactor) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity is negative.");
+        }
+
+        if (loadFactor <= 0
+            || Float.isNaN(loadFactor)) {
+            throw new IllegalArgumentException("loadFactor must be positive.");
+        }
+
         this.loadFactor = loadFactor;
 
         rehash(capacity);
@@ -153,27 +174,15 @@ public class HashMap<K, V> implements Map<K, V>, Serializable {
      * If {@code key} is {@literal null}.
      */
     @Override
+    @SuppressWarnings("unchecked")
     public V get(K key) {
         if (key == null) {
             throw new IllegalArgumentException("key cannot be null.");
         }
 
-        V value = null;
-
-        // Locate the entry
-        LinkedList<Pair<K, V>> bucket = getBucket(key);
-
-        List.ItemIterator<Pair<K, V>> iterator = bucket.iterator();
-        while (iterator.hasNext()) {
-            Pair<K, V> entry = iterator.next();
+        int index = indexOf(key);
 
-            if (entry.key.equals(key)) {
-                value = entry.value;
-                break;
-            }
-        }
-
-        return value;
+        return (index == -1) ? null : (V)values[index];
     }
 
     /**
@@ -183,6 +192,7 @@ public class HashMap<K, V> implements Map<K, V>, Serializable {
      * If {@code key} is {@literal null}.
      */
     @Override
+    @SuppressWarnings("unchecked")
     public V put(K key, V value) {
         if (key == null) {
             throw new IllegalArgumentException("key cannot be null.");
@@ -190,43 +200,39 @@ public class HashMap<K, V> implements Map<K, V>, Serializable {
 
         V previousValue = null;
 
-        // Locate the entry
-        LinkedList<Pair<K, V>> bucket = getBucket(key);
-
-        int i = 0;
-        List.ItemIterator<Pair<K, V>> iterator = bucket.iterator();
-        while (iterator.hasNext()) {
-            Pair<K, V> entry = iterator.next();
+        // Locate the entry, or the empty slot that terminates its probe
+        // sequence
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
 
-            if (entry.key.equals(key)) {
-                // Update the entry
-                previousValue = entry.value;
-                iterator.update(new Pair<K, V>(key, value));
+        Object k;
+        while ((k = keys[index]) != null
+            && !k.equals(key)) {
+            index = (index + 1) & mask;
+        }
 
-                if (mapListeners != null) {
-                    mapListeners.valueUpdated(this, key, previousValue);
-                }
+        if (k != null) {
+            // Update the entry
+            previousValue = (V)values[index];
+            values[index] = value;
 
-                break;
+            if (mapListeners != null) {
+                mapListeners.valueUpdated(this, key, previousValue);
             }
-
-            i++;
-        }
-
-        if (i == bucket.getLength()) {
+        } else {
             // Add the entry
-            bucket.add(new Pair<K, V>(key, value));
+            keys[index] = key;
+            values[index] = value;
 
-            if (keys != null) {
-                keys.add(key);
+            if (sortedKeys != null) {
+                sortedKeys.add(key);
             }
 
             // Increment the count
             count++;
 
-            int capacity = getCapacity();
-            if (count > (int)(capacity * loadFactor)) {
-                rehash(capacity * 2);
+            if (count > threshold) {
+                rehash(keys.length * 2);
             }
 
             if (mapListeners != null) {
@@ -244,6 +250,7 @@ public class HashMap<K, V> implements Map<K, V>, Serializable {
      * If {@code key} is {@literal null}.
      */
     @Override
+    @SuppressWarnings("unchecked")
     public V remove(K key) {
         if (key == null) {
             throw new IllegalArgumentException("key cannot be null.");
@@ -252,29 +259,15 @@ public class HashMap<K, V> implements Map<K, V>, Serializable {
         V value = null;
 
         // Locate the entry
-        LinkedList<Pair<K, V>> bucket = getBucket(key);
-
-        List.ItemIterator<Pair<K, V>> iterator = bucket.iterator();
-        while (iterator.hasNext()) {
-            Pair<K, V> entry = iterator.next();
-
-            if (entry.key.equals(key)) {
-                // Remove the entry
-                value = entry.value;
-                iterator.remove();
-
-                if (keys != null) {
-                    keys.remove(key);
-                }
+        int index = indexOf(key);
 
-                // Decrement the count
-                count--;
+        if (index != -1) {
+            // Remove the entry
+            value = (V)values[index];
+            delete(index);
 
-                if (mapListeners != null) {
-                    mapListeners.valueRemoved(this, key, value);
-                }
-
-                break;
+            if (mapListeners != null) {
+                mapListeners.valueRemoved(this, key, value);
             }
         }
 
@@ -285,14 +278,13 @@ public class HashMap<K, V> implements Map<K, V>, Serializable {
     public void clear() {
         if (count > 0) {
             // Remove all entries
-            for (LinkedList<Pair<K, V>> bucket : buckets) {
-                if (bucket != null) {
-                    bucket.clear();
-                }
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = null;
+                values[i] = null;
             }
 
-            if (keys != null) {
-                keys.clear();
+            if (sortedKeys != null) {
+                sortedKeys.clear();
             }
 
             // Clear the count
@@ -316,22 +308,7 @@ public class HashMap<K, V> implements Map<K, V>, Serializable {
             throw new IllegalArgumentException("key cannot be null.");
         }
 
-        // Locate the entry
-        LinkedList<Pair<K, V>> bucket = getBucket(key);
-
-        int i = 0;
-        List.ItemIterator<Pair<K, V>> iterator = bucket.iterator();
-        while (iterator.hasNext()) {
-            Pair<K, V> entry = iterator.next();
-
-            if (entry.key.equals(key)) {
-                break;
-            }
-
-            i++;
-        }
-
-        return (i < bucket.getLength());
+        return (indexOf(key) != -1);
     }
 
     @Override
@@ -345,46 +322,112 @@ public class HashMap<K, V> implements Map<K, V>, Serializable {
     }
 
     public int getCapacity() {
-        return buckets.getLength();
+        return keys.length;
     }
 
-    private void rehash(int capacity) {
-        ArrayList<LinkedList<Pair<K, V>>> previousBuckets = this.buckets;
-        buckets = new ArrayList<LinkedList<Pair<K, V>>>(capacity);
+    /**
+     * Returns the slot index of the given key, or <tt>-1</tt> if the key is
+     * not present in the map.
+     */
+    private int indexOf(Object key) {
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+
+        Object k;
+        while ((k = keys[index]) != null) {
+            if (k.equals(key)) {
+                return index;
+            }
 
-        for (int i = 0; i < capacity; i++) {
-            buckets.add(null);
+            index = (index + 1) & mask;
         }
 
-        if (previousBuckets != null) {
-            count = 0;
+        return -1;
+    }
 
-            for (LinkedList<Pair<K, V>> bucket : previousBuckets) {
-                if (bucket != null) {
-                    for (Pair<K, V> entry : bucket) {
-                        put(entry.key, entry.value);
-                    }
-                }
+    /**
+     * Removes the entry at the given slot, shifting any subsequent entries
+     * in the same cluster back so that no probe sequence is broken.
+     */
+    @SuppressWarnings("unchecked")
+    private void delete(int index) {
+        if (sortedKeys != null) {
+            sortedKeys.remove((K)keys[index]);
+        }
+
+        int mask = keys.length - 1;
+        int hole = index;
+        int i = (index + 1) & mask;
+
+        Object k;
+        while ((k = keys[i]) != null) {
+            int home = hash(k) & mask;
+
+            // Move the entry into the hole if its home slot does not lie
+            // cyclically between the hole and its current position
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = k;
+                values[hole] = values[i];
+                hole = i;
             }
+
+            i = (i + 1) & mask;
         }
+
+        keys[hole] = null;
+        values[hole] = null;
+
+        // Decrement the count
+        count--;
     }
 
-    private LinkedList<Pair<K, V>> getBucket(K key) {
-        int hashCode = key.hashCode();
-        int bucketIndex = Math.abs(hashCode % getCapacity());
+    private void rehash(int capacity) {
+        // Round the capacity up to a power of two; the threshold always
+        // leaves at least one empty slot to terminate probe sequences
+        int n = 2;
+        while (n < capacity
+            && n < (1 << 30)) {
+            n <<= 1;
+        }
+
+        Object[] previousKeys = this.keys;
+        Object[] previousValues = this.values;
+
+        keys = new Object[n];
+        values = new Object[n];
+        threshold = Math.min((int)(n * loadFactor), n - 1);
 
-        LinkedList<Pair<K, V>> bucket = buckets.get(bucketIndex);
-        if (bucket == null) {
-            bucket = new LinkedList<Pair<K, V>>();
-            buckets.update(bucketIndex, bucket);
+        if (previousKeys != null) {
+            int mask = n - 1;
+
+            for (int i = 0; i < previousKeys.length; i++) {
+                Object key = previousKeys[i];
+
+                if (key != null) {
+                    int index = hash(key) & mask;
+                    while (keys[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+
+                    keys[index] = key;
+                    values[index] = previousValues[i];
+                }
+            }
         }
+    }
 
-        return bucket;
+    /**
+     * Spreads the higher bits of the key's hash code into the lower bits,
+     * since slots are selected by masking.
+     */
+    private static int hash(Object key) {
+        int hashCode = key.hashCode();
+        return hashCode ^ (hashCode >>> 16);
     }
 
     @Override
     public Comparator<K> getComparator() {
-        return (keys == null) ? null : keys.getComparator();
+        return (sortedKeys == null) ? null : sortedKeys.getComparator();
     }
 
     @Override
@@ -392,19 +435,19 @@ public class HashMap<K, V> implements Map<K, V>, Serializable {
         Comparator<K> previousComparator = getComparator();
 
         if (comparator == null) {
-            keys = null;
+            sortedKeys = null;
         } else {
-            if (keys == null) {
+            if (sortedKeys == null) {
                 // Populate key list
-                ArrayList<K> keys = new ArrayList<K>((int)(getCapacity() * loadFactor));
+                ArrayList<K> sortedKeys = new ArrayList<K>(Math.max(count, 1));
                 for (K key : this) {
-                    keys.add(key);
+                    sortedKeys.add(key);
                 }
 
-                this.keys = keys;
+                this.sortedKeys = sortedKeys;
             }
 
-            keys.setComparator(comparator);
+            sortedKeys.setComparator(comparator);
         }
 
         if (mapListeners != null) {
@@ -414,7 +457,7 @@ public class HashMap<K, V> implements Map<K, V>, Serializable {
 
     @Override
     public Iterator<K> iterator() {
-        return (keys == null) ? new KeyIterator() : new ImmutableIterator<K>(keys.iterator());
+        return (sortedKeys == null) ? new KeyIterator() : new ImmutableIterator<K>(sortedKeys.iterator());
     }
 
     @Override
@@ -466,6 +466,203 @@ public class LinkedList<T> implements List<T>, Serializable {
         }
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public void addAll(Sequence<T> items) {
+        if (items == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (comparator == null) {
+            insertAll(items, length);
+        } else {
+            Object[] addedItems = ArrayList.copyItems(items);
+            Arrays.sort(addedItems, (Comparator<Object>)comparator);
+
+            ArrayList<Integer> rangeIndexes = new ArrayList<Integer>();
+            ArrayList<Integer> rangeCounts = new ArrayList<Integer>();
+
+            // Merge the new items into the list; new items are placed after
+            // any existing items that compare equal
+            Node<T> next = first;
+            int index = 0;
+            int count = 0;
+
+            for (int i = 0; i < addedItems.length; i++) {
+                T item = (T)addedItems[i];
+
+                int previousIndex = index;
+                while (next != null
+                    && comparator.compare(item, next.item) >= 0) {
+                    next = next.next;
+                    index++;
+                }
+
+                if (count == 0
+                    || index > previousIndex) {
+                    if (count > 0) {
+                        rangeCounts.add(count);
+                    }
+
+                    rangeIndexes.add(index);
+                    count = 0;
+                }
+
+                insert(item, (next == null) ? last : next.previous, next);
+                index++;
+                count++;
+            }
+
+            if (count > 0) {
+                rangeCounts.add(count);
+
+                length += addedItems.length;
+                modificationCount++;
+
+                if (listListeners != null) {
+                    for (int i = 0, n = rangeIndexes.getLength(); i < n; i++) {
+                        listListeners.itemsInserted(this, rangeIndexes.get(i), rangeCounts.get(i));
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void insertAll(Sequence<T> items, int index) {
+        if (items == null) {
+            throw new IllegalArgumentException();
+        }
+
+        verifyIndexBounds(index, 0, length);
+
+        if (comparator != null) {
+            throw new IllegalStateException("List is sorted.");
+        }
+
+        Object[] insertedItems = ArrayList.copyItems(items);
+        int count = insertedItems.length;
+
+        if (count > 0) {
+            Node<T> next = (index == length) ? null : getNode(index);
+
+            for (int i = 0; i < count; i++) {
+                insert((T)insertedItems[i], (next == null) ? last : next.previous, next);
+            }
+
+            length += count;
+            modificationCount++;
+
+            if (listListeners != null) {
+                listListeners.itemsInserted(this, index, count);
+            }
+        }
+    }
+
+    @Override
+    public int removeAll(Sequence<T> items) {
+        if (items == null) {
+            throw new IllegalArgumentException();
+        }
+
+        java.util.HashSet<Object> removedItems =
+            new java.util.HashSet<Object>(Arrays.asList(ArrayList.copyItems(items)));
+
+        ArrayList<Integer> rangeIndexes = new ArrayList<Integer>();
+        ArrayList<LinkedList<T>> ranges = new ArrayList<LinkedList<T>>();
+
+        // Unlink the removed nodes, collecting the removed ranges
+        LinkedList<T> range = null;
+        int index = 0;
+        int count = 0;
+
+        Node<T> node = first;
+        while (node != null) {
+            Node<T> next = node.next;
+
+            if (removedItems.contains(node.item)) {
+                if (range == null) {
+                    range = new LinkedList<T>();
+                    rangeIndexes.add(index);
+                    ranges.add(range);
+                }
+
+                range.add(node.item);
+
+                if (node.previous == null) {
+                    first = next;
+                } else {
+                    node.previous.next = next;
+                }
+
+                if (next == null) {
+                    last = node.previous;
+                } else {
+                    next.previous = node.previous;
+                }
+
+                node.previous = null;
+                node.next = null;
+
+                count++;
+            } else {
+                range = null;
+            }
+
+            node = next;
+            index++;
+        }
+
+        if (count > 0) {
+            length -= count;
+            modificationCount++;
+
+            if (listListeners != null) {
+                for (int i = ranges.getLength() - 1; i >= 0; i--) {
+                    listListeners.itemsRemoved(this, rangeIndexes.get(i), ranges.get(i));
+                }
+            }
+        }
+
+        return count;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setAll(Sequence<T> items) {
+        if (items == null) {
+            throw new IllegalArgumentException();
+        }
+
+        Object[] newItems = ArrayList.copyItems(items);
+        if (comparator != null) {
+            Arrays.sort(newItems, (Comparator<Object>)comparator);
+        }
+
+        int previousLength = length;
+
+        first = null;
+        last = null;
+
+        for (int i = 0; i < newItems.length; i++) {
+            insert((T)newItems[i], last, null);
+        }
+
+        length = newItems.length;
+        modificationCount++;
+
+        if (listListeners != null) {
+            if (previousLength > 0) {
+                listListeners.listCleared(this);
+            }
+
+            if (length > 0) {
+                listListeners.itemsInserted(this, 0, length);
+            }
+        }
+    }
+
     @Override
     public T get(int index) {
         verifyIndexBounds(index, 0, length - 1);
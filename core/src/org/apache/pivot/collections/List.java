@@ -42,39 +42,59 @@ public interface List<T> extends Sequence<T>, Collection<T> {
     /**
      * List listener list.
      */
+    @SuppressWarnings("unchecked")
     public static class ListListenerList<T>
         extends ListenerList<ListListener<T>> implements ListListener<T> {
         @Override
         public void itemInserted(List<T> list, int index) {
-            for (ListListener<T> listener : this) {
+            Object[] listeners = getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ListListener<T> listener = (ListListener<T>)listeners[i];
                 listener.itemInserted(list, index);
             }
         }
 
+        @Override
+        public void itemsInserted(List<T> list, int index, int count) {
+            Object[] listeners = getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ListListener<T> listener = (ListListener<T>)listeners[i];
+                listener.itemsInserted(list, index, count);
+            }
+        }
+
         @Override
         public void itemsRemoved(List<T> list, int index, Sequence<T> items) {
-            for (ListListener<T> listener : this) {
+            Object[] listeners = getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ListListener<T> listener = (ListListener<T>)listeners[i];
                 listener.itemsRemoved(list, index, items);
             }
         }
 
         @Override
         public void itemUpdated(List<T> list, int index, T previousItem) {
-            for (ListListener<T> listener : this) {
+            Object[] listeners = getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ListListener<T> listener = (ListListener<T>)listeners[i];
                 listener.itemUpdated(list, index, previousItem);
             }
         }
 
         @Override
         public void listCleared(List<T> list) {
-            for (ListListener<T> listener : this) {
+            Object[] listeners = getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ListListener<T> listener = (ListListener<T>)listeners[i];
                 listener.listCleared(list);
             }
         }
 
         @Override
         public void comparatorChanged(List<T> list, Comparator<T> previousComparator) {
-            for (ListListener<T> listener : this) {
+            Object[] listeners = getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ListListener<T> listener = (ListListener<T>)listeners[i];
                 listener.comparatorChanged(list, previousComparator);
             }
         }
@@ -142,6 +162,60 @@ public interface List<T> extends Sequence<T>, Collection<T> {
     @Override
     public void clear();
 
+    /**
+     * Adds a sequence of items to the list. If the list is unsorted, the items
+     * are appended to the end of the list and a single
+     * {@link ListListener#itemsInserted(List, int, int)} event is fired.
+     * Otherwise, each item is inserted at the appropriate index, and an event
+     * is fired for each contiguous range of inserted items.
+     *
+     * @param items
+     * The items to add to the list.
+     */
+    public void addAll(Sequence<T> items);
+
+    /**
+     * Inserts a sequence of items into the list.
+     *
+     * @param items
+     * The items to be added to the list.
+     *
+     * @param index
+     * The index at which the items should be inserted. Must be a value between
+     * <tt>0</tt> and <tt>getLength()</tt>.
+     *
+     * @throws IllegalStateException
+     * If the list is sorted.
+     *
+     * @see ListListener#itemsInserted(List, int, int)
+     */
+    public void insertAll(Sequence<T> items, int index);
+
+    /**
+     * Removes every occurrence of the given items from the list. An
+     * {@link ListListener#itemsRemoved(List, int, Sequence)} event is fired
+     * for each contiguous range of removed items, starting with the range
+     * that has the highest index.
+     *
+     * @param items
+     * The items to remove from the list.
+     *
+     * @return
+     * The number of items that were removed.
+     */
+    public int removeAll(Sequence<T> items);
+
+    /**
+     * Replaces the contents of the list with the given items. A
+     * {@link ListListener#listCleared(List)} event is fired if the list was
+     * not empty, followed by a single
+     * {@link ListListener#itemsInserted(List, int, int)} event.
+     *
+     * @param items
+     * The new contents of the list.
+     */
+    public void setAll(Sequence<T> items);
+
     /**
      * Returns the length of the list.
      *
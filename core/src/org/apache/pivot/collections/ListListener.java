@@ -30,6 +30,18 @@ public interface ListListener<T> {
         public void itemInserted(List<T> list, int index) {
         }
 
+        /**
+         * Calls {@link #itemInserted(List, int)} once for each inserted item,
+         * so listeners that only handle single insertions continue to work
+         * with bulk list operations.
+         */
+        @Override
+        public void itemsInserted(List<T> list, int index, int count) {
+            for (int i = 0; i < count; i++) {
+                itemInserted(list, index + i);
+            }
+        }
+
         @Override
         public void itemsRemoved(List<T> list, int index, Sequence<T> items) {
         }
@@ -58,6 +70,20 @@ public interface ListListener<T> {
      */
     public void itemInserted(List<T> list, int index);
 
+    /**
+     * Called when a contiguous range of items has been inserted into a list.
+     *
+     * @param list
+     * The source of the list event.
+     *
+     * @param index
+     * The index at which the first item was added.
+     *
+     * @param count
+     * The number of items that were added.
+     */
+    public void itemsInserted(List<T> list, int index, int count);
+
     /**
      * Called when items have been removed from a list.
      *
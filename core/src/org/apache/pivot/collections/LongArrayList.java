@@ -0,0 +1,351 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.collections;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Array-backed list of primitive <tt>long</tt> values. Unlike
+ * <tt>ArrayList&lt;Long&gt;</tt>, values are not boxed, which keeps large
+ * lists of numeric data (such as the row boundaries of a table) compact
+ * and cheap to search.
+ * <p>
+ * NOTE This class is not thread-safe.
+ */
+public class LongArrayList implements Serializable {
+    private static final long serialVersionUID = -2851207467281364395L;
+
+    private long[] items;
+    private int length = 0;
+
+    public static final int DEFAULT_CAPACITY = 10;
+
+    public LongArrayList() {
+        items = new long[DEFAULT_CAPACITY];
+    }
+
+    public LongArrayList(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity cannot be negative.");
+        }
+
+        items = new long[capacity];
+    }
+
+    public LongArrayList(long... items) {
+        this(items, 0, items.length);
+    }
+
+    public LongArrayList(long[] items, int index, int count) {
+        if (items == null) {
+            throw new IllegalArgumentException("items cannot be null.");
+        }
+
+        verifyIndexBounds(index, count, 0, items.length);
+
+        this.items = Arrays.copyOfRange(items, index, index + count);
+        length = count;
+    }
+
+    public LongArrayList(LongArrayList list) {
+        if (list == null) {
+            throw new IllegalArgumentException("list cannot be null.");
+        }
+
+        items = Arrays.copyOf(list.items, list.length);
+        length = list.length;
+    }
+
+    /**
+     * Appends a value to the end of the list.
+     *
+     * @param value
+     *
+     * @return
+     * The index at which the value was added.
+     */
+    public int add(long value) {
+        ensureCapacity(length + 1);
+        items[length] = value;
+
+        return length++;
+    }
+
+    /**
+     * Inserts a value into the list.
+     *
+     * @param value
+     *
+     * @param index
+     * The index at which the value should be inserted. Must be a value between
+     * <tt>0</tt> and <tt>getLength()</tt>.
+     */
+    public void insert(long value, int index) {
+        verifyIndexBounds(index, 0, length);
+
+        ensureCapacity(length + 1);
+        System.arraycopy(items, index, items, index + 1, length - index);
+        items[index] = value;
+
+        length++;
+    }
+
+    /**
+     * Inserts the values in another list into this list.
+     *
+     * @param list
+     *
+     * @param index
+     * The index at which the values should be inserted. Must be a value
+     * between <tt>0</tt> and <tt>getLength()</tt>.
+     */
+    public void insertAll(LongArrayList list, int index) {
+        if (list == null) {
+            throw new IllegalArgumentException("list cannot be null.");
+        }
+
+        verifyIndexBounds(index, 0, length);
+
+        int count = list.length;
+        ensureCapacity(length + count);
+        System.arraycopy(items, index, items, index + count, length - index);
+        System.arraycopy(list.items, 0, items, index, count);
+
+        length += count;
+    }
+
+    /**
+     * Updates the value at the given index.
+     *
+     * @param index
+     * @param value
+     *
+     * @return
+     * The value previously stored at the given index.
+     */
+    public long update(int index, long value) {
+        verifyIndexBounds(index, 0, length - 1);
+
+        long previousValue = items[index];
+        items[index] = value;
+
+        return previousValue;
+    }
+
+    /**
+     * Removes a range of values from the list.
+     *
+     * @param index
+     * @param count
+     */
+    public void remove(int index, int count) {
+        verifyIndexBounds(index, count, 0, length);
+
+        System.arraycopy(items, index + count, items, index, length - (index + count));
+        length -= count;
+    }
+
+    public void clear() {
+        length = 0;
+    }
+
+    public long get(int index) {
+        verifyIndexBounds(index, 0, length - 1);
+
+        return items[index];
+    }
+
+    /**
+     * Returns the index of the first occurrence of a value, or <tt>-1</tt>
+     * if the value is not in the list.
+     *
+     * @param value
+     */
+    public int indexOf(long value) {
+        int index = -1;
+
+        for (int i = 0; i < length; i++) {
+            if (items[i] == value) {
+                index = i;
+                break;
+            }
+        }
+
+        return index;
+    }
+
+    public boolean isEmpty() {
+        return (length == 0);
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Adds the given amount to each value in a range of the list.
+     *
+     * @param index
+     * @param count
+     * @param amount
+     */
+    public void increment(int index, int count, long amount) {
+        verifyIndexBounds(index, count, 0, length);
+
+        for (int i = index, n = index + count; i < n; i++) {
+            items[i] += amount;
+        }
+    }
+
+    /**
+     * Returns the sum of a range of values in the list.
+     *
+     * @param index
+     * @param count
+     */
+    public long sum(int index, int count) {
+        verifyIndexBounds(index, count, 0, length);
+
+        long sum = 0;
+        for (int i = index, n = index + count; i < n; i++) {
+            sum += items[i];
+        }
+
+        return sum;
+    }
+
+    /**
+     * Replaces each value in the list with the sum of itself and all
+     * preceding values (i.e. converts the list to its prefix sums). A list
+     * of sizes, once accumulated, can be searched with
+     * {@link #binarySearch(LongArrayList, long)} to map an offset to an index.
+     */
+    public void accumulate() {
+        for (int i = 1; i < length; i++) {
+            items[i] += items[i - 1];
+        }
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > items.length) {
+            capacity = Math.max(items.length * 3 / 2, capacity);
+            items = Arrays.copyOf(items, capacity);
+        }
+    }
+
+    public int getCapacity() {
+        return items.length;
+    }
+
+    public void trimToSize() {
+        items = Arrays.copyOf(items, length);
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(items, length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        boolean equals = false;
+
+        if (this == o) {
+            equals = true;
+        } else if (o instanceof LongArrayList) {
+            LongArrayList list = (LongArrayList)o;
+
+            if (length == list.length) {
+                equals = true;
+
+                for (int i = 0; i < length; i++) {
+                    if (items[i] != list.items[i]) {
+                        equals = false;
+                        break;
+                    }
+                }
+            }
+        }
+
+        return equals;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 1;
+        for (int i = 0; i < length; i++) {
+            hashCode = 31 * hashCode + (int)(items[i] ^ (items[i] >>> 32));
+        }
+
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(getClass().getName());
+        sb.append(" [");
+
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+
+            sb.append(items[i]);
+        }
+
+        sb.append("]");
+
+        return sb.toString();
+    }
+
+    /**
+     * Searches a sorted list for a value.
+     *
+     * @param list
+     * @param value
+     *
+     * @return
+     * The index of the value if it is found; otherwise,
+     * <tt>-(insertion point + 1)</tt>, as with
+     * {@link ArrayList#binarySearch(ArrayList, Object)}.
+     */
+    public static int binarySearch(LongArrayList list, long value) {
+        return Arrays.binarySearch(list.items, 0, list.length, value);
+    }
+
+    private static void verifyIndexBounds(int index, int start, int end) {
+        if (index < start || index > end) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds.");
+        }
+    }
+
+    private static void verifyIndexBounds(int index, int count, int start, int end) {
+        if (count < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        if (index < start) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds.");
+        }
+
+        if (index + count > end) {
+            throw new IndexOutOfBoundsException("index + count " + index + "," + count + " out of range.");
+        }
+    }
+}
@@ -201,6 +201,90 @@ public class ListAdapter<T> implements List<T>, Serializable {
         }
     }
 
+    @Override
+    public void addAll(Sequence<T> items) {
+        if (comparator == null) {
+            insertAll(items, getLength());
+        } else {
+            for (int i = 0, n = items.getLength(); i < n; i++) {
+                add(items.get(i));
+            }
+        }
+    }
+
+    @Override
+    public void insertAll(Sequence<T> items, int index) {
+        if (comparator != null) {
+            throw new IllegalStateException("List is sorted.");
+        }
+
+        java.util.List<T> insertedItems = toList(items);
+        int count = insertedItems.size();
+
+        if (count > 0) {
+            list.addAll(index, insertedItems);
+            listListeners.itemsInserted(this, index, count);
+        }
+    }
+
+    @Override
+    public int removeAll(Sequence<T> items) {
+        java.util.HashSet<T> removedItems = new java.util.HashSet<T>(toList(items));
+
+        java.util.ArrayList<Integer> rangeIndexes = new java.util.ArrayList<Integer>();
+        java.util.ArrayList<List<T>> ranges = new java.util.ArrayList<List<T>>();
+
+        List<T> range = null;
+        int count = 0;
+
+        ListIterator<T> listIterator = list.listIterator();
+        while (listIterator.hasNext()) {
+            int index = listIterator.nextIndex() + count;
+            T item = listIterator.next();
+
+            if (removedItems.contains(item)) {
+                if (range == null) {
+                    range = new ListAdapter<T>(new java.util.ArrayList<T>());
+                    rangeIndexes.add(index);
+                    ranges.add(range);
+                }
+
+                range.add(item);
+                listIterator.remove();
+                count++;
+            } else {
+                range = null;
+            }
+        }
+
+        for (int i = ranges.size() - 1; i >= 0; i--) {
+            listListeners.itemsRemoved(this, rangeIndexes.get(i), ranges.get(i));
+        }
+
+        return count;
+    }
+
+    @Override
+    public void setAll(Sequence<T> items) {
+        java.util.List<T> newItems = toList(items);
+        if (comparator != null) {
+            Collections.sort(newItems, comparator);
+        }
+
+        boolean cleared = !list.isEmpty();
+
+        list.clear();
+        list.addAll(newItems);
+
+        if (cleared) {
+            listListeners.listCleared(this);
+        }
+
+        if (!newItems.isEmpty()) {
+            listListeners.itemsInserted(this, 0, newItems.size());
+        }
+    }
+
     @Override
     public T get(int index) {
         return list.get(index);
@@ -255,4 +339,25 @@ public class ListAdapter<T> implements List<T>, Serializable {
     public String toString() {
         return list.toString();
     }
+
+    @SuppressWarnings("unchecked")
+    private static <T> java.util.List<T> toList(Sequence<T> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("items is null.");
+        }
+
+        java.util.ArrayList<T> list = new java.util.ArrayList<T>(Math.max(items.getLength(), 0));
+
+        if (items instanceof Iterable<?>) {
+            for (T item : (Iterable<T>)items) {
+                list.add(item);
+            }
+        } else {
+            for (int i = 0, n = items.getLength(); i < n; i++) {
+                list.add(items.get(i));
+            }
+        }
+
+        return list;
+    }
 }
@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.collections.concurrent;
+
+import java.util.Comparator;
+import java.util.Iterator;
+
+import org.apache.pivot.collections.Map;
+import org.apache.pivot.collections.MapListener;
+import org.apache.pivot.util.ImmutableIterator;
+import org.apache.pivot.util.ListenerList;
+
+/**
+ * Thread-safe implementation of the {@link Map} interface that is backed by a
+ * {@link java.util.concurrent.ConcurrentHashMap}. Unlike
+ * {@link SynchronizedMap}, which serializes all access on a single monitor,
+ * reads do not block and writes only lock the segment of the table that
+ * contains the key.
+ * <p>
+ * Events are fired on the thread that modified the map, after the
+ * modification has been made. Iterators are weakly consistent: they never
+ * throw {@link java.util.ConcurrentModificationException}, and may or may not
+ * reflect modifications made after they were created.
+ * <p>
+ * NOTE Concurrent maps cannot be sorted.
+ */
+public class ConcurrentHashMap<K, V> implements Map<K, V> {
+    private static class ConcurrentHashMapListenerList<K, V>
+        extends MapListenerList<K, V> {
+        @Override
+        public synchronized void add(MapListener<K, V> listener) {
+            super.add(listener);
+        }
+
+        @Override
+        public synchronized void remove(MapListener<K, V> listener) {
+            super.remove(listener);
+        }
+    }
+
+    private java.util.concurrent.ConcurrentHashMap<K, Object> map;
+    private ConcurrentHashMapListenerList<K, V> mapListeners =
+        new ConcurrentHashMapListenerList<K, V>();
+
+    // Stands in for null values, which the backing map does not support
+    private static final Object NULL_VALUE = new Object();
+
+    public static final int DEFAULT_CAPACITY = 16;
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    public ConcurrentHashMap() {
+        this(DEFAULT_CAPACITY, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Creates a new concurrent hash map.
+     *
+     * @param capacity
+     * The initial capacity of the map.
+     *
+     * @param concurrencyLevel
+     * The estimated number of threads that will update the map concurrently.
+     */
+    public ConcurrentHashMap(int capacity, int concurrencyLevel) {
+        map = new java.util.concurrent.ConcurrentHashMap<K, Object>(capacity, 0.75f,
+            concurrencyLevel);
+    }
+
+    public ConcurrentHashMap(Map<K, V> map) {
+        this();
+
+        if (map == null) {
+            throw new IllegalArgumentException("map cannot be null.");
+        }
+
+        for (K key : map) {
+            put(key, map.get(key));
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key cannot be null.");
+        }
+
+        Object value = map.get(key);
+
+        return (value == NULL_VALUE) ? null : (V)value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("key cannot be null.");
+        }
+
+        Object previousValue = map.put(key, (value == null) ? NULL_VALUE : value);
+
+        if (previousValue == null) {
+            mapListeners.valueAdded(this, key);
+        } else {
+            if (previousValue == NULL_VALUE) {
+                previousValue = null;
+            }
+
+            mapListeners.valueUpdated(this, key, (V)previousValue);
+        }
+
+        return (V)previousValue;
+    }
+
+    /**
+     * Atomically sets the value of the given key if it does not already
+     * exist.
+     *
+     * @param key
+     * @param value
+     *
+     * @return
+     * The value currently associated with the key, or <tt>null</tt> if the
+     * value was added. Since <tt>null</tt> values are permitted, a
+     * <tt>null</tt> result is ambiguous when the key may already be mapped to
+     * <tt>null</tt>; use {@link #addIfAbsent(Object, Object)} to determine
+     * whether the value was added.
+     *
+     * @see MapListener#valueAdded(Map, Object)
+     */
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("key cannot be null.");
+        }
+
+        Object currentValue = map.putIfAbsent(key, (value == null) ? NULL_VALUE : value);
+
+        if (currentValue == null) {
+            mapListeners.valueAdded(this, key);
+        } else if (currentValue == NULL_VALUE) {
+            currentValue = null;
+        }
+
+        return (V)currentValue;
+    }
+
+    /**
+     * Atomically sets the value of the given key if it does not already
+     * exist.
+     *
+     * @param key
+     * @param value
+     *
+     * @return
+     * <tt>true</tt> if the value was added; <tt>false</tt> if the key was
+     * already present.
+     *
+     * @see MapListener#valueAdded(Map, Object)
+     */
+    public boolean addIfAbsent(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("key cannot be null.");
+        }
+
+        boolean added = (map.putIfAbsent(key, (value == null) ? NULL_VALUE : value) == null);
+
+        if (added) {
+            mapListeners.valueAdded(this, key);
+        }
+
+        return added;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key cannot be null.");
+        }
+
+        Object value = map.remove(key);
+
+        if (value != null) {
+            if (value == NULL_VALUE) {
+                value = null;
+            }
+
+            mapListeners.valueRemoved(this, key, (V)value);
+        }
+
+        return (V)value;
+    }
+
+    @Override
+    public void clear() {
+        if (!map.isEmpty()) {
+            map.clear();
+            mapListeners.mapCleared(this);
+        }
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key cannot be null.");
+        }
+
+        return map.containsKey(key);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public int getCount() {
+        return map.size();
+    }
+
+    @Override
+    public Comparator<K> getComparator() {
+        return null;
+    }
+
+    @Override
+    public void setComparator(Comparator<K> comparator) {
+        if (comparator != null) {
+            throw new UnsupportedOperationException("Concurrent maps cannot be sorted.");
+        }
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+        return new ImmutableIterator<K>(map.keySet().iterator());
+    }
+
+    @Override
+    public ListenerList<MapListener<K, V>> getMapListeners() {
+        return mapListeners;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(getClass().getName());
+        sb.append(" {");
+
+        int i = 0;
+        for (K key : this) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+
+            sb.append(key + ":" + get(key));
+            i++;
+        }
+
+        sb.append("}");
+
+        return sb.toString();
+    }
+}
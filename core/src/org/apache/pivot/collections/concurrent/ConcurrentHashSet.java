@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.collections.concurrent;
+
+import java.util.Comparator;
+import java.util.Iterator;
+
+import org.apache.pivot.collections.Set;
+import org.apache.pivot.collections.SetListener;
+import org.apache.pivot.util.ImmutableIterator;
+import org.apache.pivot.util.ListenerList;
+
+/**
+ * Thread-safe implementation of the {@link Set} interface that is backed by a
+ * {@link java.util.concurrent.ConcurrentHashMap}. Reads do not block, and
+ * writes only lock the segment of the table that contains the element.
+ * <p>
+ * Events are fired on the thread that modified the set, after the
+ * modification has been made. Iterators are weakly consistent: they never
+ * throw {@link java.util.ConcurrentModificationException}, and may or may not
+ * reflect modifications made after they were created.
+ * <p>
+ * NOTE Concurrent sets cannot be sorted.
+ */
+public class ConcurrentHashSet<E> implements Set<E> {
+    private static class ConcurrentHashSetListenerList<E>
+        extends SetListenerList<E> {
+        @Override
+        public synchronized void add(SetListener<E> listener) {
+            super.add(listener);
+        }
+
+        @Override
+        public synchronized void remove(SetListener<E> listener) {
+            super.remove(listener);
+        }
+    }
+
+    private java.util.concurrent.ConcurrentHashMap<E, Boolean> map;
+    private ConcurrentHashSetListenerList<E> setListeners =
+        new ConcurrentHashSetListenerList<E>();
+
+    public ConcurrentHashSet() {
+        this(ConcurrentHashMap.DEFAULT_CAPACITY, ConcurrentHashMap.DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Creates a new concurrent hash set.
+     *
+     * @param capacity
+     * The initial capacity of the set.
+     *
+     * @param concurrencyLevel
+     * The estimated number of threads that will update the set concurrently.
+     */
+    public ConcurrentHashSet(int capacity, int concurrencyLevel) {
+        map = new java.util.concurrent.ConcurrentHashMap<E, Boolean>(capacity, 0.75f,
+            concurrencyLevel);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentHashSet(E... elements) {
+        this();
+
+        for (int i = 0; i < elements.length; i++) {
+            add(elements[i]);
+        }
+    }
+
+    @Override
+    public boolean add(E element) {
+        if (element == null) {
+            throw new IllegalArgumentException("element cannot be null.");
+        }
+
+        boolean added = (map.putIfAbsent(element, Boolean.TRUE) == null);
+
+        if (added) {
+            setListeners.elementAdded(this, element);
+        }
+
+        return added;
+    }
+
+    @Override
+    public boolean remove(E element) {
+        if (element == null) {
+            throw new IllegalArgumentException("element cannot be null.");
+        }
+
+        boolean removed = (map.remove(element) != null);
+
+        if (removed) {
+            setListeners.elementRemoved(this, element);
+        }
+
+        return removed;
+    }
+
+    @Override
+    public boolean contains(E element) {
+        if (element == null) {
+            throw new IllegalArgumentException("element cannot be null.");
+        }
+
+        return map.containsKey(element);
+    }
+
+    @Override
+    public void clear() {
+        if (!map.isEmpty()) {
+            map.clear();
+            setListeners.setCleared(this);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public int getCount() {
+        return map.size();
+    }
+
+    @Override
+    public Comparator<E> getComparator() {
+        return null;
+    }
+
+    @Override
+    public void setComparator(Comparator<E> comparator) {
+        if (comparator != null) {
+            throw new UnsupportedOperationException("Concurrent sets cannot be sorted.");
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new ImmutableIterator<E>(map.keySet().iterator());
+    }
+
+    @Override
+    public ListenerList<SetListener<E>> getSetListeners() {
+        return setListeners;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(getClass().getName());
+        sb.append(" (");
+
+        int i = 0;
+        for (E element : this) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+
+            sb.append(element);
+            i++;
+        }
+
+        sb.append(")");
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.collections.concurrent;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.pivot.collections.Queue;
+import org.apache.pivot.collections.QueueListener;
+import org.apache.pivot.util.ListenerList;
+
+/**
+ * Lock-free implementation of the {@link Queue} interface that may be shared
+ * by any number of producer and consumer threads. The queue is backed by a
+ * {@link ConcurrentLinkedQueue}, so neither {@link #enqueue(Object)} nor
+ * {@link #dequeue()} ever block.
+ * <p>
+ * Unlike {@link SynchronizedQueue}, {@link #dequeue()} does not wait for an
+ * item to become available; consumers that may race with one another should
+ * use {@link #poll()} instead of testing {@link #isEmpty()} first. Events
+ * are fired on the thread that modified the queue. Iterators are weakly
+ * consistent and visit items from head to tail.
+ * <p>
+ * NOTE Concurrent queues cannot be sorted.
+ */
+public class ConcurrentQueue<T> implements Queue<T> {
+    private static class ConcurrentQueueListenerList<T>
+        extends QueueListenerList<T> {
+        @Override
+        public synchronized void add(QueueListener<T> listener) {
+            super.add(listener);
+        }
+
+        @Override
+        public synchronized void remove(QueueListener<T> listener) {
+            super.remove(listener);
+        }
+    }
+
+    private class ConcurrentQueueIterator implements Iterator<T> {
+        private Iterator<Object> iterator = queue.iterator();
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Object item = iterator.next();
+
+            return (item == NULL_ITEM) ? null : (T)item;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<Object>();
+
+    // ConcurrentLinkedQueue#size() traverses the queue, so the length is
+    // tracked separately
+    private AtomicInteger length = new AtomicInteger();
+
+    private ConcurrentQueueListenerList<T> queueListeners = new ConcurrentQueueListenerList<T>();
+
+    // Stands in for null items, which the backing queue does not support
+    private static final Object NULL_ITEM = new Object();
+
+    @Override
+    public void enqueue(T item) {
+        queue.offer((item == null) ? NULL_ITEM : item);
+        length.incrementAndGet();
+
+        queueListeners.itemEnqueued(this, item);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException
+     * If the queue is empty.
+     */
+    @Override
+    public T dequeue() {
+        Object item = queue.poll();
+
+        if (item == null) {
+            throw new IllegalStateException("queue is empty");
+        }
+
+        return dequeued(item);
+    }
+
+    /**
+     * Removes the item from the head of the queue and returns it, if the
+     * queue is not empty. Returns null if the queue contains no items. Will
+     * also return null if the head item in the queue is null.
+     */
+    public T poll() {
+        Object item = queue.poll();
+
+        return (item == null) ? null : dequeued(item);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T dequeued(Object item) {
+        length.decrementAndGet();
+
+        T dequeuedItem = (item == NULL_ITEM) ? null : (T)item;
+        queueListeners.itemDequeued(this, dequeuedItem);
+
+        return dequeuedItem;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        Object item = queue.peek();
+
+        return (item == NULL_ITEM) ? null : (T)item;
+    }
+
+    @Override
+    public void clear() {
+        int count = 0;
+        while (queue.poll() != null) {
+            count++;
+        }
+
+        if (count > 0) {
+            length.addAndGet(-count);
+            queueListeners.queueCleared(this);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned value is only a snapshot while other threads are
+     * modifying the queue.
+     */
+    @Override
+    public int getLength() {
+        return Math.max(length.get(), 0);
+    }
+
+    @Override
+    public Comparator<T> getComparator() {
+        return null;
+    }
+
+    @Override
+    public void setComparator(Comparator<T> comparator) {
+        if (comparator != null) {
+            throw new UnsupportedOperationException("Concurrent queues cannot be sorted.");
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new ConcurrentQueueIterator();
+    }
+
+    @Override
+    public ListenerList<QueueListener<T>> getQueueListeners() {
+        return queueListeners;
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.collections.concurrent;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.pivot.collections.ArrayList;
+import org.apache.pivot.collections.List;
+import org.apache.pivot.collections.ListListener;
+import org.apache.pivot.collections.Sequence;
+import org.apache.pivot.util.ImmutableIterator;
+import org.apache.pivot.util.ListenerList;
+
+/**
+ * Thread-safe implementation of the {@link List} interface that guards a
+ * backing list with a read/write lock. Unlike {@link SynchronizedList}, any
+ * number of threads may read the list at the same time; only modifications
+ * are exclusive.
+ * <p>
+ * Events are fired while the write lock is held, so listeners see the list
+ * in the state described by the event and may safely read from it. The
+ * iterator returned by {@link #iterator()} operates on a snapshot of the
+ * list, so callers do not need to lock the list during iteration.
+ */
+public class ReadWriteList<T> implements List<T> {
+    private static class ReadWriteListListenerList<T>
+        extends ListListenerList<T> {
+        @Override
+        public synchronized void add(ListListener<T> listener) {
+            super.add(listener);
+        }
+
+        @Override
+        public synchronized void remove(ListListener<T> listener) {
+            super.remove(listener);
+        }
+    }
+
+    private List<T> list;
+    private ReadWriteListListenerList<T> listListeners = new ReadWriteListListenerList<T>();
+
+    private Lock readLock;
+    private Lock writeLock;
+
+    // Re-fires the events generated by the bulk operations of the backing list
+    private ListListener<T> bulkListListener = new ListListener<T>() {
+        @Override
+        public void itemInserted(List<T> list, int index) {
+            listListeners.itemInserted(ReadWriteList.this, index);
+        }
+
+        @Override
+        public void itemsInserted(List<T> list, int index, int count) {
+            listListeners.itemsInserted(ReadWriteList.this, index, count);
+        }
+
+        @Override
+        public void itemsRemoved(List<T> list, int index, Sequence<T> items) {
+            listListeners.itemsRemoved(ReadWriteList.this, index, items);
+        }
+
+        @Override
+        public void itemUpdated(List<T> list, int index, T previousItem) {
+            listListeners.itemUpdated(ReadWriteList.this, index, previousItem);
+        }
+
+        @Override
+        public void listCleared(List<T> list) {
+            listListeners.listCleared(ReadWriteList.this);
+        }
+
+        @Override
+        public void comparatorChanged(List<T> list, Comparator<T> previousComparator) {
+            listListeners.comparatorChanged(ReadWriteList.this, previousComparator);
+        }
+    };
+
+    public ReadWriteList(List<T> list) {
+        this(list, false);
+    }
+
+    /**
+     * Creates a new read/write list.
+     *
+     * @param list
+     * The backing list. It should not be accessed other than through this
+     * list.
+     *
+     * @param fair
+     * If <tt>true</tt>, the lock is granted to the longest-waiting thread;
+     * otherwise, writers may be starved by a steady stream of readers, but
+     * throughput is higher.
+     */
+    public ReadWriteList(List<T> list, boolean fair) {
+        if (list == null) {
+            throw new IllegalArgumentException("list cannot be null.");
+        }
+
+        this.list = list;
+
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock(fair);
+        readLock = lock.readLock();
+        writeLock = lock.writeLock();
+    }
+
+    @Override
+    public int add(T item) {
+        writeLock.lock();
+
+        try {
+            int index = list.add(item);
+            listListeners.itemInserted(this, index);
+
+            return index;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void insert(T item, int index) {
+        writeLock.lock();
+
+        try {
+            list.insert(item, index);
+            listListeners.itemInserted(this, index);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public T update(int index, T item) {
+        writeLock.lock();
+
+        try {
+            T previousItem = list.update(index, item);
+            if (previousItem != item) {
+                listListeners.itemUpdated(this, index, previousItem);
+            }
+
+            return previousItem;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int remove(T item) {
+        writeLock.lock();
+
+        try {
+            int index = list.indexOf(item);
+            if (index != -1) {
+                remove(index, 1);
+            }
+
+            return index;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Sequence<T> remove(int index, int count) {
+        writeLock.lock();
+
+        try {
+            Sequence<T> removed = list.remove(index, count);
+            if (count > 0) {
+                listListeners.itemsRemoved(this, index, removed);
+            }
+
+            return removed;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        writeLock.lock();
+
+        try {
+            if (list.getLength() > 0) {
+                list.clear();
+                listListeners.listCleared(this);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void addAll(Sequence<T> items) {
+        writeLock.lock();
+
+        try {
+            list.getListListeners().add(bulkListListener);
+
+            try {
+                list.addAll(items);
+            } finally {
+                list.getListListeners().remove(bulkListListener);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void insertAll(Sequence<T> items, int index) {
+        writeLock.lock();
+
+        try {
+            list.getListListeners().add(bulkListListener);
+
+            try {
+                list.insertAll(items, index);
+            } finally {
+                list.getListListeners().remove(bulkListListener);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int removeAll(Sequence<T> items) {
+        writeLock.lock();
+
+        try {
+            list.getListListeners().add(bulkListListener);
+
+            try {
+                return list.removeAll(items);
+            } finally {
+                list.getListListeners().remove(bulkListListener);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void setAll(Sequence<T> items) {
+        writeLock.lock();
+
+        try {
+            list.getListListeners().add(bulkListListener);
+
+            try {
+                list.setAll(items);
+            } finally {
+                list.getListListeners().remove(bulkListListener);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public T get(int index) {
+        readLock.lock();
+
+        try {
+            return list.get(index);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int indexOf(T item) {
+        readLock.lock();
+
+        try {
+            return list.indexOf(item);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        readLock.lock();
+
+        try {
+            return list.isEmpty();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int getLength() {
+        readLock.lock();
+
+        try {
+            return list.getLength();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public Comparator<T> getComparator() {
+        readLock.lock();
+
+        try {
+            return list.getComparator();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void setComparator(Comparator<T> comparator) {
+        writeLock.lock();
+
+        try {
+            Comparator<T> previousComparator = list.getComparator();
+            list.setComparator(comparator);
+            listListeners.comparatorChanged(this, previousComparator);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns a copy of the list's contents. The copy is made while the read
+     * lock is held, so it reflects a consistent state of the list.
+     */
+    public ArrayList<T> getSnapshot() {
+        readLock.lock();
+
+        try {
+            int n = list.getLength();
+            ArrayList<T> snapshot = new ArrayList<T>(n);
+
+            for (T item : list) {
+                snapshot.add(item);
+            }
+
+            return snapshot;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the list. The iterator is not
+     * affected by subsequent modifications to the list.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new ImmutableIterator<T>(getSnapshot().iterator());
+    }
+
+    @Override
+    public ListenerList<ListListener<T>> getListListeners() {
+        return listListeners;
+    }
+}
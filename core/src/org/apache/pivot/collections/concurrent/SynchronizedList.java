@@ -46,6 +46,11 @@ public class SynchronizedList<T> implements List<T> {
             super.itemInserted(list, index);
         }
 
+        @Override
+        public synchronized void itemsInserted(List<T> list, int index, int count) {
+            super.itemsInserted(list, index, count);
+        }
+
         @Override
         public synchronized void itemsRemoved(List<T> list, int index, Sequence<T> items) {
             super.itemsRemoved(list, index, items);
@@ -70,6 +75,39 @@ public class SynchronizedList<T> implements List<T> {
     private List<T> list;
     private SynchronizedListListenerList<T> listListeners = new SynchronizedListListenerList<T>();
 
+    // Re-fires the events generated by the bulk operations of the backing list
+    private ListListener<T> bulkListListener = new ListListener<T>() {
+        @Override
+        public void itemInserted(List<T> list, int index) {
+            listListeners.itemInserted(SynchronizedList.this, index);
+        }
+
+        @Override
+        public void itemsInserted(List<T> list, int index, int count) {
+            listListeners.itemsInserted(SynchronizedList.this, index, count);
+        }
+
+        @Override
+        public void itemsRemoved(List<T> list, int index, Sequence<T> items) {
+            listListeners.itemsRemoved(SynchronizedList.this, index, items);
+        }
+
+        @Override
+        public void itemUpdated(List<T> list, int index, T previousItem) {
+            listListeners.itemUpdated(SynchronizedList.this, index, previousItem);
+        }
+
+        @Override
+        public void listCleared(List<T> list) {
+            listListeners.listCleared(SynchronizedList.this);
+        }
+
+        @Override
+        public void comparatorChanged(List<T> list, Comparator<T> previousComparator) {
+            listListeners.comparatorChanged(SynchronizedList.this, previousComparator);
+        }
+    };
+
     public SynchronizedList(List<T> list) {
         if (list == null) {
             throw new IllegalArgumentException("list cannot be null.");
@@ -132,6 +170,50 @@ public class SynchronizedList<T> implements List<T> {
         }
     }
 
+    @Override
+    public synchronized void addAll(Sequence<T> items) {
+        list.getListListeners().add(bulkListListener);
+
+        try {
+            list.addAll(items);
+        } finally {
+            list.getListListeners().remove(bulkListListener);
+        }
+    }
+
+    @Override
+    public synchronized void insertAll(Sequence<T> items, int index) {
+        list.getListListeners().add(bulkListListener);
+
+        try {
+            list.insertAll(items, index);
+        } finally {
+            list.getListListeners().remove(bulkListListener);
+        }
+    }
+
+    @Override
+    public synchronized int removeAll(Sequence<T> items) {
+        list.getListListeners().add(bulkListListener);
+
+        try {
+            return list.removeAll(items);
+        } finally {
+            list.getListListeners().remove(bulkListListener);
+        }
+    }
+
+    @Override
+    public synchronized void setAll(Sequence<T> items) {
+        list.getListListeners().add(bulkListListener);
+
+        try {
+            list.setAll(items);
+        } finally {
+            list.getListListeners().remove(bulkListListener);
+        }
+    }
+
     @Override
     public synchronized T get(int index) {
         return list.get(index);
@@ -70,6 +70,26 @@ public final class ImmutableList<T> implements List<T> {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void addAll(Sequence<T> items) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void insertAll(Sequence<T> items, int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int removeAll(Sequence<T> items) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAll(Sequence<T> items) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public T get(int index) {
         return list.get(index);
@@ -53,7 +53,9 @@ public class EchoReader extends Reader {
     @Override
     public int read(char[] cbuf, int off, int len) throws IOException {
         int n = in.read(cbuf, off, len);
-        echo.write(cbuf, off, len);
+        if (n > 0) {
+            echo.write(cbuf, off, n);
+        }
 
         return n;
     }
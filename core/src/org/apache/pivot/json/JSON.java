@@ -16,12 +16,8 @@
  */
 package org.apache.pivot.json;
 
-import org.apache.pivot.beans.BeanAdapter;
-import org.apache.pivot.collections.ArrayList;
-import org.apache.pivot.collections.Dictionary;
 import org.apache.pivot.collections.List;
 import org.apache.pivot.collections.Map;
-import org.apache.pivot.collections.Sequence;
 
 /**
  * Contains utility methods for working with JSON or JSON-like data structures.
@@ -49,38 +45,7 @@ public class JSON {
             throw new IllegalArgumentException("path is null.");
         }
 
-        return get(root, split(path));
-    }
-
-    @SuppressWarnings("unchecked")
-    private static Object get(Object root, Sequence<String> keys) {
-        Object value = root;
-
-        for (int i = 0, n = keys.getLength(); i < n; i++) {
-            String key = keys.get(i);
-
-            if (value instanceof Sequence<?>) {
-                Sequence<Object> sequence = (Sequence<Object>)value;
-                value = sequence.get(Integer.parseInt(key));
-            } else {
-                Dictionary<String, Object> dictionary;
-                if (value instanceof Dictionary<?, ?>) {
-                    dictionary = (Dictionary<String, Object>)value;
-                    value = dictionary.get(key);
-                } else {
-                    dictionary = new BeanAdapter(value);
-                }
-
-                if (dictionary.containsKey(key)) {
-                    value = dictionary.get(key);
-                } else {
-                    value = null;
-                    break;
-                }
-            }
-        }
-
-        return value;
+        return JSONPath.compile(path).get(root);
     }
 
     /**
@@ -219,7 +184,6 @@ public class JSON {
      * @return
      * The value previously associated with the path.
      */
-    @SuppressWarnings("unchecked")
     public static Object put(Object root, String path, Object value) {
         if (root == null) {
             throw new IllegalArgumentException("root is null.");
@@ -229,31 +193,7 @@ public class JSON {
             throw new IllegalArgumentException("path is null.");
         }
 
-        Object previousValue;
-
-        Sequence<String> keys = split(path);
-        if (keys.getLength() == 0) {
-            throw new IllegalArgumentException("Bad path.");
-        }
-
-        String key = keys.remove(keys.getLength() - 1, 1).get(0);
-
-        Object parent = get(root, keys);
-        if (parent instanceof Sequence<?>) {
-            Sequence<Object> sequence = (Sequence<Object>)parent;
-            previousValue = sequence.update(Integer.parseInt(key), value);
-        } else {
-            Dictionary<String, Object> dictionary;
-            if (parent instanceof Dictionary<?, ?>) {
-                dictionary = (Dictionary<String, Object>)parent;
-            } else {
-                dictionary = new BeanAdapter(parent);
-            }
-
-            previousValue = dictionary.put(key, value);
-        }
-
-        return previousValue;
+        return JSONPath.compile(path).put(root, value);
     }
 
     /**
@@ -265,7 +205,6 @@ public class JSON {
      * @return
      * The value that was removed.
      */
-    @SuppressWarnings("unchecked")
     public static Object remove(Object root, String path) {
         if (root == null) {
             throw new IllegalArgumentException("root is null.");
@@ -275,31 +214,7 @@ public class JSON {
             throw new IllegalArgumentException("path is null.");
         }
 
-        Object previousValue;
-
-        Sequence<String> keys = split(path);
-        if (keys.getLength() == 0) {
-            throw new IllegalArgumentException("Bad path.");
-        }
-
-        String key = keys.remove(keys.getLength() - 1, 1).get(0);
-
-        Object parent = get(root, keys);
-        if (parent instanceof Sequence<?>) {
-            Sequence<Object> sequence = (Sequence<Object>)parent;
-            previousValue = sequence.remove(Integer.parseInt(key), 1).get(0);
-        } else {
-            Dictionary<String, Object> dictionary;
-            if (parent instanceof Dictionary<?, ?>) {
-                dictionary = (Dictionary<String, Object>)parent;
-            } else {
-                dictionary = new BeanAdapter(parent);
-            }
-
-            previousValue = dictionary.remove(key);
-        }
-
-        return previousValue;
+        return JSONPath.compile(path).remove(root);
     }
 
     /**
@@ -311,7 +226,6 @@ public class JSON {
      * @return
      * <tt>true</tt> if the path exists; <tt>false</tt>, otherwise.
      */
-    @SuppressWarnings("unchecked")
     public static boolean containsKey(Object root, String path) {
         if (root == null) {
             throw new IllegalArgumentException("root is null.");
@@ -321,134 +235,6 @@ public class JSON {
             throw new IllegalArgumentException("path is null.");
         }
 
-        boolean containsKey;
-
-        Sequence<String> keys = split(path);
-        if (keys.getLength() == 0) {
-            throw new IllegalArgumentException("Bad path.");
-        }
-
-        String key = keys.remove(keys.getLength() - 1, 1).get(0);
-
-        Object parent = get(root, keys);
-        if (parent instanceof Sequence<?>) {
-            Sequence<Object> sequence = (Sequence<Object>)parent;
-            containsKey = (sequence.getLength() > Integer.parseInt(key));
-        } else {
-            Dictionary<String, Object> dictionary;
-            if (parent instanceof Dictionary<?, ?>) {
-                dictionary = (Dictionary<String, Object>)parent;
-            } else {
-                dictionary = new BeanAdapter(parent);
-            }
-
-            containsKey = dictionary.containsKey(key);
-        }
-
-        return containsKey;
-    }
-
-    private static Sequence<String> split(String path) {
-        ArrayList<String> keys = new ArrayList<String>();
-
-        int i = 0;
-        int n = path.length();
-
-        while (i < n) {
-            char c = path.charAt(i++);
-
-            StringBuilder identifierBuilder = new StringBuilder();
-
-            boolean bracketed = (c == '[');
-            if (bracketed
-                && i < n) {
-                c = path.charAt(i++);
-
-                char quote = Character.UNASSIGNED;
-
-                boolean quoted = (c == '"'
-                    || c == '\'');
-                if (quoted
-                    && i < n) {
-                    quote = c;
-                    c = path.charAt(i++);
-                }
-
-                while (i <= n
-                    && bracketed) {
-                    bracketed = quoted || (c != ']');
-
-                    if (bracketed) {
-                        if (c == quote) {
-                            if (i < n) {
-                                c = path.charAt(i++);
-                                quoted = (c == quote);
-                            }
-                        }
-
-                        if (quoted || c != ']') {
-                            if (Character.isISOControl(c)) {
-                                throw new IllegalArgumentException("Illegal identifier character.");
-                            }
-
-                            identifierBuilder.append(c);
-
-                            if (i < n) {
-                                c = path.charAt(i++);
-                            }
-                        }
-                    }
-                }
-
-                if (quoted) {
-                    throw new IllegalArgumentException("Unterminated quoted identifier.");
-                }
-
-                if (bracketed) {
-                    throw new IllegalArgumentException("Unterminated bracketed identifier.");
-                }
-
-                if (i < n) {
-                    c = path.charAt(i);
-
-                    if (c == '.') {
-                        i++;
-                    }
-                }
-            } else {
-                while(i <= n
-                    && c != '.'
-                    && c != '[') {
-                    if (!Character.isJavaIdentifierPart(c)) {
-                        throw new IllegalArgumentException("Illegal identifier character.");
-                    }
-
-                    identifierBuilder.append(c);
-
-                    if (i < n) {
-                        c = path.charAt(i);
-                    }
-
-                    i++;
-                }
-
-                if (c == '[') {
-                    i--;
-                }
-            }
-
-            if (c == '.'
-                && i == n) {
-                throw new IllegalArgumentException("Path cannot end with a '.' character.");
-            }
-
-            if (identifierBuilder.length() == 0) {
-                throw new IllegalArgumentException("Missing identifier.");
-            }
-
-            keys.add(identifierBuilder.toString());
-        }
-
-        return keys;
+        return JSONPath.compile(path).containsKey(root);
     }
 }
@@ -0,0 +1,534 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.json;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.pivot.beans.BeanAdapter;
+import org.apache.pivot.collections.ArrayList;
+import org.apache.pivot.collections.Dictionary;
+import org.apache.pivot.collections.Sequence;
+
+/**
+ * Represents a compiled JSON path. Paths are parsed once and may be
+ * evaluated repeatedly against any number of root objects; evaluation does
+ * not re-parse the path and reads bean properties via accessors that are
+ * cached per path segment.
+ * <p>
+ * Instances are immutable and may be shared across threads. Use
+ * {@link #compile(String)} to obtain a (possibly cached) instance.
+ */
+public final class JSONPath {
+    /**
+     * Bean accessor resolved for a single path segment. Instances are
+     * immutable so they can be safely replaced when a segment is evaluated
+     * against a different bean class.
+     */
+    private static final class BeanAccessor {
+        public final Class<?> beanClass;
+        public final Method getterMethod;
+        public final Field field;
+
+        public BeanAccessor(Class<?> beanClass, Method getterMethod, Field field) {
+            this.beanClass = beanClass;
+            this.getterMethod = getterMethod;
+            this.field = field;
+        }
+
+        public boolean exists() {
+            return (getterMethod != null
+                || field != null);
+        }
+    }
+
+    private final String path;
+    private final String[] keys;
+    private final int[] indexes;
+    private final BeanAccessor[] accessors;
+
+    private static final ConcurrentHashMap<String, JSONPath> cache =
+        new ConcurrentHashMap<String, JSONPath>();
+
+    private static final Object[] EMPTY_ARGUMENTS = new Object[] {};
+
+    private static final String PROPERTY_EXCEPTION_MESSAGE_FORMAT =
+        "Unable to access property \"%s\" for type %s.";
+
+    /**
+     * The maximum number of compiled paths retained by {@link #compile(String)}.
+     */
+    public static final int MAXIMUM_CACHE_SIZE = 1024;
+
+    private JSONPath(String path, String[] keys) {
+        this.path = path;
+        this.keys = keys;
+
+        int n = keys.length;
+        indexes = new int[n];
+        accessors = new BeanAccessor[n];
+
+        for (int i = 0; i < n; i++) {
+            indexes[i] = parseIndex(keys[i]);
+        }
+    }
+
+    /**
+     * Returns the path string from which this path was compiled.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the number of keys in this path.
+     */
+    public int getLength() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the key at the given position in this path.
+     *
+     * @param index
+     */
+    public String get(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Returns the value at this path.
+     *
+     * @param root
+     * The root object.
+     *
+     * @return
+     * The value at this path, or <tt>null</tt> if the path does not exist.
+     *
+     * @see JSON#get(Object, String)
+     */
+    public Object get(Object root) {
+        if (root == null) {
+            throw new IllegalArgumentException("root is null.");
+        }
+
+        return get(root, keys.length);
+    }
+
+    /**
+     * Sets the value at this path.
+     *
+     * @param root
+     * The root object.
+     *
+     * @param value
+     * The new value.
+     *
+     * @return
+     * The value previously associated with the path.
+     *
+     * @see JSON#put(Object, String, Object)
+     */
+    @SuppressWarnings("unchecked")
+    public Object put(Object root, Object value) {
+        if (root == null) {
+            throw new IllegalArgumentException("root is null.");
+        }
+
+        int n = getLastIndex();
+        Object parent = get(root, n);
+
+        Object previousValue;
+        if (parent instanceof Sequence<?>) {
+            Sequence<Object> sequence = (Sequence<Object>)parent;
+            previousValue = sequence.update(getIndex(n), value);
+        } else {
+            Dictionary<String, Object> dictionary;
+            if (parent instanceof Dictionary<?, ?>) {
+                dictionary = (Dictionary<String, Object>)parent;
+            } else {
+                dictionary = new BeanAdapter(parent);
+            }
+
+            previousValue = dictionary.put(keys[n], value);
+        }
+
+        return previousValue;
+    }
+
+    /**
+     * Removes the value at this path.
+     *
+     * @param root
+     * The root object.
+     *
+     * @return
+     * The value that was removed.
+     *
+     * @see JSON#remove(Object, String)
+     */
+    @SuppressWarnings("unchecked")
+    public Object remove(Object root) {
+        if (root == null) {
+            throw new IllegalArgumentException("root is null.");
+        }
+
+        int n = getLastIndex();
+        Object parent = get(root, n);
+
+        Object previousValue;
+        if (parent instanceof Sequence<?>) {
+            Sequence<Object> sequence = (Sequence<Object>)parent;
+            previousValue = sequence.remove(getIndex(n), 1).get(0);
+        } else {
+            Dictionary<String, Object> dictionary;
+            if (parent instanceof Dictionary<?, ?>) {
+                dictionary = (Dictionary<String, Object>)parent;
+            } else {
+                dictionary = new BeanAdapter(parent);
+            }
+
+            previousValue = dictionary.remove(keys[n]);
+        }
+
+        return previousValue;
+    }
+
+    /**
+     * Tests the existence of this path in a given object.
+     *
+     * @param root
+     * The root object.
+     *
+     * @return
+     * <tt>true</tt> if the path exists; <tt>false</tt>, otherwise.
+     *
+     * @see JSON#containsKey(Object, String)
+     */
+    @SuppressWarnings("unchecked")
+    public boolean containsKey(Object root) {
+        if (root == null) {
+            throw new IllegalArgumentException("root is null.");
+        }
+
+        int n = getLastIndex();
+        Object parent = get(root, n);
+
+        boolean containsKey;
+        if (parent instanceof Sequence<?>) {
+            Sequence<Object> sequence = (Sequence<Object>)parent;
+            containsKey = (sequence.getLength() > getIndex(n));
+        } else if (parent instanceof Dictionary<?, ?>) {
+            Dictionary<String, Object> dictionary = (Dictionary<String, Object>)parent;
+            containsKey = dictionary.containsKey(keys[n]);
+        } else if (parent == null) {
+            containsKey = new BeanAdapter(parent).containsKey(keys[n]);
+        } else {
+            containsKey = getBeanAccessor(parent.getClass(), n).exists();
+        }
+
+        return containsKey;
+    }
+
+    /**
+     * Evaluates the first <tt>count</tt> keys of this path.
+     */
+    @SuppressWarnings("unchecked")
+    private Object get(Object root, int count) {
+        Object value = root;
+
+        for (int i = 0; i < count; i++) {
+            if (value instanceof Sequence<?>) {
+                Sequence<Object> sequence = (Sequence<Object>)value;
+                value = sequence.get(getIndex(i));
+            } else if (value instanceof Dictionary<?, ?>) {
+                Dictionary<String, Object> dictionary = (Dictionary<String, Object>)value;
+                String key = keys[i];
+                value = dictionary.get(key);
+
+                if (value == null
+                    && !dictionary.containsKey(key)) {
+                    break;
+                }
+            } else if (value == null) {
+                // Preserve the behavior of evaluating against a null bean
+                BeanAdapter beanAdapter = new BeanAdapter(value);
+                value = beanAdapter.containsKey(keys[i]) ? beanAdapter.get(keys[i]) : null;
+            } else {
+                BeanAccessor accessor = getBeanAccessor(value.getClass(), i);
+
+                if (!accessor.exists()) {
+                    value = null;
+                    break;
+                }
+
+                value = getBeanValue(value, accessor, keys[i]);
+            }
+        }
+
+        return value;
+    }
+
+    private int getLastIndex() {
+        if (keys.length == 0) {
+            throw new IllegalArgumentException("Bad path.");
+        }
+
+        return keys.length - 1;
+    }
+
+    private int getIndex(int i) {
+        int index = indexes[i];
+
+        if (index == -1) {
+            // Not a valid index; this will throw the appropriate exception
+            index = Integer.parseInt(keys[i]);
+        }
+
+        return index;
+    }
+
+    private BeanAccessor getBeanAccessor(Class<?> beanClass, int i) {
+        BeanAccessor accessor = accessors[i];
+
+        if (accessor == null
+            || accessor.beanClass != beanClass) {
+            String key = keys[i];
+
+            Method getterMethod = null;
+            Field field = null;
+            if (key.startsWith(BeanAdapter.FIELD_PREFIX)) {
+                field = BeanAdapter.getField(beanClass, key.substring(1));
+            } else {
+                getterMethod = BeanAdapter.getGetterMethod(beanClass, key);
+            }
+
+            accessor = new BeanAccessor(beanClass, getterMethod, field);
+            accessors[i] = accessor;
+        }
+
+        return accessor;
+    }
+
+    private static Object getBeanValue(Object bean, BeanAccessor accessor, String key) {
+        Object value;
+
+        try {
+            if (accessor.field != null) {
+                value = accessor.field.get(bean);
+            } else {
+                value = accessor.getterMethod.invoke(bean, EMPTY_ARGUMENTS);
+            }
+        } catch (IllegalAccessException exception) {
+            throw new RuntimeException(String.format(PROPERTY_EXCEPTION_MESSAGE_FORMAT,
+                key, bean.getClass().getName()), exception);
+        } catch (InvocationTargetException exception) {
+            throw new RuntimeException(String.format(PROPERTY_EXCEPTION_MESSAGE_FORMAT,
+                key, bean.getClass().getName()), exception.getCause());
+        }
+
+        return value;
+    }
+
+    private static int parseIndex(String key) {
+        int index = 0;
+
+        int n = key.length();
+        if (n == 0
+            || n > 9) {
+            index = -1;
+        } else {
+            for (int i = 0; i < n; i++) {
+                char c = key.charAt(i);
+
+                if (c < '0'
+                    || c > '9') {
+                    index = -1;
+                    break;
+                }
+
+                index = index * 10 + (c - '0');
+            }
+        }
+
+        return index;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        return (object instanceof JSONPath
+            && path.equals(((JSONPath)object).path));
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    /**
+     * Returns a compiled representation of the given path. Compiled paths
+     * are cached, so repeated calls with the same path string do not re-parse
+     * the path.
+     *
+     * @param path
+     * The path, in JavaScript path notation.
+     *
+     * @throws IllegalArgumentException
+     * If the path is malformed.
+     */
+    public static JSONPath compile(String path) {
+        if (path == null) {
+            throw new IllegalArgumentException("path is null.");
+        }
+
+        JSONPath jsonPath = cache.get(path);
+
+        if (jsonPath == null) {
+            jsonPath = new JSONPath(path, split(path));
+
+            // Keep the cache bounded; paths are cheap to recompile, so simply
+            // start over when the limit is reached
+            if (cache.size() >= MAXIMUM_CACHE_SIZE) {
+                cache.clear();
+            }
+
+            cache.put(path, jsonPath);
+        }
+
+        return jsonPath;
+    }
+
+    private static String[] split(String path) {
+        ArrayList<String> keys = new ArrayList<String>();
+        StringBuilder identifierBuilder = new StringBuilder();
+
+        int i = 0;
+        int n = path.length();
+
+        while (i < n) {
+            char c = path.charAt(i++);
+
+            identifierBuilder.setLength(0);
+
+            boolean bracketed = (c == '[');
+            if (bracketed
+                && i < n) {
+                c = path.charAt(i++);
+
+                char quote = Character.UNASSIGNED;
+
+                boolean quoted = (c == '"'
+                    || c == '\'');
+                if (quoted
+                    && i < n) {
+                    quote = c;
+                    c = path.charAt(i++);
+                }
+
+                while (i <= n
+                    && bracketed) {
+                    bracketed = quoted || (c != ']');
+
+                    if (bracketed) {
+                        if (c == quote) {
+                            if (i < n) {
+                                c = path.charAt(i++);
+                                quoted = (c == quote);
+                            }
+                        }
+
+                        if (quoted || c != ']') {
+                            if (Character.isISOControl(c)) {
+                                throw new IllegalArgumentException("Illegal identifier character.");
+                            }
+
+                            identifierBuilder.append(c);
+
+                            if (i < n) {
+                                c = path.charAt(i++);
+                            } else {
+                                // End of path; the identifier is unterminated
+                                i++;
+                            }
+                        }
+                    }
+                }
+
+                if (quoted) {
+                    throw new IllegalArgumentException("Unterminated quoted identifier.");
+                }
+
+                if (bracketed) {
+                    throw new IllegalArgumentException("Unterminated bracketed identifier.");
+                }
+
+                if (i < n) {
+                    c = path.charAt(i);
+
+                    if (c == '.') {
+                        i++;
+                    }
+                }
+            } else {
+                while(i <= n
+                    && c != '.'
+                    && c != '[') {
+                    if (!Character.isJavaIdentifierPart(c)) {
+                        throw new IllegalArgumentException("Illegal identifier character.");
+                    }
+
+                    identifierBuilder.append(c);
+
+                    if (i < n) {
+                        c = path.charAt(i);
+                    }
+
+                    i++;
+                }
+
+                if (c == '[') {
+                    i--;
+                }
+            }
+
+            if (c == '.'
+                && i == n) {
+                throw new IllegalArgumentException("Path cannot end with a '.' character.");
+            }
+
+            if (identifierBuilder.length() == 0) {
+                throw new IllegalArgumentException("Missing identifier.");
+            }
+
+            keys.add(identifierBuilder.toString());
+        }
+
+        String[] result = new String[keys.getLength()];
+        for (int j = 0; j < result.length; j++) {
+            result[j] = keys.get(j);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,651 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.json;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.apache.pivot.serialization.SerializationException;
+
+/**
+ * Pull-style reader for JSON data. Rather than building a tree of lists and
+ * maps, the reader reports the structure of the document as a sequence of
+ * {@link Event}s, allowing callers to process documents that are too large
+ * to hold in memory.
+ * <p>
+ * The reader scans a reusable character buffer directly and keeps track of
+ * line numbers itself. Map keys are interned in a small per-reader cache, so
+ * that repeated keys (as in a list of records) share a single string
+ * instance.
+ * <p>
+ * The reader accepts the same relaxed syntax as {@link JSONSerializer}:
+ * single-quoted strings, undelimited keys that follow Java identifier
+ * syntax, and <tt>//</tt> and <tt>/* *&#47;</tt> comments.
+ */
+public class JSONReader {
+    /**
+     * Enumeration representing the events reported by the reader.
+     */
+    public enum Event {
+        START_MAP,
+        END_MAP,
+        START_LIST,
+        END_LIST,
+        KEY,
+        VALUE,
+        END_DOCUMENT
+    }
+
+    private Reader reader;
+
+    private char[] buffer;
+    private int position = 0;
+    private int limit = 0;
+
+    private char[] scratch = new char[64];
+    private String[] keyCache = new String[KEY_CACHE_SIZE];
+
+    private int lineNumber = 1;
+
+    private boolean[] containers = new boolean[16];
+    private int depth = 0;
+
+    private Event event = null;
+    private String key = null;
+    private Object value = null;
+
+    private static final boolean MAP = true;
+    private static final boolean LIST = false;
+
+    public static final int BUFFER_SIZE = 8192;
+
+    private static final int KEY_CACHE_SIZE = 256;
+    private static final int MAX_CACHED_KEY_LENGTH = 32;
+
+    public JSONReader(Reader reader) {
+        this(reader, BUFFER_SIZE);
+    }
+
+    public JSONReader(Reader reader, int bufferSize) {
+        if (reader == null) {
+            throw new IllegalArgumentException("reader is null.");
+        }
+
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be positive.");
+        }
+
+        this.reader = reader;
+        buffer = new char[bufferSize];
+    }
+
+    /**
+     * Advances to the next event in the document.
+     *
+     * @return
+     * The new current event. Once the root value has been read, the reader
+     * reports {@link Event#END_DOCUMENT}.
+     */
+    public Event next() throws IOException, SerializationException {
+        key = null;
+        value = null;
+
+        if (event == null) {
+            // Ignore BOM (if present)
+            if (peek() == 0xFEFF) {
+                position++;
+            }
+
+            event = readValue();
+        } else if (depth == 0) {
+            event = Event.END_DOCUMENT;
+        } else {
+            skipWhitespaceAndComments();
+
+            int c = peek();
+            if (c == -1) {
+                throw new SerializationException("Unexpected end of input stream.");
+            }
+
+            boolean first = (event == Event.START_MAP
+                || event == Event.START_LIST);
+
+            if (containers[depth - 1] == MAP) {
+                if (event == Event.KEY) {
+                    if (c != ':') {
+                        throw new SerializationException("Unexpected character in input stream.");
+                    }
+
+                    // Move to the first character after ':'
+                    position++;
+                    event = readValue();
+                } else {
+                    if (!first) {
+                        c = readSeparator('}');
+                    }
+
+                    if (c == '}') {
+                        position++;
+                        depth--;
+                        event = Event.END_MAP;
+                    } else {
+                        key = readKey();
+                        event = Event.KEY;
+                    }
+                }
+            } else {
+                if (!first) {
+                    c = readSeparator(']');
+                }
+
+                if (c == ']') {
+                    position++;
+                    depth--;
+                    event = Event.END_LIST;
+                } else {
+                    event = readValue();
+                }
+            }
+        }
+
+        return event;
+    }
+
+    /**
+     * Returns the current event, or <tt>null</tt> if {@link #next()} has not
+     * yet been called.
+     */
+    public Event getEvent() {
+        return event;
+    }
+
+    /**
+     * Returns the current key when the current event is {@link Event#KEY}.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the current value when the current event is {@link Event#VALUE}.
+     *
+     * @return
+     * A <tt>String</tt>, <tt>Number</tt> (<tt>Integer</tt>, <tt>Long</tt>, or
+     * <tt>Double</tt>), <tt>Boolean</tt>, or <tt>null</tt>.
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the number of lists and maps enclosing the current position.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the (one-based) line number of the current position.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Skips the value at the current position. If the current event is
+     * {@link Event#START_MAP} or {@link Event#START_LIST}, the reader is
+     * advanced to the matching end event; if it is {@link Event#KEY}, the
+     * key's value is skipped.
+     */
+    public void skipValue() throws IOException, SerializationException {
+        if (event == Event.KEY) {
+            next();
+        }
+
+        if (event == Event.START_MAP
+            || event == Event.START_LIST) {
+            int targetDepth = depth - 1;
+            while (depth > targetDepth) {
+                next();
+            }
+        }
+    }
+
+    /**
+     * Reads the separator that follows a value in a list or map and returns
+     * the next character.
+     */
+    private int readSeparator(char end) throws IOException, SerializationException {
+        int c = peek();
+
+        if (c == ',') {
+            position++;
+            skipWhitespaceAndComments();
+            c = peek();
+        } else if (c != end) {
+            throw new SerializationException("Unexpected character in input stream.");
+        }
+
+        if (c == -1) {
+            throw new SerializationException("Unexpected end of input stream.");
+        }
+
+        return c;
+    }
+
+    private Event readValue() throws IOException, SerializationException {
+        Event event;
+
+        skipWhitespaceAndComments();
+
+        int c = peek();
+
+        if (c == -1) {
+            throw new SerializationException("Unexpected end of input stream.");
+        }
+
+        if (c == 'n') {
+            readLiteral("null", "Incomplete null value in input stream.");
+            value = null;
+            event = Event.VALUE;
+        } else if (c == '"' || c == '\'') {
+            value = readString(false);
+            event = Event.VALUE;
+        } else if (c == '+' || c == '-' || Character.isDigit(c)) {
+            value = readNumber();
+            event = Event.VALUE;
+        } else if (c == 't') {
+            readLiteral("true", "Incomplete boolean value in input stream.");
+            value = Boolean.TRUE;
+            event = Event.VALUE;
+        } else if (c == 'f') {
+            readLiteral("false", "Incomplete boolean value in input stream.");
+            value = Boolean.FALSE;
+            event = Event.VALUE;
+        } else if (c == '[') {
+            position++;
+            push(LIST);
+            event = Event.START_LIST;
+        } else if (c == '{') {
+            position++;
+            push(MAP);
+            event = Event.START_MAP;
+        } else {
+            throw new SerializationException("Unexpected character in input stream.");
+        }
+
+        return event;
+    }
+
+    private void push(boolean container) {
+        if (depth == containers.length) {
+            boolean[] containers = new boolean[depth * 2];
+            System.arraycopy(this.containers, 0, containers, 0, depth);
+            this.containers = containers;
+        }
+
+        containers[depth++] = container;
+    }
+
+    private void readLiteral(String text, String message)
+        throws IOException, SerializationException {
+        for (int i = 0, n = text.length(); i < n; i++) {
+            int c = peek();
+
+            if (c == -1) {
+                throw new SerializationException(message);
+            }
+
+            if (c != text.charAt(i)) {
+                throw new SerializationException("Unexpected character in input stream.");
+            }
+
+            position++;
+        }
+    }
+
+    private String readKey() throws IOException, SerializationException {
+        String key;
+
+        int c = peek();
+        if (c == '"' || c == '\'') {
+            // The key is a delimited string
+            key = readString(true);
+        } else {
+            // The key is an undelimited string; it must adhere to Java
+            // identifier syntax
+            if (!Character.isJavaIdentifierStart(c)) {
+                throw new SerializationException("Illegal identifier start character.");
+            }
+
+            int length = 0;
+
+            while (c != -1
+                && c != ':' && !Character.isWhitespace(c)) {
+                if (!Character.isJavaIdentifierPart(c)) {
+                    throw new SerializationException("Illegal identifier character.");
+                }
+
+                append(length++, (char)c);
+                position++;
+                c = peek();
+            }
+
+            if (c == -1) {
+                throw new SerializationException("Unexpected end of input stream.");
+            }
+
+            key = intern(scratch, 0, length);
+        }
+
+        if (key.length() == 0) {
+            throw new SerializationException("\"" + key + "\" is not a valid key.");
+        }
+
+        skipWhitespaceAndComments();
+
+        return key;
+    }
+
+    private String readString(boolean key) throws IOException, SerializationException {
+        // Use the same delimiter to close the string
+        char t = buffer[position++];
+
+        // Scan the buffered characters directly; as long as the string does
+        // not contain escapes or control characters and does not cross a
+        // buffer boundary, it is created without any intermediate copy
+        int start = position;
+        while (position < limit) {
+            char c = buffer[position];
+
+            if (c == t) {
+                position++;
+                return key ? intern(buffer, start, position - start - 1)
+                    : new String(buffer, start, position - start - 1);
+            }
+
+            if (c == '\\'
+                || Character.isISOControl(c)) {
+                break;
+            }
+
+            position++;
+        }
+
+        // Fall back to the scratch buffer
+        int length = position - start;
+        ensureCapacity(length);
+        System.arraycopy(buffer, start, scratch, 0, length);
+
+        int c = peek();
+        while (c != -1 && c != t) {
+            position++;
+
+            if (!Character.isISOControl(c)) {
+                if (c == '\\') {
+                    c = peek();
+                    if (c == -1) {
+                        break;
+                    }
+
+                    position++;
+
+                    if (c == 'b') {
+                        c = '\b';
+                    } else if (c == 'f') {
+                        c = '\f';
+                    } else if (c == 'n') {
+                        c = '\n';
+                    } else if (c == 'r') {
+                        c = '\r';
+                    } else if (c == 't') {
+                        c = '\t';
+                    } else if (c == 'u') {
+                        int unicode = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(peek(), 16);
+                            if (digit == -1) {
+                                throw new SerializationException("Invalid unicode escape sequence in input stream.");
+                            }
+
+                            unicode = (unicode << 4) | digit;
+                            position++;
+                        }
+
+                        c = unicode;
+                    } else {
+                        if (!(c == '\\'
+                            || c == '/'
+                            || c == '\"'
+                            || c == '\''
+                            || c == t)) {
+                            throw new SerializationException("Unsupported escape sequence in input stream.");
+                        }
+                    }
+                }
+
+                append(length++, (char)c);
+            } else {
+                countLine(c);
+            }
+
+            c = peek();
+        }
+
+        if (c != t) {
+            throw new SerializationException("Unterminated string in input stream.");
+        }
+
+        // Move to the next character after the delimiter
+        position++;
+
+        return key ? intern(scratch, 0, length) : new String(scratch, 0, length);
+    }
+
+    private Number readNumber() throws IOException, SerializationException {
+        Number number;
+
+        boolean negative = false;
+        boolean integer = true;
+
+        int c = peek();
+        if (c == '+' || c == '-') {
+            negative = (c == '-');
+            position++;
+            c = peek();
+        }
+
+        int length = 0;
+        long value = 0;
+        boolean ascii = true;
+
+        while (c != -1 && (Character.isDigit(c) || c == '.'
+            || c == 'e' || c == 'E' || c == '-' || c == '+')) {
+            integer &= Character.isDigit(c);
+            ascii &= (c >= '0' && c <= '9');
+
+            if (integer && ascii) {
+                value = value * 10 + (c - '0');
+            }
+
+            append(length++, (char)c);
+            position++;
+            c = peek();
+        }
+
+        if (length == 0) {
+            throw new SerializationException("Invalid number in input stream.");
+        }
+
+        try {
+            if (integer) {
+                // Values with more than 18 digits may have overflowed
+                if (length > 18
+                    || !ascii) {
+                    value = Long.parseLong(new String(scratch, 0, length));
+                }
+
+                value *= (negative ? -1 : 1);
+
+                // TODO 5/28/2008 Remove 32-bit optimization when 64-bit processors
+                // are more prevalent
+                if (value > Integer.MAX_VALUE
+                    || value < Integer.MIN_VALUE) {
+                    number = value;
+                } else {
+                    number = (int)value;
+                }
+            } else {
+                number = Double.parseDouble(new String(scratch, 0, length)) * (negative ? -1.0d : 1.0d);
+            }
+        } catch (NumberFormatException exception) {
+            throw new SerializationException("Invalid number in input stream.", exception);
+        }
+
+        return number;
+    }
+
+    private void skipWhitespaceAndComments() throws IOException, SerializationException {
+        int c = peek();
+
+        while (c != -1
+            && (Character.isWhitespace(c)
+                || c == '/')) {
+            boolean comment = (c == '/');
+
+            // Read the next character
+            position++;
+            countLine(c);
+            c = peek();
+
+            if (comment) {
+                if (c == '/') {
+                    // Single-line comment
+                    while (c != -1
+                        && c != '\n'
+                        && c != '\r') {
+                        position++;
+                        c = peek();
+                    }
+                } else if (c == '*') {
+                    // Multi-line comment
+                    boolean closed = false;
+
+                    position++;
+                    c = peek();
+
+                    while (c != -1
+                        && !closed) {
+                        position++;
+                        countLine(c);
+
+                        boolean star = (c == '*');
+                        c = peek();
+                        closed = (star && c == '/');
+                    }
+
+                    if (!closed) {
+                        throw new SerializationException("Unexpected end of input stream.");
+                    }
+
+                    position++;
+                    c = peek();
+                } else {
+                    throw new SerializationException("Unexpected character in input stream.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the line number after the given character has been consumed.
+     */
+    private void countLine(int c) throws IOException {
+        if (c == '\n'
+            || (c == '\r' && peek() != '\n')) {
+            lineNumber++;
+        }
+    }
+
+    /**
+     * Returns the character at the current position without consuming it,
+     * refilling the buffer as necessary.
+     */
+    private int peek() throws IOException {
+        if (position == limit) {
+            int n = reader.read(buffer, 0, buffer.length);
+
+            if (n <= 0) {
+                return -1;
+            }
+
+            position = 0;
+            limit = n;
+        }
+
+        return buffer[position];
+    }
+
+    private void append(int index, char c) {
+        ensureCapacity(index + 1);
+        scratch[index] = c;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > scratch.length) {
+            char[] scratch = new char[Math.max(capacity, this.scratch.length * 2)];
+            System.arraycopy(this.scratch, 0, scratch, 0, this.scratch.length);
+            this.scratch = scratch;
+        }
+    }
+
+    /**
+     * Returns a string containing the given characters, reusing a previously
+     * created instance when the same key has been seen before.
+     */
+    private String intern(char[] chars, int offset, int length) {
+        if (length > MAX_CACHED_KEY_LENGTH) {
+            return new String(chars, offset, length);
+        }
+
+        int hashCode = 0;
+        for (int i = offset, n = offset + length; i < n; i++) {
+            hashCode = 31 * hashCode + chars[i];
+        }
+
+        int index = (hashCode ^ (hashCode >>> 16)) & (KEY_CACHE_SIZE - 1);
+        String key = keyCache[index];
+
+        if (key != null
+            && key.length() == length) {
+            int i = 0;
+            while (i < length
+                && key.charAt(i) == chars[offset + i]) {
+                i++;
+            }
+
+            if (i == length) {
+                return key;
+            }
+        }
+
+        key = new String(chars, offset, length);
+        keyCache[index] = key;
+
+        return key;
+    }
+}
@@ -16,12 +16,10 @@
  */
 package org.apache.pivot.json;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.LineNumberReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
@@ -52,7 +50,6 @@ public class JSONSerializer implements Serializer<Object> {
     private Charset charset;
     private Class<?> type;
 
-    private int c = -1;
     private boolean alwaysDelimitMapKeys = false;
     private boolean verbose = false;
 
@@ -146,7 +143,8 @@ public class JSONSerializer implements Serializer<Object> {
             throw new IllegalArgumentException("inputStream is null.");
         }
 
-        Reader reader = new BufferedReader(new InputStreamReader(inputStream, charset), BUFFER_SIZE);
+        // JSONReader buffers its input, so no additional buffering is needed
+        Reader reader = new InputStreamReader(inputStream, charset);
         if (verbose) {
             reader = new EchoReader(reader);
         }
@@ -170,6 +168,8 @@ public class JSONSerializer implements Serializer<Object> {
      * <li>pivot.collections.List</li>
      * <li>pivot.collections.Map</li>
      * </ul>
+     *
+     * @see JSONReader
      */
     public Object readObject(Reader reader)
         throws IOException, SerializationException {
@@ -177,23 +177,16 @@ public class JSONSerializer implements Serializer<Object> {
             throw new IllegalArgumentException("reader is null.");
         }
 
-        // Move to the first character
-        c = reader.read();
-
-        // Ignore BOM (if present)
-        if (c == 0xFEFF) {
-            c = reader.read();
-        }
-
         // Read the root value
-        LineNumberReader lineNumberReader = new LineNumberReader(reader);
+        JSONReader jsonReader = new JSONReader(reader);
         Object object;
 
         try {
-            object = readValue(lineNumberReader, type);
+            jsonReader.next();
+            object = readValue(jsonReader, type);
         } catch (SerializationException exception) {
             System.err.println("An error occurred while processing input at line number "
-                + (lineNumberReader.getLineNumber() + 1));
+                + jsonReader.getLineNumber());
 
             throw exception;
         }
@@ -201,239 +194,74 @@ public class JSONSerializer implements Serializer<Object> {
         return object;
     }
 
-    private Object readValue(Reader reader, Type type)
+    /**
+     * Reads the value at the current position of a JSON reader, converting it
+     * to the serializer's type. This allows large documents to be read
+     * incrementally; for example, the items of a list can be read one at a
+     * time by calling this method after each call to
+     * {@link JSONReader#next()} that does not return
+     * {@link JSONReader.Event#END_LIST}.
+     *
+     * @param reader
+     * The reader, positioned at the start of a value.
+     */
+    public Object readValue(JSONReader reader)
         throws IOException, SerializationException {
-        Object object = null;
-
-        skipWhitespaceAndComments(reader);
-
-        if (c == -1) {
-            throw new SerializationException("Unexpected end of input stream.");
-        }
-
-        if (c == 'n') {
-            object = readNull(reader);
-        } else if (c == '"' || c == '\'') {
-            object = readString(reader, type);
-        } else if (c == '+' || c == '-' || Character.isDigit(c)) {
-            object = readNumber(reader, type);
-        } else if (c == 't' || c == 'f') {
-            object = readBoolean(reader, type);
-        } else if (c == '[') {
-            object = readList(reader, type);
-        } else if (c == '{') {
-            object = readMap(reader, type);
-        } else {
-            throw new SerializationException("Unexpected character in input stream.");
+        if (reader == null) {
+            throw new IllegalArgumentException("reader is null.");
         }
 
-        return object;
+        return readValue(reader, type);
     }
 
-    private void skipWhitespaceAndComments(Reader reader)
+    private Object readValue(JSONReader reader, Type type)
         throws IOException, SerializationException {
-        while (c != -1
-            && (Character.isWhitespace(c)
-                || c == '/')) {
-            boolean comment = (c == '/');
-
-            // Read the next character
-            c = reader.read();
-
-            if (comment) {
-                if (c == '/') {
-                    // Single-line comment
-                    while (c != -1
-                        && c != '\n'
-                        && c != '\r') {
-                        c = reader.read();
-                    }
-                } else if (c == '*') {
-                    // Multi-line comment
-                    boolean closed = false;
-
-                    while (c != -1
-                        && !closed) {
-                        c = reader.read();
-
-                        if (c == '*') {
-                            c = reader.read();
-                            closed = (c == '/');
-                        }
-                    }
-
-                    if (!closed) {
-                        throw new SerializationException("Unexpected end of input stream.");
-                    }
+        Object object;
 
-                    if (c != -1) {
-                        c = reader.read();
-                    }
-                } else {
-                    throw new SerializationException("Unexpected character in input stream.");
-                }
+        switch (reader.getEvent()) {
+            case START_LIST: {
+                object = readList(reader, type);
+                break;
             }
-        }
-    }
-
-    private Object readNull(Reader reader)
-        throws IOException, SerializationException {
-        String nullString = "null";
-
-        int n = nullString.length();
-        int i = 0;
 
-        while (c != -1 && i < n) {
-            if (nullString.charAt(i) != c) {
-                throw new SerializationException("Unexpected character in input stream.");
+            case START_MAP: {
+                object = readMap(reader, type);
+                break;
             }
 
-            c = reader.read();
-            i++;
-        }
-
-        if (i < n) {
-            throw new SerializationException("Incomplete null value in input stream.");
-        }
-
-        return null;
-    }
+            case VALUE: {
+                object = reader.getValue();
 
-    private Object readString(Reader reader, Type type)
-        throws IOException, SerializationException {
-        if (!(type instanceof Class<?>)) {
-            throw new SerializationException("Cannot convert string to " + type + ".");
-        }
-
-        StringBuilder stringBuilder = new StringBuilder();
-
-        // Use the same delimiter to close the string
-        int t = c;
-
-        // Move to the next character after the delimiter
-        c = reader.read();
-
-        while (c != -1 && c != t) {
-            if (!Character.isISOControl(c)) {
-                if (c == '\\') {
-                    c = reader.read();
-
-                    if (c == 'b') {
-                        c = '\b';
-                    } else if (c == 'f') {
-                        c = '\f';
-                    } else if (c == 'n') {
-                        c = '\n';
-                    } else if (c == 'r') {
-                        c = '\r';
-                    } else if (c == 't') {
-                        c = '\t';
-                    } else if (c == 'u') {
-                        StringBuilder unicodeBuilder = new StringBuilder();
-                        while (unicodeBuilder.length() < 4) {
-                            c = reader.read();
-                            unicodeBuilder.append((char)c);
+                if (object != null) {
+                    if (!(type instanceof Class<?>)) {
+                        String kind;
+                        if (object instanceof String) {
+                            kind = "string";
+                        } else if (object instanceof Number) {
+                            kind = "number";
+                        } else {
+                            kind = "boolean";
                         }
 
-                        String unicode = unicodeBuilder.toString();
-                        c = (char)Integer.parseInt(unicode, 16);
-                    } else {
-                        if (!(c == '\\'
-                            || c == '/'
-                            || c == '\"'
-                            || c == '\''
-                            || c == t)) {
-                            throw new SerializationException("Unsupported escape sequence in input stream.");
-                        }
+                        throw new SerializationException("Cannot convert " + kind + " to " + type + ".");
                     }
-                }
-
-                stringBuilder.append((char)c);
-            }
-
-            c = reader.read();
-        }
-
-        if (c != t) {
-            throw new SerializationException("Unterminated string in input stream.");
-        }
-
-        // Move to the next character after the delimiter
-        c = reader.read();
-
-        return BeanAdapter.coerce(stringBuilder.toString(), (Class<?>)type);
-    }
-
-    private Object readNumber(Reader reader, Type type)
-        throws IOException, SerializationException {
-        if (!(type instanceof Class<?>)) {
-            throw new SerializationException("Cannot convert number to " + type + ".");
-        }
-
-        Number number = null;
-
-        StringBuilder stringBuilder = new StringBuilder();
-        boolean negative = false;
-        boolean integer = true;
-
-        if (c == '+' || c == '-') {
-            negative = (c == '-');
-            c = reader.read();
-        }
-
-        while (c != -1 && (Character.isDigit(c) || c == '.'
-            || c == 'e' || c == 'E' || c == '-')) {
-            stringBuilder.append((char)c);
-            integer &= !(c == '.');
-            c = reader.read();
-        }
 
-        if (integer) {
-            // TODO 5/28/2008 Remove 32-bit optimization when 64-bit processors
-            // are more prevalent
-            long value = Long.parseLong(stringBuilder.toString()) * (negative ? -1 : 1);
+                    object = BeanAdapter.coerce(object, (Class<?>)type);
+                }
 
-            if (value > Integer.MAX_VALUE
-                || value < Integer.MIN_VALUE) {
-                number = value;
-            } else {
-                number = (int)value;
+                break;
             }
-        } else {
-            number = Double.parseDouble(stringBuilder.toString()) * (negative ? -1.0d : 1.0d);
-        }
 
-        return BeanAdapter.coerce(number, (Class<?>)type);
-    }
-
-    private Object readBoolean(Reader reader, Type type)
-        throws IOException, SerializationException {
-        if (!(type instanceof Class<?>)) {
-            throw new SerializationException("Cannot convert number to " + type + ".");
-        }
-
-        String text = (c == 't') ? "true" : "false";
-        int n = text.length();
-        int i = 0;
-
-        while (c != -1 && i < n) {
-            if (text.charAt(i) != c) {
+            default: {
                 throw new SerializationException("Unexpected character in input stream.");
             }
-
-            c = reader.read();
-            i++;
         }
 
-        if (i < n) {
-            throw new SerializationException("Incomplete boolean value in input stream.");
-        }
-
-        return BeanAdapter.coerce(Boolean.parseBoolean(text), (Class<?>)type);
+        return object;
     }
 
     @SuppressWarnings("unchecked")
-    private Object readList(Reader reader, Type type)
+    private Object readList(JSONReader reader, Type type)
         throws IOException, SerializationException {
         Sequence<Object> sequence;
         Type itemType;
@@ -464,34 +292,15 @@ public class JSONSerializer implements Serializer<Object> {
             throw new IllegalArgumentException("Cannot convert array to " + type + ".");
         }
 
-        // Move to the next character after '['
-        c = reader.read();
-        skipWhitespaceAndComments(reader);
-
-        while (c != -1 && c != ']') {
+        while (reader.next() != JSONReader.Event.END_LIST) {
             sequence.add(readValue(reader, itemType));
-            skipWhitespaceAndComments(reader);
-
-            if (c == ',') {
-                c = reader.read();
-                skipWhitespaceAndComments(reader);
-            } else if (c == -1) {
-                throw new SerializationException("Unexpected end of input stream.");
-            } else {
-                if (c != ']') {
-                    throw new SerializationException("Unexpected character in input stream.");
-                }
-            }
         }
 
-        // Move to the next character after ']'
-        c = reader.read();
-
         return sequence;
     }
 
     @SuppressWarnings("unchecked")
-    private Object readMap(Reader reader, Type type)
+    private Object readMap(JSONReader reader, Type type)
         throws IOException, SerializationException {
         Dictionary<String, Object> dictionary;
         Type valueType;
@@ -532,75 +341,15 @@ public class JSONSerializer implements Serializer<Object> {
             valueType = null;
         }
 
-        // Move to the next character after '{'
-        c = reader.read();
-        skipWhitespaceAndComments(reader);
+        while (reader.next() != JSONReader.Event.END_MAP) {
+            String key = reader.getKey();
 
-        while (c != -1 && c != '}') {
-            String key = null;
-
-            if (c == '"' || c == '\'') {
-                // The key is a delimited string
-                key = (String)readString(reader, String.class);
-            } else {
-                // The key is an undelimited string; it must adhere to Java
-                // identifier syntax
-                StringBuilder keyStringBuilder = new StringBuilder();
-
-                if (!Character.isJavaIdentifierStart(c)) {
-                    throw new SerializationException("Illegal identifier start character.");
-                }
-
-                while (c != -1
-                    && c != ':' && !Character.isWhitespace(c)) {
-                    if (!Character.isJavaIdentifierPart(c)) {
-                        throw new SerializationException("Illegal identifier character.");
-                    }
-
-                    keyStringBuilder.append((char)c);
-                    c = reader.read();
-                }
-
-                if (c == -1) {
-                    throw new SerializationException("Unexpected end of input stream.");
-                }
-
-                key = keyStringBuilder.toString();
-            }
-
-            if (key == null
-                || key.length() == 0) {
-                throw new SerializationException("\"" + key + "\" is not a valid key.");
-            }
-
-            skipWhitespaceAndComments(reader);
-
-            if (c != ':') {
-                throw new SerializationException("Unexpected character in input stream.");
-            }
-
-            // Move to the first character after ':'
-            c = reader.read();
+            // Move to the value
+            reader.next();
             dictionary.put(key, readValue(reader, (valueType == null) ?
                 ((BeanAdapter)dictionary).getGenericType(key) : valueType));
-
-            skipWhitespaceAndComments(reader);
-
-            if (c == ',') {
-                c = reader.read();
-                skipWhitespaceAndComments(reader);
-            } else if (c == -1) {
-                throw new SerializationException("Unexpected end of input stream.");
-            } else {
-                if (c != '}') {
-                    throw new SerializationException("Unexpected character in input stream.");
-                }
-            }
         }
 
-        // Move to the first character after '}'
-        c = reader.read();
-
         return (dictionary instanceof BeanAdapter) ? ((BeanAdapter)dictionary).getBean() : dictionary;
     }
 
@@ -0,0 +1,521 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.serialization;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.apache.pivot.beans.BeanAdapter;
+
+/**
+ * Pull-style reader for comma-separated value (CSV) data. Each call to
+ * {@link #next()} parses one record into a reusable {@link Row}, whose fields
+ * are accessed by position; no objects are allocated per row unless the
+ * caller requests field values as strings or boxed values.
+ * <p>
+ * Fields may be enclosed in double quotes, in which case they may contain
+ * commas and line breaks; a double quote within a quoted field is escaped
+ * by two successive occurrences. Records may be terminated by CR, LF, or
+ * CRLF. Blank lines are skipped.
+ */
+public class CSVReader {
+    /**
+     * Class representing the current record. The same instance is returned
+     * for every record read by a given reader.
+     */
+    public final class Row {
+        private Row() {
+        }
+
+        /**
+         * Returns the number of fields in the record.
+         */
+        public int getLength() {
+            return fieldCount;
+        }
+
+        /**
+         * Returns a field value as a string.
+         *
+         * @param index
+         */
+        public String get(int index) {
+            verifyIndex(index);
+
+            return new String(chars, fieldStarts[index], fieldEnds[index] - fieldStarts[index]);
+        }
+
+        /**
+         * Tests whether a field is empty.
+         *
+         * @param index
+         */
+        public boolean isEmpty(int index) {
+            verifyIndex(index);
+
+            return (fieldStarts[index] == fieldEnds[index]);
+        }
+
+        /**
+         * Returns a field value as an <tt>int</tt>.
+         *
+         * @param index
+         *
+         * @throws NumberFormatException
+         * If the field does not contain a valid integer.
+         */
+        public int getInt(int index) {
+            long value = getLong(index);
+
+            if (value < Integer.MIN_VALUE
+                || value > Integer.MAX_VALUE) {
+                throw new NumberFormatException("Value out of range: " + get(index));
+            }
+
+            return (int)value;
+        }
+
+        /**
+         * Returns a field value as a <tt>long</tt>.
+         *
+         * @param index
+         *
+         * @throws NumberFormatException
+         * If the field does not contain a valid integer.
+         */
+        public long getLong(int index) {
+            verifyIndex(index);
+
+            int i = fieldStarts[index];
+            int end = fieldEnds[index];
+
+            boolean negative = false;
+            if (i < end
+                && (chars[i] == '-' || chars[i] == '+')) {
+                negative = (chars[i] == '-');
+                i++;
+            }
+
+            // Parse up to 18 digits directly; anything longer may overflow
+            // and is handed to Long.parseLong()
+            if (i == end
+                || end - i > 18) {
+                return Long.parseLong(get(index));
+            }
+
+            long value = 0;
+            while (i < end) {
+                char c = chars[i++];
+
+                if (c < '0' || c > '9') {
+                    throw new NumberFormatException("For input string: \"" + get(index) + "\"");
+                }
+
+                value = value * 10 + (c - '0');
+            }
+
+            return negative ? -value : value;
+        }
+
+        /**
+         * Returns a field value as a <tt>double</tt>.
+         *
+         * @param index
+         *
+         * @throws NumberFormatException
+         * If the field does not contain a valid number.
+         */
+        public double getDouble(int index) {
+            return Double.parseDouble(get(index));
+        }
+
+        /**
+         * Returns a field value converted to the type assigned to its column
+         * via {@link CSVReader#setColumnTypes(Class...)}. Empty fields in
+         * columns of a type other than <tt>String</tt> are returned as
+         * <tt>null</tt>.
+         *
+         * @param index
+         */
+        public Object getValue(int index) {
+            Class<?> type = (index < columnTypes.length) ? columnTypes[index] : null;
+            return (type == null) ? get(index) : get(index, type);
+        }
+
+        /**
+         * Returns a field value converted to a given type. Integer, long,
+         * and double values are decoded directly; other types are converted
+         * via {@link BeanAdapter#coerce(Object, Class)}. Empty fields are
+         * returned as <tt>null</tt> unless the type is <tt>String</tt>.
+         *
+         * @param index
+         * @param type
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T get(int index, Class<? extends T> type) {
+            if (type == null) {
+                throw new IllegalArgumentException("type is null.");
+            }
+
+            Object value;
+
+            if (type == String.class) {
+                value = get(index);
+            } else if (isEmpty(index)) {
+                value = null;
+            } else if (type == Integer.class
+                || type == Integer.TYPE) {
+                value = Integer.valueOf(getInt(index));
+            } else if (type == Long.class
+                || type == Long.TYPE) {
+                value = Long.valueOf(getLong(index));
+            } else if (type == Double.class
+                || type == Double.TYPE) {
+                value = Double.valueOf(getDouble(index));
+            } else {
+                value = BeanAdapter.coerce(get(index), type);
+            }
+
+            return (T)value;
+        }
+
+        /**
+         * Returns the line number on which the record starts.
+         */
+        public int getLineNumber() {
+            return rowLineNumber;
+        }
+
+        private void verifyIndex(int index) {
+            if (index < 0
+                || index >= fieldCount) {
+                throw new IndexOutOfBoundsException("Index " + index + " is out of range [0, "
+                    + fieldCount + ").");
+            }
+        }
+    }
+
+    private Reader reader;
+
+    private char[] buffer;
+    private int position = 0;
+    private int limit = 0;
+
+    // Field data for the current row
+    private char[] chars = new char[256];
+    private int length = 0;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int fieldCount = 0;
+
+    private Class<?>[] columnTypes = new Class<?>[0];
+
+    private int lineNumber = 1;
+    private int rowLineNumber = 0;
+    private boolean carriageReturn = false;
+
+    private Row row = new Row();
+
+    public static final int BUFFER_SIZE = 8192;
+
+    public CSVReader(Reader reader) {
+        this(reader, BUFFER_SIZE);
+    }
+
+    public CSVReader(Reader reader, int bufferSize) {
+        if (reader == null) {
+            throw new IllegalArgumentException("reader is null.");
+        }
+
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be positive.");
+        }
+
+        this.reader = reader;
+        buffer = new char[bufferSize];
+    }
+
+    /**
+     * Creates a reader that parses a region of a character array in place.
+     *
+     * @param chars
+     * The characters to parse. The array is not copied and must not be
+     * modified while the reader is in use.
+     *
+     * @param offset
+     * The index of the first character to parse.
+     *
+     * @param count
+     * The number of characters to parse.
+     *
+     * @param lineNumber
+     * The line number of the first character.
+     */
+    public CSVReader(char[] chars, int offset, int count, int lineNumber) {
+        if (chars == null) {
+            throw new IllegalArgumentException("chars is null.");
+        }
+
+        if (offset < 0
+            || count < 0
+            || offset + count > chars.length) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        buffer = chars;
+        position = offset;
+        limit = offset + count;
+
+        this.lineNumber = lineNumber;
+    }
+
+    /**
+     * Returns the types used by {@link Row#getValue(int)} to convert the
+     * fields in each column.
+     */
+    public Class<?>[] getColumnTypes() {
+        return columnTypes.clone();
+    }
+
+    /**
+     * Sets the types used by {@link Row#getValue(int)} to convert the fields
+     * in each column. A <tt>null</tt> entry leaves the corresponding column
+     * as a string.
+     *
+     * @param columnTypes
+     */
+    public void setColumnTypes(Class<?>... columnTypes) {
+        if (columnTypes == null) {
+            throw new IllegalArgumentException("columnTypes is null.");
+        }
+
+        this.columnTypes = columnTypes.clone();
+    }
+
+    /**
+     * Advances to the next record.
+     *
+     * @return
+     * <tt>true</tt> if a record was read; <tt>false</tt> if the end of the
+     * input has been reached.
+     */
+    public boolean next() throws IOException, SerializationException {
+        length = 0;
+        fieldCount = 0;
+
+        // Ignore BOM (if present)
+        if (rowLineNumber == 0
+            && peek() == 0xFEFF) {
+            position++;
+        }
+
+        // Skip blank lines
+        int c = peek();
+        while (c == '\r' || c == '\n') {
+            readLineTerminator();
+            c = peek();
+        }
+
+        boolean read = (c != -1);
+
+        if (read) {
+            rowLineNumber = lineNumber;
+
+            while (true) {
+                int start = length;
+
+                if (peek() == '"') {
+                    position++;
+                    readQuotedField();
+                } else {
+                    readField();
+                }
+
+                addField(start, length);
+
+                c = peek();
+                if (c == ',') {
+                    position++;
+                } else {
+                    if (c != -1) {
+                        readLineTerminator();
+                    }
+
+                    break;
+                }
+            }
+        }
+
+        return read;
+    }
+
+    /**
+     * Returns the current record.
+     */
+    public Row getRow() {
+        return row;
+    }
+
+    /**
+     * Returns the current line number.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    private void readField() throws IOException, SerializationException {
+        while (peek() != -1) {
+            char[] buffer = this.buffer;
+            int limit = this.limit;
+
+            int i = position;
+            char c = 0;
+            while (i < limit) {
+                c = buffer[i];
+
+                if (c == ',' || c == '\r' || c == '\n') {
+                    break;
+                }
+
+                if (c == '"') {
+                    throw new SerializationException("Dangling quote at line " + lineNumber + ".");
+                }
+
+                i++;
+            }
+
+            append(buffer, position, i - position);
+            position = i;
+
+            if (i < limit) {
+                break;
+            }
+        }
+    }
+
+    private void readQuotedField() throws IOException, SerializationException {
+        while (true) {
+            if (peek() == -1) {
+                throw new SerializationException("Unterminated string at line " + rowLineNumber + ".");
+            }
+
+            char[] buffer = this.buffer;
+            int limit = this.limit;
+
+            int i = position;
+            while (i < limit) {
+                char c = buffer[i];
+
+                if (c == '"') {
+                    break;
+                }
+
+                if (c == '\n') {
+                    if (!carriageReturn) {
+                        lineNumber++;
+                    }
+
+                    carriageReturn = false;
+                } else if (c == '\r') {
+                    lineNumber++;
+                    carriageReturn = true;
+                } else {
+                    carriageReturn = false;
+                }
+
+                i++;
+            }
+
+            append(buffer, position, i - position);
+            position = i;
+
+            if (i < limit) {
+                // Consume the quote and determine whether it is escaped
+                position++;
+                carriageReturn = false;
+
+                int c = peek();
+                if (c == '"') {
+                    append(this.buffer, position, 1);
+                    position++;
+                } else if (c == ',' || c == '\r' || c == '\n' || c == -1) {
+                    break;
+                } else {
+                    throw new SerializationException("Prematurely terminated quote at line "
+                        + lineNumber + ".");
+                }
+            }
+        }
+    }
+
+    private void readLineTerminator() throws IOException {
+        if (buffer[position++] == '\r'
+            && peek() == '\n') {
+            position++;
+        }
+
+        lineNumber++;
+    }
+
+    private void append(char[] source, int offset, int count) {
+        if (length + count > chars.length) {
+            char[] chars = new char[Math.max(length + count, this.chars.length * 2)];
+            System.arraycopy(this.chars, 0, chars, 0, length);
+            this.chars = chars;
+        }
+
+        System.arraycopy(source, offset, chars, length, count);
+        length += count;
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == fieldStarts.length) {
+            int capacity = fieldCount * 2;
+
+            int[] fieldStarts = new int[capacity];
+            System.arraycopy(this.fieldStarts, 0, fieldStarts, 0, fieldCount);
+            this.fieldStarts = fieldStarts;
+
+            int[] fieldEnds = new int[capacity];
+            System.arraycopy(this.fieldEnds, 0, fieldEnds, 0, fieldCount);
+            this.fieldEnds = fieldEnds;
+        }
+
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            if (reader == null) {
+                return -1;
+            }
+
+            int n = reader.read(buffer, 0, buffer.length);
+
+            if (n <= 0) {
+                return -1;
+            }
+
+            position = 0;
+            limit = n;
+        }
+
+        return buffer[position];
+    }
+}
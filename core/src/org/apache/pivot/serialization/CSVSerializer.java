@@ -16,12 +16,10 @@
  */
 package org.apache.pivot.serialization;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.LineNumberReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
@@ -37,11 +35,19 @@ import org.apache.pivot.collections.List;
 import org.apache.pivot.collections.Sequence;
 import org.apache.pivot.io.EchoReader;
 import org.apache.pivot.io.EchoWriter;
+import org.apache.pivot.util.concurrent.Task;
+import org.apache.pivot.util.concurrent.TaskBatch;
+import org.apache.pivot.util.concurrent.TaskExecutionException;
 
 /**
  * Implementation of the {@link Serializer} interface that reads data from
  * and writes data to a comma-separated value (CSV) file.
  * <p>
+ * Input is parsed by a {@link CSVReader}. Values are read as strings unless
+ * a type has been assigned to their key via {@link #setKeyType(String, Class)}.
+ * In parallel mode (see {@link #setParallel(boolean)}), large inputs are split
+ * into chunks on record boundaries and the chunks are parsed concurrently.
+ * <p>
  * TODO Add "firstLineContainsKeys" flag.
  */
 public class CSVSerializer implements Serializer<List<?>> {
@@ -94,33 +100,50 @@ public class CSVSerializer implements Serializer<List<?>> {
      * Allows a caller to retrieve the contents of a CSV stream iteratively.
      */
     public class StreamIterator {
-        private Reader reader;
+        private CSVReader csvReader;
+        private Class<?>[] types;
+
+        private boolean hasNext;
+        private SerializationException fault = null;
 
         private StreamIterator(Reader reader) throws IOException {
-            this.reader = reader;
+            csvReader = new CSVReader(reader);
+            types = getTypes();
 
-            // Move to the first character
-            c = reader.read();
+            // Move to the first record
+            advance();
+        }
+
+        private void advance() throws IOException {
+            try {
+                hasNext = csvReader.next();
+            } catch (SerializationException exception) {
+                // Report the fault when the caller requests the record
+                fault = exception;
+                hasNext = true;
+            }
         }
 
         public boolean hasNext() {
-            return (c != -1);
+            return hasNext;
         }
 
         public Object next() throws IOException, SerializationException {
-            if (c == -1) {
+            if (!hasNext) {
                 throw new NoSuchElementException();
             }
 
-            Object item = readItem(reader);
-            if (item != null) {
-                // Move to next line
-                while (c != -1
-                    && (c == '\r' || c == '\n')) {
-                    c = reader.read();
-                }
+            if (fault != null) {
+                SerializationException fault = this.fault;
+                this.fault = null;
+                hasNext = false;
+
+                throw fault;
             }
 
+            Object item = readItem(csvReader.getRow(), types);
+            advance();
+
             return item;
         }
 
@@ -129,17 +152,54 @@ public class CSVSerializer implements Serializer<List<?>> {
         }
     }
 
+    /**
+     * Task that parses a chunk of the input in parallel mode.
+     */
+    private class ChunkTask extends Task<ArrayList<Object>> {
+        private char[] chars;
+        private int offset;
+        private int count;
+        private int lineNumber;
+        private Class<?>[] types;
+
+        public ChunkTask(char[] chars, int offset, int count, int lineNumber, Class<?>[] types) {
+            this.chars = chars;
+            this.offset = offset;
+            this.count = count;
+            this.lineNumber = lineNumber;
+            this.types = types;
+        }
+
+        @Override
+        public ArrayList<Object> execute() throws TaskExecutionException {
+            try {
+                return readItems(new CSVReader(chars, offset, count, lineNumber), types);
+            } catch (IOException exception) {
+                throw new TaskExecutionException(exception);
+            } catch (SerializationException exception) {
+                throw new TaskExecutionException(exception);
+            }
+        }
+    }
+
     private Charset charset;
 
-    int c = -1;
     private ArrayList<String> keys = new ArrayList<String>();
     private KeySequence keySequence = new KeySequence();
+    private HashMap<String, Class<?>> keyTypes = new HashMap<String, Class<?>>();
     private Class<?> itemClass = HashMap.class;
     private boolean verbose = false;
+    private boolean parallel = false;
 
     public static final String DEFAULT_CHARSET_NAME = "ISO-8859-1";
     public static final String MIME_TYPE = "text/csv";
-    public static final int BUFFER_SIZE = 2048;
+    public static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The minimum number of characters in each chunk of input in parallel
+     * mode; smaller inputs are parsed sequentially.
+     */
+    public static final int MINIMUM_CHUNK_SIZE = 1024 * 1024;
 
     public CSVSerializer() {
         this(Charset.forName(DEFAULT_CHARSET_NAME));
@@ -165,6 +225,46 @@ public class CSVSerializer implements Serializer<List<?>> {
         return keySequence;
     }
 
+    /**
+     * Returns the type to which values for a given key are converted during a
+     * read operation.
+     *
+     * @param key
+     *
+     * @return
+     * The key's type, or <tt>null</tt> if values are read as strings.
+     */
+    public Class<?> getKeyType(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key is null.");
+        }
+
+        return keyTypes.get(key);
+    }
+
+    /**
+     * Sets the type to which values for a given key are converted during a
+     * read operation. Integer, long, and double values are decoded directly;
+     * other types are converted via {@link BeanAdapter#coerce(Object, Class)}.
+     * Empty values are read as <tt>null</tt>.
+     *
+     * @param key
+     *
+     * @param type
+     * The key's type, or <tt>null</tt> to read values as strings.
+     */
+    public void setKeyType(String key, Class<?> type) {
+        if (key == null) {
+            throw new IllegalArgumentException("key is null.");
+        }
+
+        if (type == null) {
+            keyTypes.remove(key);
+        } else {
+            keyTypes.put(key, type);
+        }
+    }
+
     /**
      * Returns the item class that will be instantiated by the serializer during
      * a read operation.
@@ -203,6 +303,26 @@ public class CSVSerializer implements Serializer<List<?>> {
         this.verbose = verbose;
     }
 
+    /**
+     * Returns the serializer's parallel flag.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Sets the serializer's parallel flag. When parallel mode is enabled,
+     * {@link #readObject(Reader)} reads the entire input into memory, splits
+     * it into chunks on record boundaries, and parses the chunks concurrently
+     * using the default task executor. Inputs smaller than
+     * {@link #MINIMUM_CHUNK_SIZE} characters are parsed sequentially.
+     *
+     * @param parallel
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
     /**
      * Reads values from a comma-separated value stream.
      *
@@ -218,7 +338,7 @@ public class CSVSerializer implements Serializer<List<?>> {
             throw new IllegalArgumentException("inputStream is null.");
         }
 
-        Reader reader = new BufferedReader(new InputStreamReader(inputStream, charset), BUFFER_SIZE);
+        Reader reader = new InputStreamReader(inputStream, charset);
         if (verbose) {
             reader = new EchoReader(reader);
         }
@@ -243,39 +363,125 @@ public class CSVSerializer implements Serializer<List<?>> {
             throw new IllegalArgumentException("reader is null.");
         }
 
-        ArrayList<Object> items = new ArrayList<Object>();
+        List<?> items;
+        if (parallel) {
+            items = readObjectParallel(reader);
+        } else {
+            items = readItems(new CSVReader(reader), getTypes());
+        }
+
+        return items;
+    }
 
-        // Move to the first character
-        c = reader.read();
+    private List<?> readObjectParallel(Reader reader)
+        throws IOException, SerializationException {
+        // Read the entire input
+        char[] chars = new char[BUFFER_SIZE];
+        int length = 0;
+
+        int n = reader.read(chars, 0, chars.length);
+        while (n != -1) {
+            length += n;
+
+            if (length == chars.length) {
+                char[] buffer = new char[chars.length * 2];
+                System.arraycopy(chars, 0, buffer, 0, length);
+                chars = buffer;
+            }
 
-        // Ignore BOM (if present)
-        if (c == 0xFEFF) {
-            c = reader.read();
+            n = reader.read(chars, length, chars.length - length);
         }
 
-        LineNumberReader lineNumberReader = new LineNumberReader(reader);
+        Class<?>[] types = getTypes();
 
-        try {
-            while (c != -1) {
-                Object item = readItem(lineNumberReader);
-                while (item != null) {
-                    items.add(item);
-
-                    // Move to next line
-                    while (c != -1
-                        && (c == '\r' || c == '\n')) {
-                        c = lineNumberReader.read();
-                    }
-
-                    // Read the next item
-                    item = readItem(lineNumberReader);
+        int chunkCount = Math.min(Runtime.getRuntime().availableProcessors(),
+            length / MINIMUM_CHUNK_SIZE);
+
+        if (chunkCount < 2) {
+            return readItems(new CSVReader(chars, 0, length, 1), types);
+        }
+
+        // Split the input on record boundaries; a line terminator ends a
+        // record unless it falls within a quoted value
+        int[] offsets = new int[chunkCount + 1];
+        int[] lineNumbers = new int[chunkCount];
+        lineNumbers[0] = 1;
+
+        int chunkSize = length / chunkCount;
+        int lineNumber = 1;
+        boolean quoted = false;
+
+        int chunk = 1;
+        for (int i = 0; i < length && chunk < chunkCount; i++) {
+            char c = chars[i];
+
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r'
+                    && i + 1 < length
+                    && chars[i + 1] == '\n') {
+                    i++;
+                }
+
+                lineNumber++;
+
+                if (!quoted
+                    && i + 1 >= chunk * chunkSize) {
+                    offsets[chunk] = i + 1;
+                    lineNumbers[chunk] = lineNumber;
+                    chunk++;
                 }
             }
-        } catch (SerializationException exception) {
-            System.err.println("An error occurred while processing input at line number "
-                + (lineNumberReader.getLineNumber() + 1));
+        }
 
-            throw exception;
+        chunkCount = chunk;
+        offsets[chunkCount] = length;
+
+        // Parse the chunks
+        TaskBatch<ArrayList<Object>> taskBatch =
+            new TaskBatch<ArrayList<Object>>(TaskBatch.FailurePolicy.FAIL_FAST, chunkCount);
+
+        for (int i = 0; i < chunkCount; i++) {
+            taskBatch.add(new ChunkTask(chars, offsets[i], offsets[i + 1] - offsets[i],
+                lineNumbers[i], types));
+        }
+
+        List<ArrayList<Object>> results;
+        try {
+            results = taskBatch.execute();
+        } catch (TaskExecutionException exception) {
+            Throwable cause = exception;
+            while (cause instanceof TaskExecutionException
+                && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+
+            if (cause instanceof SerializationException) {
+                throw (SerializationException)cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+
+            throw new SerializationException(cause);
+        }
+
+        int count = 0;
+        for (ArrayList<Object> result : results) {
+            count += result.getLength();
+        }
+
+        ArrayList<Object> items = new ArrayList<Object>(count);
+        for (ArrayList<Object> result : results) {
+            for (int i = 0, m = result.getLength(); i < m; i++) {
+                items.add(result.get(i));
+            }
         }
 
         return items;
@@ -290,9 +496,7 @@ public class CSVSerializer implements Serializer<List<?>> {
      * @see #getStreamIterator(Reader)
      */
     public StreamIterator getStreamIterator(InputStream inputStream) throws IOException {
-        Reader reader = new BufferedReader(new InputStreamReader(inputStream, charset),
-            BUFFER_SIZE);
-        return getStreamIterator(reader);
+        return getStreamIterator(new InputStreamReader(inputStream, charset));
     }
 
     /**
@@ -310,98 +514,68 @@ public class CSVSerializer implements Serializer<List<?>> {
         return new StreamIterator(reader);
     }
 
-    @SuppressWarnings("unchecked")
-    private Object readItem(Reader reader)
-        throws IOException, SerializationException {
-        Object item = null;
-
-        if (c != -1) {
-            // Instantiate the item
-            Dictionary<String, Object> itemDictionary;
-
-            try {
-                item = itemClass.newInstance();
-
-                if (item instanceof Dictionary<?, ?>) {
-                    itemDictionary = (Dictionary<String, Object>)item;
-                } else {
-                    itemDictionary = new BeanAdapter(item);
-                }
-            } catch(IllegalAccessException exception) {
-                throw new SerializationException(exception);
-            } catch(InstantiationException exception) {
-                throw new SerializationException(exception);
-            }
-
-            // Add values to the item
-            for (int i = 0, n = keys.getLength(); i < n; i++) {
-                String key = keys.get(i);
-                String value = readValue(reader);
-                if (value == null) {
-                    throw new SerializationException("Error reading value for "
-                        + key + " from input stream.");
-                }
-
-                itemDictionary.put(key, value);
-            }
+    private Class<?>[] getTypes() {
+        Class<?>[] types = new Class<?>[keys.getLength()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = keyTypes.get(keys.get(i));
         }
 
-        return item;
+        return types;
     }
 
-    private String readValue(Reader reader)
+    private ArrayList<Object> readItems(CSVReader csvReader, Class<?>[] types)
         throws IOException, SerializationException {
-        String value = null;
-
-        // Read the next value from this line, returning null if there are
-        // no more values on the line
-        if (c != -1
-            && (c != '\r' && c != '\n')) {
-            // Read the value
-            StringBuilder valueBuilder = new StringBuilder();
-
-            // Values may be bounded in quotes; the double-quote character is
-            // escaped by two successive occurrences
-            boolean quoted = (c == '"');
-            if (quoted) {
-                c = reader.read();
+        ArrayList<Object> items = new ArrayList<Object>();
+
+        try {
+            while (csvReader.next()) {
+                items.add(readItem(csvReader.getRow(), types));
             }
+        } catch (SerializationException exception) {
+            System.err.println("An error occurred while processing input at line number "
+                + csvReader.getLineNumber());
 
-            while (c != -1
-                && (quoted || (c != ',' && c != '\r' && c != '\n'))) {
-                if (c == '"') {
-                    if (!quoted) {
-                        throw new SerializationException("Dangling quote.");
-                    }
+            throw exception;
+        }
 
-                    c = reader.read();
+        return items;
+    }
 
-                    if (c != '"'
-                        && (c != ',' && c != '\r' && c != '\n' && c != -1)) {
-                        throw new SerializationException("Prematurely terminated quote.");
-                    }
+    @SuppressWarnings("unchecked")
+    private Object readItem(CSVReader.Row row, Class<?>[] types)
+        throws SerializationException {
+        // Instantiate the item
+        Object item;
+        Dictionary<String, Object> itemDictionary;
 
-                    quoted &= (c == '"');
-                }
+        try {
+            item = itemClass.newInstance();
 
-                if (c != -1
-                    && (quoted || (c != ',' && c != '\r' && c != '\n'))) {
-                    valueBuilder.append((char)c);
-                    c = reader.read();
-                }
+            if (item instanceof Dictionary<?, ?>) {
+                itemDictionary = (Dictionary<String, Object>)item;
+            } else {
+                itemDictionary = new BeanAdapter(item);
             }
+        } catch(IllegalAccessException exception) {
+            throw new SerializationException(exception);
+        } catch(InstantiationException exception) {
+            throw new SerializationException(exception);
+        }
 
-            if (quoted) {
-                throw new SerializationException("Unterminated string.");
-            }
+        // Add values to the item
+        for (int i = 0, n = types.length; i < n; i++) {
+            String key = keys.get(i);
 
-            value = valueBuilder.toString();
+            if (i >= row.getLength()) {
+                throw new SerializationException("Error reading value for "
+                    + key + " from input stream.");
+            }
 
-            // Move to the next character after ','
-            c = reader.read();
+            Class<?> type = types[i];
+            itemDictionary.put(key, (type == null) ? row.get(i) : row.get(i, type));
         }
 
-        return value;
+        return item;
     }
 
     /**
@@ -455,6 +629,8 @@ public class CSVSerializer implements Serializer<List<?>> {
             throw new IllegalArgumentException("writer is null.");
         }
 
+        CSVWriter csvWriter = new CSVWriter(writer);
+
         for (Object item : items) {
             Dictionary<String, Object> itemDictionary;
             if (item instanceof Dictionary<?, ?>) {
@@ -464,37 +640,10 @@ public class CSVSerializer implements Serializer<List<?>> {
             }
 
             for (int i = 0, n = keys.getLength(); i < n; i++) {
-                String key = keys.get(i);
-
-                if (i > 0) {
-                    writer.append(",");
-                }
-
-                Object value = itemDictionary.get(key);
-
-                if (value != null) {
-                    String string = value.toString();
-
-                    if (string.indexOf(',') >= 0
-                        || string.indexOf('"') >= 0
-                        || string.indexOf('\r') >= 0
-                        || string.indexOf('\n') >= 0) {
-                        writer.append('"');
-
-                        if (string.indexOf('"') == -1) {
-                            writer.append(string);
-                        } else {
-                            writer.append(string.replace("\"", "\"\""));
-                        }
-
-                        writer.append('"');
-                    } else {
-                        writer.append(string);
-                    }
-                }
+                csvWriter.write(itemDictionary.get(keys.get(i)));
             }
 
-            writer.append("\r\n");
+            csvWriter.endRow();
         }
 
         writer.flush();
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.serialization;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streaming writer for comma-separated value (CSV) data. Values are written
+ * one at a time via {@link #write(Object)}; each record is terminated by a
+ * call to {@link #endRow()}. Values containing commas, quotes, or line breaks
+ * are quoted.
+ */
+public class CSVWriter {
+    private Writer writer;
+
+    private boolean rowStarted = false;
+    private char[] scratch = new char[64];
+
+    public CSVWriter(Writer writer) {
+        if (writer == null) {
+            throw new IllegalArgumentException("writer is null.");
+        }
+
+        this.writer = writer;
+    }
+
+    /**
+     * Writes a value to the current record. <tt>null</tt> values are written
+     * as empty fields.
+     *
+     * @param value
+     */
+    public void write(Object value) throws IOException {
+        if (rowStarted) {
+            writer.write(',');
+        }
+
+        rowStarted = true;
+
+        if (value != null) {
+            String string = value.toString();
+            int length = string.length();
+
+            if (length > scratch.length) {
+                scratch = new char[Math.max(length, scratch.length * 2)];
+            }
+
+            string.getChars(0, length, scratch, 0);
+
+            // Determine whether the value needs to be quoted
+            boolean quote = false;
+            int quoteCount = 0;
+            for (int i = 0; i < length; i++) {
+                char c = scratch[i];
+
+                if (c == '"') {
+                    quoteCount++;
+                    quote = true;
+                } else if (c == ',' || c == '\r' || c == '\n') {
+                    quote = true;
+                }
+            }
+
+            if (quote) {
+                writer.write('"');
+
+                if (quoteCount == 0) {
+                    writer.write(scratch, 0, length);
+                } else {
+                    int start = 0;
+                    for (int i = 0; i < length; i++) {
+                        if (scratch[i] == '"') {
+                            // Write the quote twice
+                            writer.write(scratch, start, i - start + 1);
+                            start = i;
+                        }
+                    }
+
+                    writer.write(scratch, start, length - start);
+                }
+
+                writer.write('"');
+            } else {
+                writer.write(scratch, 0, length);
+            }
+        }
+    }
+
+    /**
+     * Terminates the current record.
+     */
+    public void endRow() throws IOException {
+        writer.write("\r\n");
+        rowStarted = false;
+    }
+
+    /**
+     * Flushes the underlying writer.
+     */
+    public void flush() throws IOException {
+        writer.flush();
+    }
+}
@@ -247,6 +247,26 @@ public class ResultList implements List<Map<String, Object>> {
        throw new UnsupportedOperationException();
    }
 
+   @Override
+   public void addAll(Sequence<Map<String, Object>> items) {
+       throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public void insertAll(Sequence<Map<String, Object>> items, int index) {
+       throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public int removeAll(Sequence<Map<String, Object>> items) {
+       throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public void setAll(Sequence<Map<String, Object>> items) {
+       throw new UnsupportedOperationException();
+   }
+
    @Override
    public Map<String, Object> get(int index) {
        throw new UnsupportedOperationException();
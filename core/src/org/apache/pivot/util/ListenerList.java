@@ -22,48 +22,42 @@ import java.util.NoSuchElementException;
 /**
  * Abstract base class for listener lists.
  * <p>
+ * Listeners are stored in an array that is copied whenever a listener is
+ * added or removed. Iteration and dispatch always operate on the array that
+ * was current when they began, so listeners may safely be added or removed
+ * while an event is being fired. Subclasses that fire frequent events can
+ * iterate over {@link #getListeners()} directly to avoid allocating an
+ * iterator.
+ * <p>
  * NOTE This class is not inherently thread safe. Subclasses that require
- * thread-safe access should synchronize method access appropriately. Callers
- * must manually synchronize on the listener list instance to ensure thread
- * safety during iteration.
+ * thread-safe access should synchronize {@link #add(Object)} and
+ * {@link #remove(Object)}; since the listener array is replaced rather than
+ * modified, events may then be fired from any thread without further
+ * synchronization.
  */
 public abstract class ListenerList<T> implements Iterable<T> {
-    // Node containing a listener in the list
-    private class Node {
-        private Node previous;
-        private Node next;
-        private T listener;
-
-        public Node(Node previous, Node next, T listener) {
-            this.previous = previous;
-            this.next = next;
-            this.listener = listener;
-        }
-    }
+    // Listener array iterator
+    private class ArrayIterator implements Iterator<T> {
+        private Object[] listeners;
+        private int index = 0;
 
-    // Node iterator
-    private class NodeIterator implements Iterator<T> {
-        private Node node;
-
-        public NodeIterator() {
-            this.node = first;
+        public ArrayIterator(Object[] listeners) {
+            this.listeners = listeners;
         }
 
         @Override
         public boolean hasNext() {
-            return (node != null);
+            return (index < listeners.length);
         }
 
         @Override
+        @SuppressWarnings("unchecked")
         public T next() {
-            if (node == null) {
+            if (index >= listeners.length) {
                 throw new NoSuchElementException();
             }
 
-            T listener = node.listener;
-            node = node.next;
-
-            return listener;
+            return (T)listeners[index++];
         }
 
         @Override
@@ -72,9 +66,11 @@ public abstract class ListenerList<T> implements Iterable<T> {
         }
     }
 
-    // First node in the list (we don't maintain a reference to the last
-    // node, since we need to walk the list looking for duplicates on add)
-    private Node first = null;
+    private static final Object[] EMPTY_LISTENERS = new Object[0];
+
+    // The current listeners; this array is never modified once assigned, so
+    // it may be read by a dispatching thread while another thread replaces it
+    private volatile Object[] listeners = EMPTY_LISTENERS;
 
     /**
      * Adds a listener to the list, if it has not previously been added.
@@ -86,22 +82,15 @@ public abstract class ListenerList<T> implements Iterable<T> {
             throw new IllegalArgumentException("listener is null.");
         }
 
-        Node node = first;
+        if (indexOf(listener) == -1) {
+            int n = listeners.length;
+            Object[] listeners = new Object[n + 1];
+            System.arraycopy(this.listeners, 0, listeners, 0, n);
+            listeners[n] = listener;
 
-        if (node == null) {
-            first = new Node(null, null, listener);
+            this.listeners = listeners;
         } else {
-            while (node.next != null
-                && node.listener != listener) {
-                node = node.next;
-            }
-
-            if (node.next == null
-                && node.listener != listener) {
-                node.next = new Node(node, null, listener);
-            } else {
-                System.err.println("Duplicate listener " + listener + " added to " + this);
-            }
+            System.err.println("Duplicate listener " + listener + " added to " + this);
         }
     }
 
@@ -115,31 +104,38 @@ public abstract class ListenerList<T> implements Iterable<T> {
             throw new IllegalArgumentException("listener is null.");
         }
 
-        Node node = first;
-        while (node != null
-            && node.listener != listener) {
-            node = node.next;
-        }
+        int index = indexOf(listener);
 
-        if (node == null) {
+        if (index == -1) {
             System.err.println("Nonexistent listener " + listener + " removed from " + this);
         } else {
-            if (node.previous == null) {
-                first = node.next;
+            int n = listeners.length - 1;
 
-                if (first != null) {
-                    first.previous = null;
-                }
+            if (n == 0) {
+                listeners = EMPTY_LISTENERS;
             } else {
-                node.previous.next = node.next;
+                Object[] listeners = new Object[n];
+                System.arraycopy(this.listeners, 0, listeners, 0, index);
+                System.arraycopy(this.listeners, index + 1, listeners, index, n - index);
 
-                if (node.next != null) {
-                    node.next.previous = node.previous;
-                }
+                this.listeners = listeners;
             }
         }
     }
 
+    private int indexOf(T listener) {
+        Object[] listeners = this.listeners;
+
+        int i = 0;
+        int n = listeners.length;
+        while (i < n
+            && listeners[i] != listener) {
+            i++;
+        }
+
+        return (i < n) ? i : -1;
+    }
+
     /**
      * Tests the existence of a listener in the list.
      *
@@ -154,13 +150,7 @@ public abstract class ListenerList<T> implements Iterable<T> {
             throw new IllegalArgumentException("listener is null.");
         }
 
-        Node node = first;
-        while (node != null
-            && node.listener != listener) {
-            node = node.next;
-        }
-
-        return (node != null);
+        return (indexOf(listener) != -1);
     }
 
     /**
@@ -171,11 +161,30 @@ public abstract class ListenerList<T> implements Iterable<T> {
      * otherwise.
      */
     public boolean isEmpty() {
-        return (first == null);
+        return (listeners.length == 0);
+    }
+
+    /**
+     * Returns the listeners currently in the list, in the order in which they
+     * were added. The returned array is a snapshot: it is never modified, and
+     * is not affected by subsequent calls to {@link #add(Object)} or
+     * {@link #remove(Object)}. It must not be modified by the caller.
+     * <p>
+     * Subclasses may use this method to fire events without allocating an
+     * iterator:
+     * <pre>
+     * Object[] listeners = getListeners();
+     * for (int i = 0; i &lt; listeners.length; i++) {
+     *     ((FooListener)listeners[i]).foo(source);
+     * }
+     * </pre>
+     */
+    protected final Object[] getListeners() {
+        return listeners;
     }
 
     @Override
     public Iterator<T> iterator() {
-        return new NodeIterator();
+        return new ArrayIterator(listeners);
     }
 }
@@ -0,0 +1,475 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.util.concurrent;
+
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.pivot.collections.ArrayList;
+import org.apache.pivot.collections.List;
+import org.apache.pivot.collections.Sequence;
+import org.apache.pivot.collections.immutable.ImmutableList;
+import org.apache.pivot.util.ImmutableIterator;
+
+/**
+ * Class that runs a batch of tasks in parallel and collects their results.
+ * <p>
+ * At most {@link #getMaximumConcurrency()} tasks are executing at any given
+ * time; the remaining tasks are started as running tasks complete. The result
+ * of the batch is a list containing the result of each task, in the order in
+ * which the tasks were added. Faults are collected in a parallel list (see
+ * {@link #getFaults()}).
+ * <p>
+ * If the failure policy is {@link FailurePolicy#FAIL_FAST}, the first fault
+ * aborts all pending tasks and causes the batch to fail with that fault. If
+ * it is {@link FailurePolicy#ALL_SETTLED}, the batch waits for every task to
+ * complete and succeeds regardless of individual faults.
+ * <p>
+ * If a timeout is set via {@link #setTimeout(long)}, it is interpreted as the
+ * maximum number of milliseconds the batch may run; when exceeded, pending
+ * tasks are aborted and the batch fails with a {@link TimeoutException}.
+ *
+ * @param <V>
+ * The type of the value returned by the tasks in the batch.
+ */
+public class TaskBatch<V> extends Task<List<V>>
+    implements Sequence<Task<? extends V>>, Iterable<Task<? extends V>> {
+    /**
+     * Enumeration defining how the batch reacts to a task fault.
+     */
+    public enum FailurePolicy {
+        FAIL_FAST,
+        ALL_SETTLED
+    }
+
+    /**
+     * Holds the state of a single execution of the batch. Tasks are only
+     * started by the thread executing the batch: task listeners merely
+     * record the outcome and post the task's index to a completion queue,
+     * which the batch thread drains. This ensures that no task is ever
+     * submitted from the thread of another task.
+     */
+    private class Execution implements TaskListener<Object> {
+        private Task<?>[] tasks;
+        private ArrayList<V> results;
+        private ArrayList<Exception> faults;
+
+        private int nextIndex = 0;
+        private AtomicInteger remaining;
+        private LinkedBlockingQueue<Integer> completions = new LinkedBlockingQueue<Integer>();
+
+        private volatile Exception failure = null;
+        private volatile boolean cancelled = false;
+
+        // Posted to the completion queue to wake the batch thread when the
+        // execution is cancelled
+        private static final int CANCELLED = -1;
+
+        public Execution(Task<?>[] tasks) {
+            this.tasks = tasks;
+
+            results = new ArrayList<V>(tasks.length);
+            faults = new ArrayList<Exception>(tasks.length);
+            for (int i = 0; i < tasks.length; i++) {
+                results.add(null);
+                faults.add(null);
+            }
+
+            remaining = new AtomicInteger(tasks.length);
+        }
+
+        /**
+         * Runs the tasks, keeping at most the maximum number of tasks
+         * executing, until all tasks have completed or the execution is
+         * cancelled.
+         *
+         * @return
+         * <tt>false</tt> if the timeout elapsed; <tt>true</tt>, otherwise.
+         */
+        public boolean run(long timeout) throws InterruptedException {
+            long deadline = (timeout == Long.MAX_VALUE) ?
+                Long.MAX_VALUE : System.currentTimeMillis() + timeout;
+
+            boolean completed = true;
+            int running = 0;
+
+            while (remaining.get() > 0
+                && !cancelled) {
+                while (running < maximumConcurrency
+                    && nextIndex < tasks.length
+                    && !cancelled) {
+                    if (start(nextIndex++)) {
+                        running++;
+                    }
+                }
+
+                if (remaining.get() == 0
+                    || cancelled) {
+                    break;
+                }
+
+                Integer index;
+                if (deadline == Long.MAX_VALUE) {
+                    index = completions.take();
+                } else {
+                    index = completions.poll(deadline - System.currentTimeMillis(),
+                        TimeUnit.MILLISECONDS);
+                }
+
+                if (index == null) {
+                    completed = false;
+                    break;
+                }
+
+                if (index != CANCELLED) {
+                    running--;
+                }
+            }
+
+            // Record the tasks that were never started
+            if (cancelled) {
+                while (nextIndex < tasks.length) {
+                    record(nextIndex++, null, new AbortException());
+                }
+            }
+
+            return completed;
+        }
+
+        /**
+         * Starts a task. A task that cannot be started is recorded as failed.
+         *
+         * @return
+         * <tt>true</tt> if the task was started; <tt>false</tt>, otherwise.
+         */
+        @SuppressWarnings("unchecked")
+        private boolean start(int index) {
+            Task<Object> task = (Task<Object>)tasks[index];
+
+            boolean started;
+            try {
+                task.execute(this);
+                started = true;
+
+                // Abort the task if the execution was cancelled while it
+                // was being started
+                if (cancelled) {
+                    synchronized (task) {
+                        if (task.isPending()) {
+                            task.abort();
+                        }
+                    }
+                }
+            } catch (RuntimeException exception) {
+                record(index, null, exception);
+                started = false;
+            }
+
+            return started;
+        }
+
+        @Override
+        public void taskExecuted(Task<Object> task) {
+            int index = indexOf(task);
+            record(index, task.getResult(), null);
+            completions.offer(index);
+        }
+
+        @Override
+        public void executeFailed(Task<Object> task) {
+            int index = indexOf(task);
+            record(index, null, task.getFault());
+            completions.offer(index);
+        }
+
+        private int indexOf(Task<?> task) {
+            int i = 0;
+            while (tasks[i] != task) {
+                i++;
+            }
+
+            return i;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void record(int index, Object result, Exception fault) {
+            synchronized (this) {
+                results.update(index, (V)result);
+                faults.update(index, fault);
+            }
+
+            if (fault != null
+                && failurePolicy == FailurePolicy.FAIL_FAST
+                && failure == null) {
+                failure = fault;
+                cancel();
+            }
+
+            remaining.decrementAndGet();
+        }
+
+        public void cancel() {
+            cancelled = true;
+
+            for (int i = 0; i < tasks.length; i++) {
+                Task<?> task = tasks[i];
+
+                synchronized (task) {
+                    if (task.isPending()) {
+                        task.abort();
+                    }
+                }
+            }
+
+            completions.offer(CANCELLED);
+        }
+    }
+
+    private ArrayList<Task<? extends V>> tasks = new ArrayList<Task<? extends V>>();
+
+    private FailurePolicy failurePolicy;
+    private int maximumConcurrency;
+
+    private Execution execution = null;
+    private List<Exception> faults = null;
+
+    public TaskBatch() {
+        this(FailurePolicy.ALL_SETTLED, Integer.MAX_VALUE);
+    }
+
+    public TaskBatch(FailurePolicy failurePolicy, int maximumConcurrency) {
+        this(failurePolicy, maximumConcurrency, DEFAULT_EXECUTOR_SERVICE);
+    }
+
+    public TaskBatch(FailurePolicy failurePolicy, int maximumConcurrency,
+        ExecutorService executorService) {
+        super(executorService);
+
+        setFailurePolicy(failurePolicy);
+        setMaximumConcurrency(maximumConcurrency);
+    }
+
+    /**
+     * Returns the failure policy for this batch.
+     */
+    public synchronized FailurePolicy getFailurePolicy() {
+        return failurePolicy;
+    }
+
+    /**
+     * Sets the failure policy for this batch.
+     *
+     * @param failurePolicy
+     */
+    public synchronized void setFailurePolicy(FailurePolicy failurePolicy) {
+        if (failurePolicy == null) {
+            throw new IllegalArgumentException("failurePolicy is null.");
+        }
+
+        if (isPending()) {
+            throw new IllegalStateException();
+        }
+
+        this.failurePolicy = failurePolicy;
+    }
+
+    /**
+     * Returns the maximum number of tasks that may execute at the same time.
+     */
+    public synchronized int getMaximumConcurrency() {
+        return maximumConcurrency;
+    }
+
+    /**
+     * Sets the maximum number of tasks that may execute at the same time.
+     *
+     * @param maximumConcurrency
+     */
+    public synchronized void setMaximumConcurrency(int maximumConcurrency) {
+        if (maximumConcurrency < 1) {
+            throw new IllegalArgumentException("maximumConcurrency must be positive.");
+        }
+
+        if (isPending()) {
+            throw new IllegalStateException();
+        }
+
+        this.maximumConcurrency = maximumConcurrency;
+    }
+
+    /**
+     * Executes the tasks in the batch and waits for them to complete.
+     *
+     * @return
+     * A list containing the result of each task, in task order. The entry for
+     * a task that failed or did not run is <tt>null</tt>.
+     *
+     * @throws TaskExecutionException
+     * If the failure policy is {@link FailurePolicy#FAIL_FAST} and a task
+     * failed.
+     *
+     * @throws TimeoutException
+     * If the batch did not complete within the timeout.
+     *
+     * @throws AbortException
+     * If the batch was aborted.
+     */
+    @Override
+    public List<V> execute() throws TaskExecutionException {
+        Execution execution;
+
+        synchronized (this) {
+            Task<?>[] tasks = new Task<?>[this.tasks.getLength()];
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i] = this.tasks.get(i);
+            }
+
+            execution = new Execution(tasks);
+            this.execution = execution;
+            faults = new ImmutableList<Exception>(execution.faults);
+
+            if (abort) {
+                throw new AbortException();
+            }
+        }
+
+        boolean completed;
+        try {
+            completed = execution.run(timeout);
+        } catch (InterruptedException exception) {
+            execution.cancel();
+            throw new TaskExecutionException(exception);
+        }
+
+        if (!completed) {
+            execution.cancel();
+            throw new TimeoutException();
+        }
+
+        if (abort) {
+            throw new AbortException();
+        }
+
+        if (execution.failure != null) {
+            throw new TaskExecutionException(execution.failure);
+        }
+
+        synchronized (execution) {
+            return new ArrayList<V>(execution.results);
+        }
+    }
+
+    /**
+     * Returns the faults of the tasks in the most recent execution of the
+     * batch, in task order. The entry for a task that succeeded or has not
+     * completed is <tt>null</tt>.
+     *
+     * @return
+     * The faults, or <tt>null</tt> if the batch has not been executed.
+     */
+    public synchronized List<Exception> getFaults() {
+        return faults;
+    }
+
+    /**
+     * Aborts all pending tasks in this batch.
+     */
+    @Override
+    public synchronized void abort() {
+        super.abort();
+
+        if (execution != null) {
+            execution.cancel();
+        }
+    }
+
+    @Override
+    public synchronized int add(Task<? extends V> task) {
+        int index = tasks.getLength();
+        insert(task, index);
+
+        return index;
+    }
+
+    @Override
+    public synchronized void insert(Task<? extends V> task, int index) {
+        if (task == null) {
+            throw new IllegalArgumentException("task is null.");
+        }
+
+        if (isPending()) {
+            throw new IllegalStateException();
+        }
+
+        tasks.insert(task, index);
+    }
+
+    @Override
+    public synchronized Task<? extends V> update(int index, Task<? extends V> task) {
+        if (task == null) {
+            throw new IllegalArgumentException("task is null.");
+        }
+
+        if (isPending()) {
+            throw new IllegalStateException();
+        }
+
+        return tasks.update(index, task);
+    }
+
+    @Override
+    public synchronized int remove(Task<? extends V> task) {
+        int index = tasks.indexOf(task);
+        if (index != -1) {
+            remove(index, 1);
+        }
+
+        return index;
+    }
+
+    @Override
+    public synchronized Sequence<Task<? extends V>> remove(int index, int count) {
+        if (isPending()) {
+            throw new IllegalStateException();
+        }
+
+        return tasks.remove(index, count);
+    }
+
+    @Override
+    public synchronized Task<? extends V> get(int index) {
+        return tasks.get(index);
+    }
+
+    @Override
+    public synchronized int indexOf(Task<? extends V> task) {
+        return tasks.indexOf(task);
+    }
+
+    @Override
+    public synchronized int getLength() {
+        return tasks.getLength();
+    }
+
+    @Override
+    public Iterator<Task<? extends V>> iterator() {
+        return new ImmutableIterator<Task<? extends V>>(tasks.iterator());
+    }
+}
@@ -0,0 +1,482 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.util.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor service used by default to execute {@link Task}s. The service
+ * runs in one of the following modes:
+ * <ul>
+ * <li>{@link Mode#POOLED} - commands are run by a bounded pool of reusable
+ * worker threads; commands submitted while all workers are busy are queued.
+ * A command submitted by one of the service's own workers (for example, a
+ * member of a {@link TaskGroup} or {@link TaskBatch} that is being executed
+ * by the pool) is run by the submitting thread, so that nested tasks can
+ * never starve the tasks waiting on them. Like the threads of the other
+ * modes, worker threads are not daemon threads; an idle worker exits after
+ * {@link #KEEP_ALIVE_TIME} seconds.</li>
+ * <li>{@link Mode#VIRTUAL} - each command is run on its own virtual thread.
+ * This mode is only available when the JVM supports virtual threads; it is
+ * detected at runtime, and the pooled mode is used otherwise.</li>
+ * <li>{@link Mode#THREAD} - each command is run on a new platform thread.
+ * </li>
+ * </ul>
+ * The default mode and pool size may be set via the
+ * <tt>org.apache.pivot.util.concurrent.executor</tt> (<tt>pooled</tt>,
+ * <tt>virtual</tt>, or <tt>thread</tt>) and
+ * <tt>org.apache.pivot.util.concurrent.maximumPoolSize</tt> system
+ * properties.
+ * <p>
+ * The service keeps track of its queue depth, active count, and the latency
+ * and execution time of the commands it runs.
+ */
+public class TaskExecutorService extends AbstractExecutorService {
+    /**
+     * Enumeration defining the supported execution modes.
+     */
+    public enum Mode {
+        POOLED,
+        VIRTUAL,
+        THREAD
+    }
+
+    private class WorkerThreadFactory implements ThreadFactory {
+        private AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new WorkerThread(runnable, "Pivot Task Worker " + threadCount.incrementAndGet());
+        }
+    }
+
+    private class WorkerThread extends Thread {
+        public WorkerThread(Runnable runnable, String name) {
+            super(runnable, name);
+        }
+
+        public TaskExecutorService getExecutorService() {
+            return TaskExecutorService.this;
+        }
+    }
+
+    private class MonitoredCommand implements Runnable {
+        private Runnable command;
+        private long submitTime;
+
+        public MonitoredCommand(Runnable command) {
+            this.command = command;
+            submitTime = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            long startTime = System.nanoTime();
+            totalLatency.addAndGet(startTime - submitTime);
+
+            activeCount.incrementAndGet();
+
+            try {
+                command.run();
+            } finally {
+                activeCount.decrementAndGet();
+                totalExecutionTime.addAndGet(System.nanoTime() - startTime);
+                completedTaskCount.incrementAndGet();
+            }
+        }
+    }
+
+    private Mode mode;
+    private ThreadPoolExecutor threadPoolExecutor = null;
+    private ExecutorService virtualThreadExecutor = null;
+    private WorkerThreadFactory threadFactory = new WorkerThreadFactory();
+
+    // The number of dedicated threads that have been started in thread mode
+    // and have not yet finished; guarded by itself
+    private int[] dedicatedThreadCount = new int[1];
+    private volatile boolean shutdown = false;
+
+    private AtomicInteger activeCount = new AtomicInteger();
+    private AtomicLong completedTaskCount = new AtomicLong();
+    private AtomicLong totalLatency = new AtomicLong();
+    private AtomicLong totalExecutionTime = new AtomicLong();
+
+    public static final String MODE_PROPERTY = "org.apache.pivot.util.concurrent.executor";
+    public static final String MAXIMUM_POOL_SIZE_PROPERTY = "org.apache.pivot.util.concurrent.maximumPoolSize";
+
+    public static final int DEFAULT_MAXIMUM_POOL_SIZE =
+        Math.max(8, Runtime.getRuntime().availableProcessors() * 4);
+    /**
+     * The time, in seconds, for which an idle worker thread is retained. This
+     * is kept short since workers are not daemon threads, and idle workers
+     * therefore delay the exit of the JVM.
+     */
+    public static final long KEEP_ALIVE_TIME = 5;
+
+    /**
+     * Creates an executor service using the mode and pool size given by the
+     * system properties. If no mode is specified, virtual threads are used
+     * when available, and the pooled mode otherwise.
+     */
+    public TaskExecutorService() {
+        this(getDefaultMode(), getDefaultMaximumPoolSize());
+    }
+
+    /**
+     * Creates an executor service.
+     *
+     * @param mode
+     * The requested mode. If {@link Mode#VIRTUAL} is requested but not
+     * supported by the JVM, {@link Mode#POOLED} is used instead.
+     *
+     * @param maximumPoolSize
+     * The maximum number of worker threads, when running in pooled mode.
+     */
+    public TaskExecutorService(Mode mode, int maximumPoolSize) {
+        if (mode == null) {
+            throw new IllegalArgumentException("mode is null.");
+        }
+
+        if (maximumPoolSize < 1) {
+            throw new IllegalArgumentException("maximumPoolSize must be positive.");
+        }
+
+        if (mode == Mode.VIRTUAL) {
+            virtualThreadExecutor = createVirtualThreadExecutor();
+
+            if (virtualThreadExecutor == null) {
+                mode = Mode.POOLED;
+            }
+        }
+
+        if (mode == Mode.POOLED) {
+            // Start up to the maximum number of workers, then queue; idle
+            // workers are allowed to time out
+            threadPoolExecutor = new ThreadPoolExecutor(maximumPoolSize, maximumPoolSize,
+                KEEP_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                threadFactory);
+            threadPoolExecutor.allowCoreThreadTimeOut(true);
+        }
+
+        this.mode = mode;
+    }
+
+    /**
+     * Returns the mode in which this service is actually running.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the maximum number of worker threads, or <tt>-1</tt> if the
+     * service is not running in pooled mode.
+     */
+    public int getMaximumPoolSize() {
+        return (threadPoolExecutor == null) ? -1 : threadPoolExecutor.getMaximumPoolSize();
+    }
+
+    /**
+     * Returns the number of commands waiting for a worker thread. This is
+     * always <tt>0</tt> if the service is not running in pooled mode.
+     */
+    public int getQueueDepth() {
+        return (threadPoolExecutor == null) ? 0 : threadPoolExecutor.getQueue().size();
+    }
+
+    /**
+     * Returns the number of threads in the worker pool, or <tt>-1</tt> if the
+     * service is not running in pooled mode.
+     */
+    public int getPoolSize() {
+        return (threadPoolExecutor == null) ? -1 : threadPoolExecutor.getPoolSize();
+    }
+
+    /**
+     * Returns the number of commands currently executing.
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * Returns the number of commands that have completed execution.
+     */
+    public long getCompletedTaskCount() {
+        return completedTaskCount.get();
+    }
+
+    /**
+     * Returns the average time, in milliseconds, between the submission of a
+     * command and the start of its execution.
+     */
+    public double getAverageLatency() {
+        long completedTaskCount = this.completedTaskCount.get();
+        return (completedTaskCount == 0) ? 0 : totalLatency.get() / (completedTaskCount * 1000000d);
+    }
+
+    /**
+     * Returns the average execution time, in milliseconds, of the commands
+     * that have completed.
+     */
+    public double getAverageExecutionTime() {
+        long completedTaskCount = this.completedTaskCount.get();
+        return (completedTaskCount == 0) ? 0 : totalExecutionTime.get() / (completedTaskCount * 1000000d);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new IllegalArgumentException("command is null.");
+        }
+
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor service has been shut down.");
+        }
+
+        MonitoredCommand monitoredCommand = new MonitoredCommand(command);
+
+        switch (mode) {
+            case POOLED: {
+                if (isWorkerThread()) {
+                    // The submitting worker may wait for this command; queueing
+                    // it could leave every worker waiting on queued commands,
+                    // so run it here instead
+                    monitoredCommand.run();
+                } else {
+                    threadPoolExecutor.execute(monitoredCommand);
+                }
+
+                break;
+            }
+
+            case VIRTUAL: {
+                virtualThreadExecutor.execute(monitoredCommand);
+                break;
+            }
+
+            default: {
+                startThread(monitoredCommand);
+                break;
+            }
+        }
+    }
+
+    private boolean isWorkerThread() {
+        Thread thread = Thread.currentThread();
+        return (thread instanceof WorkerThread
+            && ((WorkerThread)thread).getExecutorService() == this);
+    }
+
+    private void startThread(final Runnable command) {
+        Thread thread = threadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    command.run();
+                } finally {
+                    synchronized (dedicatedThreadCount) {
+                        dedicatedThreadCount[0]--;
+                        dedicatedThreadCount.notifyAll();
+                    }
+                }
+            }
+        });
+
+        synchronized (dedicatedThreadCount) {
+            dedicatedThreadCount[0]++;
+        }
+
+        try {
+            thread.start();
+        } catch (RuntimeException exception) {
+            synchronized (dedicatedThreadCount) {
+                dedicatedThreadCount[0]--;
+                dedicatedThreadCount.notifyAll();
+            }
+
+            throw exception;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+
+        if (threadPoolExecutor != null) {
+            threadPoolExecutor.shutdown();
+        }
+
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.shutdown();
+        }
+    }
+
+    @Override
+    public java.util.List<Runnable> shutdownNow() {
+        shutdown = true;
+
+        java.util.List<Runnable> pendingCommands;
+        if (threadPoolExecutor != null) {
+            pendingCommands = threadPoolExecutor.shutdownNow();
+        } else if (virtualThreadExecutor != null) {
+            pendingCommands = virtualThreadExecutor.shutdownNow();
+        } else {
+            pendingCommands = new java.util.ArrayList<Runnable>();
+        }
+
+        return pendingCommands;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        boolean terminated;
+        if (threadPoolExecutor != null) {
+            terminated = threadPoolExecutor.isTerminated();
+        } else if (virtualThreadExecutor != null) {
+            terminated = virtualThreadExecutor.isTerminated();
+        } else {
+            terminated = shutdown;
+        }
+
+        synchronized (dedicatedThreadCount) {
+            return terminated && dedicatedThreadCount[0] == 0;
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        boolean terminated;
+        if (threadPoolExecutor != null) {
+            terminated = threadPoolExecutor.awaitTermination(timeout, unit);
+        } else if (virtualThreadExecutor != null) {
+            terminated = virtualThreadExecutor.awaitTermination(timeout, unit);
+        } else {
+            terminated = shutdown;
+        }
+
+        // Wait for the dedicated threads to finish
+        synchronized (dedicatedThreadCount) {
+            while (terminated
+                && dedicatedThreadCount[0] > 0) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    terminated = false;
+                } else {
+                    dedicatedThreadCount.wait(remaining);
+                }
+            }
+        }
+
+        return terminated;
+    }
+
+    /**
+     * Tests whether the JVM supports virtual threads.
+     */
+    public static boolean isVirtualThreadSupported() {
+        return (getVirtualThreadExecutorFactory() != null);
+    }
+
+    private static Method getVirtualThreadExecutorFactory() {
+        Method method;
+        try {
+            method = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException exception) {
+            method = null;
+        }
+
+        return method;
+    }
+
+    private static ExecutorService createVirtualThreadExecutor() {
+        ExecutorService executorService = null;
+
+        Method method = getVirtualThreadExecutorFactory();
+        if (method != null) {
+            try {
+                executorService = (ExecutorService)method.invoke(null);
+            } catch (Exception exception) {
+                // Virtual threads may be present but disabled (e.g. as a
+                // preview feature); fall back to another mode
+            }
+        }
+
+        return executorService;
+    }
+
+    private static Mode getDefaultMode() {
+        Mode mode;
+
+        String value = getProperty(MODE_PROPERTY);
+        if (value == null) {
+            mode = isVirtualThreadSupported() ? Mode.VIRTUAL : Mode.POOLED;
+        } else {
+            try {
+                mode = Mode.valueOf(value.toUpperCase(java.util.Locale.ENGLISH));
+            } catch (IllegalArgumentException exception) {
+                System.err.println("\"" + value + "\" is not a valid executor mode.");
+                mode = Mode.POOLED;
+            }
+        }
+
+        return mode;
+    }
+
+    private static int getDefaultMaximumPoolSize() {
+        int maximumPoolSize = DEFAULT_MAXIMUM_POOL_SIZE;
+
+        String value = getProperty(MAXIMUM_POOL_SIZE_PROPERTY);
+        if (value != null) {
+            try {
+                maximumPoolSize = Math.max(Integer.parseInt(value), 1);
+            } catch (NumberFormatException exception) {
+                System.err.println("\"" + value + "\" is not a valid maximum pool size.");
+            }
+        }
+
+        return maximumPoolSize;
+    }
+
+    private static String getProperty(String name) {
+        String value;
+        try {
+            value = System.getProperty(name);
+        } catch (SecurityException exception) {
+            // Unsigned applets may not read arbitrary system properties
+            value = null;
+        }
+
+        return value;
+    }
+}
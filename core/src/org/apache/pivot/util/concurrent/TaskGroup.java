@@ -17,7 +17,9 @@
 package org.apache.pivot.util.concurrent;
 
 import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.pivot.collections.Group;
 import org.apache.pivot.collections.HashSet;
@@ -26,12 +28,15 @@ import org.apache.pivot.util.ImmutableIterator;
 
 /**
  * Class that runs a group of tasks in parallel and notifies listeners
- * when all tasks are complete.
+ * when all tasks are complete. If a timeout is set, it is interpreted as the
+ * maximum number of milliseconds the group may run.
+ *
+ * @see TaskBatch
  */
 public class TaskGroup extends Task<Void>
     implements Group<Task<?>>, Iterable<Task<?>> {
     private HashSet<Task<?>> tasks = new HashSet<Task<?>>();
-    private int complete = 0;
+    private CountDownLatch complete = null;
 
     public TaskGroup() {
         this(DEFAULT_EXECUTOR_SERVICE);
@@ -43,36 +48,62 @@ public class TaskGroup extends Task<Void>
 
     @Override
     @SuppressWarnings("unchecked")
-    public synchronized Void execute() throws TaskExecutionException {
+    public Void execute() throws TaskExecutionException {
+        CountDownLatch complete;
+        Task<?>[] tasks;
+
+        synchronized (this) {
+            tasks = new Task<?>[getCount()];
+
+            int i = 0;
+            for (Task<?> task : this.tasks) {
+                tasks[i++] = task;
+            }
+
+            complete = new CountDownLatch(tasks.length);
+            this.complete = complete;
+        }
+
+        final CountDownLatch latch = complete;
         TaskListener<Object> taskListener = new TaskListener<Object>() {
             @Override
             public void taskExecuted(Task<Object> task) {
-                synchronized (TaskGroup.this) {
-                    complete++;
-                    TaskGroup.this.notify();
-                }
+                latch.countDown();
             }
 
             @Override
             public void executeFailed(Task<Object> task) {
-                synchronized (TaskGroup.this) {
-                    complete++;
-                    TaskGroup.this.notify();
-                }
+                latch.countDown();
             }
         };
 
-        complete = 0;
-        for (Task<?> task : tasks) {
-            ((Task<Object>)task).execute(taskListener);
+        for (int i = 0; i < tasks.length; i++) {
+            if (abort) {
+                throw new AbortException();
+            }
+
+            ((Task<Object>)tasks[i]).execute(taskListener);
         }
 
-        while (complete < getCount()) {
-            try {
-                wait();
-            } catch (InterruptedException exception) {
-                throw new TaskExecutionException(exception);
+        boolean completed;
+        try {
+            if (timeout == Long.MAX_VALUE) {
+                complete.await();
+                completed = true;
+            } else {
+                completed = complete.await(timeout, TimeUnit.MILLISECONDS);
             }
+        } catch (InterruptedException exception) {
+            throw new TaskExecutionException(exception);
+        }
+
+        if (abort) {
+            throw new AbortException();
+        }
+
+        if (!completed) {
+            abortTasks();
+            throw new TimeoutException();
         }
 
         return null;
@@ -83,6 +114,19 @@ public class TaskGroup extends Task<Void>
      */
     @Override
     public synchronized void abort() {
+        abortTasks();
+
+        super.abort();
+
+        // Release the executing thread
+        if (complete != null) {
+            while (complete.getCount() > 0) {
+                complete.countDown();
+            }
+        }
+    }
+
+    private synchronized void abortTasks() {
         for (Task<?> task : this) {
             synchronized (task) {
                 if (task.isPending()) {
@@ -90,8 +134,6 @@ public class TaskGroup extends Task<Void>
                 }
             }
         }
-
-        super.abort();
     }
 
     @Override
@@ -68,10 +68,15 @@ public class TaskSequence extends Task<Void>
                 throw new AbortException();
             }
 
+            int count = complete;
             ((Task<Object>)task).execute(taskListener);
 
+            // The task may already have completed, if the executor ran it on
+            // this thread
             try {
-                wait();
+                while (complete == count) {
+                    wait();
+                }
             } catch (InterruptedException exception) {
                 throw new TaskExecutionException(exception);
             }
@@ -692,6 +692,91 @@ public class Element extends Node implements List<Node>, Dictionary<String, Stri
         }
     }
 
+    /**
+     * Adds a sequence of nodes to the end of this element.
+     *
+     * @param nodes
+     */
+    @Override
+    public void addAll(Sequence<Node> nodes) {
+        insertAll(nodes, getLength());
+    }
+
+    /**
+     * Inserts a sequence of nodes at a specific location within this element.
+     *
+     * @param nodes
+     * @param index
+     */
+    @Override
+    public void insertAll(Sequence<Node> nodes, int index) {
+        int count = nodes.getLength();
+
+        for (int i = 0; i < count; i++) {
+            if (nodes.get(i).getParent() != null) {
+                throw new IllegalArgumentException();
+            }
+        }
+
+        if (count > 0) {
+            this.nodes.insertAll(nodes, index);
+
+            for (int i = 0; i < count; i++) {
+                this.nodes.get(index + i).setParent(this);
+            }
+
+            listListeners.itemsInserted(this, index, count);
+        }
+    }
+
+    /**
+     * Removes a sequence of nodes from this element.
+     *
+     * @param nodes
+     *
+     * @return
+     * The number of nodes that were removed.
+     */
+    @Override
+    public int removeAll(Sequence<Node> nodes) {
+        java.util.HashSet<Node> removedNodes = new java.util.HashSet<Node>();
+        for (int i = 0, n = nodes.getLength(); i < n; i++) {
+            removedNodes.add(nodes.get(i));
+        }
+
+        int count = 0;
+
+        int i = getLength() - 1;
+        while (i >= 0) {
+            if (removedNodes.contains(this.nodes.get(i))) {
+                int j = i;
+                while (j > 0
+                    && removedNodes.contains(this.nodes.get(j - 1))) {
+                    j--;
+                }
+
+                remove(j, i - j + 1);
+                count += i - j + 1;
+                i = j;
+            }
+
+            i--;
+        }
+
+        return count;
+    }
+
+    /**
+     * Replaces the nodes in this element.
+     *
+     * @param nodes
+     */
+    @Override
+    public void setAll(Sequence<Node> nodes) {
+        clear();
+        addAll(nodes);
+    }
+
     /**
      * Returns the node at the given index.
      *
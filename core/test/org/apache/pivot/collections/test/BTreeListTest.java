@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.collections.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.apache.pivot.collections.ArrayList;
+import org.apache.pivot.collections.BTreeList;
+import org.apache.pivot.collections.List;
+import org.apache.pivot.collections.Sequence;
+import org.junit.Test;
+
+public class BTreeListTest {
+    private static class IntegerComparator implements Comparator<Integer>, Serializable {
+        private static final long serialVersionUID = 0;
+
+        @Override
+        public int compare(Integer i1, Integer i2) {
+            return i1.compareTo(i2);
+        }
+    }
+
+    private static void verify(java.util.List<Integer> expected, List<Integer> list) {
+        assertEquals(expected.size(), list.getLength());
+
+        for (int i = 0, n = expected.size(); i < n; i++) {
+            assertEquals(expected.get(i), list.get(i));
+        }
+
+        int i = 0;
+        for (Integer item : list) {
+            assertEquals(expected.get(i++), item);
+        }
+    }
+
+    @Test
+    public void basicTest() {
+        BTreeList<String> list = new BTreeList<String>("a", "b", "c");
+        assertEquals(3, list.getLength());
+
+        list.insert("x", 1);
+        assertEquals(new ArrayList<String>("a", "x", "b", "c"), list);
+        assertEquals("x", list.update(1, "y"));
+        assertEquals(1, list.indexOf("y"));
+        assertEquals(1, list.remove("y"));
+        assertEquals(-1, list.indexOf("y"));
+
+        Sequence<String> removed = list.remove(0, 2);
+        assertEquals(new ArrayList<String>("a", "b"), removed);
+        assertEquals(new ArrayList<String>("c"), list);
+
+        list.clear();
+        assertTrue(list.isEmpty());
+
+        try {
+            list.get(0);
+            fail();
+        } catch (IndexOutOfBoundsException exception) {
+            // No-op
+        }
+    }
+
+    @Test
+    public void randomTest() {
+        Random random = new Random(42);
+
+        java.util.ArrayList<Integer> expected = new java.util.ArrayList<Integer>();
+        BTreeList<Integer> list = new BTreeList<Integer>();
+
+        // Grow, then shrink, so that nodes are split, merged and rebalanced
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < 40000; i++) {
+                int n = expected.size();
+                boolean grow = (pass == 0) ? random.nextInt(8) > 0 : random.nextInt(8) == 0;
+
+                if (grow || n == 0) {
+                    int index = random.nextInt(n + 1);
+                    expected.add(index, i);
+                    list.insert(i, index);
+                } else {
+                    int index = random.nextInt(n);
+                    int count = Math.min(random.nextInt(4) + 1, n - index);
+
+                    Sequence<Integer> removed = list.remove(index, count);
+                    for (int j = 0; j < count; j++) {
+                        assertEquals(expected.remove(index), removed.get(j));
+                    }
+                }
+            }
+
+            verify(expected, list);
+        }
+
+        for (int i = 0; i < 20000; i++) {
+            int index = random.nextInt(expected.size() + 1);
+            expected.add(index, i);
+            list.insert(i, index);
+        }
+
+        // Remove a large range
+        int n = expected.size();
+        list.remove(n / 4, n / 2);
+        expected.subList(n / 4, n / 4 + n / 2).clear();
+        verify(expected, list);
+    }
+
+    @Test
+    public void sortedTest() throws Exception {
+        Random random = new Random(7);
+
+        java.util.ArrayList<Integer> expected = new java.util.ArrayList<Integer>();
+        BTreeList<Integer> list = new BTreeList<Integer>(new IntegerComparator());
+
+        for (int i = 0; i < 10000; i++) {
+            int item = random.nextInt(1000);
+            int index = list.add(item);
+
+            int expectedIndex = java.util.Collections.binarySearch(expected, item);
+            if (expectedIndex < 0) {
+                expectedIndex = -(expectedIndex + 1);
+            }
+
+            while (expectedIndex < expected.size()
+                && expected.get(expectedIndex) == item) {
+                expectedIndex++;
+            }
+
+            assertEquals(expectedIndex, index);
+            expected.add(index, item);
+        }
+
+        verify(expected, list);
+
+        try {
+            list.insert(-1, 1);
+            fail("Items must be inserted in order.");
+        } catch (IllegalArgumentException exception) {
+            // No-op
+        }
+
+        list.insert(-1, 0);
+        expected.add(0, -1);
+
+        // Serialize and deserialize the list
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
+        objectOutputStream.writeObject(list);
+        objectOutputStream.close();
+
+        ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()));
+        @SuppressWarnings("unchecked")
+        BTreeList<Integer> copy = (BTreeList<Integer>)objectInputStream.readObject();
+        verify(expected, copy);
+        assertEquals(list, copy);
+    }
+
+    @Test
+    public void iteratorTest() {
+        BTreeList<Integer> list = new BTreeList<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            list.add(i);
+        }
+
+        List.ItemIterator<Integer> iterator = list.iterator();
+        int i = 0;
+        while (iterator.hasNext()) {
+            int item = iterator.next();
+            assertEquals(i, item);
+
+            if (item % 2 == 1) {
+                iterator.remove();
+            }
+
+            i++;
+        }
+
+        assertEquals(500, list.getLength());
+
+        iterator.toEnd();
+        i = 998;
+        while (iterator.hasPrevious()) {
+            assertEquals(i, (int)iterator.previous());
+            i -= 2;
+        }
+    }
+
+    @Test
+    public void speedTest() {
+        final int length = 200000;
+        final int count = 20000;
+
+        Integer[] items = new Integer[length];
+        for (int i = 0; i < length; i++) {
+            items[i] = i;
+        }
+
+        ArrayList<Integer> arrayList = new ArrayList<Integer>(items);
+        BTreeList<Integer> btreeList = new BTreeList<Integer>(items);
+
+        Random random = new Random(0);
+        long t0 = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            arrayList.insert(i, random.nextInt(length));
+            arrayList.remove(random.nextInt(length), 1);
+        }
+        long t1 = System.currentTimeMillis();
+
+        random = new Random(0);
+        long t2 = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            btreeList.insert(i, random.nextInt(length));
+            btreeList.remove(random.nextInt(length), 1);
+        }
+        long t3 = System.currentTimeMillis();
+
+        assertEquals(arrayList, btreeList);
+
+        System.out.println(count + " mid-list inserts and removes on " + length + " items: ArrayList "
+            + (t1 - t0) + "ms; BTreeList " + (t3 - t2) + "ms");
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.collections.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Comparator;
+
+import org.apache.pivot.collections.ArrayList;
+import org.apache.pivot.collections.BTreeList;
+import org.apache.pivot.collections.FilteredList;
+import org.apache.pivot.collections.LinkedList;
+import org.apache.pivot.collections.List;
+import org.apache.pivot.collections.ListListener;
+import org.apache.pivot.collections.Sequence;
+import org.apache.pivot.collections.adapter.ListAdapter;
+import org.apache.pivot.collections.concurrent.ReadWriteList;
+import org.apache.pivot.collections.concurrent.SynchronizedList;
+import org.apache.pivot.util.Filter;
+import org.junit.Test;
+
+public class BulkListTest {
+    /**
+     * Applies the events fired by a list to a copy of its contents, so the
+     * events can be verified against the final state of the list.
+     */
+    private static class ReplayListener implements ListListener<Integer> {
+        private java.util.ArrayList<Integer> items = new java.util.ArrayList<Integer>();
+        private int eventCount = 0;
+
+        public ReplayListener(List<Integer> list) {
+            for (Integer item : list) {
+                items.add(item);
+            }
+
+            list.getListListeners().add(this);
+        }
+
+        @Override
+        public void itemInserted(List<Integer> list, int index) {
+            items.add(index, list.get(index));
+            eventCount++;
+        }
+
+        @Override
+        public void itemsInserted(List<Integer> list, int index, int count) {
+            for (int i = 0; i < count; i++) {
+                items.add(index + i, list.get(index + i));
+            }
+
+            eventCount++;
+        }
+
+        @Override
+        public void itemsRemoved(List<Integer> list, int index, Sequence<Integer> removed) {
+            for (int i = 0, n = removed.getLength(); i < n; i++) {
+                assertEquals(removed.get(i), items.remove(index));
+            }
+
+            eventCount++;
+        }
+
+        @Override
+        public void itemUpdated(List<Integer> list, int index, Integer previousItem) {
+            items.set(index, list.get(index));
+            eventCount++;
+        }
+
+        @Override
+        public void listCleared(List<Integer> list) {
+            items.clear();
+            eventCount++;
+        }
+
+        @Override
+        public void comparatorChanged(List<Integer> list, Comparator<Integer> previousComparator) {
+            // No-op
+        }
+
+        public void verify(List<Integer> list) {
+            assertEquals(items.size(), list.getLength());
+
+            int i = 0;
+            for (Integer item : list) {
+                assertEquals(items.get(i++), item);
+            }
+        }
+    }
+
+    private static final Comparator<Integer> COMPARATOR = new Comparator<Integer>() {
+        @Override
+        public int compare(Integer i1, Integer i2) {
+            return i1.compareTo(i2);
+        }
+    };
+
+    private static ArrayList<Integer> range(int start, int end) {
+        ArrayList<Integer> items = new ArrayList<Integer>();
+        for (int i = start; i < end; i++) {
+            items.add(i);
+        }
+
+        return items;
+    }
+
+    private static void testList(List<Integer> list) {
+        ReplayListener listener = new ReplayListener(list);
+
+        list.addAll(range(0, 10));
+        assertEquals(1, listener.eventCount);
+        listener.verify(list);
+
+        list.insertAll(range(100, 105), 3);
+        assertEquals(2, listener.eventCount);
+        assertEquals(15, list.getLength());
+        assertEquals(100, (int)list.get(3));
+        listener.verify(list);
+
+        // Removes two ranges and one item that is not in the list
+        assertEquals(4, list.removeAll(new ArrayList<Integer>(101, 102, 8, 9, 1000)));
+        assertEquals(4, listener.eventCount);
+        listener.verify(list);
+
+        list.setAll(range(20, 25));
+        assertEquals(6, listener.eventCount);
+        assertEquals(5, list.getLength());
+        listener.verify(list);
+
+        list.addAll(new ArrayList<Integer>());
+        assertEquals(6, listener.eventCount);
+
+        // Sorted lists merge the new items, firing one event per range
+        list.setComparator(COMPARATOR);
+        list.addAll(new ArrayList<Integer>(30, 1, 22, 2, 31));
+        assertEquals(9, listener.eventCount);
+        assertEquals(new ArrayList<Integer>(1, 2, 20, 21, 22, 22, 23, 24, 30, 31), toArrayList(list));
+        listener.verify(list);
+
+        try {
+            list.insertAll(range(0, 1), 0);
+            fail("Sorted lists should not support insertAll().");
+        } catch (IllegalStateException exception) {
+            // No-op
+        }
+
+        list.setAll(new ArrayList<Integer>(5, 3, 4));
+        assertEquals(new ArrayList<Integer>(3, 4, 5), toArrayList(list));
+        listener.verify(list);
+    }
+
+    private static ArrayList<Integer> toArrayList(List<Integer> list) {
+        ArrayList<Integer> items = new ArrayList<Integer>();
+        for (Integer item : list) {
+            items.add(item);
+        }
+
+        return items;
+    }
+
+    @Test
+    public void testArrayList() {
+        testList(new ArrayList<Integer>());
+    }
+
+    @Test
+    public void testLinkedList() {
+        testList(new LinkedList<Integer>());
+    }
+
+    @Test
+    public void testBTreeList() {
+        testList(new BTreeList<Integer>());
+    }
+
+    @Test
+    public void testListAdapter() {
+        ListAdapter<Integer> list = new ListAdapter<Integer>(new java.util.LinkedList<Integer>());
+        ReplayListener listener = new ReplayListener(list);
+
+        list.addAll(range(0, 10));
+        list.insertAll(range(100, 105), 3);
+        assertEquals(4, list.removeAll(new ArrayList<Integer>(101, 102, 8, 9)));
+        assertEquals(4, listener.eventCount);
+        listener.verify(list);
+
+        list.setAll(range(20, 25));
+        listener.verify(list);
+    }
+
+    @Test
+    public void testSynchronizedList() {
+        testList(new SynchronizedList<Integer>(new ArrayList<Integer>()));
+    }
+
+    @Test
+    public void testReadWriteList() {
+        testList(new ReadWriteList<Integer>(new ArrayList<Integer>()));
+    }
+
+    @Test
+    public void testFilteredList() {
+        ArrayList<Integer> source = new ArrayList<Integer>();
+        FilteredList<Integer> filteredList = new FilteredList<Integer>(source, new Filter<Integer>() {
+            @Override
+            public boolean include(Integer item) {
+                return (item % 2 == 0);
+            }
+        });
+
+        ReplayListener listener = new ReplayListener(filteredList);
+
+        // Bulk changes to the source are reflected in the view
+        source.addAll(range(0, 10));
+        assertEquals(1, listener.eventCount);
+        assertEquals(5, filteredList.getLength());
+        listener.verify(filteredList);
+
+        filteredList.addAll(range(10, 14));
+        assertEquals(14, source.getLength());
+        assertEquals(7, filteredList.getLength());
+        listener.verify(filteredList);
+
+        filteredList.removeAll(new ArrayList<Integer>(2, 3, 4));
+        assertEquals(11, source.getLength());
+        assertEquals(5, filteredList.getLength());
+        listener.verify(filteredList);
+
+        filteredList.setAll(range(20, 23));
+        assertEquals(new ArrayList<Integer>(1, 5, 7, 9, 11, 13, 20, 21, 22), source);
+        assertEquals(2, filteredList.getLength());
+        listener.verify(filteredList);
+    }
+
+    @Test
+    public void testSpeed() {
+        final int count = 50000;
+
+        ArrayList<Integer> items = range(0, count);
+
+        ArrayList<Integer> list = new ArrayList<Integer>();
+        ReplayListener listener = new ReplayListener(list);
+
+        long t0 = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            list.add(items.get(i));
+        }
+        long t1 = System.currentTimeMillis();
+
+        int eventCount = listener.eventCount;
+
+        list.clear();
+        list.getListListeners().remove(listener);
+        listener = new ReplayListener(list);
+
+        long t2 = System.currentTimeMillis();
+        list.addAll(items);
+        long t3 = System.currentTimeMillis();
+
+        System.out.println("Added " + count + " items: individually " + (t1 - t0) + "ms ("
+            + eventCount + " events); addAll() " + (t3 - t2) + "ms ("
+            + listener.eventCount + " event)");
+    }
+}
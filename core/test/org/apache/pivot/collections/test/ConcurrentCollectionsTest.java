@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.collections.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.pivot.collections.ArrayList;
+import org.apache.pivot.collections.HashMap;
+import org.apache.pivot.collections.List;
+import org.apache.pivot.collections.Map;
+import org.apache.pivot.collections.MapListener;
+import org.apache.pivot.collections.concurrent.ConcurrentHashMap;
+import org.apache.pivot.collections.concurrent.ConcurrentHashSet;
+import org.apache.pivot.collections.concurrent.ConcurrentQueue;
+import org.apache.pivot.collections.concurrent.ReadWriteList;
+import org.apache.pivot.collections.concurrent.SynchronizedList;
+import org.apache.pivot.collections.concurrent.SynchronizedMap;
+import org.junit.Test;
+
+public class ConcurrentCollectionsTest {
+    private static final int THREAD_COUNT = 4;
+
+    @Test
+    public void concurrentHashMapTest() {
+        ConcurrentHashMap<String, Integer> map = new ConcurrentHashMap<String, Integer>();
+
+        final AtomicInteger eventCount = new AtomicInteger();
+        map.getMapListeners().add(new MapListener.Adapter<String, Integer>() {
+            @Override
+            public void valueAdded(Map<String, Integer> map, String key) {
+                eventCount.incrementAndGet();
+            }
+
+            @Override
+            public void valueUpdated(Map<String, Integer> map, String key, Integer previousValue) {
+                eventCount.incrementAndGet();
+            }
+
+            @Override
+            public void valueRemoved(Map<String, Integer> map, String key, Integer value) {
+                eventCount.incrementAndGet();
+            }
+        });
+
+        assertNull(map.put("a", 1));
+        assertEquals(1, (int)map.put("a", 2));
+        assertNull(map.put("b", null));
+        assertTrue(map.containsKey("b"));
+        assertNull(map.get("b"));
+        assertEquals(2, (int)map.putIfAbsent("a", 3));
+        assertNull(map.putIfAbsent("b", 3));
+        assertFalse(map.addIfAbsent("b", 3));
+        assertTrue(map.addIfAbsent("c", null));
+        assertTrue(map.containsKey("c"));
+        assertEquals(3, map.getCount());
+        assertEquals(2, (int)map.remove("a"));
+        assertNull(map.remove("a"));
+        assertEquals(5, eventCount.get());
+
+        try {
+            map.setComparator(String.CASE_INSENSITIVE_ORDER);
+            fail("Concurrent maps cannot be sorted.");
+        } catch (UnsupportedOperationException exception) {
+            // No-op
+        }
+    }
+
+    @Test
+    public void concurrentHashSetTest() {
+        ConcurrentHashSet<String> set = new ConcurrentHashSet<String>("a", "b");
+        assertEquals(2, set.getCount());
+        assertFalse(set.add("a"));
+        assertTrue(set.contains("b"));
+        assertTrue(set.remove("b"));
+        assertFalse(set.remove("b"));
+
+        set.clear();
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void concurrentQueueTest() throws InterruptedException {
+        final ConcurrentQueue<Integer> queue = new ConcurrentQueue<Integer>();
+        final int count = 20000;
+
+        final AtomicLong sum = new AtomicLong();
+        final AtomicInteger dequeued = new AtomicInteger();
+
+        Thread[] threads = new Thread[THREAD_COUNT * 2];
+
+        // Producers
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 1; j <= count; j++) {
+                        queue.enqueue(j);
+                    }
+                }
+            };
+        }
+
+        // Consumers
+        for (int i = THREAD_COUNT; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    while (dequeued.get() < THREAD_COUNT * count) {
+                        Integer item = queue.poll();
+
+                        if (item == null) {
+                            Thread.yield();
+                        } else {
+                            sum.addAndGet(item);
+                            dequeued.incrementAndGet();
+                        }
+                    }
+                }
+            };
+        }
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].start();
+        }
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+
+        assertEquals((long)THREAD_COUNT * count * (count + 1) / 2, sum.get());
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.getLength());
+
+        queue.enqueue(null);
+        assertEquals(1, queue.getLength());
+        assertNull(queue.dequeue());
+
+        try {
+            queue.dequeue();
+            fail("Dequeuing from an empty queue should fail.");
+        } catch (IllegalStateException exception) {
+            // No-op
+        }
+    }
+
+    @Test
+    public void readWriteListTest() throws InterruptedException {
+        final ReadWriteList<Integer> list = new ReadWriteList<Integer>(new ArrayList<Integer>());
+        list.add(0);
+
+        // Readers iterate snapshots while a writer appends
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 1; i < 10000; i++) {
+                    list.add(i);
+                }
+            }
+        };
+
+        writer.start();
+
+        while (writer.isAlive()) {
+            int i = 0;
+            for (Integer item : list) {
+                assertEquals(i++, (int)item);
+            }
+        }
+
+        writer.join();
+        assertEquals(10000, list.getLength());
+        assertEquals(9999, (int)list.get(9999));
+    }
+
+    private static long runContention(final Map<Integer, Integer> map,
+        final List<Integer> list, final int iterations) throws InterruptedException {
+        Thread[] threads = new Thread[THREAD_COUNT];
+
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            final int offset = i;
+
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    // Mostly reads, with occasional writes
+                    for (int j = 0; j < iterations; j++) {
+                        int key = (j * 31 + offset) & 1023;
+
+                        if (j % 10 == 0) {
+                            map.put(key, j);
+                            list.update(key, j);
+                        } else {
+                            map.get(key);
+                            list.get(key);
+                            list.getLength();
+                        }
+                    }
+                }
+            };
+        }
+
+        long t0 = System.currentTimeMillis();
+
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            threads[i].start();
+        }
+
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            threads[i].join();
+        }
+
+        return System.currentTimeMillis() - t0;
+    }
+
+    @Test
+    public void contentionSpeedTest() throws InterruptedException {
+        final int iterations = 200000;
+
+        ArrayList<Integer> items = new ArrayList<Integer>();
+        for (int i = 0; i < 1024; i++) {
+            items.add(i);
+        }
+
+        long synchronizedTime = runContention(new SynchronizedMap<Integer, Integer>(new HashMap<Integer, Integer>()),
+            new SynchronizedList<Integer>(new ArrayList<Integer>(items)), iterations);
+
+        long concurrentTime = runContention(new ConcurrentHashMap<Integer, Integer>(),
+            new ReadWriteList<Integer>(new ArrayList<Integer>(items)), iterations);
+
+        System.out.println(THREAD_COUNT + " threads x " + iterations + " operations: synchronized "
+            + synchronizedTime + "ms; concurrent " + concurrentTime + "ms");
+    }
+}
@@ -20,9 +20,13 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Comparator;
+import java.util.Random;
 
 import org.apache.pivot.collections.ArrayList;
 import org.apache.pivot.collections.FilteredList;
+import org.apache.pivot.collections.List;
+import org.apache.pivot.collections.ListListener;
+import org.apache.pivot.collections.Sequence;
 import org.apache.pivot.util.Filter;
 import org.junit.Test;
 
@@ -85,9 +89,11 @@ public class FilteredListTest {
         sourceList.update(0, "Window");
         assertEquals(filteredList.getLength(), 3);
 
-        // Update items in the filtered list
-        filteredList.update(0, "Pickle");
-        assertEquals(filteredList.get(0), "Pickle");
+        // Update items in the filtered list; the unsorted view follows the
+        // source order
+        assertEquals(filteredList.get(0), "Window");
+        filteredList.update(1, "Pickle");
+        assertEquals(filteredList.get(1), "Pickle");
 
         try {
             filteredList.update(0, "Delivery");
@@ -121,4 +127,245 @@ public class FilteredListTest {
             assertEquals(Character.toLowerCase(string.charAt(0)), 'd');
         }
     }
+
+    private static class ModuloFilter implements Filter<Integer> {
+        private int modulus;
+
+        public ModuloFilter(int modulus) {
+            this.modulus = modulus;
+        }
+
+        @Override
+        public boolean include(Integer item) {
+            return (item % modulus == 0);
+        }
+    }
+
+    private static class EventCounter extends ListListener.Adapter<Integer> {
+        public int count = 0;
+
+        @Override
+        public void itemInserted(List<Integer> list, int index) {
+            count++;
+        }
+
+        @Override
+        public void itemsInserted(List<Integer> list, int index, int count) {
+            this.count++;
+        }
+
+        @Override
+        public void itemsRemoved(List<Integer> list, int index, Sequence<Integer> items) {
+            count++;
+        }
+
+        @Override
+        public void itemUpdated(List<Integer> list, int index, Integer previousItem) {
+            count++;
+        }
+
+        @Override
+        public void listCleared(List<Integer> list) {
+            count++;
+        }
+    }
+
+    private static void verify(ArrayList<Integer> sourceList, FilteredList<Integer> filteredList) {
+        Filter<Integer> filter = filteredList.getFilter();
+
+        int j = 0;
+        for (int i = 0, n = sourceList.getLength(); i < n; i++) {
+            Integer item = sourceList.get(i);
+
+            if (filter == null
+                || filter.include(item)) {
+                assertEquals(item, filteredList.get(j++));
+            }
+        }
+
+        assertEquals(j, filteredList.getLength());
+    }
+
+    @Test
+    public void incrementalTest() {
+        ArrayList<Integer> sourceList = new ArrayList<Integer>();
+        FilteredList<Integer> filteredList = new FilteredList<Integer>(sourceList,
+            new ModuloFilter(3));
+
+        EventCounter eventCounter = new EventCounter();
+        filteredList.getListListeners().add(eventCounter);
+
+        Random random = new Random(17);
+
+        for (int i = 0; i < 5000; i++) {
+            int length = sourceList.getLength();
+
+            switch (random.nextInt(6)) {
+                case 0: {
+                    sourceList.insert(random.nextInt(1000), random.nextInt(length + 1));
+                    break;
+                }
+
+                case 1: {
+                    ArrayList<Integer> items = new ArrayList<Integer>();
+                    for (int k = random.nextInt(20); k > 0; k--) {
+                        items.add(random.nextInt(1000));
+                    }
+
+                    sourceList.insertAll(items, random.nextInt(length + 1));
+                    break;
+                }
+
+                case 2: {
+                    if (length > 0) {
+                        int index = random.nextInt(length);
+                        sourceList.remove(index, random.nextInt(Math.min(length - index, 10)) + 1);
+                    }
+
+                    break;
+                }
+
+                case 3: {
+                    if (length > 0) {
+                        sourceList.update(random.nextInt(length), random.nextInt(1000));
+                    }
+
+                    break;
+                }
+
+                case 4: {
+                    filteredList.insert(random.nextInt(1000) * 3,
+                        random.nextInt(filteredList.getLength() + 1));
+                    break;
+                }
+
+                case 5: {
+                    int filteredLength = filteredList.getLength();
+                    if (filteredLength > 0) {
+                        int index = random.nextInt(filteredLength);
+                        filteredList.remove(index,
+                            random.nextInt(Math.min(filteredLength - index, 5)) + 1);
+                    }
+
+                    break;
+                }
+            }
+        }
+
+        verify(sourceList, filteredList);
+
+        // Each source change fires at most one event
+        assertTrue(eventCounter.count <= 5000);
+
+        // A large removal from the source fires a single event
+        eventCounter.count = 0;
+        sourceList.remove(0, sourceList.getLength() / 2);
+        assertEquals(1, eventCounter.count);
+        verify(sourceList, filteredList);
+
+        // Sort the view, then restore the source order
+        filteredList.setComparator(new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                return i1.compareTo(i2);
+            }
+        });
+
+        sourceList.add(999);
+        sourceList.insert(0, 0);
+        sourceList.update(1, 6);
+        sourceList.remove(2, 1);
+
+        for (int i = 1, n = filteredList.getLength(); i < n; i++) {
+            assertTrue(filteredList.get(i - 1) <= filteredList.get(i));
+        }
+
+        filteredList.setComparator(null);
+        verify(sourceList, filteredList);
+    }
+
+    @Test
+    public void narrowingTest() {
+        ArrayList<Integer> sourceList = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            sourceList.add(i);
+        }
+
+        FilteredList<Integer> filteredList = new FilteredList<Integer>(sourceList,
+            new ModuloFilter(2));
+
+        EventCounter eventCounter = new EventCounter();
+        filteredList.getListListeners().add(eventCounter);
+
+        filteredList.setFilter(new ModuloFilter(4), true);
+        assertEquals(250, filteredList.getLength());
+        assertEquals(2, eventCounter.count);
+        verify(sourceList, filteredList);
+
+        // The source indexes carried over by the narrowed view must be correct
+        sourceList.remove(1, 10);
+        sourceList.insert(-4, 0);
+        verify(sourceList, filteredList);
+
+        filteredList.setFilter(new ModuloFilter(2));
+        verify(sourceList, filteredList);
+    }
+
+    @Test
+    public void filterTaskTest() throws Exception {
+        ArrayList<Integer> sourceList = new ArrayList<Integer>();
+        for (int i = 0; i < 100000; i++) {
+            sourceList.add(i);
+        }
+
+        FilteredList<Integer> filteredList = new FilteredList<Integer>(sourceList);
+        filteredList.setParallel(true);
+
+        FilteredList<Integer>.FilterTask filterTask =
+            filteredList.getFilterTask(new ModuloFilter(5), false);
+        filterTask.execute();
+        filterTask.apply();
+        assertEquals(20000, filteredList.getLength());
+        verify(sourceList, filteredList);
+
+        // A task that was started before the source changed is re-evaluated
+        filterTask = filteredList.getFilterTask(new ModuloFilter(10), true);
+        filterTask.execute();
+        sourceList.insert(0, 0);
+        filterTask.apply();
+        assertEquals(10001, filteredList.getLength());
+        verify(sourceList, filteredList);
+    }
+
+    @Test
+    public void speedTest() {
+        final int n = 300000;
+
+        ArrayList<Integer> sourceList = new ArrayList<Integer>(n);
+        for (int i = 0; i < n; i++) {
+            sourceList.add(i);
+        }
+
+        FilteredList<Integer> filteredList = new FilteredList<Integer>(sourceList,
+            new ModuloFilter(2));
+
+        long t0 = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            sourceList.insert(i * 2, i * 200);
+            sourceList.remove(i * 200 + 1, 1);
+        }
+        long t1 = System.currentTimeMillis();
+
+        System.out.println("1000 source inserts and removes on " + n + " items: " + (t1 - t0) + "ms");
+
+        t0 = System.currentTimeMillis();
+        filteredList.setFilter(new ModuloFilter(4), true);
+        filteredList.setFilter(new ModuloFilter(8), true);
+        filteredList.setFilter(new ModuloFilter(2));
+        t1 = System.currentTimeMillis();
+
+        System.out.println("Refilter " + n + " items: " + (t1 - t0) + "ms");
+
+        verify(sourceList, filteredList);
+    }
 }
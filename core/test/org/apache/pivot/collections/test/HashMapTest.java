@@ -161,6 +161,61 @@ public class HashMapTest {
         }
     }
 
+    private static class CollidingKey {
+        private int value;
+
+        public CollidingKey(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof CollidingKey
+                && ((CollidingKey)o).value == value);
+        }
+
+        @Override
+        public int hashCode() {
+            return value % 3;
+        }
+    }
+
+    @Test
+    public void collisionTest() {
+        HashMap<CollidingKey, Integer> map = new HashMap<CollidingKey, Integer>(4);
+
+        for (int i = 0; i < 100; i++) {
+            assertNull(map.put(new CollidingKey(i), i));
+        }
+
+        assertEquals(100, map.getCount());
+
+        // Remove every other key; the remaining keys must still be reachable
+        for (int i = 0; i < 100; i += 2) {
+            assertEquals(i, (int) map.remove(new CollidingKey(i)));
+        }
+
+        assertEquals(50, map.getCount());
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 2 == 1, map.containsKey(new CollidingKey(i)));
+        }
+
+        // Remove the rest through the iterator; no key may be skipped or
+        // visited twice
+        int count = 0;
+        Iterator<CollidingKey> iterator = map.iterator();
+        while (iterator.hasNext()) {
+            CollidingKey key = iterator.next();
+            assertEquals(1, key.value % 2);
+            iterator.remove();
+            count++;
+        }
+
+        assertEquals(50, count);
+        assertTrue(map.isEmpty());
+    }
+
     private static int LOAD_COUNT = 50000;
 
     @Test
@@ -185,6 +240,36 @@ public class HashMapTest {
         System.out.println("java.util.HashMap " + (t1 - t0) + "ms");
     }
 
+    @Test
+    public void pivotHashMapLookupSpeedTest() {
+        HashMap<Integer, Integer> map = new HashMap<Integer, Integer>();
+        for (int i = 0; i < LOAD_COUNT; i++) {
+            map.put(Integer.valueOf(i), Integer.valueOf(i));
+        }
+
+        long t0 = System.currentTimeMillis();
+        for (int i = 0; i < LOAD_COUNT; i++) {
+            assertEquals(i, (int) map.get(Integer.valueOf(i)));
+        }
+        long t1 = System.currentTimeMillis();
+        System.out.println("org.apache.pivot.HashMap lookup " + (t1 - t0) + "ms");
+    }
+
+    @Test
+    public void javaHashMapLookupSpeedTest() {
+        java.util.HashMap<Integer, Integer> map = new java.util.HashMap<Integer, Integer>();
+        for (int i = 0; i < LOAD_COUNT; i++) {
+            map.put(Integer.valueOf(i), Integer.valueOf(i));
+        }
+
+        long t0 = System.currentTimeMillis();
+        for (int i = 0; i < LOAD_COUNT; i++) {
+            assertEquals(i, (int) map.get(Integer.valueOf(i)));
+        }
+        long t1 = System.currentTimeMillis();
+        System.out.println("java.util.HashMap lookup " + (t1 - t0) + "ms");
+    }
+
     @Test
     public void iteratorTest() {
         HashMap<String, Object> map = new HashMap<String, Object>();
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.collections.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.pivot.collections.ArrayList;
+import org.apache.pivot.collections.DoubleArrayList;
+import org.apache.pivot.collections.IntArrayList;
+import org.apache.pivot.collections.LongArrayList;
+import org.junit.Test;
+
+public class IntArrayListTest {
+    @Test
+    public void basicTest() {
+        IntArrayList list = new IntArrayList(2);
+        assertTrue(list.isEmpty());
+
+        assertEquals(0, list.add(3));
+        assertEquals(1, list.add(5));
+        assertEquals(2, list.add(9));
+        assertTrue(list.getCapacity() >= 3);
+
+        list.insert(1, 0);
+        assertEquals(new IntArrayList(1, 3, 5, 9), list);
+        assertEquals(5, list.update(2, 7));
+        assertEquals(7, list.get(2));
+        assertEquals(2, list.indexOf(7));
+        assertEquals(-1, list.indexOf(5));
+
+        list.remove(1, 2);
+        assertEquals(new IntArrayList(1, 9), list);
+        assertEquals(new IntArrayList(1, 9).hashCode(), list.hashCode());
+
+        try {
+            list.get(2);
+            assertTrue(false);
+        } catch (IndexOutOfBoundsException exception) {
+            // No-op
+        }
+
+        list.clear();
+        assertTrue(list.isEmpty());
+        assertEquals(0, list.toArray().length);
+    }
+
+    @Test
+    public void prefixSumTest() {
+        IntArrayList list = new IntArrayList(10, 20, 30, 40);
+        assertEquals(50, list.sum(1, 2));
+
+        list.accumulate();
+        assertEquals(new IntArrayList(10, 30, 60, 100), list);
+
+        assertEquals(2, IntArrayList.binarySearch(list, 60));
+        assertEquals(-3, IntArrayList.binarySearch(list, 31));
+        assertEquals(-5, IntArrayList.binarySearch(list, 101));
+
+        list.increment(2, 2, -5);
+        assertEquals(new IntArrayList(10, 30, 55, 95), list);
+
+        LongArrayList longList = new LongArrayList(1L << 40, 1L);
+        longList.accumulate();
+        assertEquals((1L << 40) + 1, longList.get(1));
+
+        DoubleArrayList doubleList = new DoubleArrayList(0.5, 0.25);
+        doubleList.accumulate();
+        assertEquals(0.75, doubleList.get(1), 0);
+        assertFalse(doubleList.equals(new DoubleArrayList(0.5)));
+    }
+
+    @Test
+    public void speedTest() {
+        final int count = 100000;
+
+        ArrayList<Integer> boxedList = new ArrayList<Integer>();
+        IntArrayList intList = new IntArrayList();
+
+        for (int i = 0; i < count; i++) {
+            boxedList.add(i * 20);
+            intList.add(i * 20);
+        }
+
+        long t0 = System.currentTimeMillis();
+        int boxedSum = 0;
+        for (int i = 0; i < count; i++) {
+            boxedSum += ArrayList.binarySearch(boxedList, i * 20 + 10);
+        }
+        long t1 = System.currentTimeMillis();
+
+        long t2 = System.currentTimeMillis();
+        int intSum = 0;
+        for (int i = 0; i < count; i++) {
+            intSum += IntArrayList.binarySearch(intList, i * 20 + 10);
+        }
+        long t3 = System.currentTimeMillis();
+
+        assertEquals(boxedSum, intSum);
+
+        System.out.println("Searched " + count + " boundaries: ArrayList<Integer> "
+            + (t1 - t0) + "ms; IntArrayList " + (t3 - t2) + "ms");
+    }
+}
@@ -16,9 +16,18 @@
  */
 package org.apache.pivot.collections.test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Random;
 
 import org.apache.pivot.collections.ArrayQueue;
 import org.apache.pivot.collections.LinkedQueue;
@@ -27,6 +36,15 @@ import org.junit.Test;
 
 
 public class QueueTest {
+    private static class IntegerComparator implements Comparator<Integer>, Serializable {
+        private static final long serialVersionUID = 0;
+
+        @Override
+        public int compare(Integer i1, Integer i2) {
+            return i1.compareTo(i2);
+        }
+    }
+
     @Test
     public void queueTest() {
         testQueue(new ArrayQueue<String>(5));
@@ -79,4 +97,108 @@ public class QueueTest {
             i--;
         }
     }
+
+    @Test
+    public void arrayQueueTest() throws IOException, ClassNotFoundException {
+        // Interleave enqueues and dequeues so the buffer wraps around
+        ArrayQueue<Integer> queue = new ArrayQueue<Integer>(4);
+        int next = 0;
+        int expected = 0;
+        for (int i = 0; i < 1000; i++) {
+            queue.enqueue(next++);
+            queue.enqueue(next++);
+            assertEquals(expected++, (int)queue.dequeue());
+        }
+
+        assertEquals(1000, queue.getLength());
+        assertEquals(expected, (int)queue.peek());
+
+        Iterator<Integer> iterator = queue.iterator();
+        assertEquals(next - 1, (int)iterator.next());
+
+        int count = 1;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+
+        assertEquals(1000, count);
+
+        // Switching to a comparator dequeues the largest item first
+        queue.setComparator(new IntegerComparator());
+        assertEquals(next - 1, (int)queue.peek());
+
+        Random random = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            queue.enqueue(random.nextInt(next));
+        }
+
+        iterator = queue.iterator();
+        int previous = Integer.MIN_VALUE;
+        while (iterator.hasNext()) {
+            int item = iterator.next();
+            assertTrue(item >= previous);
+            previous = item;
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
+        objectOutputStream.writeObject(queue);
+        objectOutputStream.close();
+
+        ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
+        @SuppressWarnings("unchecked")
+        ArrayQueue<Integer> copy = (ArrayQueue<Integer>)objectInputStream.readObject();
+        assertEquals(queue.getLength(), copy.getLength());
+
+        previous = Integer.MAX_VALUE;
+        while (!queue.isEmpty()) {
+            int item = queue.dequeue();
+            assertTrue(item <= previous);
+            assertEquals(item, (int)copy.dequeue());
+            previous = item;
+        }
+
+        // Removing the comparator keeps the remaining items in dequeue order
+        queue.enqueue(1);
+        queue.enqueue(3);
+        queue.enqueue(2);
+        queue.setComparator(null);
+        queue.enqueue(0);
+        assertEquals(3, (int)queue.dequeue());
+        assertEquals(2, (int)queue.dequeue());
+        assertEquals(1, (int)queue.dequeue());
+        assertEquals(0, (int)queue.dequeue());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void arrayQueueSpeedTest() {
+        final int count = 100000;
+
+        ArrayQueue<Integer> queue = new ArrayQueue<Integer>();
+        long t0 = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            queue.enqueue(i);
+        }
+
+        while (!queue.isEmpty()) {
+            queue.dequeue();
+        }
+        long t1 = System.currentTimeMillis();
+
+        queue.setComparator(new IntegerComparator());
+        long t2 = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            queue.enqueue(count - i);
+        }
+
+        while (!queue.isEmpty()) {
+            queue.dequeue();
+        }
+        long t3 = System.currentTimeMillis();
+
+        System.out.println("Enqueued and dequeued " + count + " items in " + (t1 - t0)
+            + "ms; sorted: " + (t3 - t2) + "ms");
+    }
 }
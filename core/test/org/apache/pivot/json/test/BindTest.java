@@ -19,6 +19,7 @@ package org.apache.pivot.json.test;
 import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
+import java.io.StringReader;
 
 import org.apache.pivot.json.JSON;
 import org.apache.pivot.json.JSONSerializer;
@@ -41,4 +42,20 @@ public class BindTest {
         assertEquals(sampleBean.getE(), JSON.get(sampleObject, "e"));
         assertEquals(sampleBean.getI().getA(), JSON.get(sampleObject, "i.a"));
     }
+
+    private static int BIND_COUNT = 100000;
+
+    @Test
+    public void testBindSpeed() throws IOException, SerializationException {
+        JSONSerializer beanSerializer = new JSONSerializer(SampleBean.class);
+        String json = "{a: 1, b: 'two', c: true, d: ['x', 'y'], e: {f: 3}, i: {a: 4}}";
+
+        long t0 = System.currentTimeMillis();
+        for (int i = 0; i < BIND_COUNT; i++) {
+            SampleBean sampleBean = (SampleBean)beanSerializer.readObject(new StringReader(json));
+            assertEquals(4, sampleBean.getI().getA());
+        }
+        long t1 = System.currentTimeMillis();
+        System.out.println("Bound " + BIND_COUNT + " beans in " + (t1 - t0) + "ms");
+    }
 }
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.json.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.pivot.collections.ArrayList;
+import org.apache.pivot.collections.HashMap;
+import org.apache.pivot.json.JSON;
+import org.apache.pivot.json.JSONPath;
+import org.junit.Test;
+
+public class JSONPathTest {
+    @Test
+    public void testCompile() {
+        JSONPath path = JSONPath.compile("a.b[0]['c.d'][\"e\"]");
+        assertEquals(5, path.getLength());
+        assertEquals("a", path.get(0));
+        assertEquals("b", path.get(1));
+        assertEquals("0", path.get(2));
+        assertEquals("c.d", path.get(3));
+        assertEquals("e", path.get(4));
+
+        assertSame(path, JSONPath.compile("a.b[0]['c.d'][\"e\"]"));
+
+        String[] badPaths = {"a.", "a..b", "a[0", "a['b]", "a-b"};
+        for (String badPath : badPaths) {
+            try {
+                JSONPath.compile(badPath);
+                fail("\"" + badPath + "\" should not compile.");
+            } catch (IllegalArgumentException exception) {
+                // No-op
+            }
+        }
+    }
+
+    @Test
+    public void testGetPutRemove() {
+        HashMap<String, Object> root = new HashMap<String, Object>();
+
+        ArrayList<Object> list = new ArrayList<Object>();
+        list.add("x");
+        list.add(null);
+        root.put("list", list);
+        root.put("nothing", null);
+
+        SampleBean bean = new SampleBean();
+        bean.setA(12);
+        bean.setB("bean");
+        root.put("bean", bean);
+
+        assertEquals("x", JSON.get(root, "list[0]"));
+        assertNull(JSON.get(root, "list[1]"));
+        assertNull(JSON.get(root, "missing"));
+        assertNull(JSON.get(root, "missing.value"));
+        assertTrue(JSON.containsKey(root, "nothing"));
+        assertFalse(JSON.containsKey(root, "missing"));
+        assertTrue(JSON.containsKey(root, "list[1]"));
+        assertFalse(JSON.containsKey(root, "list[2]"));
+
+        assertEquals(12, JSON.get(root, "bean.a"));
+        assertEquals("bean", JSON.get(root, "['bean'].b"));
+        assertNull(JSON.get(root, "bean.undefined"));
+        assertTrue(JSON.containsKey(root, "bean.a"));
+        assertFalse(JSON.containsKey(root, "bean.undefined"));
+
+        assertEquals("x", JSON.put(root, "list[0]", "y"));
+        assertEquals("y", JSON.get(root, "list[0]"));
+        JSON.put(root, "bean.a", 13);
+        assertEquals(13, bean.getA());
+
+        assertEquals("y", JSON.remove(root, "list[0]"));
+        assertEquals(1, list.getLength());
+        assertNull(JSON.remove(root, "nothing"));
+        assertFalse(JSON.containsKey(root, "nothing"));
+
+        // The same compiled path may be evaluated against different bean types
+        JSONPath path = JSONPath.compile("b");
+        assertEquals("bean", path.get(bean));
+        assertEquals(Boolean.TRUE, JSONPath.compile("empty").get(new java.util.ArrayList<Object>()));
+
+        try {
+            JSON.get(list, "a");
+            fail("Non-numeric index should fail.");
+        } catch (NumberFormatException exception) {
+            // No-op
+        }
+
+        try {
+            JSON.put(root, "", null);
+            fail("Empty path should fail.");
+        } catch (IllegalArgumentException exception) {
+            // No-op
+        }
+    }
+
+    @Test
+    public void testSpeed() {
+        HashMap<String, Object> root = new HashMap<String, Object>();
+        HashMap<String, Object> child = new HashMap<String, Object>();
+        root.put("child", child);
+
+        SampleBean bean = new SampleBean();
+        bean.setB("value");
+        child.put("bean", bean);
+
+        final int count = 1000000;
+
+        long t0 = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            JSON.get(root, "child.bean.b");
+        }
+        long t1 = System.currentTimeMillis();
+
+        JSONPath path = JSONPath.compile("child.bean.b");
+        long t2 = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            path.get(root);
+        }
+        long t3 = System.currentTimeMillis();
+
+        System.out.println(count + " JSON.get() calls: " + (t1 - t0) + "ms; "
+            + "compiled path: " + (t3 - t2) + "ms");
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.json.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.apache.pivot.json.JSONReader;
+import org.apache.pivot.serialization.SerializationException;
+import org.junit.Test;
+
+public class JSONReaderTest {
+    @Test
+    public void testEvents() throws IOException, SerializationException {
+        // Use a tiny buffer so that tokens span buffer boundaries
+        JSONReader reader = new JSONReader(new StringReader("{a: [1, 'two', \"th\\u0072ee\"],\n"
+            + "  // comment\n"
+            + "  \"b\": {c: null, d: true, e: 5.5}}"), 3);
+
+        assertEquals(JSONReader.Event.START_MAP, reader.next());
+        assertEquals(JSONReader.Event.KEY, reader.next());
+        assertEquals("a", reader.getKey());
+        assertEquals(JSONReader.Event.START_LIST, reader.next());
+        assertEquals(JSONReader.Event.VALUE, reader.next());
+        assertEquals(1, reader.getValue());
+        assertEquals(JSONReader.Event.VALUE, reader.next());
+        assertEquals("two", reader.getValue());
+        assertEquals(JSONReader.Event.VALUE, reader.next());
+        assertEquals("three", reader.getValue());
+        assertEquals(JSONReader.Event.END_LIST, reader.next());
+        assertEquals(JSONReader.Event.KEY, reader.next());
+        assertEquals("b", reader.getKey());
+        assertEquals(3, reader.getLineNumber());
+        assertEquals(JSONReader.Event.START_MAP, reader.next());
+        assertEquals(2, reader.getDepth());
+        assertEquals(JSONReader.Event.KEY, reader.next());
+        assertEquals(JSONReader.Event.VALUE, reader.next());
+        assertNull(reader.getValue());
+        assertEquals(JSONReader.Event.KEY, reader.next());
+        assertEquals(JSONReader.Event.VALUE, reader.next());
+        assertEquals(Boolean.TRUE, reader.getValue());
+        assertEquals(JSONReader.Event.KEY, reader.next());
+        assertEquals(JSONReader.Event.VALUE, reader.next());
+        assertEquals(5.5, reader.getValue());
+        assertEquals(JSONReader.Event.END_MAP, reader.next());
+        assertEquals(JSONReader.Event.END_MAP, reader.next());
+        assertEquals(JSONReader.Event.END_DOCUMENT, reader.next());
+    }
+
+    @Test
+    public void testSkipValue() throws IOException, SerializationException {
+        JSONReader reader = new JSONReader(new StringReader("[{a: [1, {b: 2}]}, 3]"));
+
+        assertEquals(JSONReader.Event.START_LIST, reader.next());
+        assertEquals(JSONReader.Event.START_MAP, reader.next());
+        reader.skipValue();
+        assertEquals(JSONReader.Event.END_MAP, reader.getEvent());
+        assertEquals(JSONReader.Event.VALUE, reader.next());
+        assertEquals(3, reader.getValue());
+    }
+
+    @Test
+    public void testInternedKeys() throws IOException, SerializationException {
+        JSONReader reader = new JSONReader(new StringReader("[{\"name\": 1}, {\"name\": 2}]"));
+
+        reader.next();
+        reader.next();
+        reader.next();
+        String key = reader.getKey();
+
+        reader.next();
+        reader.next();
+        reader.next();
+        reader.next();
+        assertSame(key, reader.getKey());
+    }
+
+    @Test
+    public void testLineNumbers() throws IOException {
+        JSONReader reader = new JSONReader(new StringReader("[1,\r\n2,\r3,\n/* a\nb */ x]"));
+
+        try {
+            while (reader.next() != JSONReader.Event.END_DOCUMENT) {
+                // No-op
+            }
+
+            fail("Expecting " + SerializationException.class);
+        } catch (SerializationException exception) {
+            assertEquals(5, reader.getLineNumber());
+        }
+    }
+}
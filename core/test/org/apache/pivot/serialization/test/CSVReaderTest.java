@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.serialization.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.apache.pivot.serialization.CSVReader;
+import org.apache.pivot.serialization.CSVWriter;
+import org.apache.pivot.serialization.SerializationException;
+import org.apache.pivot.util.CalendarDate;
+import org.junit.Test;
+
+public class CSVReaderTest {
+    @Test
+    public void testRows() throws IOException, SerializationException {
+        // Use a tiny buffer so that fields span buffer boundaries
+        CSVReader reader = new CSVReader(new StringReader("\uFEFFabc,\"d,\"\"e\"\"\",\r\n"
+            + "\n"
+            + "1,\"two\nlines\",-3\r"
+            + "x"), 3);
+
+        assertTrue(reader.next());
+        CSVReader.Row row = reader.getRow();
+        assertEquals(3, row.getLength());
+        assertEquals("abc", row.get(0));
+        assertEquals("d,\"e\"", row.get(1));
+        assertTrue(row.isEmpty(2));
+        assertEquals(1, row.getLineNumber());
+
+        // Blank lines are skipped
+        assertTrue(reader.next());
+        assertSame(row, reader.getRow());
+        assertEquals(3, row.getLength());
+        assertEquals(1, row.getInt(0));
+        assertEquals("two\nlines", row.get(1));
+        assertEquals(-3L, row.getLong(2));
+        assertEquals(3, row.getLineNumber());
+
+        assertTrue(reader.next());
+        assertEquals(1, row.getLength());
+        assertEquals("x", row.get(0));
+        assertEquals(5, row.getLineNumber());
+
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void testColumnTypes() throws IOException, SerializationException {
+        CSVReader reader = new CSVReader(new StringReader("7,2.5,2010-06-01,,true"));
+        reader.setColumnTypes(Integer.class, Double.class, CalendarDate.class, Long.class,
+            Boolean.class);
+
+        assertTrue(reader.next());
+        CSVReader.Row row = reader.getRow();
+        assertEquals(7, row.getValue(0));
+        assertEquals(2.5, row.getValue(1));
+        assertEquals(new CalendarDate(2010, 5, 0), row.getValue(2));
+        assertNull(row.getValue(3));
+        assertEquals(Boolean.TRUE, row.getValue(4));
+    }
+
+    @Test
+    public void testInvalidQuotes() throws IOException {
+        String[] inputs = {"a\"b,c", "\"a\"b,c", "a,\"b"};
+
+        for (String input : inputs) {
+            CSVReader reader = new CSVReader(new StringReader(input));
+
+            try {
+                reader.next();
+                fail("Expecting " + SerializationException.class);
+            } catch (SerializationException exception) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void testWriter() throws IOException {
+        StringWriter writer = new StringWriter();
+        CSVWriter csvWriter = new CSVWriter(writer);
+
+        csvWriter.write("a");
+        csvWriter.write(null);
+        csvWriter.write("\"b\",c");
+        csvWriter.endRow();
+        csvWriter.write(1);
+        csvWriter.endRow();
+
+        assertEquals("a,,\"\"\"b\"\",c\"\r\n1\r\n", writer.toString());
+    }
+}
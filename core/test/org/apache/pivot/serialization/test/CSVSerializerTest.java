@@ -30,6 +30,9 @@ import org.apache.pivot.serialization.SerializationException;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class CSVSerializerTest {
     @Test
@@ -234,7 +237,87 @@ public class CSVSerializerTest {
     }
 
     @Test
-    public void testStreamReader() {
-        // TODO
+    @SuppressWarnings("unchecked")
+    public void testStreamReader() throws IOException, SerializationException {
+        StringReader reader = new StringReader("a1,b1\r\na2,b2\r\n");
+
+        CSVSerializer serializer = new CSVSerializer();
+        serializer.getKeys().add("A");
+        serializer.getKeys().add("B");
+
+        CSVSerializer.StreamIterator streamIterator = serializer.getStreamIterator(reader);
+
+        assertTrue(streamIterator.hasNext());
+        Dictionary<String, Object> row = (Dictionary<String, Object>)streamIterator.next();
+        assertEquals("a1", row.get("A"));
+        assertEquals("b1", row.get("B"));
+
+        assertTrue(streamIterator.hasNext());
+        row = (Dictionary<String, Object>)streamIterator.next();
+        assertEquals("a2", row.get("A"));
+        assertEquals("b2", row.get("B"));
+
+        assertFalse(streamIterator.hasNext());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testKeyTypes() throws IOException, SerializationException {
+        StringReader reader = new StringReader("a,1,2.5\r\nb,,3\r\n");
+
+        CSVSerializer serializer = new CSVSerializer();
+        serializer.getKeys().add("A");
+        serializer.getKeys().add("B");
+        serializer.getKeys().add("C");
+        serializer.setKeyType("B", Integer.class);
+        serializer.setKeyType("C", Double.class);
+
+        List<?> result = serializer.readObject(reader);
+
+        Dictionary<String, Object> row = (Dictionary<String, Object>)result.get(0);
+        assertEquals("a", row.get("A"));
+        assertEquals(1, row.get("B"));
+        assertEquals(2.5, row.get("C"));
+
+        row = (Dictionary<String, Object>)result.get(1);
+        assertNull(row.get("B"));
+        assertEquals(3.0, row.get("C"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testParallelReadObject() throws IOException, SerializationException {
+        // Generate enough data to be split into several chunks, including
+        // values with embedded line breaks
+        StringBuilder buf = new StringBuilder();
+        int count = 0;
+        while (buf.length() < CSVSerializer.MINIMUM_CHUNK_SIZE * 4) {
+            buf.append(count);
+            buf.append(",\"value\r\n");
+            buf.append(count);
+            buf.append("\",x\r\n");
+            count++;
+        }
+
+        CSVSerializer serializer = new CSVSerializer();
+        serializer.getKeys().add("A");
+        serializer.getKeys().add("B");
+        serializer.getKeys().add("C");
+        serializer.setKeyType("A", Integer.class);
+        serializer.setParallel(true);
+
+        long t0 = System.currentTimeMillis();
+        List<?> result = serializer.readObject(new StringReader(buf.toString()));
+        long t1 = System.currentTimeMillis();
+        System.out.println("Parallel read of " + count + " rows " + (t1 - t0) + "ms");
+
+        assertEquals(count, result.getLength());
+
+        for (int i = 0; i < count; i++) {
+            Dictionary<String, Object> row = (Dictionary<String, Object>)result.get(i);
+            assertEquals(i, row.get("A"));
+            assertEquals("value\r\n" + i, row.get("B"));
+            assertEquals("x", row.get("C"));
+        }
     }
 }
@@ -16,10 +16,26 @@
  */
 package org.apache.pivot.util.concurrent.test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.pivot.collections.List;
+
 import org.apache.pivot.util.concurrent.Task;
+import org.apache.pivot.util.concurrent.TaskBatch;
+import org.apache.pivot.util.concurrent.TaskExecutionException;
+import org.apache.pivot.util.concurrent.TaskExecutorService;
 import org.apache.pivot.util.concurrent.TaskGroup;
 import org.apache.pivot.util.concurrent.TaskListener;
 import org.apache.pivot.util.concurrent.TaskSequence;
+import org.apache.pivot.util.concurrent.TimeoutException;
 import org.junit.Test;
 
 public class TaskTest {
@@ -124,4 +140,256 @@ public class TaskTest {
             }
         }
     }
+
+    @Test
+    public void testTaskExecutorService() throws InterruptedException {
+        TaskExecutorService executorService = new TaskExecutorService(TaskExecutorService.Mode.POOLED, 2);
+        assertEquals(TaskExecutorService.Mode.POOLED, executorService.getMode());
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maximumRunning = new AtomicInteger();
+
+        Runnable command = new Runnable() {
+            @Override
+            public void run() {
+                int count = running.incrementAndGet();
+
+                int maximumCount = maximumRunning.get();
+                while (count > maximumCount
+                    && !maximumRunning.compareAndSet(maximumCount, count)) {
+                    maximumCount = maximumRunning.get();
+                }
+
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException exception) {
+                    System.out.println(exception);
+                }
+
+                running.decrementAndGet();
+            }
+        };
+
+        for (int i = 0; i < 6; i++) {
+            executorService.execute(command);
+        }
+
+        // Both workers are busy, and the remaining commands are queued
+        Thread.sleep(50);
+        assertEquals(2, executorService.getActiveCount());
+        assertEquals(2, executorService.getPoolSize());
+        assertTrue(executorService.getQueueDepth() > 0);
+
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(6, executorService.getCompletedTaskCount());
+        assertEquals(0, executorService.getQueueDepth());
+        assertTrue(maximumRunning.get() <= 2);
+        assertTrue(executorService.getAverageLatency() > 0);
+    }
+
+    @Test
+    public void testNestedSubmission() throws InterruptedException {
+        // Commands that submit a nested command and wait for it must not
+        // starve, even when they occupy every worker
+        final TaskExecutorService executorService =
+            new TaskExecutorService(TaskExecutorService.Mode.POOLED, 2);
+        final CountDownLatch done = new CountDownLatch(6);
+
+        for (int i = 0; i < 6; i++) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final CountDownLatch nestedDone = new CountDownLatch(1);
+
+                    executorService.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            nestedDone.countDown();
+                        }
+                    });
+
+                    try {
+                        if (nestedDone.await(5, TimeUnit.SECONDS)) {
+                            done.countDown();
+                        }
+                    } catch (InterruptedException exception) {
+                        System.out.println(exception);
+                    }
+                }
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executorService.shutdown();
+    }
+
+    @Test
+    public void testConcurrentTaskBatches() throws InterruptedException {
+        // Run more batches at once than there are pooled workers; the batches
+        // occupy the workers while waiting on their members
+        TaskExecutorService executorService = new TaskExecutorService(TaskExecutorService.Mode.POOLED, 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maximumRunning = new AtomicInteger();
+
+        final CountDownLatch done = new CountDownLatch(8);
+        TaskListener<List<Integer>> taskListener = new TaskListener<List<Integer>>() {
+            @Override
+            public void taskExecuted(Task<List<Integer>> task) {
+                if (task.getResult().getLength() == 6) {
+                    done.countDown();
+                }
+            }
+
+            @Override
+            public void executeFailed(Task<List<Integer>> task) {
+                System.out.println("FAILED: " + task.getFault());
+            }
+        };
+
+        for (int i = 0; i < 8; i++) {
+            TaskBatch<Integer> taskBatch = new TaskBatch<Integer>(TaskBatch.FailurePolicy.ALL_SETTLED,
+                2, executorService);
+
+            for (int j = 0; j < 6; j++) {
+                taskBatch.add(new SquareTask(j, running, maximumRunning, executorService));
+            }
+
+            taskBatch.execute(taskListener);
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executorService.shutdown();
+    }
+
+    @Test
+    public void testNestedTaskGroup() {
+        // A group run on a single-worker pool must not wait forever on
+        // members queued behind it
+        TaskExecutorService executorService = new TaskExecutorService(TaskExecutorService.Mode.POOLED, 1);
+
+        TaskGroup taskGroup = new TaskGroup(executorService);
+        for (int i = 0; i < 2; i++) {
+            taskGroup.add(new Task<Void>(executorService) {
+                @Override
+                public Void execute() {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException exception) {
+                        System.out.println(exception);
+                    }
+
+                    return null;
+                }
+            });
+        }
+
+        TaskListener<Void> taskListener = new TaskListener<Void>() {
+            @Override
+            public synchronized void taskExecuted(Task<Void> task) {
+                notify();
+            }
+
+            @Override
+            public synchronized void executeFailed(Task<Void> task) {
+                notify();
+            }
+        };
+
+        synchronized (taskListener) {
+            taskGroup.execute(taskListener);
+
+            try {
+                taskListener.wait(5000);
+            } catch (InterruptedException exception) {
+            }
+        }
+
+        assertTrue(!taskGroup.isPending());
+        executorService.shutdown();
+    }
+
+    private static class SquareTask extends Task<Integer> {
+        private int value;
+        private AtomicInteger running;
+        private AtomicInteger maximumRunning;
+
+        public SquareTask(int value, AtomicInteger running, AtomicInteger maximumRunning) {
+            this(value, running, maximumRunning, DEFAULT_EXECUTOR_SERVICE);
+        }
+
+        public SquareTask(int value, AtomicInteger running, AtomicInteger maximumRunning,
+            ExecutorService executorService) {
+            super(executorService);
+
+            this.value = value;
+            this.running = running;
+            this.maximumRunning = maximumRunning;
+        }
+
+        @Override
+        public Integer execute() throws TaskExecutionException {
+            int count = running.incrementAndGet();
+
+            synchronized (maximumRunning) {
+                maximumRunning.set(Math.max(maximumRunning.get(), count));
+            }
+
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException exception) {
+                throw new TaskExecutionException(exception);
+            } finally {
+                running.decrementAndGet();
+            }
+
+            if (value < 0) {
+                throw new TaskExecutionException("Negative value.");
+            }
+
+            return value * value;
+        }
+    }
+
+    @Test
+    public void testTaskBatch() throws TaskExecutionException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maximumRunning = new AtomicInteger();
+
+        TaskBatch<Integer> taskBatch = new TaskBatch<Integer>(TaskBatch.FailurePolicy.ALL_SETTLED, 4);
+        for (int i = 0; i < 40; i++) {
+            taskBatch.add(new SquareTask((i == 7) ? -1 : i, running, maximumRunning));
+        }
+
+        List<Integer> results = taskBatch.execute();
+
+        assertEquals(40, results.getLength());
+        assertEquals(81, (int) results.get(9));
+        assertNull(results.get(7));
+        assertTrue(taskBatch.getFaults().get(7) instanceof TaskExecutionException);
+        assertNull(taskBatch.getFaults().get(8));
+        assertTrue(maximumRunning.get() <= 4);
+
+        // Fail fast
+        taskBatch.setFailurePolicy(TaskBatch.FailurePolicy.FAIL_FAST);
+
+        try {
+            taskBatch.execute();
+            fail("Expecting " + TaskExecutionException.class);
+        } catch (TaskExecutionException exception) {
+            assertEquals("Negative value.", exception.getCause().getMessage());
+        }
+
+        // Timeout
+        taskBatch.setFailurePolicy(TaskBatch.FailurePolicy.ALL_SETTLED);
+        taskBatch.setMaximumConcurrency(1);
+        taskBatch.setTimeout(50);
+
+        try {
+            taskBatch.execute();
+            fail("Expecting " + TimeoutException.class);
+        } catch (TimeoutException exception) {
+            // expecting this
+        }
+    }
 }
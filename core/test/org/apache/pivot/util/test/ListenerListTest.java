@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.util.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import org.apache.pivot.util.ListenerList;
+import org.junit.Test;
+
+public class ListenerListTest {
+    private interface TestListener {
+        public void fired();
+    }
+
+    private static class TestListenerList extends ListenerList<TestListener>
+        implements TestListener {
+        @Override
+        public void fired() {
+            Object[] listeners = getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                TestListener listener = (TestListener)listeners[i];
+                listener.fired();
+            }
+        }
+    }
+
+    private static class CountingListener implements TestListener {
+        private int count = 0;
+
+        @Override
+        public void fired() {
+            count++;
+        }
+    }
+
+    @Test
+    public void testAddRemove() {
+        TestListenerList listenerList = new TestListenerList();
+        assertTrue(listenerList.isEmpty());
+
+        CountingListener a = new CountingListener();
+        CountingListener b = new CountingListener();
+        CountingListener c = new CountingListener();
+
+        listenerList.add(a);
+        listenerList.add(b);
+        listenerList.add(c);
+        listenerList.add(b);
+        assertFalse(listenerList.isEmpty());
+        assertTrue(listenerList.contains(b));
+
+        listenerList.fired();
+        assertEquals(1, a.count);
+        assertEquals(1, b.count);
+        assertEquals(1, c.count);
+
+        listenerList.remove(b);
+        assertFalse(listenerList.contains(b));
+
+        Iterator<TestListener> iterator = listenerList.iterator();
+        assertEquals(a, iterator.next());
+        assertEquals(c, iterator.next());
+        assertFalse(iterator.hasNext());
+
+        listenerList.remove(a);
+        listenerList.remove(c);
+        listenerList.remove(c);
+        assertTrue(listenerList.isEmpty());
+    }
+
+    @Test
+    public void testRemoveDuringDispatch() {
+        final TestListenerList listenerList = new TestListenerList();
+
+        TestListener removingListener = new TestListener() {
+            @Override
+            public void fired() {
+                listenerList.remove(this);
+            }
+        };
+
+        CountingListener a = new CountingListener();
+        CountingListener b = new CountingListener();
+
+        listenerList.add(removingListener);
+        listenerList.add(a);
+        listenerList.add(b);
+
+        // Removing a listener must not cause the following listeners to be
+        // skipped
+        listenerList.fired();
+        assertEquals(1, a.count);
+        assertEquals(1, b.count);
+        assertFalse(listenerList.contains(removingListener));
+
+        // Listeners added while iterating are not visited by that iteration
+        int count = 0;
+        for (TestListener listener : listenerList) {
+            listenerList.add(new CountingListener());
+            listenerList.remove(listener);
+            count++;
+        }
+
+        assertEquals(2, count);
+    }
+}
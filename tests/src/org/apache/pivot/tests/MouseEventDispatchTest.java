@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.tests;
+
+import org.apache.pivot.wtk.Component;
+import org.apache.pivot.wtk.ComponentMouseListener;
+
+/**
+ * Measures the cost of dispatching mouse move events to component mouse
+ * listeners.
+ */
+public class MouseEventDispatchTest {
+    private static class TestComponent extends Component {
+        public boolean fireMouseMove(int x, int y) {
+            return mouseMove(x, y);
+        }
+    }
+
+    private static class TestMouseListener extends ComponentMouseListener.Adapter {
+        private int count = 0;
+
+        @Override
+        public boolean mouseMove(Component component, int x, int y) {
+            count++;
+            return false;
+        }
+    }
+
+    private static final int LISTENER_COUNT = 4;
+    private static final int EVENT_COUNT = 10000000;
+    private static final int PASS_COUNT = 5;
+
+    public static void main(String[] args) {
+        final TestComponent component = new TestComponent();
+
+        // A listener that removes and re-adds itself while events are being
+        // fired; the remaining listeners must still receive every event
+        ComponentMouseListener readdingListener = new ComponentMouseListener.Adapter() {
+            @Override
+            public boolean mouseMove(Component component, int x, int y) {
+                component.getComponentMouseListeners().remove(this);
+                component.getComponentMouseListeners().add(this);
+                return false;
+            }
+        };
+
+        component.getComponentMouseListeners().add(readdingListener);
+
+        TestMouseListener[] listeners = new TestMouseListener[LISTENER_COUNT];
+        for (int i = 0; i < LISTENER_COUNT; i++) {
+            listeners[i] = new TestMouseListener();
+            component.getComponentMouseListeners().add(listeners[i]);
+        }
+
+        component.fireMouseMove(0, 0);
+        for (int i = 0; i < LISTENER_COUNT; i++) {
+            if (listeners[i].count != 1) {
+                throw new IllegalStateException();
+            }
+        }
+
+        component.getComponentMouseListeners().remove(readdingListener);
+
+        for (int pass = 0; pass < PASS_COUNT; pass++) {
+            long t0 = System.currentTimeMillis();
+            for (int i = 0; i < EVENT_COUNT; i++) {
+                component.fireMouseMove(i, i);
+            }
+            long t1 = System.currentTimeMillis();
+
+            long t2 = System.currentTimeMillis();
+            for (int i = 0; i < EVENT_COUNT; i++) {
+                for (ComponentMouseListener listener : component.getComponentMouseListeners()) {
+                    listener.mouseMove(component, i, i);
+                }
+            }
+            long t3 = System.currentTimeMillis();
+
+            System.out.println(EVENT_COUNT + " mouse moves to " + LISTENER_COUNT
+                + " listeners: dispatch " + (t1 - t0) + "ms, iterator " + (t3 - t2) + "ms");
+        }
+    }
+}
@@ -131,6 +131,26 @@ public class ElementAdapter extends NodeAdapter implements List<NodeAdapter> {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void addAll(Sequence<NodeAdapter> items) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void insertAll(Sequence<NodeAdapter> items, int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int removeAll(Sequence<NodeAdapter> items) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAll(Sequence<NodeAdapter> items) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public NodeAdapter update(int index, NodeAdapter nodeAdapter) {
         throw new UnsupportedOperationException();
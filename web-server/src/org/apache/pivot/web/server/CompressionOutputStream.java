@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.web.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Output stream that compresses the data written to it once its length
+ * exceeds a threshold. Shorter data is written uncompressed.
+ * <p>
+ * Compression uses native memory that is not released until {@link #end()}
+ * is called. {@link #finish()} calls it on success; callers must call it
+ * themselves if the stream is abandoned.
+ */
+public class CompressionOutputStream extends OutputStream {
+    /**
+     * GZIP output stream that exposes its deflater so that it can be ended
+     * without closing the underlying stream.
+     */
+    private static class GZIPDeflaterOutputStream extends GZIPOutputStream {
+        public GZIPDeflaterOutputStream(OutputStream outputStream) throws IOException {
+            super(outputStream, BUFFER_SIZE);
+        }
+
+        public Deflater getDeflater() {
+            return def;
+        }
+    }
+
+    private OutputStream outputStream;
+    private String contentEncoding;
+
+    private byte[] buffer;
+    private int count = 0;
+
+    private DeflaterOutputStream deflaterOutputStream = null;
+    private Deflater deflater = null;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Creates a new compression output stream.
+     *
+     * @param outputStream
+     * The stream to which the data will be written.
+     *
+     * @param contentEncoding
+     * The encoding used to compress the data; either <tt>"gzip"</tt> or
+     * <tt>"deflate"</tt>.
+     *
+     * @param threshold
+     * The number of bytes that may be written before the data is compressed.
+     */
+    public CompressionOutputStream(OutputStream outputStream, String contentEncoding,
+        int threshold) {
+        if (outputStream == null) {
+            throw new IllegalArgumentException("outputStream is null.");
+        }
+
+        if (contentEncoding == null) {
+            throw new IllegalArgumentException("contentEncoding is null.");
+        }
+
+        if (!contentEncoding.equals(QueryServlet.GZIP_ENCODING)
+            && !contentEncoding.equals(QueryServlet.DEFLATE_ENCODING)) {
+            throw new IllegalArgumentException(contentEncoding + " is not a supported encoding.");
+        }
+
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold is negative.");
+        }
+
+        this.outputStream = outputStream;
+        this.contentEncoding = contentEncoding;
+
+        buffer = new byte[threshold];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte)b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (deflaterOutputStream == null) {
+            if (count + len <= buffer.length) {
+                System.arraycopy(b, off, buffer, count, len);
+                count += len;
+                return;
+            }
+
+            // The threshold has been exceeded; compress the buffered
+            // content and everything that follows it
+            compressionStarted();
+
+            if (contentEncoding.equals(QueryServlet.GZIP_ENCODING)) {
+                GZIPDeflaterOutputStream gzipOutputStream =
+                    new GZIPDeflaterOutputStream(outputStream);
+                deflater = gzipOutputStream.getDeflater();
+                deflaterOutputStream = gzipOutputStream;
+            } else {
+                deflater = new Deflater();
+                deflaterOutputStream = new DeflaterOutputStream(outputStream, deflater,
+                    BUFFER_SIZE);
+            }
+
+            deflaterOutputStream.write(buffer, 0, count);
+            buffer = null;
+        }
+
+        deflaterOutputStream.write(b, off, len);
+    }
+
+    /**
+     * Writes any remaining content to the underlying stream, without
+     * closing it, and releases the compressor.
+     */
+    public void finish() throws IOException {
+        try {
+            if (deflaterOutputStream == null) {
+                outputStream.write(buffer, 0, count);
+            } else {
+                deflaterOutputStream.finish();
+            }
+
+            outputStream.flush();
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Releases the native memory used by the compressor. The stream can't be
+     * written to once it has been ended. Calling this method more than once
+     * has no effect.
+     */
+    public void end() {
+        if (deflater != null) {
+            deflater.end();
+            deflater = null;
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if the threshold has been exceeded and the data
+     * is being compressed.
+     */
+    public boolean isCompressed() {
+        return (deflaterOutputStream != null);
+    }
+
+    /**
+     * Called before the first compressed byte is written to the underlying
+     * stream.
+     */
+    protected void compressionStarted() {
+        // No-op
+    }
+}
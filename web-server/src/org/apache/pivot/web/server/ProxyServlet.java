@@ -16,8 +16,6 @@
  */
 package org.apache.pivot.web.server;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -65,6 +63,9 @@ public class ProxyServlet extends HttpServlet {
     private int port = -1;
     private String path = null;
 
+    private boolean determineContentLength = false;
+    private int spillThreshold = SpillBuffer.DEFAULT_SPILL_THRESHOLD;
+
     private static ResponseHeaderSet ignoreResponseHeaders = new ResponseHeaderSet();
 
     private static final long serialVersionUID = -1794977331184160392L;
@@ -77,8 +78,10 @@ public class ProxyServlet extends HttpServlet {
     public static final String HOSTNAME_PARAM = "hostname";
     public static final String PORT_PARAM = "port";
     public static final String PATH_PARAM = "path";
+    public static final String DETERMINE_CONTENT_LENGTH_PARAM = "determineContentLength";
+    public static final String SPILL_THRESHOLD_PARAM = "spillThreshold";
 
-    public static final int BUFFER_SIZE = 1024;
+    public static final int BUFFER_SIZE = 8192;
 
     static {
         ignoreResponseHeaders.add("Transfer-Encoding");
@@ -95,12 +98,42 @@ public class ProxyServlet extends HttpServlet {
         }
 
         String portHeader = config.getInitParameter(PORT_PARAM);
-        port = (portHeader == null) ? -1 : Integer.parseInt(portHeader);
+        if (portHeader == null) {
+            port = -1;
+        } else {
+            try {
+                port = Integer.parseInt(portHeader);
+            } catch (NumberFormatException exception) {
+                throw new ServletException("\"" + portHeader + "\" is not a valid port.");
+            }
+
+            if (port < 0
+                || port > 65535) {
+                throw new ServletException("Port " + port + " is out of range.");
+            }
+        }
 
         path = config.getInitParameter(PATH_PARAM);
         if (path == null) {
             throw new ServletException("Path is required.");
         }
+
+        String determineContentLengthParam = config.getInitParameter(DETERMINE_CONTENT_LENGTH_PARAM);
+        determineContentLength = Boolean.parseBoolean(determineContentLengthParam);
+
+        String spillThresholdParam = config.getInitParameter(SPILL_THRESHOLD_PARAM);
+        if (spillThresholdParam != null) {
+            try {
+                spillThreshold = Integer.parseInt(spillThresholdParam);
+            } catch (NumberFormatException exception) {
+                throw new ServletException("\"" + spillThresholdParam
+                    + "\" is not a valid spill threshold.");
+            }
+
+            if (spillThreshold < 0) {
+                throw new ServletException("Spill threshold is negative.");
+            }
+        }
     }
 
     @Override
@@ -176,10 +209,7 @@ public class ProxyServlet extends HttpServlet {
                 InputStream inputStream = request.getInputStream();
 
                 outputStream = connection.getOutputStream();
-                outputStream = new BufferedOutputStream(outputStream, BUFFER_SIZE);
-                for (int data = inputStream.read(); data != -1; data = inputStream.read()) {
-                    outputStream.write((byte)data);
-                }
+                copy(inputStream, outputStream);
             } finally {
                 if (outputStream != null) {
                     outputStream.close();
@@ -229,11 +259,23 @@ public class ProxyServlet extends HttpServlet {
                 }
 
                 if (inputStream != null) {
-                    inputStream = new BufferedInputStream(inputStream, BUFFER_SIZE);
-
                     OutputStream outputStream = response.getOutputStream();
-                    for (int data = inputStream.read(); data != -1; data = inputStream.read()) {
-                        outputStream.write((byte)data);
+
+                    if (determineContentLength
+                        && connection.getContentLength() == -1) {
+                        // Buffer the response so that its length can be sent
+                        SpillBuffer spillBuffer = new SpillBuffer(spillThreshold);
+                        try {
+                            copy(inputStream, spillBuffer);
+
+                            response.setHeader("Content-Length",
+                                String.valueOf(spillBuffer.getLength()));
+                            spillBuffer.writeTo(outputStream);
+                        } finally {
+                            spillBuffer.dispose();
+                        }
+                    } else {
+                        copy(inputStream, outputStream);
                     }
                 }
 
@@ -245,4 +287,14 @@ public class ProxyServlet extends HttpServlet {
             }
         }
     }
+
+    private static void copy(InputStream inputStream, OutputStream outputStream)
+        throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        int count;
+        while ((count = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, count);
+        }
+    }
 }
@@ -16,9 +16,6 @@
  */
 package org.apache.pivot.web.server;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.MalformedURLException;
@@ -121,19 +118,72 @@ public abstract class QueryServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Holds the state of the request being processed. A request context is
+     * immutable apart from its dictionaries, and may be passed to other
+     * threads that act on behalf of the request.
+     */
+    public static final class RequestContext {
+        private final String hostname;
+        private final int port;
+        private final String contextPath;
+        private final String servletPath;
+        private final boolean secure;
+
+        private final QueryDictionary parameters = new QueryDictionary(true);
+        private final QueryDictionary requestHeaders = new QueryDictionary(false);
+        private final QueryDictionary responseHeaders = new QueryDictionary(false);
+
+        private RequestContext(String hostname, int port, String contextPath,
+            String servletPath, boolean secure) {
+            this.hostname = hostname;
+            this.port = port;
+            this.contextPath = contextPath;
+            this.servletPath = servletPath;
+            this.secure = secure;
+        }
+
+        public String getHostname() {
+            return hostname;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public String getContextPath() {
+            return contextPath;
+        }
+
+        public String getServletPath() {
+            return servletPath;
+        }
+
+        public boolean isSecure() {
+            return secure;
+        }
+
+        public QueryDictionary getParameters() {
+            return parameters;
+        }
+
+        public QueryDictionary getRequestHeaders() {
+            return requestHeaders;
+        }
+
+        public QueryDictionary getResponseHeaders() {
+            return responseHeaders;
+        }
+    }
+
     private static final long serialVersionUID = 4881638232902478092L;
 
     private boolean determineContentLength = false;
+    private int spillThreshold = SpillBuffer.DEFAULT_SPILL_THRESHOLD;
+    private int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
 
-    private transient ThreadLocal<String> hostname = new ThreadLocal<String>();
-    private transient ThreadLocal<Integer> port = new ThreadLocal<Integer>();
-    private transient ThreadLocal<String> contextPath = new ThreadLocal<String>();
-    private transient ThreadLocal<String> servletPath = new ThreadLocal<String>();
-    private transient ThreadLocal<Boolean> secure = new ThreadLocal<Boolean>();
-
-    private transient ThreadLocal<QueryDictionary> parameters = new ThreadLocal<QueryDictionary>();
-    private transient ThreadLocal<QueryDictionary> requestHeaders = new ThreadLocal<QueryDictionary>();
-    private transient ThreadLocal<QueryDictionary> responseHeaders = new ThreadLocal<QueryDictionary>();
+    private transient ThreadLocal<RequestContext> requestContext =
+        new ThreadLocal<RequestContext>();
 
     public static final String HTTP_PROTOCOL = "http";
     public static final String HTTPS_PROTOCOL = "https";
@@ -142,12 +192,37 @@ public abstract class QueryServlet extends HttpServlet {
     public static final String CONTENT_TYPE_HEADER = "Content-Type";
     public static final String CONTENT_LENGTH_HEADER = "Content-Length";
     public static final String LOCATION_HEADER = "Location";
+    public static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    public static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    public static final String VARY_HEADER = "Vary";
+
+    public static final String GZIP_ENCODING = "gzip";
+    public static final String DEFLATE_ENCODING = "deflate";
+
+    /**
+     * The default minimum length of a GET response body that is compressed.
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+
+
+    /**
+     * Returns the context of the request being processed by the current
+     * thread. The context may be passed to other threads that act on behalf
+     * of the request.
+     *
+     * @return
+     * The request context, or <tt>null</tt> if the current thread is not
+     * processing a request.
+     */
+    public RequestContext getRequestContext() {
+        return requestContext.get();
+    }
 
     /**
      * Gets the host name that was requested.
      */
     public String getHostname() {
-        return hostname.get();
+        return requestContext.get().getHostname();
     }
 
     /**
@@ -155,28 +230,28 @@ public abstract class QueryServlet extends HttpServlet {
      * the request was received.
      */
     public int getPort() {
-        return port.get();
+        return requestContext.get().getPort();
     }
 
     /**
      * Returns the portion of the request URL representing the context path.
      */
     public String getContextPath() {
-        return contextPath.get();
+        return requestContext.get().getContextPath();
     }
 
     /**
      * Returns the portion of the request URL representing the servlet path.
      */
     public String getServletPath() {
-        return servletPath.get();
+        return requestContext.get().getServletPath();
     }
 
     /**
      * Tells whether the request has been ecrypted over HTTPS.
      */
     public boolean isSecure() {
-        return secure.get();
+        return requestContext.get().isSecure();
     }
 
     /**
@@ -206,7 +281,7 @@ public abstract class QueryServlet extends HttpServlet {
      * passed in the HTTP request query string.
      */
     public QueryDictionary getParameters() {
-        return parameters.get();
+        return requestContext.get().getParameters();
     }
 
     /**
@@ -214,7 +289,7 @@ public abstract class QueryServlet extends HttpServlet {
      * request headers.
      */
     public QueryDictionary getRequestHeaders() {
-        return requestHeaders.get();
+        return requestContext.get().getRequestHeaders();
     }
 
     /**
@@ -222,7 +297,78 @@ public abstract class QueryServlet extends HttpServlet {
      * response headers that will be sent back to the client.
      */
     public QueryDictionary getResponseHeaders() {
-        return responseHeaders.get();
+        return requestContext.get().getResponseHeaders();
+    }
+
+    /**
+     * Indicates whether GET responses are buffered so that a
+     * <tt>Content-Length</tt> header can be sent.
+     */
+    public boolean isDetermineContentLength() {
+        return determineContentLength;
+    }
+
+    /**
+     * Sets whether GET responses are buffered so that a
+     * <tt>Content-Length</tt> header can be sent. Responses are buffered in
+     * memory up to the spill threshold, and on disk beyond it.
+     *
+     * @param determineContentLength
+     */
+    public void setDetermineContentLength(boolean determineContentLength) {
+        this.determineContentLength = determineContentLength;
+    }
+
+    /**
+     * Returns the number of bytes of a buffered GET response that are held in
+     * memory before the response spills to disk.
+     */
+    public int getSpillThreshold() {
+        return spillThreshold;
+    }
+
+    /**
+     * Sets the number of bytes of a buffered GET response that are held in
+     * memory before the response spills to disk.
+     *
+     * @param spillThreshold
+     */
+    public void setSpillThreshold(int spillThreshold) {
+        if (spillThreshold < 0) {
+            throw new IllegalArgumentException("spillThreshold is negative.");
+        }
+
+        this.spillThreshold = spillThreshold;
+    }
+
+    /**
+     * Returns the length above which GET response bodies are compressed, if
+     * the client accepts a compressed response.
+     *
+     * @return
+     * The compression threshold, in bytes, or <tt>-1</tt> if compression is
+     * disabled.
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Sets the length above which GET response bodies are compressed, if the
+     * client accepts a compressed response. The body is compressed using gzip
+     * or deflate content encoding, as negotiated via the request's
+     * <tt>Accept-Encoding</tt> header.
+     *
+     * @param compressionThreshold
+     * The compression threshold, in bytes, or <tt>-1</tt> to disable
+     * compression.
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        if (compressionThreshold < -1) {
+            throw new IllegalArgumentException("compressionThreshold is negative.");
+        }
+
+        this.compressionThreshold = compressionThreshold;
     }
 
     /**
@@ -342,23 +488,17 @@ public abstract class QueryServlet extends HttpServlet {
         try {
             try {
                 URL url = new URL(request.getRequestURL().toString());
-                hostname.set(url.getHost());
-                port.set(request.getLocalPort());
-                contextPath.set(request.getContextPath());
-                servletPath.set(request.getServletPath());
-                secure.set(url.getProtocol().equalsIgnoreCase(HTTPS_PROTOCOL));
+                requestContext.set(new RequestContext(url.getHost(), request.getLocalPort(),
+                    request.getContextPath(), request.getServletPath(),
+                    url.getProtocol().equalsIgnoreCase(HTTPS_PROTOCOL)));
             } catch (MalformedURLException exception) {
                 throw new ServletException(exception);
             }
 
-            parameters.set(new QueryDictionary(true));
-            requestHeaders.set(new QueryDictionary(false));
-            responseHeaders.set(new QueryDictionary(false));
-
             // Copy the query string into the arguments dictionary
             String queryString = request.getQueryString();
             if (queryString != null) {
-                QueryDictionary parametersDictionary = parameters.get();
+                QueryDictionary parametersDictionary = getParameters();
                 String[] pairs = queryString.split("&");
 
                 for (int i = 0, n = pairs.length; i < n; i++) {
@@ -372,7 +512,7 @@ public abstract class QueryServlet extends HttpServlet {
             }
 
             // Copy the request headers into the request properties dictionary
-            QueryDictionary requestHeaderDictionary = requestHeaders.get();
+            QueryDictionary requestHeaderDictionary = getRequestHeaders();
             Enumeration<String> headerNames = request.getHeaderNames();
             while (headerNames.hasMoreElements()) {
                 String headerName = headerNames.nextElement();
@@ -393,15 +533,8 @@ public abstract class QueryServlet extends HttpServlet {
             System.err.println(exception);
             throw exception;
         } finally {
-            // Clean up thread local variables
-            hostname.remove();
-            port.remove();
-            contextPath.remove();
-            servletPath.remove();
-            secure.remove();
-            parameters.remove();
-            requestHeaders.remove();
-            responseHeaders.remove();
+            // Clean up the thread local request context
+            requestContext.remove();
 
             // Clean up any allocated resources
             dispose();
@@ -410,7 +543,7 @@ public abstract class QueryServlet extends HttpServlet {
 
     @Override
     @SuppressWarnings("unchecked")
-    protected final void doGet(HttpServletRequest request, HttpServletResponse response)
+    protected final void doGet(HttpServletRequest request, final HttpServletResponse response)
         throws IOException, ServletException {
         Path path = getPath(request);
 
@@ -433,43 +566,69 @@ public abstract class QueryServlet extends HttpServlet {
 
             response.setContentType(serializer.getMIMEType(result));
 
+            final String contentEncoding = getContentEncoding(request);
+            if (contentEncoding != null) {
+                response.addHeader(VARY_HEADER, ACCEPT_ENCODING_HEADER);
+            }
+
             OutputStream responseOutputStream = response.getOutputStream();
 
             if (determineContentLength) {
-                File tempFile = File.createTempFile(getClass().getName(), null);
-
-                // Serialize the result to an intermediary file
-                FileOutputStream fileOutputStream = new FileOutputStream(tempFile);
+                // Serialize the result to an intermediary buffer
+                SpillBuffer spillBuffer = new SpillBuffer(spillThreshold);
+                CompressionOutputStream compressionOutputStream = null;
                 try {
-                    serializer.writeObject(result, fileOutputStream);
+                    if (contentEncoding == null) {
+                        serializer.writeObject(result, spillBuffer);
+                    } else {
+                        compressionOutputStream =
+                            new CompressionOutputStream(spillBuffer, contentEncoding,
+                                compressionThreshold);
+                        serializer.writeObject(result, compressionOutputStream);
+                        compressionOutputStream.finish();
+
+                        if (compressionOutputStream.isCompressed()) {
+                            response.setHeader(CONTENT_ENCODING_HEADER, contentEncoding);
+                        }
+                    }
+
+                    // Set the content length header and write the buffered
+                    // content out to the response
+                    response.setHeader(CONTENT_LENGTH_HEADER, String.valueOf(spillBuffer.getLength()));
+                    spillBuffer.writeTo(responseOutputStream);
                 } catch (SerializationException exception) {
                     throw new ServletException(exception);
                 } finally {
-                    fileOutputStream.close();
-                }
-
-                // Set the content length header
-                response.setHeader(CONTENT_LENGTH_HEADER, String.valueOf(tempFile.length()));
+                    if (compressionOutputStream != null) {
+                        compressionOutputStream.end();
+                    }
 
-                // Write the contents of the file out to the response
-                FileInputStream fileInputStream = new FileInputStream(tempFile);
-                try {
-                    byte[] buffer = new byte[1024];
-                    int nBytes;
-                    do {
-                        nBytes = fileInputStream.read(buffer);
-                        if (nBytes > 0) {
-                            responseOutputStream.write(buffer, 0, nBytes);
-                        }
-                    } while (nBytes != -1);
-                } finally {
-                    fileInputStream.close();
+                    spillBuffer.dispose();
                 }
             } else {
+                CompressionOutputStream compressionOutputStream = null;
                 try {
-                    serializer.writeObject(result, responseOutputStream);
+                    if (contentEncoding == null) {
+                        serializer.writeObject(result, responseOutputStream);
+                    } else {
+                        compressionOutputStream =
+                            new CompressionOutputStream(responseOutputStream, contentEncoding,
+                                compressionThreshold) {
+                            @Override
+                            protected void compressionStarted() {
+                                response.setHeader(CONTENT_ENCODING_HEADER, contentEncoding);
+                            }
+                        };
+
+                        serializer.writeObject(result, compressionOutputStream);
+                        compressionOutputStream.finish();
+                    }
                 } catch (SerializationException exception) {
                     throw new ServletException(exception);
+                } finally {
+                    if (compressionOutputStream != null) {
+                        compressionOutputStream.end();
+                    }
                 }
             }
 
@@ -598,8 +757,91 @@ public abstract class QueryServlet extends HttpServlet {
         return path;
     }
 
+    /**
+     * Returns the content encoding that will be used to compress the response
+     * body, based on the request's <tt>Accept-Encoding</tt> header.
+     *
+     * @return
+     * <tt>"gzip"</tt>, <tt>"deflate"</tt>, or <tt>null</tt> if the response
+     * will not be compressed.
+     */
+    private String getContentEncoding(HttpServletRequest request) {
+        if (compressionThreshold == -1) {
+            return null;
+        }
+
+        return getContentEncoding(request.getHeader(ACCEPT_ENCODING_HEADER));
+    }
+
+    /**
+     * Selects the preferred supported content encoding from the value of an
+     * <tt>Accept-Encoding</tt> header.
+     *
+     * @param acceptEncoding
+     * The header value, or <tt>null</tt> if the header was not sent.
+     *
+     * @return
+     * <tt>"gzip"</tt>, <tt>"deflate"</tt>, or <tt>null</tt> if the client
+     * does not accept either encoding.
+     */
+    public static String getContentEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+
+        float gzipQuality = -1;
+        float deflateQuality = -1;
+        float wildcardQuality = -1;
+
+        String[] codings = acceptEncoding.split(",");
+        for (int i = 0; i < codings.length; i++) {
+            String[] parameters = codings[i].split(";");
+            String coding = parameters[0].trim().toLowerCase();
+
+            float quality = 1;
+            for (int j = 1; j < parameters.length; j++) {
+                String parameter = parameters[j].trim();
+
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Float.parseFloat(parameter.substring(2));
+                    } catch (NumberFormatException exception) {
+                        quality = 0;
+                    }
+                }
+            }
+
+            if (coding.equals(GZIP_ENCODING)
+                || coding.equals("x-gzip")) {
+                gzipQuality = quality;
+            } else if (coding.equals(DEFLATE_ENCODING)) {
+                deflateQuality = quality;
+            } else if (coding.equals("*")) {
+                wildcardQuality = quality;
+            }
+        }
+
+        if (gzipQuality == -1) {
+            gzipQuality = wildcardQuality;
+        }
+
+        if (deflateQuality == -1) {
+            deflateQuality = wildcardQuality;
+        }
+
+        String contentEncoding = null;
+        if (gzipQuality > 0
+            && gzipQuality >= deflateQuality) {
+            contentEncoding = GZIP_ENCODING;
+        } else if (deflateQuality > 0) {
+            contentEncoding = DEFLATE_ENCODING;
+        }
+
+        return contentEncoding;
+    }
+
     private void setResponseHeaders(HttpServletResponse response) {
-        QueryDictionary responseHeaderDictionary = responseHeaders.get();
+        QueryDictionary responseHeaderDictionary = getResponseHeaders();
 
         for (String key : responseHeaderDictionary) {
             for (int i = 0, n = responseHeaderDictionary.getLength(key); i < n; i++) {
@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.web.server;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.pivot.collections.ArrayList;
+
+/**
+ * Output stream that buffers the data written to it so that its length can be
+ * determined before it is sent. Data is held in memory, in fixed-size chunks
+ * drawn from a shared pool, until the spill threshold is reached; beyond that,
+ * full chunks are written to a temporary file.
+ * <p>
+ * Callers must call {@link #dispose()} when the buffer is no longer needed, so
+ * that its chunks are returned to the pool and its file, if any, is deleted.
+ */
+public class SpillBuffer extends OutputStream {
+    private int spillThreshold;
+
+    private ArrayList<byte[]> chunks = new ArrayList<byte[]>();
+    private int position = CHUNK_SIZE;
+    private long length = 0;
+
+    private File file = null;
+    private FileOutputStream fileOutputStream = null;
+
+    private static ConcurrentLinkedQueue<byte[]> chunkPool = new ConcurrentLinkedQueue<byte[]>();
+    private static AtomicInteger chunkPoolSize = new AtomicInteger();
+
+    /**
+     * The size of a buffer chunk.
+     */
+    public static final int CHUNK_SIZE = 8192;
+
+    /**
+     * The default number of bytes held in memory before the buffer spills to
+     * disk.
+     */
+    public static final int DEFAULT_SPILL_THRESHOLD = 1024 * 1024;
+
+    /**
+     * The maximum number of unused chunks retained by the shared pool.
+     */
+    public static final int MAXIMUM_POOLED_CHUNKS = 256;
+
+    public SpillBuffer() {
+        this(DEFAULT_SPILL_THRESHOLD);
+    }
+
+    /**
+     * Creates a new spill buffer.
+     *
+     * @param spillThreshold
+     * The maximum number of bytes held in memory. At least one chunk is always
+     * held in memory.
+     */
+    public SpillBuffer(int spillThreshold) {
+        if (spillThreshold < 0) {
+            throw new IllegalArgumentException("spillThreshold is negative.");
+        }
+
+        this.spillThreshold = spillThreshold;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (position == CHUNK_SIZE) {
+            addChunk();
+        }
+
+        chunks.get(chunks.getLength() - 1)[position++] = (byte)b;
+        length++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (b == null) {
+            throw new IllegalArgumentException("b is null.");
+        }
+
+        if (off < 0
+            || len < 0
+            || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        while (len > 0) {
+            if (position == CHUNK_SIZE) {
+                addChunk();
+            }
+
+            int count = Math.min(len, CHUNK_SIZE - position);
+            System.arraycopy(b, off, chunks.get(chunks.getLength() - 1), position, count);
+
+            position += count;
+            off += count;
+            len -= count;
+            length += count;
+        }
+    }
+
+    /**
+     * Returns the number of bytes that have been written to the buffer.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Indicates whether the buffer has spilled to disk.
+     */
+    public boolean isSpilled() {
+        return (file != null);
+    }
+
+    /**
+     * Writes the contents of the buffer to an output stream. The spilled
+     * content, if any, is transferred from the file channel; the chunks held
+     * in memory are written directly, without copying.
+     *
+     * @param outputStream
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        if (outputStream == null) {
+            throw new IllegalArgumentException("outputStream is null.");
+        }
+
+        if (fileOutputStream != null) {
+            FileInputStream fileInputStream = new FileInputStream(file);
+
+            try {
+                FileChannel fileChannel = fileInputStream.getChannel();
+                WritableByteChannel outputChannel = Channels.newChannel(outputStream);
+
+                long size = fileChannel.size();
+                long transferred = 0;
+                while (transferred < size) {
+                    transferred += fileChannel.transferTo(transferred, size - transferred,
+                        outputChannel);
+                }
+            } finally {
+                fileInputStream.close();
+            }
+        }
+
+        for (int i = 0, n = chunks.getLength(); i < n; i++) {
+            outputStream.write(chunks.get(i), 0, (i == n - 1) ? position : CHUNK_SIZE);
+        }
+    }
+
+    /**
+     * Releases the resources held by the buffer. The buffer may not be used
+     * after it has been disposed.
+     */
+    public void dispose() throws IOException {
+        for (byte[] chunk : chunks) {
+            recycleChunk(chunk);
+        }
+
+        chunks.clear();
+        position = CHUNK_SIZE;
+
+        if (fileOutputStream != null) {
+            try {
+                fileOutputStream.close();
+            } finally {
+                file.delete();
+
+                fileOutputStream = null;
+                file = null;
+            }
+        }
+    }
+
+    private void addChunk() throws IOException {
+        // If another chunk would exceed the threshold, spill the full chunks
+        // to disk
+        if ((long)(chunks.getLength() + 1) * CHUNK_SIZE > spillThreshold
+            && chunks.getLength() > 0) {
+            spill();
+        }
+
+        chunks.add(allocateChunk());
+        position = 0;
+    }
+
+    private void spill() throws IOException {
+        if (fileOutputStream == null) {
+            file = File.createTempFile(getClass().getName(), null);
+            fileOutputStream = new FileOutputStream(file);
+        }
+
+        // Write the chunks using a single gathering write, where possible
+        int n = chunks.getLength();
+        ByteBuffer[] buffers = new ByteBuffer[n];
+        for (int i = 0; i < n; i++) {
+            buffers[i] = ByteBuffer.wrap(chunks.get(i));
+        }
+
+        FileChannel fileChannel = fileOutputStream.getChannel();
+        long remaining = (long)n * CHUNK_SIZE;
+        while (remaining > 0) {
+            remaining -= fileChannel.write(buffers);
+        }
+
+        for (int i = 0; i < n; i++) {
+            recycleChunk(chunks.get(i));
+        }
+
+        chunks.clear();
+    }
+
+    private static byte[] allocateChunk() {
+        byte[] chunk = chunkPool.poll();
+
+        if (chunk == null) {
+            chunk = new byte[CHUNK_SIZE];
+        } else {
+            chunkPoolSize.decrementAndGet();
+        }
+
+        return chunk;
+    }
+
+    private static void recycleChunk(byte[] chunk) {
+        if (chunkPoolSize.incrementAndGet() <= MAXIMUM_POOLED_CHUNKS) {
+            chunkPool.offer(chunk);
+        } else {
+            chunkPoolSize.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.web.server.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.pivot.web.server.CompressionOutputStream;
+import org.apache.pivot.web.server.QueryServlet;
+import org.junit.Test;
+
+public class CompressionOutputStreamTest {
+    @Test
+    public void testGetContentEncoding() {
+        assertNull(QueryServlet.getContentEncoding(null));
+        assertNull(QueryServlet.getContentEncoding(""));
+        assertNull(QueryServlet.getContentEncoding("identity"));
+        assertNull(QueryServlet.getContentEncoding("br, compress"));
+
+        assertEquals("gzip", QueryServlet.getContentEncoding("gzip"));
+        assertEquals("gzip", QueryServlet.getContentEncoding("x-gzip"));
+        assertEquals("gzip", QueryServlet.getContentEncoding("GZIP"));
+        assertEquals("deflate", QueryServlet.getContentEncoding("deflate"));
+
+        // gzip is preferred when the qualities are equal
+        assertEquals("gzip", QueryServlet.getContentEncoding("deflate, gzip"));
+        assertEquals("gzip", QueryServlet.getContentEncoding("*"));
+
+        // Quality values
+        assertEquals("deflate", QueryServlet.getContentEncoding("gzip;q=0.5, deflate"));
+        assertEquals("deflate", QueryServlet.getContentEncoding("gzip; q=0, deflate; q=0.1"));
+        assertEquals("deflate", QueryServlet.getContentEncoding("gzip;q=0, *"));
+        assertEquals("gzip", QueryServlet.getContentEncoding("deflate;q=0, *;q=0.2"));
+        assertNull(QueryServlet.getContentEncoding("gzip;q=0, deflate;q=0"));
+        assertNull(QueryServlet.getContentEncoding("*;q=0"));
+
+        // Malformed quality values are treated as unacceptable
+        assertEquals("deflate", QueryServlet.getContentEncoding("gzip;q=abc, deflate"));
+    }
+
+    @Test
+    public void testBelowThreshold() throws IOException {
+        byte[] data = createData(100);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CompressionOutputStream compressionOutputStream =
+            new CompressionOutputStream(outputStream, QueryServlet.GZIP_ENCODING, data.length);
+        compressionOutputStream.write(data);
+        compressionOutputStream.finish();
+
+        assertFalse(compressionOutputStream.isCompressed());
+        assertArrayEquals(data, outputStream.toByteArray());
+    }
+
+    @Test
+    public void testGZIP() throws IOException {
+        byte[] data = createData(100000);
+        byte[] compressed = compress(data, QueryServlet.GZIP_ENCODING);
+
+        assertTrue(compressed.length < data.length);
+        assertArrayEquals(data, read(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void testDeflate() throws IOException {
+        byte[] data = createData(100000);
+        byte[] compressed = compress(data, QueryServlet.DEFLATE_ENCODING);
+
+        assertTrue(compressed.length < data.length);
+        assertArrayEquals(data, read(new InflaterInputStream(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void testEnd() throws IOException {
+        final int[] started = {0};
+
+        CompressionOutputStream compressionOutputStream =
+            new CompressionOutputStream(new ByteArrayOutputStream(),
+                QueryServlet.DEFLATE_ENCODING, 10) {
+            @Override
+            protected void compressionStarted() {
+                started[0]++;
+            }
+        };
+
+        compressionOutputStream.write(createData(20));
+        assertTrue(compressionOutputStream.isCompressed());
+        assertEquals(1, started[0]);
+
+        // Abandon the stream, as a servlet would on a serialization error
+        compressionOutputStream.end();
+        compressionOutputStream.end();
+
+        // The compressor has been released
+        try {
+            compressionOutputStream.write(createData(20));
+            fail("Wrote to an ended stream.");
+        } catch (NullPointerException exception) {
+            // No-op
+        }
+    }
+
+    private static byte[] compress(byte[] data, String contentEncoding) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CompressionOutputStream compressionOutputStream =
+            new CompressionOutputStream(outputStream, contentEncoding, 1024);
+
+        // Write in pieces so that the threshold is crossed part way through a write
+        for (int i = 0; i < data.length; i += 1000) {
+            compressionOutputStream.write(data, i, Math.min(1000, data.length - i));
+        }
+
+        compressionOutputStream.finish();
+        assertTrue(compressionOutputStream.isCompressed());
+
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] createData(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte)(i % 17 + i / 1000);
+        }
+
+        return data;
+    }
+
+    private static byte[] read(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try {
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+        } finally {
+            inputStream.close();
+        }
+
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.web.server.test;
+
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+
+import org.apache.pivot.collections.HashMap;
+import org.apache.pivot.web.server.ProxyServlet;
+import org.junit.Test;
+
+public class ProxyServletTest {
+    @Test
+    public void testInit() throws ServletException {
+        HashMap<String, String> parameters = new HashMap<String, String>();
+        parameters.put(ProxyServlet.HOSTNAME_PARAM, "localhost");
+        parameters.put(ProxyServlet.PATH_PARAM, "/");
+
+        new ProxyServlet().init(createServletConfig(parameters));
+
+        parameters.put(ProxyServlet.PORT_PARAM, "8080");
+        parameters.put(ProxyServlet.SPILL_THRESHOLD_PARAM, "0");
+        new ProxyServlet().init(createServletConfig(parameters));
+
+        assertInvalid(parameters, ProxyServlet.PORT_PARAM, "abc");
+        assertInvalid(parameters, ProxyServlet.PORT_PARAM, "-1");
+        assertInvalid(parameters, ProxyServlet.PORT_PARAM, "65536");
+
+        parameters.put(ProxyServlet.PORT_PARAM, "8080");
+        assertInvalid(parameters, ProxyServlet.SPILL_THRESHOLD_PARAM, "1MB");
+        assertInvalid(parameters, ProxyServlet.SPILL_THRESHOLD_PARAM, "-1");
+    }
+
+    private static void assertInvalid(HashMap<String, String> parameters, String key,
+        String value) {
+        parameters.put(key, value);
+
+        try {
+            new ProxyServlet().init(createServletConfig(parameters));
+            fail(key + "=" + value + " was accepted.");
+        } catch (ServletException exception) {
+            // No-op
+        }
+    }
+
+    private static ServletConfig createServletConfig(final HashMap<String, String> parameters) {
+        return (ServletConfig)Proxy.newProxyInstance(ServletConfig.class.getClassLoader(),
+            new Class<?>[] {ServletConfig.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getInitParameter")) {
+                    return parameters.get((String)args[0]);
+                }
+
+                return null;
+            }
+        });
+    }
+}
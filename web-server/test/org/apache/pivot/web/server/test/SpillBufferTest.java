@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.web.server.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.pivot.collections.ArrayList;
+import org.apache.pivot.web.server.SpillBuffer;
+import org.junit.Test;
+
+public class SpillBufferTest {
+    @Test
+    public void testInMemory() throws IOException {
+        byte[] data = createData(SpillBuffer.CHUNK_SIZE + 100);
+
+        SpillBuffer spillBuffer = new SpillBuffer();
+        try {
+            spillBuffer.write(data);
+
+            assertFalse(spillBuffer.isSpilled());
+            assertEquals(data.length, spillBuffer.getLength());
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            spillBuffer.writeTo(outputStream);
+            assertArrayEquals(data, outputStream.toByteArray());
+        } finally {
+            spillBuffer.dispose();
+        }
+    }
+
+    @Test
+    public void testSpill() throws IOException {
+        ArrayList<String> tempFiles = getTempFiles();
+
+        byte[] data = createData(SpillBuffer.CHUNK_SIZE * 10 + 123);
+
+        SpillBuffer spillBuffer = new SpillBuffer(SpillBuffer.CHUNK_SIZE * 2);
+        try {
+            // Write single bytes and blocks that straddle chunk boundaries
+            int i = 0;
+            while (i < 1000) {
+                spillBuffer.write(data[i++]);
+            }
+
+            while (i < data.length) {
+                int count = Math.min(SpillBuffer.CHUNK_SIZE + 7, data.length - i);
+                spillBuffer.write(data, i, count);
+                i += count;
+            }
+
+            assertTrue(spillBuffer.isSpilled());
+            assertEquals(data.length, spillBuffer.getLength());
+            assertEquals(tempFiles.getLength() + 1, getTempFiles().getLength());
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            spillBuffer.writeTo(outputStream);
+            assertArrayEquals(data, outputStream.toByteArray());
+        } finally {
+            spillBuffer.dispose();
+        }
+
+        // The spill file has been deleted
+        assertFalse(spillBuffer.isSpilled());
+        assertEquals(tempFiles, getTempFiles());
+    }
+
+    private static byte[] createData(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte)(i * 31 + i / SpillBuffer.CHUNK_SIZE);
+        }
+
+        return data;
+    }
+
+    private static ArrayList<String> getTempFiles() {
+        // Keep the names sorted so that lists can be compared
+        ArrayList<String> tempFiles = new ArrayList<String>(String.CASE_INSENSITIVE_ORDER);
+
+        String prefix = SpillBuffer.class.getName();
+        String[] names = new File(System.getProperty("java.io.tmpdir")).list();
+        if (names != null) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].startsWith(prefix)) {
+                    tempFiles.add(names[i]);
+                }
+            }
+        }
+
+        return tempFiles;
+    }
+}
@@ -22,6 +22,8 @@ import java.util.concurrent.ExecutorService;
  * Executes an HTTP GET operation.
  */
 public class GetQuery extends Query<Object> {
+    private QueryCache cache = null;
+
     public static final Method METHOD = Method.GET;
 
     public GetQuery(String hostname, String path) {
@@ -42,6 +44,29 @@ public class GetQuery extends Query<Object> {
         return METHOD;
     }
 
+    /**
+     * Returns the cache used by this query.
+     *
+     * @return
+     * The query's cache, or <tt>null</tt> if responses are not cached.
+     */
+    public QueryCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Sets the cache used by this query. When a cache is set, responses that
+     * carry an <tt>ETag</tt> or <tt>Last-Modified</tt> header are cached, and
+     * subsequent executions issue conditional requests. A cache may be shared
+     * by several queries.
+     *
+     * @param cache
+     * The cache, or <tt>null</tt> to disable caching.
+     */
+    public void setCache(QueryCache cache) {
+        this.cache = cache;
+    }
+
     /**
      * Synchronously executes the GET operation.
      *
@@ -50,6 +75,6 @@ public class GetQuery extends Query<Object> {
      */
     @Override
     public Object execute() throws QueryException {
-        return execute(METHOD, null);
+        return execute(METHOD, null, cache);
     }
 }
@@ -0,0 +1,832 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.web;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import javax.net.ssl.HostnameVerifier;
+
+import org.apache.pivot.collections.ArrayList;
+import org.apache.pivot.collections.HashMap;
+
+/**
+ * Transport that executes queries over persistent HTTP/1.1 connections.
+ * Connections are kept in a pool after each response has been read, and
+ * subsequent queries to the same host and port reuse them rather than
+ * opening a new connection. Idle connections are closed when they have not
+ * been used for longer than the keep-alive timeout.
+ * <p>
+ * Request bodies are buffered so that they can be sent with a
+ * <tt>Content-Length</tt> header. An idempotent request (GET, PUT, or
+ * DELETE) that fails on a reused connection before any of the response has
+ * been read (for example, because the server has closed the connection) is
+ * retried on a new connection. Non-idempotent requests are never retried;
+ * instead, a pooled connection is checked before it is reused for a POST,
+ * and discarded if the server has closed it. Secure queries, and queries
+ * sent through an HTTP proxy, are executed by a {@link URLConnectionTransport}.
+ */
+public class PooledTransport implements Transport {
+    /**
+     * Pooled socket.
+     */
+    private static class PooledSocket {
+        public final Socket socket;
+        public final InputStream inputStream;
+        public final OutputStream outputStream;
+
+        public long idleTime = 0;
+
+        public PooledSocket(Socket socket) throws IOException {
+            this.socket = socket;
+
+            inputStream = new BufferedInputStream(socket.getInputStream());
+            outputStream = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException exception) {
+                // No-op
+            }
+        }
+
+        /**
+         * Tests whether the server has closed the connection, or sent data
+         * that was not solicited by a request. Blocks for up to a
+         * millisecond.
+         */
+        public boolean isStale() {
+            boolean stale;
+
+            try {
+                if (inputStream.available() > 0) {
+                    stale = true;
+                } else {
+                    int soTimeout = socket.getSoTimeout();
+                    socket.setSoTimeout(STALE_CHECK_TIMEOUT);
+
+                    try {
+                        // Any result, including end of stream, means the
+                        // connection can't be used for a new request
+                        inputStream.read();
+                        stale = true;
+                    } catch (SocketTimeoutException exception) {
+                        stale = false;
+                    } finally {
+                        socket.setSoTimeout(soTimeout);
+                    }
+                }
+            } catch (IOException exception) {
+                stale = true;
+            }
+
+            return stale;
+        }
+    }
+
+    /**
+     * Response body stream that reads a fixed number of bytes.
+     */
+    private static class FixedLengthInputStream extends InputStream {
+        private InputStream inputStream;
+        private long remaining;
+
+        public FixedLengthInputStream(InputStream inputStream, long length) {
+            this.inputStream = inputStream;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+
+            int b = inputStream.read();
+            if (b == -1) {
+                throw new EOFException();
+            }
+
+            remaining--;
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+
+            int count = inputStream.read(b, off, (int)Math.min(len, remaining));
+            if (count == -1) {
+                throw new EOFException();
+            }
+
+            remaining -= count;
+
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int)Math.min(inputStream.available(), remaining);
+        }
+    }
+
+    /**
+     * Response body stream that decodes chunked transfer encoding.
+     */
+    private static class ChunkedInputStream extends InputStream {
+        private InputStream inputStream;
+        private long remaining = 0;
+        private boolean eof = false;
+
+        public ChunkedInputStream(InputStream inputStream) {
+            this.inputStream = inputStream;
+        }
+
+        private boolean nextChunk() throws IOException {
+            if (!eof
+                && remaining == 0) {
+                String line = readLine(inputStream);
+
+                // Skip the line terminating the previous chunk
+                if (line != null
+                    && line.length() == 0) {
+                    line = readLine(inputStream);
+                }
+
+                if (line == null) {
+                    throw new EOFException();
+                }
+
+                int i = line.indexOf(';');
+                if (i != -1) {
+                    line = line.substring(0, i);
+                }
+
+                try {
+                    remaining = Long.parseLong(line.trim(), 16);
+                } catch (NumberFormatException exception) {
+                    throw new IOException("Invalid chunk size \"" + line + "\".");
+                }
+
+                if (remaining == 0) {
+                    // Skip the trailers
+                    do {
+                        line = readLine(inputStream);
+                    } while (line != null
+                        && line.length() > 0);
+
+                    eof = true;
+                }
+            }
+
+            return !eof;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextChunk()) {
+                return -1;
+            }
+
+            int b = inputStream.read();
+            if (b == -1) {
+                throw new EOFException();
+            }
+
+            remaining--;
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (!nextChunk()) {
+                return -1;
+            }
+
+            int count = inputStream.read(b, off, (int)Math.min(len, remaining));
+            if (count == -1) {
+                throw new EOFException();
+            }
+
+            remaining -= count;
+
+            return count;
+        }
+    }
+
+    /**
+     * Response body stream that records whether the body has been read
+     * completely.
+     */
+    private static class ResponseInputStream extends InputStream {
+        private InputStream inputStream;
+        private boolean complete = false;
+
+        public ResponseInputStream(InputStream inputStream) {
+            this.inputStream = inputStream;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = inputStream.read();
+            if (b == -1) {
+                complete = true;
+            }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = inputStream.read(b, off, len);
+            if (count == -1) {
+                complete = true;
+            }
+
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return inputStream.available();
+        }
+
+        @Override
+        public void close() {
+            // No-op; the socket is released when the connection is closed
+        }
+    }
+
+    /**
+     * Pooled connection.
+     */
+    private class PooledConnection implements Connection {
+        private URL location;
+        private Query.Method method;
+        private Proxy proxy;
+        private String route;
+
+        private ArrayList<String> requestHeaderKeys = new ArrayList<String>();
+        private ArrayList<String> requestHeaderValues = new ArrayList<String>();
+
+        private PooledSocket pooledSocket = null;
+        private boolean reused = false;
+        private boolean responseStarted = false;
+
+        private boolean output = false;
+        private ByteArrayOutputStream requestBody = null;
+        private boolean sent = false;
+
+        private int status = 0;
+        private String message = null;
+        private long contentLength = -1;
+
+        private ArrayList<String> responseHeaderKeys = new ArrayList<String>();
+        private ArrayList<String> responseHeaderValues = new ArrayList<String>();
+
+        private ResponseInputStream responseInputStream = null;
+        private boolean reusable = false;
+
+        public PooledConnection(URL location, Query.Method method, Proxy proxy) {
+            this.location = location;
+            this.method = method;
+            this.proxy = proxy;
+
+            route = location.getHost() + ":" + getPort() + "/" + proxy;
+        }
+
+        private int getPort() {
+            int port = location.getPort();
+            return (port == -1) ? location.getDefaultPort() : port;
+        }
+
+        @Override
+        public void setRequestHeader(String key, String value) {
+            for (int i = requestHeaderKeys.getLength() - 1; i >= 0; i--) {
+                if (requestHeaderKeys.get(i).equalsIgnoreCase(key)) {
+                    requestHeaderKeys.remove(i, 1);
+                    requestHeaderValues.remove(i, 1);
+                }
+            }
+
+            addRequestHeader(key, value);
+        }
+
+        @Override
+        public void addRequestHeader(String key, String value) {
+            requestHeaderKeys.add(key);
+            requestHeaderValues.add(value);
+        }
+
+        @Override
+        public void connect(boolean output) throws IOException {
+            this.output = output;
+
+            pooledSocket = acquire(route);
+
+            if (!isIdempotent()) {
+                // The request can't safely be retried, so make sure that the
+                // server hasn't closed the connection before it is sent
+                while (pooledSocket != null
+                    && pooledSocket.isStale()) {
+                    pooledSocket.close();
+                    pooledSocket = acquire(route);
+                }
+            }
+
+            reused = (pooledSocket != null);
+
+            if (pooledSocket == null) {
+                pooledSocket = openSocket();
+            }
+        }
+
+        private boolean isIdempotent() {
+            return (method != Query.Method.POST);
+        }
+
+        private PooledSocket openSocket() throws IOException {
+            Socket socket = new Socket(proxy);
+
+            try {
+                socket.connect(new InetSocketAddress(location.getHost(), getPort()));
+                socket.setTcpNoDelay(true);
+
+                return new PooledSocket(socket);
+            } catch (IOException exception) {
+                socket.close();
+                throw exception;
+            }
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            if (!output) {
+                throw new IllegalStateException("Connection does not have a request body.");
+            }
+
+            if (requestBody == null) {
+                requestBody = new ByteArrayOutputStream();
+            }
+
+            return requestBody;
+        }
+
+        @Override
+        public int getStatus() throws IOException {
+            send();
+            return status;
+        }
+
+        @Override
+        public String getMessage() throws IOException {
+            send();
+            return message;
+        }
+
+        @Override
+        public long getContentLength() {
+            return contentLength;
+        }
+
+        @Override
+        public int getResponseHeaderCount() {
+            return responseHeaderKeys.getLength();
+        }
+
+        @Override
+        public String getResponseHeaderKey(int index) {
+            return responseHeaderKeys.get(index);
+        }
+
+        @Override
+        public String getResponseHeaderValue(int index) {
+            return responseHeaderValues.get(index);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            send();
+            return responseInputStream;
+        }
+
+        @Override
+        public void close() {
+            if (pooledSocket != null) {
+                if (reusable
+                    && responseInputStream != null
+                    && !responseInputStream.complete) {
+                    // Discard the remainder of a small response body so that
+                    // the socket can be reused
+                    try {
+                        byte[] buffer = new byte[1024];
+                        int count = 0;
+                        while (count < DRAIN_LIMIT
+                            && !responseInputStream.complete) {
+                            int n = responseInputStream.read(buffer);
+                            if (n > 0) {
+                                count += n;
+                            }
+                        }
+                    } catch (IOException exception) {
+                        reusable = false;
+                    }
+                }
+
+                if (reusable
+                    && responseInputStream != null
+                    && responseInputStream.complete) {
+                    release(route, pooledSocket);
+                } else {
+                    pooledSocket.close();
+                }
+
+                pooledSocket = null;
+            }
+        }
+
+        private void send() throws IOException {
+            if (pooledSocket == null) {
+                throw new IllegalStateException("Connection is not connected.");
+            }
+
+            if (!sent) {
+                byte[] body = null;
+                if (output) {
+                    body = (requestBody == null) ? new byte[0] : requestBody.toByteArray();
+                }
+
+                while (true) {
+                    try {
+                        writeRequest(body);
+                        readResponse();
+                        break;
+                    } catch (IOException exception) {
+                        pooledSocket.close();
+
+                        if (!reused
+                            || responseStarted
+                            || !isIdempotent()) {
+                            pooledSocket = null;
+                            throw exception;
+                        }
+
+                        // The server may have closed the pooled connection
+                        // before processing the request; retry on a new
+                        // connection
+                        pooledSocket = openSocket();
+                        reused = false;
+                    }
+                }
+
+                sent = true;
+            }
+        }
+
+        private void writeRequest(byte[] body) throws IOException {
+            StringBuilder head = new StringBuilder();
+
+            String file = location.getFile();
+            if (file.length() == 0) {
+                file = "/";
+            }
+
+            head.append(method + " " + file + " HTTP/1.1" + CRLF);
+
+            boolean host = false;
+            for (int i = 0, n = requestHeaderKeys.getLength(); i < n; i++) {
+                String key = requestHeaderKeys.get(i);
+                host |= key.equalsIgnoreCase("Host");
+
+                head.append(key + ": " + requestHeaderValues.get(i) + CRLF);
+            }
+
+            if (!host) {
+                int port = location.getPort();
+                head.append("Host: " + location.getHost()
+                    + ((port == -1 || port == location.getDefaultPort()) ? "" : ":" + port)
+                    + CRLF);
+            }
+
+            if (body != null) {
+                head.append("Content-Length: " + body.length + CRLF);
+            }
+
+            head.append(CRLF);
+
+            OutputStream outputStream = pooledSocket.outputStream;
+            outputStream.write(head.toString().getBytes(HEADER_ENCODING));
+
+            if (body != null) {
+                outputStream.write(body);
+            }
+
+            outputStream.flush();
+        }
+
+        private void readResponse() throws IOException {
+            InputStream inputStream = pooledSocket.inputStream;
+
+            String version;
+            do {
+                responseHeaderKeys.clear();
+                responseHeaderValues.clear();
+
+                // Read the status line
+                String statusLine = readLine(inputStream);
+                if (statusLine == null) {
+                    throw new EOFException("Connection closed by server.");
+                }
+
+                responseStarted = true;
+
+                String[] tokens = statusLine.split(" ", 3);
+                if (tokens.length < 2
+                    || !tokens[0].startsWith("HTTP/")) {
+                    throw new IOException("Invalid status line \"" + statusLine + "\".");
+                }
+
+                version = tokens[0];
+
+                try {
+                    status = Integer.parseInt(tokens[1]);
+                } catch (NumberFormatException exception) {
+                    throw new IOException("Invalid status line \"" + statusLine + "\".");
+                }
+
+                message = (tokens.length > 2) ? tokens[2] : null;
+
+                // Read the headers
+                for (String line = readLine(inputStream); line != null && line.length() > 0;
+                    line = readLine(inputStream)) {
+                    int i = line.indexOf(':');
+                    if (i != -1) {
+                        responseHeaderKeys.add(line.substring(0, i).trim());
+                        responseHeaderValues.add(line.substring(i + 1).trim());
+                    }
+                }
+            } while (status / 100 == 1);
+
+            String connectionHeader = getResponseHeader("Connection");
+            if (version.equals("HTTP/1.0")) {
+                reusable = "keep-alive".equalsIgnoreCase(connectionHeader);
+            } else {
+                reusable = !"close".equalsIgnoreCase(connectionHeader);
+            }
+
+            contentLength = -1;
+            String contentLengthHeader = getResponseHeader("Content-Length");
+            if (contentLengthHeader != null) {
+                try {
+                    contentLength = Long.parseLong(contentLengthHeader);
+                } catch (NumberFormatException exception) {
+                    throw new IOException("Invalid content length \""
+                        + contentLengthHeader + "\".");
+                }
+            }
+
+            InputStream bodyInputStream;
+            if (status == Query.Status.NO_CONTENT
+                || status == Query.Status.NOT_MODIFIED) {
+                bodyInputStream = new FixedLengthInputStream(inputStream, 0);
+            } else if ("chunked".equalsIgnoreCase(getResponseHeader("Transfer-Encoding"))) {
+                bodyInputStream = new ChunkedInputStream(inputStream);
+            } else if (contentLength != -1) {
+                bodyInputStream = new FixedLengthInputStream(inputStream, contentLength);
+            } else {
+                // The body extends to the end of the stream
+                bodyInputStream = inputStream;
+                reusable = false;
+            }
+
+            responseInputStream = new ResponseInputStream(bodyInputStream);
+        }
+
+        private String getResponseHeader(String key) {
+            String value = null;
+
+            for (int i = 0, n = responseHeaderKeys.getLength(); i < n; i++) {
+                if (responseHeaderKeys.get(i).equalsIgnoreCase(key)) {
+                    value = responseHeaderValues.get(i);
+                    break;
+                }
+            }
+
+            return value;
+        }
+    }
+
+    private int maximumIdleConnections;
+    private long keepAliveTimeout;
+
+    private HashMap<String, ArrayList<PooledSocket>> idleSockets =
+        new HashMap<String, ArrayList<PooledSocket>>();
+
+    private URLConnectionTransport urlConnectionTransport = new URLConnectionTransport();
+
+    /**
+     * The default maximum number of idle connections kept per host.
+     */
+    public static final int DEFAULT_MAXIMUM_IDLE_CONNECTIONS = 5;
+
+    /**
+     * The default time, in milliseconds, after which idle connections are
+     * closed.
+     */
+    public static final long DEFAULT_KEEP_ALIVE_TIMEOUT = 15000;
+
+    private static final String CRLF = "\r\n";
+    private static final int DRAIN_LIMIT = 65536;
+    private static final int STALE_CHECK_TIMEOUT = 1;
+    private static final String HEADER_ENCODING = "ISO-8859-1";
+
+    public PooledTransport() {
+        this(DEFAULT_MAXIMUM_IDLE_CONNECTIONS, DEFAULT_KEEP_ALIVE_TIMEOUT);
+    }
+
+    /**
+     * Creates a new pooled transport.
+     *
+     * @param maximumIdleConnections
+     * The maximum number of idle connections kept per host.
+     *
+     * @param keepAliveTimeout
+     * The time, in milliseconds, after which idle connections are closed.
+     */
+    public PooledTransport(int maximumIdleConnections, long keepAliveTimeout) {
+        if (maximumIdleConnections < 0) {
+            throw new IllegalArgumentException("maximumIdleConnections is negative.");
+        }
+
+        if (keepAliveTimeout < 0) {
+            throw new IllegalArgumentException("keepAliveTimeout is negative.");
+        }
+
+        this.maximumIdleConnections = maximumIdleConnections;
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    public int getMaximumIdleConnections() {
+        return maximumIdleConnections;
+    }
+
+    public long getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    @Override
+    public Connection open(URL location, Query.Method method, Proxy proxy,
+        HostnameVerifier hostnameVerifier) throws IOException {
+        if (proxy == null) {
+            proxy = Proxy.NO_PROXY;
+
+            ProxySelector proxySelector = ProxySelector.getDefault();
+            if (proxySelector != null) {
+                try {
+                    java.util.List<Proxy> proxies = proxySelector.select(location.toURI());
+
+                    if (proxies != null
+                        && proxies.size() > 0) {
+                        proxy = proxies.get(0);
+                    }
+                } catch (URISyntaxException exception) {
+                    throw new IOException(exception.getMessage());
+                }
+            }
+        }
+
+        Connection connection;
+        if (!location.getProtocol().equalsIgnoreCase("http")
+            || proxy.type() == Proxy.Type.HTTP) {
+            connection = urlConnectionTransport.open(location, method, proxy, hostnameVerifier);
+        } else {
+            connection = new PooledConnection(location, method, proxy);
+        }
+
+        return connection;
+    }
+
+    /**
+     * Returns the number of idle connections in the pool.
+     */
+    public synchronized int getIdleConnectionCount() {
+        int count = 0;
+
+        for (String route : idleSockets) {
+            count += idleSockets.get(route).getLength();
+        }
+
+        return count;
+    }
+
+    /**
+     * Closes all idle connections.
+     */
+    public synchronized void close() {
+        for (String route : idleSockets) {
+            ArrayList<PooledSocket> sockets = idleSockets.get(route);
+
+            for (PooledSocket pooledSocket : sockets) {
+                pooledSocket.close();
+            }
+        }
+
+        idleSockets.clear();
+    }
+
+    private synchronized PooledSocket acquire(String route) {
+        PooledSocket pooledSocket = null;
+
+        ArrayList<PooledSocket> sockets = idleSockets.get(route);
+        if (sockets != null) {
+            long currentTime = System.currentTimeMillis();
+
+            // Use the most recently released socket, discarding any that have
+            // expired
+            while (pooledSocket == null
+                && sockets.getLength() > 0) {
+                pooledSocket = sockets.remove(sockets.getLength() - 1, 1).get(0);
+
+                if (currentTime - pooledSocket.idleTime > keepAliveTimeout
+                    || pooledSocket.socket.isClosed()) {
+                    pooledSocket.close();
+                    pooledSocket = null;
+                }
+            }
+
+            if (sockets.getLength() == 0) {
+                idleSockets.remove(route);
+            }
+        }
+
+        return pooledSocket;
+    }
+
+    private synchronized void release(String route, PooledSocket pooledSocket) {
+        ArrayList<PooledSocket> sockets = idleSockets.get(route);
+        if (sockets == null) {
+            sockets = new ArrayList<PooledSocket>();
+            idleSockets.put(route, sockets);
+        }
+
+        if (sockets.getLength() < maximumIdleConnections) {
+            pooledSocket.idleTime = System.currentTimeMillis();
+            sockets.add(pooledSocket);
+        } else {
+            pooledSocket.close();
+        }
+    }
+
+    private static String readLine(InputStream inputStream) throws IOException {
+        StringBuilder line = new StringBuilder();
+
+        int b = inputStream.read();
+        if (b == -1) {
+            return null;
+        }
+
+        while (b != -1
+            && b != '\n') {
+            if (b != '\r') {
+                line.append((char)b);
+            }
+
+            b = inputStream.read();
+        }
+
+        return line.toString();
+    }
+}
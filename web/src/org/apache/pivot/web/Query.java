@@ -16,19 +16,22 @@
  */
 package org.apache.pivot.web;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.Proxy;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import javax.net.ssl.HostnameVerifier;
-import javax.net.ssl.HttpsURLConnection;
 
 import org.apache.pivot.io.IOTask;
 import org.apache.pivot.json.JSONSerializer;
@@ -71,6 +74,8 @@ public abstract class Query<V> extends IOTask<V> {
         public static final int CREATED = 201;
         public static final int NO_CONTENT = 204;
 
+        public static final int NOT_MODIFIED = 304;
+
         public static final int BAD_REQUEST = 400;
         public static final int UNAUTHORIZED = 401;
         public static final int FORBIDDEN = 403;
@@ -126,6 +131,13 @@ public abstract class Query<V> extends IOTask<V> {
             }
         }
 
+        @Override
+        public synchronized void responseNotModified(Query<V> query) {
+            for (QueryListener<V> listener : this) {
+                listener.responseNotModified(query);
+            }
+        }
+
         @Override
         public synchronized void failed(Query<V> query) {
             for (QueryListener<V> listener : this) {
@@ -134,9 +146,55 @@ public abstract class Query<V> extends IOTask<V> {
         }
     }
 
+    /**
+     * Input stream that counts the bytes that are read from it by
+     * incrementing the <tt>bytesDecoded</tt> member variable.
+     */
+    private class DecodedInputStream extends FilterInputStream {
+        public DecodedInputStream(InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+
+            if (result != -1) {
+                bytesDecoded++;
+            }
+
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+
+            if (count != -1) {
+                bytesDecoded += count;
+            }
+
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long count = super.skip(n);
+            bytesDecoded += count;
+
+            return count;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
     private URL locationContext = null;
     private HostnameVerifier hostnameVerifier = null;
     private Proxy proxy = null;
+    private Transport transport = null;
 
     private QueryDictionary parameters = new QueryDictionary(true);
     private QueryDictionary requestHeaders = new QueryDictionary(false);
@@ -144,6 +202,13 @@ public abstract class Query<V> extends IOTask<V> {
     private int status = 0;
 
     private volatile long bytesExpected = -1;
+    private volatile long bytesDecoded = 0;
+
+    private boolean compressionEnabled = true;
+
+    // A completed query whose response is returned by the next execution of
+    // this query, in place of a request; see QueryBatch
+    private Query<?> sharedResponseQuery = null;
 
     private Serializer<?> serializer = new JSONSerializer();
 
@@ -151,10 +216,19 @@ public abstract class Query<V> extends IOTask<V> {
 
     public static final int DEFAULT_PORT = -1;
 
+    private static Transport defaultTransport = new URLConnectionTransport();
+
     private static final String HTTP_PROTOCOL = "http";
     private static final String HTTPS_PROTOCOL = "https";
     private static final String URL_ENCODING = "UTF-8";
 
+    private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    private static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    private static final String GZIP_ENCODING = "gzip";
+    private static final String X_GZIP_ENCODING = "x-gzip";
+    private static final String DEFLATE_ENCODING = "deflate";
+    private static final String IDENTITY_ENCODING = "identity";
+
     static {
         try {
             // See http://java.sun.com/javase/6/docs/technotes/guides/net/proxies.html
@@ -234,6 +308,49 @@ public abstract class Query<V> extends IOTask<V> {
         this.proxy = proxy;
     }
 
+    /**
+     * Gets the transport used to execute this query.
+     *
+     * @return
+     * This query's transport, or <tt>null</tt> if the query uses the default
+     * transport.
+     */
+    public Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Sets the transport used to execute this query.
+     *
+     * @param transport
+     * This query's transport, or <tt>null</tt> to use the default transport.
+     */
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Gets the transport used by queries that do not specify one.
+     */
+    public static Transport getDefaultTransport() {
+        return defaultTransport;
+    }
+
+    /**
+     * Sets the transport used by queries that do not specify one. By default,
+     * an instance of {@link URLConnectionTransport} is used.
+     *
+     * @param defaultTransport
+     * The default transport (must be non-null).
+     */
+    public static void setDefaultTransport(Transport defaultTransport) {
+        if (defaultTransport == null) {
+            throw new IllegalArgumentException("defaultTransport is null.");
+        }
+
+        Query.defaultTransport = defaultTransport;
+    }
+
     public URL getLocation() {
         StringBuilder queryStringBuilder = new StringBuilder();
 
@@ -370,16 +487,85 @@ public abstract class Query<V> extends IOTask<V> {
         return bytesExpected;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Gets the number of bytes of the server's HTTP response body that have
+     * been passed to the serializer. If the response was compressed, this is
+     * the number of decompressed bytes, and {@link #getBytesReceived()} is the
+     * number of compressed bytes; otherwise, the two values are equal.
+     */
+    public long getBytesDecoded() {
+        return bytesDecoded;
+    }
+
+    /**
+     * Indicates whether the query accepts compressed responses.
+     *
+     * @return
+     * <tt>true</tt> if the query sends an <tt>Accept-Encoding</tt> header
+     * requesting gzip or deflate content encoding; <tt>false</tt>, otherwise.
+     * Compressed responses are always decoded, regardless of this setting.
+     */
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    /**
+     * Sets whether the query accepts compressed responses. An
+     * <tt>Accept-Encoding</tt> header set explicitly in the request headers
+     * takes precedence over this setting.
+     *
+     * @param compressionEnabled
+     */
+    public void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
     protected Object execute(Method method, Object value) throws QueryException {
+        return execute(method, value, null);
+    }
+
+    /**
+     * Executes the query, issuing a conditional request if the response is
+     * present in the given cache.
+     *
+     * @param method
+     * @param value
+     * @param cache
+     * The cache in which GET responses are stored, or <tt>null</tt> for no
+     * caching.
+     */
+    @SuppressWarnings("unchecked")
+    protected Object execute(Method method, Object value, QueryCache cache)
+        throws QueryException {
+        Query<?> sharedResponseQuery;
+        synchronized (this) {
+            sharedResponseQuery = this.sharedResponseQuery;
+            this.sharedResponseQuery = null;
+        }
+
+        if (sharedResponseQuery != null) {
+            return execute(sharedResponseQuery);
+        }
+
         URL location = getLocation();
-        HttpURLConnection connection = null;
+        Transport.Connection connection = null;
+
+        String cacheKey = null;
+        QueryCache.Entry entry = null;
+        if (cache != null
+            && method == Method.GET) {
+            cacheKey = location.toString();
+            entry = cache.get(cacheKey);
+        } else {
+            cache = null;
+        }
 
         Serializer<Object> serializer = (Serializer<Object>)this.serializer;
 
         bytesSent = 0;
         bytesReceived = 0;
         bytesExpected = -1;
+        bytesDecoded = 0;
 
         status = 0;
         String message = null;
@@ -389,44 +575,47 @@ public abstract class Query<V> extends IOTask<V> {
             responseHeaders.clear();
 
             // Open a connection
-            if (proxy == null) {
-                connection = (HttpURLConnection) location.openConnection();
-            } else {
-                connection = (HttpURLConnection) location.openConnection(proxy);
+            Transport transport = this.transport;
+            if (transport == null) {
+                transport = defaultTransport;
             }
 
-            connection.setRequestMethod(method.toString());
-            connection.setAllowUserInteraction(false);
-            connection.setInstanceFollowRedirects(false);
-            connection.setUseCaches(false);
-
-            if (connection instanceof HttpsURLConnection
-                && hostnameVerifier != null) {
-                HttpsURLConnection httpsConnection = (HttpsURLConnection) connection;
-                httpsConnection.setHostnameVerifier(hostnameVerifier);
-            }
+            connection = transport.open(location, method, proxy, hostnameVerifier);
 
             // Set the request headers
             if (value != null) {
-                connection.setRequestProperty("Content-Type", serializer.getMIMEType(value));
+                connection.setRequestHeader("Content-Type", serializer.getMIMEType(value));
             }
 
             for (String key : requestHeaders) {
                 for (int i = 0, n = requestHeaders.getLength(key); i < n; i++) {
                     if (i == 0) {
-                        connection.setRequestProperty(key, requestHeaders.get(key, i));
+                        connection.setRequestHeader(key, requestHeaders.get(key, i));
                     } else {
-                        connection.addRequestProperty(key, requestHeaders.get(key, i));
+                        connection.addRequestHeader(key, requestHeaders.get(key, i));
                     }
                 }
             }
 
-            // Set the input/output state
-            connection.setDoInput(true);
-            connection.setDoOutput(value != null);
+            if (compressionEnabled
+                && !requestHeaders.containsKey(ACCEPT_ENCODING_HEADER)) {
+                connection.setRequestHeader(ACCEPT_ENCODING_HEADER,
+                    GZIP_ENCODING + ", " + DEFLATE_ENCODING);
+            }
+
+            // Set the cache validators
+            if (entry != null) {
+                if (entry.eTag != null) {
+                    connection.setRequestHeader("If-None-Match", entry.eTag);
+                }
+
+                if (entry.lastModified != null) {
+                    connection.setRequestHeader("If-Modified-Since", entry.lastModified);
+                }
+            }
 
             // Connect to the server
-            connection.connect();
+            connection.connect(value != null);
             queryListeners.connected(this);
 
             // Write the request body
@@ -446,35 +635,90 @@ public abstract class Query<V> extends IOTask<V> {
             queryListeners.requestSent(this);
 
             // Set the response info
-            status = connection.getResponseCode();
-            message = connection.getResponseMessage();
+            status = connection.getStatus();
+            message = connection.getMessage();
 
             // Record the content length
             bytesExpected = connection.getContentLength();
 
-            // NOTE Header indexes start at 1, not 0
-            int i = 1;
-            for (String key = connection.getHeaderFieldKey(i); key != null;
-                key = connection.getHeaderFieldKey(++i)) {
-                responseHeaders.add(key, connection.getHeaderField(i));
+            for (int i = 0, n = connection.getResponseHeaderCount(); i < n; i++) {
+                responseHeaders.add(connection.getResponseHeaderKey(i),
+                    connection.getResponseHeaderValue(i));
             }
 
-            // If the response was anything other than 2xx, throw an exception
-            int statusPrefix = status / 100;
-            if (statusPrefix != 2) {
-                throw new QueryException(status, message);
-            }
+            if (status == Query.Status.NOT_MODIFIED
+                && entry != null) {
+                // Return the cached value
+                value = entry.value;
 
-            // Read the response body
-            if (method == Method.GET
-                && status == Query.Status.OK) {
-                InputStream inputStream = null;
-                try {
-                    inputStream = connection.getInputStream();
-                    value = serializer.readObject(new MonitoredInputStream(inputStream));
-                } finally {
-                    if (inputStream != null) {
-                        inputStream.close();
+                if (value == null) {
+                    byte[] content = cache.read(cacheKey);
+
+                    if (content == null) {
+                        // The cached content is no longer available; request
+                        // the full response
+                        cache.remove(cacheKey);
+                        return execute(method, null, cache);
+                    }
+
+                    value = readValue(new ByteArrayInputStream(content));
+                    cache.put(cacheKey, entry.eTag, entry.lastModified, content, value);
+                }
+
+                cache.hit(entry);
+                queryListeners.responseNotModified(this);
+            } else {
+                // If the response was anything other than 2xx, throw an exception
+                int statusPrefix = status / 100;
+                if (statusPrefix != 2) {
+                    throw new QueryException(status, message);
+                }
+
+                // Read the response body
+                if (method == Method.GET
+                    && status == Query.Status.OK) {
+                    InputStream inputStream = null;
+                    InputStream decodedInputStream = null;
+                    try {
+                        inputStream = connection.getInputStream();
+                        decodedInputStream = decode(new MonitoredInputStream(inputStream));
+
+                        if (cache == null) {
+                            value = readValue(decodedInputStream);
+                        } else {
+                            cache.miss();
+
+                            // Buffer the decoded content so that it can be cached
+                            ByteArrayOutputStream contentOutputStream = new ByteArrayOutputStream();
+
+                            byte[] buffer = new byte[8192];
+                            int count;
+                            while ((count = decodedInputStream.read(buffer)) != -1) {
+                                contentOutputStream.write(buffer, 0, count);
+                            }
+
+                            byte[] content = contentOutputStream.toByteArray();
+                            value = readValue(new ByteArrayInputStream(content));
+
+                            String eTag = responseHeaders.get("ETag");
+                            String lastModified = responseHeaders.get("Last-Modified");
+
+                            if (eTag == null
+                                && lastModified == null) {
+                                cache.remove(cacheKey);
+                            } else {
+                                cache.put(cacheKey, eTag, lastModified, content, value);
+                            }
+                        }
+                    } finally {
+                        // Closing the decoded stream also releases the native
+                        // memory held by its inflater and closes the underlying
+                        // stream
+                        if (decodedInputStream != null) {
+                            decodedInputStream.close();
+                        } else if (inputStream != null) {
+                            inputStream.close();
+                        }
                     }
                 }
             }
@@ -490,11 +734,100 @@ public abstract class Query<V> extends IOTask<V> {
         } catch (RuntimeException exception) {
             queryListeners.failed(this);
             throw exception;
+        } finally {
+            if (connection != null) {
+                connection.close();
+            }
         }
 
         return value;
     }
 
+    /**
+     * Reads the body of a GET response. By default, the body is read using
+     * the query's serializer.
+     *
+     * @param inputStream
+     * The stream from which the response body is read.
+     *
+     * @return
+     * The result of the query.
+     */
+    @SuppressWarnings("unchecked")
+    protected Object readValue(InputStream inputStream)
+        throws IOException, SerializationException {
+        return ((Serializer<Object>)serializer).readObject(inputStream);
+    }
+
+    /**
+     * Wraps a response body stream in a stream that decodes the body
+     * according to its <tt>Content-Encoding</tt> header.
+     */
+    private InputStream decode(InputStream inputStream) throws IOException {
+        String contentEncoding = responseHeaders.get(CONTENT_ENCODING_HEADER);
+
+        if (contentEncoding != null) {
+            contentEncoding = contentEncoding.trim().toLowerCase();
+
+            if (contentEncoding.equals(GZIP_ENCODING)
+                || contentEncoding.equals(X_GZIP_ENCODING)) {
+                inputStream = new GZIPInputStream(inputStream);
+            } else if (contentEncoding.equals(DEFLATE_ENCODING)) {
+                inputStream = new InflaterInputStream(inputStream);
+            } else if (!contentEncoding.equals(IDENTITY_ENCODING)
+                && contentEncoding.length() > 0) {
+                throw new IOException("Unsupported content encoding: " + contentEncoding);
+            }
+        }
+
+        return new DecodedInputStream(inputStream);
+    }
+
+    /**
+     * Sets a completed query whose response will be returned by the next
+     * execution of this query, instead of sending a request.
+     *
+     * @param query
+     */
+    synchronized void setSharedResponse(Query<?> query) {
+        sharedResponseQuery = query;
+    }
+
+    /**
+     * Copies the response of a completed query. Only the
+     * <tt>responseReceived()</tt> or <tt>failed()</tt> event is fired.
+     */
+    private Object execute(Query<?> query) throws QueryException {
+        status = query.status;
+        bytesSent = 0;
+        bytesReceived = query.bytesReceived;
+        bytesExpected = query.bytesExpected;
+        bytesDecoded = query.bytesDecoded;
+
+        responseHeaders.clear();
+        for (String key : query.responseHeaders) {
+            for (int i = 0, n = query.responseHeaders.getLength(key); i < n; i++) {
+                responseHeaders.add(key, query.responseHeaders.get(key, i));
+            }
+        }
+
+        Exception fault = query.getFault();
+        if (fault != null) {
+            queryListeners.failed(this);
+
+            if (fault instanceof QueryException) {
+                QueryException queryException = (QueryException)fault;
+                throw new QueryException(queryException.getStatus(), queryException.getMessage());
+            }
+
+            throw new QueryException(fault);
+        }
+
+        queryListeners.responseReceived(this);
+
+        return query.getResult();
+    }
+
     /**
      * Returns the query listener list.
      */
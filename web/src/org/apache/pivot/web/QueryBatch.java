@@ -0,0 +1,604 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.web;
+
+import java.util.Iterator;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.pivot.collections.ArrayList;
+import org.apache.pivot.collections.HashMap;
+import org.apache.pivot.collections.List;
+import org.apache.pivot.collections.Sequence;
+import org.apache.pivot.collections.immutable.ImmutableList;
+import org.apache.pivot.util.ImmutableIterator;
+import org.apache.pivot.util.concurrent.AbortException;
+import org.apache.pivot.util.concurrent.Task;
+import org.apache.pivot.util.concurrent.TaskExecutionException;
+import org.apache.pivot.util.concurrent.TaskListener;
+import org.apache.pivot.util.concurrent.TimeoutException;
+
+/**
+ * Class that executes a batch of queries concurrently and collects their
+ * results.
+ * <p>
+ * At most {@link #getMaximumConnectionsPerHost()} queries to the same host
+ * and port are executing at any given time; the remaining queries are started
+ * in order as running queries to that host complete.
+ * <p>
+ * GET queries that are identical to a query that is queued or executing in
+ * the batch (same location, request headers and serializer type) are not
+ * sent. Instead, once the original query has completed, each duplicate query
+ * is executed with a copy of its status, response headers and byte counts,
+ * and returns the same value (or fails with the same fault). Only the
+ * <tt>responseReceived()</tt> or <tt>failed()</tt> query listener event is
+ * fired for duplicate queries.
+ * <p>
+ * Each query is executed as a task, so any task listener passed to
+ * {@link #add(Query, TaskListener)} is notified as the query completes, from
+ * the thread that executed it. Queries are started by the thread executing
+ * the batch. The batch itself completes once every query
+ * has completed. Its result is a list containing the result of each query,
+ * in the order in which the queries were added; faults are collected in a
+ * parallel list (see {@link #getFaults()}). A failed query does not cause the
+ * batch to fail.
+ * <p>
+ * If a timeout is set via {@link #setTimeout(long)}, it is interpreted as the
+ * maximum number of milliseconds the batch may run; when exceeded, pending
+ * queries are aborted and the batch fails with a {@link TimeoutException}.
+ */
+public class QueryBatch extends Task<List<Object>>
+    implements Sequence<Query<?>>, Iterable<Query<?>> {
+    /**
+     * The outcome of a query, posted to the batch thread.
+     */
+    private static class Completion {
+        public final int index;
+        public final Object result;
+        public final Exception fault;
+
+        public Completion(int index, Object result, Exception fault) {
+            this.index = index;
+            this.result = result;
+            this.fault = fault;
+        }
+    }
+
+    /**
+     * Holds the state of a single execution of the batch. Queries are only
+     * started by the thread executing the batch: task listeners post each
+     * query's outcome to a completion queue, which the batch thread drains,
+     * starting queued and duplicate queries as their predecessors complete.
+     * This ensures that no query is ever submitted from the thread of another
+     * query.
+     */
+    private class Execution implements TaskListener<Object> {
+        private Query<?>[] queries;
+        private TaskListener<?>[] taskListeners;
+
+        private ArrayList<Object> results;
+        private ArrayList<Exception> faults;
+
+        // The queries that are waiting for a connection to each host
+        private HashMap<String, ArrayList<Integer>> queuedQueries =
+            new HashMap<String, ArrayList<Integer>>();
+
+        // The number of queries executing against each host
+        private HashMap<String, Integer> activeCounts = new HashMap<String, Integer>();
+
+        // The original of each GET query that is queued or executing, and the
+        // indexes of its duplicates
+        private HashMap<String, Integer> originals = new HashMap<String, Integer>();
+        private HashMap<Integer, ArrayList<Integer>> duplicates =
+            new HashMap<Integer, ArrayList<Integer>>();
+
+        private boolean[] duplicate;
+
+        private int remaining;
+        private LinkedBlockingQueue<Completion> completions = new LinkedBlockingQueue<Completion>();
+
+        private volatile boolean cancelled = false;
+
+        public Execution(Query<?>[] queries, TaskListener<?>[] taskListeners) {
+            this.queries = queries;
+            this.taskListeners = taskListeners;
+
+            results = new ArrayList<Object>(queries.length);
+            faults = new ArrayList<Exception>(queries.length);
+            for (int i = 0; i < queries.length; i++) {
+                results.add(null);
+                faults.add(null);
+            }
+
+            duplicate = new boolean[queries.length];
+            remaining = queries.length;
+        }
+
+        /**
+         * Runs the queries until all queries have completed or the execution
+         * is cancelled.
+         *
+         * @return
+         * <tt>false</tt> if the timeout elapsed; <tt>true</tt>, otherwise.
+         */
+        public boolean run(long timeout) throws InterruptedException {
+            long deadline = (timeout == Long.MAX_VALUE) ?
+                Long.MAX_VALUE : System.currentTimeMillis() + timeout;
+
+            for (int i = 0; i < queries.length; i++) {
+                schedule(i);
+            }
+
+            boolean completed = true;
+
+            while (remaining > 0
+                && !cancelled) {
+                Completion completion;
+                if (deadline == Long.MAX_VALUE) {
+                    completion = completions.take();
+                } else {
+                    completion = completions.poll(deadline - System.currentTimeMillis(),
+                        TimeUnit.MILLISECONDS);
+                }
+
+                if (completion == null) {
+                    completed = false;
+                    break;
+                }
+
+                if (completion.index != CANCELLED) {
+                    completed(completion.index, completion.result, completion.fault);
+                }
+            }
+
+            return completed;
+        }
+
+        private void schedule(int index) {
+            Query<?> query = queries[index];
+
+            // Look for an identical GET query
+            String key = getDuplicateKey(query);
+            if (key != null) {
+                Integer original = originals.get(key);
+
+                if (original == null) {
+                    originals.put(key, index);
+                } else {
+                    ArrayList<Integer> indexes = duplicates.get(original);
+                    if (indexes == null) {
+                        indexes = new ArrayList<Integer>();
+                        duplicates.put(original, indexes);
+                    }
+
+                    indexes.add(index);
+                    duplicate[index] = true;
+
+                    return;
+                }
+            }
+
+            // Start the query or wait for a connection
+            String host = getHostKey(query);
+            Integer activeCount = activeCounts.get(host);
+            if (activeCount == null) {
+                activeCount = 0;
+            }
+
+            if (activeCount < maximumConnectionsPerHost) {
+                activeCounts.put(host, activeCount + 1);
+                start(index);
+            } else {
+                ArrayList<Integer> indexes = queuedQueries.get(host);
+                if (indexes == null) {
+                    indexes = new ArrayList<Integer>();
+                    queuedQueries.put(host, indexes);
+                }
+
+                indexes.add(index);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void start(int index) {
+            Query<Object> query = (Query<Object>)queries[index];
+
+            if (cancelled) {
+                completed(index, null, new AbortException());
+            } else {
+                try {
+                    query.execute(this);
+                } catch (RuntimeException exception) {
+                    completed(index, null, exception);
+                }
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void taskExecuted(Task<Object> task) {
+            int index = indexOf(task);
+
+            TaskListener<Object> taskListener = (TaskListener<Object>)taskListeners[index];
+            if (taskListener != null) {
+                taskListener.taskExecuted(task);
+            }
+
+            completions.offer(new Completion(index, task.getResult(), null));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void executeFailed(Task<Object> task) {
+            int index = indexOf(task);
+
+            TaskListener<Object> taskListener = (TaskListener<Object>)taskListeners[index];
+            if (taskListener != null) {
+                taskListener.executeFailed(task);
+            }
+
+            completions.offer(new Completion(index, null, task.getFault()));
+        }
+
+        private int indexOf(Task<?> task) {
+            int i = 0;
+            while (queries[i] != task) {
+                i++;
+            }
+
+            return i;
+        }
+
+        private void completed(int index, Object result, Exception fault) {
+            synchronized (this) {
+                results.update(index, result);
+                faults.update(index, fault);
+            }
+
+            if (!duplicate[index]) {
+                Query<?> query = queries[index];
+
+                // Execute the duplicates of this query
+                String key = getDuplicateKey(query);
+                if (key != null) {
+                    originals.remove(key);
+
+                    ArrayList<Integer> indexes = duplicates.remove(index);
+                    if (indexes != null) {
+                        // If the query could not be started, its duplicates
+                        // fail with the same fault
+                        boolean executed = (fault == null
+                            || fault == query.getFault());
+
+                        for (Integer duplicateIndex : indexes) {
+                            if (executed) {
+                                queries[duplicateIndex].setSharedResponse(query);
+                                start(duplicateIndex);
+                            } else {
+                                completed(duplicateIndex, null, fault);
+                            }
+                        }
+                    }
+                }
+
+                // Start the next query to this host
+                String host = getHostKey(query);
+                ArrayList<Integer> indexes = queuedQueries.get(host);
+
+                if (indexes == null) {
+                    int activeCount = activeCounts.get(host) - 1;
+                    if (activeCount == 0) {
+                        activeCounts.remove(host);
+                    } else {
+                        activeCounts.put(host, activeCount);
+                    }
+                } else {
+                    int nextIndex = indexes.remove(0, 1).get(0);
+                    if (indexes.getLength() == 0) {
+                        queuedQueries.remove(host);
+                    }
+
+                    start(nextIndex);
+                }
+            }
+
+            remaining--;
+        }
+
+        public void cancel() {
+            cancelled = true;
+
+            for (int i = 0; i < queries.length; i++) {
+                Query<?> query = queries[i];
+
+                synchronized (query) {
+                    if (query.isPending()) {
+                        query.abort();
+                    }
+                }
+            }
+
+            completions.offer(new Completion(CANCELLED, null, null));
+        }
+    }
+
+    private ArrayList<Query<?>> queries = new ArrayList<Query<?>>();
+    private ArrayList<TaskListener<?>> taskListeners = new ArrayList<TaskListener<?>>();
+
+    private int maximumConnectionsPerHost;
+
+    private Execution execution = null;
+    private List<Exception> faults = null;
+
+    /**
+     * The default maximum number of queries executing against a single host.
+     */
+    public static final int DEFAULT_MAXIMUM_CONNECTIONS_PER_HOST = 6;
+
+    // The index of the completion posted when an execution is cancelled
+    private static final int CANCELLED = -1;
+
+    public QueryBatch() {
+        this(DEFAULT_MAXIMUM_CONNECTIONS_PER_HOST);
+    }
+
+    public QueryBatch(int maximumConnectionsPerHost) {
+        this(maximumConnectionsPerHost, DEFAULT_EXECUTOR_SERVICE);
+    }
+
+    public QueryBatch(int maximumConnectionsPerHost, ExecutorService executorService) {
+        super(executorService);
+
+        setMaximumConnectionsPerHost(maximumConnectionsPerHost);
+    }
+
+    /**
+     * Returns the maximum number of queries that may execute against a single
+     * host at the same time.
+     */
+    public synchronized int getMaximumConnectionsPerHost() {
+        return maximumConnectionsPerHost;
+    }
+
+    /**
+     * Sets the maximum number of queries that may execute against a single
+     * host at the same time.
+     *
+     * @param maximumConnectionsPerHost
+     */
+    public synchronized void setMaximumConnectionsPerHost(int maximumConnectionsPerHost) {
+        if (maximumConnectionsPerHost < 1) {
+            throw new IllegalArgumentException("maximumConnectionsPerHost must be positive.");
+        }
+
+        if (isPending()) {
+            throw new IllegalStateException();
+        }
+
+        this.maximumConnectionsPerHost = maximumConnectionsPerHost;
+    }
+
+    /**
+     * Executes the queries in the batch and waits for them to complete.
+     *
+     * @return
+     * A list containing the result of each query, in query order. The entry
+     * for a query that failed is <tt>null</tt>.
+     *
+     * @throws TimeoutException
+     * If the batch did not complete within the timeout.
+     *
+     * @throws AbortException
+     * If the batch was aborted.
+     */
+    @Override
+    public List<Object> execute() throws TaskExecutionException {
+        Execution execution;
+
+        synchronized (this) {
+            int n = queries.getLength();
+
+            Query<?>[] queries = new Query<?>[n];
+            TaskListener<?>[] taskListeners = new TaskListener<?>[n];
+            for (int i = 0; i < n; i++) {
+                queries[i] = this.queries.get(i);
+                taskListeners[i] = this.taskListeners.get(i);
+            }
+
+            execution = new Execution(queries, taskListeners);
+            this.execution = execution;
+            faults = new ImmutableList<Exception>(execution.faults);
+
+            if (abort) {
+                throw new AbortException();
+            }
+        }
+
+        boolean completed;
+        try {
+            completed = execution.run(timeout);
+        } catch (InterruptedException exception) {
+            execution.cancel();
+            throw new TaskExecutionException(exception);
+        }
+
+        if (!completed) {
+            execution.cancel();
+            throw new TimeoutException();
+        }
+
+        if (abort) {
+            throw new AbortException();
+        }
+
+        synchronized (execution) {
+            return new ArrayList<Object>(execution.results);
+        }
+    }
+
+    /**
+     * Returns the faults of the queries in the most recent execution of the
+     * batch, in query order. The entry for a query that succeeded or has not
+     * completed is <tt>null</tt>.
+     *
+     * @return
+     * The faults, or <tt>null</tt> if the batch has not been executed.
+     */
+    public synchronized List<Exception> getFaults() {
+        return faults;
+    }
+
+    /**
+     * Aborts all pending queries in this batch.
+     */
+    @Override
+    public synchronized void abort() {
+        super.abort();
+
+        if (execution != null) {
+            execution.cancel();
+        }
+    }
+
+    /**
+     * Adds a query to the batch, along with a listener that is notified when
+     * the query completes.
+     *
+     * @param query
+     * @param taskListener
+     * The listener, or <tt>null</tt>.
+     */
+    public synchronized <V> int add(Query<V> query, TaskListener<V> taskListener) {
+        int index = queries.getLength();
+        insert(query, index);
+        taskListeners.update(index, taskListener);
+
+        return index;
+    }
+
+    @Override
+    public synchronized int add(Query<?> query) {
+        int index = queries.getLength();
+        insert(query, index);
+
+        return index;
+    }
+
+    @Override
+    public synchronized void insert(Query<?> query, int index) {
+        if (query == null) {
+            throw new IllegalArgumentException("query is null.");
+        }
+
+        if (isPending()) {
+            throw new IllegalStateException();
+        }
+
+        queries.insert(query, index);
+        taskListeners.insert(null, index);
+    }
+
+    @Override
+    public synchronized Query<?> update(int index, Query<?> query) {
+        if (query == null) {
+            throw new IllegalArgumentException("query is null.");
+        }
+
+        if (isPending()) {
+            throw new IllegalStateException();
+        }
+
+        taskListeners.update(index, null);
+
+        return queries.update(index, query);
+    }
+
+    @Override
+    public synchronized int remove(Query<?> query) {
+        int index = queries.indexOf(query);
+        if (index != -1) {
+            remove(index, 1);
+        }
+
+        return index;
+    }
+
+    @Override
+    public synchronized Sequence<Query<?>> remove(int index, int count) {
+        if (isPending()) {
+            throw new IllegalStateException();
+        }
+
+        taskListeners.remove(index, count);
+
+        return queries.remove(index, count);
+    }
+
+    @Override
+    public synchronized Query<?> get(int index) {
+        return queries.get(index);
+    }
+
+    @Override
+    public synchronized int indexOf(Query<?> query) {
+        return queries.indexOf(query);
+    }
+
+    @Override
+    public synchronized int getLength() {
+        return queries.getLength();
+    }
+
+    @Override
+    public Iterator<Query<?>> iterator() {
+        return new ImmutableIterator<Query<?>>(queries.iterator());
+    }
+
+    private static String getHostKey(Query<?> query) {
+        return query.getHostname().toLowerCase() + ":" + query.getPort();
+    }
+
+    /**
+     * Returns the key that identifies duplicates of a GET query, or
+     * <tt>null</tt> if the query is not a GET query.
+     */
+    private static String getDuplicateKey(Query<?> query) {
+        String key = null;
+
+        if (query.getMethod() == Query.Method.GET) {
+            TreeMap<String, String> requestHeaders = new TreeMap<String, String>();
+
+            QueryDictionary queryRequestHeaders = query.getRequestHeaders();
+            for (String header : queryRequestHeaders) {
+                StringBuilder values = new StringBuilder();
+
+                for (int i = 0, n = queryRequestHeaders.getLength(header); i < n; i++) {
+                    values.append(queryRequestHeaders.get(header, i) + "\n");
+                }
+
+                requestHeaders.put(header, values.toString());
+            }
+
+            key = query.getLocation() + " " + requestHeaders + " "
+                + query.getSerializer().getClass().getName();
+        }
+
+        return key;
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.web;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Client-side cache of GET responses, used to issue conditional requests.
+ * Responses that carry an <tt>ETag</tt> or <tt>Last-Modified</tt> header are
+ * stored along with their deserialized value, keyed by location (including
+ * query parameters). When a cached location is requested again, the query
+ * sends <tt>If-None-Match</tt> and <tt>If-Modified-Since</tt> headers; if the
+ * server responds with <tt>304 Not Modified</tt>, the cached value is
+ * returned without downloading or deserializing the response.
+ * <p>
+ * The total size of the responses held in memory is bounded; the least
+ * recently used entries are discarded first. If a spill directory is set,
+ * the response content is also written to disk, and entries that have been
+ * discarded from memory are deserialized from their disk copy when the
+ * server reports that they have not changed.
+ * <p>
+ * Note that a cache hit returns the same value instance that was returned by
+ * the previous request; callers that modify the values they receive should
+ * not share a cache.
+ */
+public class QueryCache {
+    /**
+     * Cached response.
+     */
+    static final class Entry {
+        public final String eTag;
+        public final String lastModified;
+        public final int length;
+
+        // The deserialized value, or null if the entry was read from disk
+        public final Object value;
+
+        private Entry(String eTag, String lastModified, int length, Object value) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.value = value;
+        }
+    }
+
+    private long maximumSize;
+    private File spillDirectory = null;
+
+    private long size = 0;
+    private LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long bytesSaved = 0;
+
+    /**
+     * The default maximum size of the responses held in memory (4 MB).
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 4L * 1024 * 1024;
+
+    private static final String SPILL_FILE_EXTENSION = ".cache";
+
+    public QueryCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Creates a new query cache.
+     *
+     * @param maximumSize
+     * The maximum total size, in bytes, of the responses held in memory.
+     */
+    public QueryCache(long maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize is negative.");
+        }
+
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the maximum total size, in bytes, of the responses held in
+     * memory.
+     */
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Returns the total size, in bytes, of the responses currently held in
+     * memory.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of entries currently held in memory.
+     */
+    public synchronized int getCount() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the directory to which response content is written, or
+     * <tt>null</tt> if responses are only cached in memory.
+     */
+    public synchronized File getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    /**
+     * Sets the directory to which response content is written.
+     *
+     * @param spillDirectory
+     * The spill directory, or <tt>null</tt> to only cache responses in memory.
+     */
+    public synchronized void setSpillDirectory(File spillDirectory) {
+        if (spillDirectory != null
+            && !spillDirectory.isDirectory()) {
+            throw new IllegalArgumentException(spillDirectory + " is not a directory.");
+        }
+
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Returns the number of requests for which the server reported that the
+     * cached response was still valid.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of requests for which the server returned new
+     * content, or for which no response was cached.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the total size of the response content that did not need to be
+     * downloaded because of cache hits.
+     */
+    public synchronized long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    /**
+     * Removes all entries from the cache, including any that were written to
+     * the spill directory.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+
+        if (spillDirectory != null) {
+            File[] files = spillDirectory.listFiles();
+
+            if (files != null) {
+                for (int i = 0; i < files.length; i++) {
+                    File file = files[i];
+
+                    if (file.getName().endsWith(SPILL_FILE_EXTENSION)) {
+                        file.delete();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the cached response for a location, or <tt>null</tt> if the
+     * location is not cached.
+     */
+    synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+
+        if (entry == null
+            && spillDirectory != null) {
+            try {
+                DataInputStream inputStream = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(getSpillFile(key))));
+
+                try {
+                    if (inputStream.readUTF().equals(key)) {
+                        String eTag = inputStream.readUTF();
+                        String lastModified = inputStream.readUTF();
+
+                        entry = new Entry(eTag.length() == 0 ? null : eTag,
+                            lastModified.length() == 0 ? null : lastModified,
+                            inputStream.readInt(), null);
+                    }
+                } finally {
+                    inputStream.close();
+                }
+            } catch (IOException exception) {
+                // No-op; the location is not cached
+            }
+        }
+
+        return entry;
+    }
+
+    /**
+     * Reads the content of an entry from the spill directory.
+     *
+     * @return
+     * The response content, or <tt>null</tt> if it is no longer available.
+     */
+    synchronized byte[] read(String key) {
+        byte[] content = null;
+
+        if (spillDirectory != null) {
+            try {
+                DataInputStream inputStream = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(getSpillFile(key))));
+
+                try {
+                    if (inputStream.readUTF().equals(key)) {
+                        inputStream.readUTF();
+                        inputStream.readUTF();
+
+                        content = new byte[inputStream.readInt()];
+                        inputStream.readFully(content);
+                    }
+                } finally {
+                    inputStream.close();
+                }
+            } catch (IOException exception) {
+                // No-op; the content is no longer available
+            }
+        }
+
+        return content;
+    }
+
+    /**
+     * Adds a response to the cache.
+     *
+     * @param key
+     * @param eTag
+     * @param lastModified
+     * @param content
+     * The response content.
+     * @param value
+     * The deserialized value.
+     */
+    synchronized void put(String key, String eTag, String lastModified, byte[] content,
+        Object value) {
+        Entry entry = new Entry(eTag, lastModified, content.length, value);
+
+        Entry previousEntry = entries.put(key, entry);
+        if (previousEntry != null) {
+            size -= previousEntry.length;
+        }
+
+        size += entry.length;
+
+        // Discard the least recently used entries
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (size > maximumSize
+            && iterator.hasNext()) {
+            size -= iterator.next().getValue().length;
+            iterator.remove();
+        }
+
+        if (spillDirectory != null) {
+            try {
+                DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(getSpillFile(key))));
+
+                try {
+                    outputStream.writeUTF(key);
+                    outputStream.writeUTF(eTag == null ? "" : eTag);
+                    outputStream.writeUTF(lastModified == null ? "" : lastModified);
+                    outputStream.writeInt(content.length);
+                    outputStream.write(content);
+                } finally {
+                    outputStream.close();
+                }
+            } catch (IOException exception) {
+                getSpillFile(key).delete();
+            }
+        }
+    }
+
+    /**
+     * Removes a response from the cache.
+     */
+    synchronized void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            size -= entry.length;
+        }
+
+        if (spillDirectory != null) {
+            getSpillFile(key).delete();
+        }
+    }
+
+    synchronized void hit(Entry entry) {
+        hitCount++;
+        bytesSaved += entry.length;
+    }
+
+    synchronized void miss() {
+        missCount++;
+    }
+
+    private File getSpillFile(String key) {
+        return new File(spillDirectory, Integer.toHexString(key.hashCode()) + SPILL_FILE_EXTENSION);
+    }
+}
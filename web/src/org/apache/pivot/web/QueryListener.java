@@ -36,6 +36,10 @@ public interface QueryListener<V> {
         public void responseReceived(Query<V> query) {
         }
 
+        @Override
+        public void responseNotModified(Query<V> query) {
+        }
+
         @Override
         public void failed(Query<V> query) {
         }
@@ -64,6 +68,17 @@ public interface QueryListener<V> {
      */
     public void responseReceived(Query<V> query);
 
+    /**
+     * Called when the server has reported that a cached response is still
+     * valid, before {@link #responseReceived(Query)}. The cache's hit, miss
+     * and bytes saved counters have been updated.
+     *
+     * @param query
+     *
+     * @see GetQuery#setCache(QueryCache)
+     */
+    public void responseNotModified(Query<V> query);
+
     /**
      * Called when an error has occurred
      *
@@ -0,0 +1,317 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.web;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.pivot.collections.ArrayList;
+import org.apache.pivot.collections.List;
+import org.apache.pivot.json.JSONReader;
+import org.apache.pivot.json.JSONSerializer;
+import org.apache.pivot.serialization.SerializationException;
+import org.apache.pivot.serialization.Serializer;
+import org.apache.pivot.util.concurrent.AbortException;
+
+/**
+ * Executes an HTTP GET operation whose response is a JSON array, appending
+ * the items of the array to a target list as they are received rather than
+ * once the entire response has been read. The query's serializer (which
+ * must be a {@link JSONSerializer}) is used to read each item, so its type
+ * is the type of the items rather than of the array.
+ * <p>
+ * Items are appended in batches. The first batch is small, so the first
+ * items appear after a constant delay regardless of the size of the
+ * response; batches then grow, and are also appended whenever
+ * {@link #BATCH_INTERVAL} milliseconds have elapsed since the previous one.
+ * <p>
+ * If a callback executor is set, batches are appended by the executor; a UI
+ * application would typically use an executor that queues the batches to
+ * the UI thread, so that the target list can be bound to a component. No
+ * more than {@link #getMaximumPendingBatches()} batches are queued at any
+ * time; reading of the response is suspended until the executor catches up.
+ * The query does not complete until all batches have been appended.
+ * <p>
+ * Progress may be monitored via {@link #getBytesReceived()} and
+ * {@link #getBytesExpected()}.
+ */
+public class StreamingGetQuery extends GetQuery {
+    private List<Object> target = null;
+    private Executor callbackExecutor = null;
+    private int maximumPendingBatches = DEFAULT_MAXIMUM_PENDING_BATCHES;
+
+    /**
+     * The default maximum number of batches that may be queued to the
+     * callback executor.
+     */
+    public static final int DEFAULT_MAXIMUM_PENDING_BATCHES = 2;
+
+    /**
+     * The number of items in the first batch.
+     */
+    public static final int MINIMUM_BATCH_SIZE = 32;
+
+    /**
+     * The maximum number of items in a batch.
+     */
+    public static final int MAXIMUM_BATCH_SIZE = 4096;
+
+    /**
+     * The maximum time, in milliseconds, for which items are held before
+     * they are appended.
+     */
+    public static final long BATCH_INTERVAL = 100;
+
+    public StreamingGetQuery(String hostname, String path) {
+        this(hostname, DEFAULT_PORT, path, false);
+    }
+
+    public StreamingGetQuery(String hostname, int port, String path, boolean secure) {
+        this(hostname, port, path, secure, DEFAULT_EXECUTOR_SERVICE);
+    }
+
+    public StreamingGetQuery(String hostname, int port, String path, boolean secure,
+        ExecutorService executorService) {
+        super(hostname, port, path, secure, executorService);
+    }
+
+    /**
+     * Returns the list to which the items of the response are appended.
+     */
+    public List<?> getTarget() {
+        return target;
+    }
+
+    /**
+     * Sets the list to which the items of the response are appended.
+     *
+     * @param target
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void setTarget(List<?> target) {
+        if (isPending()) {
+            throw new IllegalStateException();
+        }
+
+        this.target = (List<Object>)target;
+    }
+
+    /**
+     * Returns the executor that appends items to the target list.
+     *
+     * @return
+     * The callback executor, or <tt>null</tt> if items are appended by the
+     * thread executing the query.
+     */
+    public Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
+    /**
+     * Sets the executor that appends items to the target list.
+     *
+     * @param callbackExecutor
+     * The callback executor, or <tt>null</tt> to append items on the thread
+     * executing the query.
+     */
+    public synchronized void setCallbackExecutor(Executor callbackExecutor) {
+        if (isPending()) {
+            throw new IllegalStateException();
+        }
+
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Returns the maximum number of batches that may be queued to the callback
+     * executor.
+     */
+    public int getMaximumPendingBatches() {
+        return maximumPendingBatches;
+    }
+
+    /**
+     * Sets the maximum number of batches that may be queued to the callback
+     * executor.
+     *
+     * @param maximumPendingBatches
+     */
+    public synchronized void setMaximumPendingBatches(int maximumPendingBatches) {
+        if (maximumPendingBatches < 1) {
+            throw new IllegalArgumentException("maximumPendingBatches must be positive.");
+        }
+
+        if (isPending()) {
+            throw new IllegalStateException();
+        }
+
+        this.maximumPendingBatches = maximumPendingBatches;
+    }
+
+    /**
+     * Sets the serializer used to read the items of the response.
+     *
+     * @param serializer
+     * The serializer (must be a {@link JSONSerializer}).
+     */
+    @Override
+    public void setSerializer(Serializer<?> serializer) {
+        if (!(serializer instanceof JSONSerializer)) {
+            throw new IllegalArgumentException("serializer must be a JSONSerializer.");
+        }
+
+        super.setSerializer(serializer);
+    }
+
+    /**
+     * Streaming queries cannot be cached.
+     *
+     * @throws UnsupportedOperationException
+     * If <tt>cache</tt> is not <tt>null</tt>.
+     */
+    @Override
+    public void setCache(QueryCache cache) {
+        if (cache != null) {
+            throw new UnsupportedOperationException("Streaming queries cannot be cached.");
+        }
+
+        super.setCache(cache);
+    }
+
+    /**
+     * Synchronously executes the GET operation.
+     *
+     * @return
+     * The target list.
+     */
+    @Override
+    public Object execute() throws QueryException {
+        if (target == null) {
+            throw new IllegalStateException("target is null.");
+        }
+
+        return super.execute();
+    }
+
+    @Override
+    protected Object readValue(InputStream inputStream)
+        throws IOException, SerializationException {
+        JSONSerializer serializer = (JSONSerializer)getSerializer();
+        JSONReader reader = new JSONReader(new InputStreamReader(inputStream,
+            serializer.getCharset()));
+
+        if (reader.next() != JSONReader.Event.START_LIST) {
+            throw new SerializationException("Response is not an array.");
+        }
+
+        Semaphore semaphore = new Semaphore(maximumPendingBatches);
+        boolean completed = false;
+
+        try {
+            ArrayList<Object> batch = new ArrayList<Object>();
+            int batchSize = MINIMUM_BATCH_SIZE;
+            long batchTime = System.currentTimeMillis();
+
+            while (reader.next() != JSONReader.Event.END_LIST) {
+                batch.add(serializer.readValue(reader));
+
+                long currentTime = System.currentTimeMillis();
+                if (batch.getLength() >= batchSize
+                    || currentTime - batchTime >= BATCH_INTERVAL) {
+                    append(batch, semaphore);
+
+                    batch = new ArrayList<Object>();
+                    batchSize = Math.min(batchSize * 2, MAXIMUM_BATCH_SIZE);
+                    batchTime = currentTime;
+                }
+            }
+
+            if (batch.getLength() > 0) {
+                append(batch, semaphore);
+            }
+
+            completed = true;
+        } finally {
+            // Wait for the pending batches to be appended; if the query is
+            // failing, don't wait if it has been aborted or interrupted
+            try {
+                acquire(semaphore, maximumPendingBatches);
+            } catch (InterruptedIOException exception) {
+                if (completed) {
+                    throw exception;
+                }
+
+                // Preserve the interrupt for the caller
+                Thread.currentThread().interrupt();
+            } catch (AbortException exception) {
+                if (completed) {
+                    throw exception;
+                }
+            }
+        }
+
+        return target;
+    }
+
+    /**
+     * Acquires permits from a semaphore, giving up if the query is aborted or
+     * the thread is interrupted.
+     */
+    private void acquire(Semaphore semaphore, int permits) throws IOException {
+        try {
+            while (!semaphore.tryAcquire(permits, BATCH_INTERVAL, TimeUnit.MILLISECONDS)) {
+                if (abort) {
+                    throw new AbortException();
+                }
+            }
+        } catch (InterruptedException exception) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    private void append(final ArrayList<Object> batch, final Semaphore semaphore)
+        throws IOException {
+        if (callbackExecutor == null) {
+            target.addAll(batch);
+        } else {
+            // Wait until the executor has room for another batch
+            acquire(semaphore, 1);
+
+            try {
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            target.addAll(batch);
+                        } finally {
+                            semaphore.release();
+                        }
+                    }
+                });
+            } catch (RuntimeException exception) {
+                semaphore.release();
+                throw exception;
+            }
+        }
+    }
+}
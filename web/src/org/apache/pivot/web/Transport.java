@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.web;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Proxy;
+import java.net.URL;
+
+import javax.net.ssl.HostnameVerifier;
+
+/**
+ * HTTP transport. A transport opens the connections over which queries are
+ * executed. The transport used by a query is set via
+ * {@link Query#setTransport(Transport)}, or globally via
+ * {@link Query#setDefaultTransport(Transport)}.
+ *
+ * @see URLConnectionTransport
+ * @see PooledTransport
+ */
+public interface Transport {
+    /**
+     * Connection over which a single request is sent and its response is
+     * received. Connections are used by a single thread, in the following
+     * order: request headers are set, the connection is connected, the
+     * request body (if any) is written, and the response is read. The
+     * connection is always closed once the query has completed.
+     */
+    public interface Connection {
+        /**
+         * Sets a request header, replacing any existing values.
+         *
+         * @param key
+         * @param value
+         */
+        public void setRequestHeader(String key, String value);
+
+        /**
+         * Adds a value to a request header.
+         *
+         * @param key
+         * @param value
+         */
+        public void addRequestHeader(String key, String value);
+
+        /**
+         * Connects to the server.
+         *
+         * @param output
+         * <tt>true</tt> if the request has a body.
+         */
+        public void connect(boolean output) throws IOException;
+
+        /**
+         * Returns the stream to which the request body is written.
+         */
+        public OutputStream getOutputStream() throws IOException;
+
+        /**
+         * Returns the response status code, sending the request if it has not
+         * yet been sent.
+         */
+        public int getStatus() throws IOException;
+
+        /**
+         * Returns the response status message.
+         */
+        public String getMessage() throws IOException;
+
+        /**
+         * Returns the value of the <tt>Content-Length</tt> response header, or
+         * <tt>-1</tt> if it is not known.
+         */
+        public long getContentLength();
+
+        /**
+         * Returns the number of response headers.
+         */
+        public int getResponseHeaderCount();
+
+        /**
+         * Returns the key of a response header.
+         *
+         * @param index
+         */
+        public String getResponseHeaderKey(int index);
+
+        /**
+         * Returns the value of a response header.
+         *
+         * @param index
+         */
+        public String getResponseHeaderValue(int index);
+
+        /**
+         * Returns the stream from which the response body is read.
+         */
+        public InputStream getInputStream() throws IOException;
+
+        /**
+         * Closes the connection, releasing any resources it holds.
+         */
+        public void close();
+    }
+
+    /**
+     * Opens a connection.
+     *
+     * @param location
+     * The request URL.
+     *
+     * @param method
+     * The request method.
+     *
+     * @param proxy
+     * The proxy through which to connect, or <tt>null</tt> to use the default
+     * JVM proxy settings.
+     *
+     * @param hostnameVerifier
+     * The hostname verifier used for secure connections, or <tt>null</tt> to
+     * use the default verification.
+     */
+    public Connection open(URL location, Query.Method method, Proxy proxy,
+        HostnameVerifier hostnameVerifier) throws IOException;
+}
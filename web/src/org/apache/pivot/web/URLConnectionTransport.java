@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.web;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.URL;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+
+import org.apache.pivot.collections.ArrayList;
+
+/**
+ * Transport that executes queries using {@link HttpURLConnection}. Connection
+ * reuse is left to the JVM's keep-alive implementation. This is the default
+ * transport.
+ */
+public class URLConnectionTransport implements Transport {
+    private static class URLConnection implements Connection {
+        private HttpURLConnection connection;
+
+        private ArrayList<String> responseHeaderKeys = null;
+        private ArrayList<String> responseHeaderValues = null;
+
+        public URLConnection(HttpURLConnection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public void setRequestHeader(String key, String value) {
+            connection.setRequestProperty(key, value);
+        }
+
+        @Override
+        public void addRequestHeader(String key, String value) {
+            connection.addRequestProperty(key, value);
+        }
+
+        @Override
+        public void connect(boolean output) throws IOException {
+            connection.setDoInput(true);
+            connection.setDoOutput(output);
+            connection.connect();
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            return connection.getOutputStream();
+        }
+
+        @Override
+        public int getStatus() throws IOException {
+            return connection.getResponseCode();
+        }
+
+        @Override
+        public String getMessage() throws IOException {
+            return connection.getResponseMessage();
+        }
+
+        @Override
+        public long getContentLength() {
+            return connection.getContentLength();
+        }
+
+        @Override
+        public int getResponseHeaderCount() {
+            if (responseHeaderKeys == null) {
+                responseHeaderKeys = new ArrayList<String>();
+                responseHeaderValues = new ArrayList<String>();
+
+                // NOTE Header indexes start at 1, not 0
+                int i = 1;
+                for (String key = connection.getHeaderFieldKey(i); key != null;
+                    key = connection.getHeaderFieldKey(++i)) {
+                    responseHeaderKeys.add(key);
+                    responseHeaderValues.add(connection.getHeaderField(i));
+                }
+            }
+
+            return responseHeaderKeys.getLength();
+        }
+
+        @Override
+        public String getResponseHeaderKey(int index) {
+            getResponseHeaderCount();
+            return responseHeaderKeys.get(index);
+        }
+
+        @Override
+        public String getResponseHeaderValue(int index) {
+            getResponseHeaderCount();
+            return responseHeaderValues.get(index);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return connection.getInputStream();
+        }
+
+        @Override
+        public void close() {
+            // No-op; the connection is left open so that the JVM can reuse it
+        }
+    }
+
+    @Override
+    public Connection open(URL location, Query.Method method, Proxy proxy,
+        HostnameVerifier hostnameVerifier) throws IOException {
+        HttpURLConnection connection;
+        if (proxy == null) {
+            connection = (HttpURLConnection)location.openConnection();
+        } else {
+            connection = (HttpURLConnection)location.openConnection(proxy);
+        }
+
+        connection.setRequestMethod(method.toString());
+        connection.setAllowUserInteraction(false);
+        connection.setInstanceFollowRedirects(false);
+        connection.setUseCaches(false);
+
+        if (connection instanceof HttpsURLConnection
+            && hostnameVerifier != null) {
+            HttpsURLConnection httpsConnection = (HttpsURLConnection)connection;
+            httpsConnection.setHostnameVerifier(hostnameVerifier);
+        }
+
+        return new URLConnection(connection);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.web.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.pivot.collections.List;
+import org.apache.pivot.web.GetQuery;
+import org.apache.pivot.web.PooledTransport;
+import org.apache.pivot.web.QueryException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class CompressionTest {
+    private HttpServer server = null;
+    private ExecutorService serverExecutorService = null;
+
+    private volatile String acceptEncoding = null;
+
+    private static final int COUNT = 5000;
+
+    @Before
+    public void startServer() throws IOException {
+        serverExecutorService = Executors.newCachedThreadPool();
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(serverExecutorService);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+
+                StringBuilder content = new StringBuilder("[");
+                for (int i = 0; i < COUNT; i++) {
+                    if (i > 0) {
+                        content.append(",");
+                    }
+
+                    content.append("\"Item " + i + "\"");
+                }
+
+                content.append("]");
+
+                // Use the first encoding the client lists
+                String contentEncoding = null;
+                if (acceptEncoding != null) {
+                    contentEncoding = acceptEncoding.split(",")[0].trim();
+                }
+
+                if (contentEncoding != null) {
+                    exchange.getResponseHeaders().add("Content-Encoding", contentEncoding);
+                }
+
+                exchange.sendResponseHeaders(200, 0);
+
+                OutputStream outputStream = exchange.getResponseBody();
+                if ("gzip".equals(contentEncoding)) {
+                    outputStream = new GZIPOutputStream(outputStream);
+                } else if ("deflate".equals(contentEncoding)) {
+                    outputStream = new DeflaterOutputStream(outputStream);
+                }
+
+                outputStream.write(content.toString().getBytes("UTF-8"));
+                outputStream.close();
+                exchange.close();
+            }
+        });
+
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        serverExecutorService.shutdown();
+    }
+
+    private GetQuery createQuery() {
+        return new GetQuery("localhost", server.getAddress().getPort(), "/", false);
+    }
+
+    private static void verify(Object result) {
+        List<?> list = (List<?>)result;
+        assertEquals(COUNT, list.getLength());
+        assertEquals("Item 0", list.get(0));
+        assertEquals("Item " + (COUNT - 1), list.get(COUNT - 1));
+    }
+
+    @Test
+    public void gzipTest() throws QueryException {
+        GetQuery query = createQuery();
+        verify(query.execute());
+
+        assertEquals("gzip, deflate", acceptEncoding);
+        assertTrue(query.getBytesReceived() > 0);
+        assertTrue(query.getBytesReceived() < query.getBytesDecoded());
+    }
+
+    @Test
+    public void deflateTest() throws QueryException {
+        GetQuery query = createQuery();
+        query.getRequestHeaders().put("Accept-Encoding", "deflate");
+        verify(query.execute());
+
+        assertEquals("deflate", acceptEncoding);
+        assertTrue(query.getBytesReceived() < query.getBytesDecoded());
+    }
+
+    @Test
+    public void pooledTransportTest() throws QueryException {
+        PooledTransport transport = new PooledTransport();
+
+        try {
+            GetQuery query = createQuery();
+            query.setTransport(transport);
+            verify(query.execute());
+
+            assertTrue(query.getBytesReceived() < query.getBytesDecoded());
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void disabledTest() throws QueryException {
+        GetQuery query = createQuery();
+        query.setCompressionEnabled(false);
+        verify(query.execute());
+
+        assertNull(acceptEncoding);
+        assertEquals(query.getBytesReceived(), query.getBytesDecoded());
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.web.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.pivot.collections.HashMap;
+import org.apache.pivot.collections.List;
+import org.apache.pivot.util.concurrent.Task;
+import org.apache.pivot.util.concurrent.TaskExecutorService;
+import org.apache.pivot.util.concurrent.TaskListener;
+import org.apache.pivot.web.GetQuery;
+import org.apache.pivot.web.PostQuery;
+import org.apache.pivot.web.Query;
+import org.apache.pivot.web.QueryBatch;
+import org.apache.pivot.web.QueryException;
+import org.apache.pivot.web.QueryListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class QueryBatchTest {
+    private HttpServer server = null;
+    private ExecutorService serverExecutorService = null;
+
+    private HashMap<String, Integer> requestCounts = new HashMap<String, Integer>();
+    private AtomicInteger activeCount = new AtomicInteger();
+    private AtomicInteger maximumActiveCount = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        serverExecutorService = Executors.newCachedThreadPool();
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(serverExecutorService);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int active = activeCount.incrementAndGet();
+                synchronized (maximumActiveCount) {
+                    maximumActiveCount.set(Math.max(maximumActiveCount.get(), active));
+                }
+
+                String path = exchange.getRequestURI().getPath();
+                synchronized (requestCounts) {
+                    Integer count = requestCounts.get(path);
+                    requestCounts.put(path, (count == null) ? 1 : count + 1);
+                }
+
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException exception) {
+                    // No-op
+                }
+
+                exchange.getResponseHeaders().add("X-Path", path);
+
+                if (path.equals("/missing")) {
+                    exchange.sendResponseHeaders(Query.Status.NOT_FOUND, -1);
+                } else {
+                    byte[] bytes = ("\"" + path + "\"").getBytes("UTF-8");
+                    exchange.sendResponseHeaders(Query.Status.OK, bytes.length);
+
+                    OutputStream outputStream = exchange.getResponseBody();
+                    outputStream.write(bytes);
+                    outputStream.close();
+                }
+
+                activeCount.decrementAndGet();
+                exchange.close();
+            }
+        });
+
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        serverExecutorService.shutdown();
+    }
+
+    private int getRequestCount(String path) {
+        synchronized (requestCounts) {
+            Integer count = requestCounts.get(path);
+            return (count == null) ? 0 : count;
+        }
+    }
+
+    private GetQuery createQuery(String path) {
+        return new GetQuery("localhost", server.getAddress().getPort(), path, false);
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        QueryBatch queryBatch = new QueryBatch(2);
+
+        final AtomicInteger executedCount = new AtomicInteger();
+        final AtomicInteger responseReceivedCount = new AtomicInteger();
+
+        TaskListener<Object> taskListener = new TaskListener<Object>() {
+            @Override
+            public void taskExecuted(Task<Object> task) {
+                assertEquals(((GetQuery)task).getPath(), task.getResult());
+                executedCount.incrementAndGet();
+            }
+
+            @Override
+            public void executeFailed(Task<Object> task) {
+                // No-op
+            }
+        };
+
+        QueryListener<Object> queryListener = new QueryListener.Adapter<Object>() {
+            @Override
+            public void responseReceived(Query<Object> query) {
+                responseReceivedCount.incrementAndGet();
+            }
+        };
+
+        // Ten identical queries, and ten distinct ones
+        for (int i = 0; i < 10; i++) {
+            GetQuery query = createQuery("/shared");
+            query.getQueryListeners().add(queryListener);
+            queryBatch.add(query, taskListener);
+
+            query = createQuery("/item" + i);
+            query.getQueryListeners().add(queryListener);
+            queryBatch.add(query, taskListener);
+        }
+
+        // Queries with different request headers are not merged
+        GetQuery headerQuery = createQuery("/shared");
+        headerQuery.getRequestHeaders().put("Accept-Language", "fr");
+        queryBatch.add(headerQuery);
+
+        // Other methods are never merged
+        PostQuery postQuery = new PostQuery("localhost", server.getAddress().getPort(),
+            "/shared", false);
+        postQuery.setValue("posted");
+        queryBatch.add(postQuery);
+
+        queryBatch.add(createQuery("/missing"));
+
+        List<Object> results = queryBatch.execute();
+        assertEquals(23, results.getLength());
+
+        // One network request for the identical queries
+        assertEquals(3, getRequestCount("/shared"));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(1, getRequestCount("/item" + i));
+        }
+
+        // The per-host limit was respected
+        assertTrue(maximumActiveCount.get() <= 2);
+
+        // Every query completed through the usual callbacks
+        assertEquals(20, executedCount.get());
+        assertEquals(20, responseReceivedCount.get());
+
+        Object sharedResult = results.get(0);
+        for (int i = 0; i < 10; i++) {
+            assertSame(sharedResult, results.get(i * 2));
+            assertEquals("/item" + i, results.get(i * 2 + 1));
+
+            GetQuery query = (GetQuery)queryBatch.get(i * 2);
+            assertEquals(Query.Status.OK, query.getStatus());
+            assertEquals("/shared", query.getResponseHeaders().get("X-Path"));
+        }
+
+        assertNull(queryBatch.getFaults().get(0));
+        assertEquals(Query.Status.NOT_FOUND,
+            ((QueryException)queryBatch.getFaults().get(22)).getStatus());
+    }
+
+    @Test
+    public void testDuplicateFaults() throws Exception {
+        QueryBatch queryBatch = new QueryBatch();
+
+        for (int i = 0; i < 5; i++) {
+            queryBatch.add(createQuery("/missing"));
+        }
+
+        queryBatch.execute();
+        assertEquals(1, getRequestCount("/missing"));
+
+        for (int i = 0; i < 5; i++) {
+            QueryException exception = (QueryException)queryBatch.getFaults().get(i);
+            assertEquals(Query.Status.NOT_FOUND, exception.getStatus());
+            assertEquals(Query.Status.NOT_FOUND, queryBatch.get(i).getStatus());
+        }
+    }
+
+    @Test
+    public void testConcurrentBatches() throws Exception {
+        // Run more batches at once than there are pooled workers, with
+        // queries queued behind the per-host limit and merged with duplicates
+        TaskExecutorService executorService = new TaskExecutorService(TaskExecutorService.Mode.POOLED, 2);
+        int port = server.getAddress().getPort();
+
+        final CountDownLatch done = new CountDownLatch(6);
+        TaskListener<List<Object>> taskListener = new TaskListener<List<Object>>() {
+            @Override
+            public void taskExecuted(Task<List<Object>> task) {
+                if (task.getResult().getLength() == 4) {
+                    done.countDown();
+                }
+            }
+
+            @Override
+            public void executeFailed(Task<List<Object>> task) {
+                System.out.println("FAILED: " + task.getFault());
+            }
+        };
+
+        for (int i = 0; i < 6; i++) {
+            QueryBatch queryBatch = new QueryBatch(1, executorService);
+            queryBatch.add(new GetQuery("localhost", port, "/a" + i, false, executorService));
+            queryBatch.add(new GetQuery("localhost", port, "/a" + i, false, executorService));
+            queryBatch.add(new GetQuery("localhost", port, "/b" + i, false, executorService));
+            queryBatch.add(new GetQuery("localhost", port, "/c" + i, false, executorService));
+
+            queryBatch.execute(taskListener);
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executorService.shutdown();
+    }
+}
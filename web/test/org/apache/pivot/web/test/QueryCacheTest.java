@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.web.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+import org.apache.pivot.web.GetQuery;
+import org.apache.pivot.web.Query;
+import org.apache.pivot.web.QueryCache;
+import org.apache.pivot.web.QueryListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class QueryCacheTest {
+    private HttpServer server = null;
+
+    private String content = "{a:1, b:[1, 2, 3]}";
+    private String eTag = "\"1\"";
+    private int requestCount = 0;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requestCount++;
+
+                String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+
+                if (eTag != null) {
+                    exchange.getResponseHeaders().add("ETag", eTag);
+                }
+
+                if (eTag != null
+                    && eTag.equals(ifNoneMatch)) {
+                    exchange.sendResponseHeaders(Query.Status.NOT_MODIFIED, -1);
+                } else {
+                    byte[] bytes = content.getBytes("UTF-8");
+                    exchange.getResponseHeaders().add("Content-Type", "application/json");
+                    exchange.sendResponseHeaders(Query.Status.OK, bytes.length);
+
+                    OutputStream outputStream = exchange.getResponseBody();
+                    outputStream.write(bytes);
+                    outputStream.close();
+                }
+
+                exchange.close();
+            }
+        });
+
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private GetQuery createQuery(QueryCache cache) {
+        GetQuery query = new GetQuery("localhost", server.getAddress().getPort(),
+            "/test", false);
+        query.setCache(cache);
+
+        return query;
+    }
+
+    @Test
+    public void testConditionalRequests() throws Exception {
+        QueryCache cache = new QueryCache();
+
+        final int[] notModifiedCount = new int[1];
+
+        GetQuery query = createQuery(cache);
+        query.getQueryListeners().add(new QueryListener.Adapter<Object>() {
+            @Override
+            public void responseNotModified(Query<Object> query) {
+                notModifiedCount[0]++;
+            }
+        });
+
+        Object value = query.execute();
+        assertEquals(Query.Status.OK, query.getStatus());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getCount());
+
+        // The cached value is returned while the resource is unchanged
+        assertSame(value, query.execute());
+        assertEquals(Query.Status.NOT_MODIFIED, query.getStatus());
+        assertSame(value, createQuery(cache).execute());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2 * content.length(), cache.getBytesSaved());
+        assertEquals(1, notModifiedCount[0]);
+        assertEquals(3, requestCount);
+
+        // A changed resource is downloaded again
+        content = "{a:2}";
+        eTag = "\"2\"";
+
+        Object updatedValue = query.execute();
+        assertEquals(Query.Status.OK, query.getStatus());
+        assertEquals(2, cache.getMissCount());
+        assertSame(updatedValue, query.execute());
+
+        // Responses without validators are not cached
+        eTag = null;
+        query.execute();
+        assertEquals(0, cache.getCount());
+        assertEquals(0, cache.getSize());
+
+        // Queries without a cache do not issue conditional requests
+        eTag = "\"3\"";
+        GetQuery uncachedQuery = createQuery(null);
+        uncachedQuery.execute();
+        uncachedQuery.execute();
+        assertEquals(Query.Status.OK, uncachedQuery.getStatus());
+        assertNull(uncachedQuery.getCache());
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        File spillDirectory = File.createTempFile("pivot", "cache");
+        spillDirectory.delete();
+        spillDirectory.mkdir();
+
+        try {
+            // The responses are too large to be held in memory
+            QueryCache cache = new QueryCache(4);
+            cache.setSpillDirectory(spillDirectory);
+
+            GetQuery query = createQuery(cache);
+            Object value = query.execute();
+            assertEquals(0, cache.getCount());
+
+            // The cached value is deserialized from disk
+            assertEquals(value, query.execute());
+            assertEquals(Query.Status.NOT_MODIFIED, query.getStatus());
+            assertEquals(1, cache.getHitCount());
+
+            cache.clear();
+            assertEquals(0, spillDirectory.list().length);
+        } finally {
+            for (File file : spillDirectory.listFiles()) {
+                file.delete();
+            }
+
+            spillDirectory.delete();
+        }
+    }
+}
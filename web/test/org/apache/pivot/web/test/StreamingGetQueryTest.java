@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.web.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.pivot.collections.ArrayList;
+import org.apache.pivot.collections.ListListener;
+import org.apache.pivot.collections.List;
+import org.apache.pivot.json.JSON;
+import org.apache.pivot.web.QueryException;
+import org.apache.pivot.web.StreamingGetQuery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class StreamingGetQueryTest {
+    private HttpServer server = null;
+    private ExecutorService serverExecutorService = null;
+
+    private static final int COUNT = 20000;
+
+    // Released once the client has received the first items
+    private CountDownLatch firstItemsLatch = null;
+    private AtomicBoolean streamed = new AtomicBoolean();
+
+    @Before
+    public void startServer() throws IOException {
+        serverExecutorService = Executors.newCachedThreadPool();
+        firstItemsLatch = new CountDownLatch(1);
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(serverExecutorService);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                exchange.sendResponseHeaders(200, 0);
+
+                OutputStream outputStream = exchange.getResponseBody();
+
+                if (path.equals("/object")) {
+                    outputStream.write("{\"a\": 1}".getBytes("UTF-8"));
+                } else {
+                    outputStream.write('[');
+
+                    for (int i = 0; i < COUNT; i++) {
+                        if (i > 0) {
+                            outputStream.write(',');
+                        }
+
+                        outputStream.write(("{\"id\": " + i + ", \"name\": \"Item "
+                            + i + "\"}").getBytes("UTF-8"));
+
+                        // Hold the rest of the response until the client has
+                        // received the first items
+                        if (i == 100) {
+                            outputStream.flush();
+
+                            try {
+                                streamed.set(firstItemsLatch.await(5, TimeUnit.SECONDS));
+                            } catch (InterruptedException exception) {
+                                // No-op
+                            }
+                        }
+                    }
+
+                    outputStream.write(']');
+                }
+
+                outputStream.close();
+                exchange.close();
+            }
+        });
+
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        serverExecutorService.shutdown();
+    }
+
+    private StreamingGetQuery createQuery(String path) {
+        return new StreamingGetQuery("localhost", server.getAddress().getPort(), path, false);
+    }
+
+    private ArrayList<Object> createTarget(final AtomicInteger batchCount) {
+        ArrayList<Object> target = new ArrayList<Object>();
+        target.getListListeners().add(new ListListener.Adapter<Object>() {
+            @Override
+            public void itemsInserted(List<Object> list, int index, int count) {
+                batchCount.incrementAndGet();
+                firstItemsLatch.countDown();
+            }
+        });
+
+        return target;
+    }
+
+    private static void verify(ArrayList<Object> target) {
+        assertEquals(COUNT, target.getLength());
+
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals(i, JSON.get(target, "[" + i + "].id"));
+        }
+    }
+
+    @Test
+    public void streamTest() throws QueryException {
+        AtomicInteger batchCount = new AtomicInteger();
+        ArrayList<Object> target = createTarget(batchCount);
+
+        StreamingGetQuery query = createQuery("/");
+        query.setTarget(target);
+
+        assertTrue(query.execute() == target);
+        verify(target);
+
+        // The first items were appended before the response was complete
+        assertTrue(streamed.get());
+
+        // Items are appended in batches
+        assertTrue(batchCount.get() > 1);
+        assertTrue(batchCount.get() < COUNT / 10);
+    }
+
+    @Test
+    public void callbackExecutorTest() throws QueryException {
+        AtomicInteger batchCount = new AtomicInteger();
+        ArrayList<Object> target = createTarget(batchCount);
+
+        final ExecutorService callbackExecutorService = Executors.newSingleThreadExecutor();
+        final AtomicInteger pendingCount = new AtomicInteger();
+        final AtomicInteger maximumPendingCount = new AtomicInteger();
+
+        StreamingGetQuery query = createQuery("/");
+        query.setTarget(target);
+        query.setCallbackExecutor(new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                int pending = pendingCount.incrementAndGet();
+                synchronized (maximumPendingCount) {
+                    maximumPendingCount.set(Math.max(maximumPendingCount.get(), pending));
+                }
+
+                callbackExecutorService.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Thread.sleep(5);
+                        } catch (InterruptedException exception) {
+                            // No-op
+                        }
+
+                        pendingCount.decrementAndGet();
+                        command.run();
+                    }
+                });
+            }
+        });
+
+        try {
+            query.execute();
+
+            // All batches have been appended by the time the query completes
+            assertEquals(0, pendingCount.get());
+            verify(target);
+            assertTrue(streamed.get());
+
+            assertTrue(maximumPendingCount.get() <= StreamingGetQuery.DEFAULT_MAXIMUM_PENDING_BATCHES);
+        } finally {
+            callbackExecutorService.shutdown();
+        }
+    }
+
+    @Test
+    public void notArrayTest() {
+        StreamingGetQuery query = createQuery("/object");
+        query.setTarget(new ArrayList<Object>());
+
+        try {
+            query.execute();
+            assertTrue(false);
+        } catch (QueryException exception) {
+            // No-op
+        }
+    }
+}
@@ -0,0 +1,442 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.web.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.pivot.collections.ArrayList;
+import org.apache.pivot.collections.HashSet;
+import org.apache.pivot.collections.Map;
+import org.apache.pivot.web.DeleteQuery;
+import org.apache.pivot.web.GetQuery;
+import org.apache.pivot.web.PooledTransport;
+import org.apache.pivot.web.PostQuery;
+import org.apache.pivot.web.PutQuery;
+import org.apache.pivot.web.Query;
+import org.apache.pivot.web.QueryException;
+import org.apache.pivot.web.QueryListener;
+import org.apache.pivot.web.Transport;
+import org.apache.pivot.web.URLConnectionTransport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class TransportTest {
+    private HttpServer server = null;
+
+    private HashSet<Integer> clientPorts = new HashSet<Integer>();
+    private String requestBody = null;
+
+    private static final String CONTENT = "{a:1, b:[1, 2, 3], c:\"abc\"}";
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                synchronized (clientPorts) {
+                    clientPorts.add(exchange.getRemoteAddress().getPort());
+                }
+
+                String method = exchange.getRequestMethod();
+                String path = exchange.getRequestURI().getPath();
+
+                InputStream inputStream = exchange.getRequestBody();
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                for (int b = inputStream.read(); b != -1; b = inputStream.read()) {
+                    outputStream.write(b);
+                }
+
+                if (outputStream.size() > 0) {
+                    requestBody = outputStream.toString("UTF-8");
+                }
+
+                exchange.getResponseHeaders().add("X-Test", "1");
+                exchange.getResponseHeaders().add("X-Test", "2");
+
+                if (path.equals("/missing")) {
+                    byte[] bytes = "Not found".getBytes("UTF-8");
+                    exchange.sendResponseHeaders(Query.Status.NOT_FOUND, bytes.length);
+                    exchange.getResponseBody().write(bytes);
+                } else if (method.equals("GET")) {
+                    byte[] bytes = CONTENT.getBytes("UTF-8");
+                    exchange.getResponseHeaders().add("Content-Type", "application/json");
+
+                    // Send chunked responses when requested
+                    boolean chunked = "chunked".equals(exchange.getRequestURI().getQuery());
+                    exchange.sendResponseHeaders(Query.Status.OK, chunked ? 0 : bytes.length);
+
+                    OutputStream responseBody = exchange.getResponseBody();
+                    responseBody.write(bytes, 0, 5);
+                    responseBody.flush();
+                    responseBody.write(bytes, 5, bytes.length - 5);
+                } else if (method.equals("POST")) {
+                    exchange.getResponseHeaders().add("Location", "/items/1");
+                    exchange.sendResponseHeaders(Query.Status.CREATED, -1);
+                } else {
+                    exchange.sendResponseHeaders(Query.Status.NO_CONTENT, -1);
+                }
+
+                exchange.close();
+            }
+        });
+
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private void testTransport(Transport transport) throws Exception {
+        int port = server.getAddress().getPort();
+
+        // GET
+        final ArrayList<String> events = new ArrayList<String>();
+
+        GetQuery getQuery = new GetQuery("localhost", port, "/items", false);
+        getQuery.setTransport(transport);
+        getQuery.getQueryListeners().add(new QueryListener.Adapter<Object>() {
+            @Override
+            public void connected(Query<Object> query) {
+                events.add("connected");
+            }
+
+            @Override
+            public void requestSent(Query<Object> query) {
+                events.add("requestSent");
+            }
+
+            @Override
+            public void responseReceived(Query<Object> query) {
+                events.add("responseReceived");
+            }
+
+            @Override
+            public void failed(Query<Object> query) {
+                events.add("failed");
+            }
+        });
+
+        for (int i = 0; i < 5; i++) {
+            @SuppressWarnings("unchecked")
+            Map<String, ?> value = (Map<String, ?>)getQuery.execute();
+            assertEquals(1, value.get("a"));
+            assertEquals(Query.Status.OK, getQuery.getStatus());
+            assertEquals(CONTENT.length(), getQuery.getBytesExpected());
+            assertEquals(CONTENT.length(), getQuery.getBytesReceived());
+            assertEquals(0, getQuery.getBytesSent());
+            assertEquals(2, getQuery.getResponseHeaders().getLength("X-Test"));
+            assertEquals("2", getQuery.getResponseHeaders().get("x-test", 1));
+        }
+
+        assertEquals(15, events.getLength());
+        assertEquals("connected", events.get(0));
+        assertEquals("requestSent", events.get(1));
+        assertEquals("responseReceived", events.get(2));
+
+        // Chunked responses
+        GetQuery chunkedQuery = new GetQuery("localhost", port, "/items", false) {
+            @Override
+            public URL getLocation() {
+                try {
+                    return new URL(super.getLocation() + "?chunked");
+                } catch (IOException exception) {
+                    throw new RuntimeException(exception);
+                }
+            }
+        };
+        chunkedQuery.setTransport(transport);
+        @SuppressWarnings("unchecked")
+        Map<String, ?> chunkedValue = (Map<String, ?>)chunkedQuery.execute();
+        assertEquals("abc", chunkedValue.get("c"));
+        assertEquals(-1, chunkedQuery.getBytesExpected());
+        assertEquals(CONTENT.length(), chunkedQuery.getBytesReceived());
+
+        // POST
+        PostQuery postQuery = new PostQuery("localhost", port, "/items", false);
+        postQuery.setTransport(transport);
+        postQuery.setValue("posted");
+
+        URL location = postQuery.execute();
+        assertEquals(Query.Status.CREATED, postQuery.getStatus());
+        assertEquals("/items/1", location.getPath());
+        assertEquals("\"posted\"", requestBody);
+        assertEquals(requestBody.length(), postQuery.getBytesSent());
+
+        // PUT
+        PutQuery putQuery = new PutQuery("localhost", port, "/items/1", false);
+        putQuery.setTransport(transport);
+        putQuery.setValue("put");
+        putQuery.execute();
+        assertEquals(Query.Status.NO_CONTENT, putQuery.getStatus());
+        assertEquals("\"put\"", requestBody);
+
+        // DELETE
+        DeleteQuery deleteQuery = new DeleteQuery("localhost", port, "/items/1", false);
+        deleteQuery.setTransport(transport);
+        deleteQuery.execute();
+        assertEquals(Query.Status.NO_CONTENT, deleteQuery.getStatus());
+
+        // Errors
+        GetQuery missingQuery = new GetQuery("localhost", port, "/missing", false);
+        missingQuery.setTransport(transport);
+
+        try {
+            missingQuery.execute();
+            assertTrue(false);
+        } catch (QueryException exception) {
+            assertEquals(Query.Status.NOT_FOUND, exception.getStatus());
+        }
+
+        assertEquals(Query.Status.NOT_FOUND, missingQuery.getStatus());
+        assertEquals("2", missingQuery.getResponseHeaders().get("X-Test", 1));
+
+        // The connection can still be used after an error
+        getQuery.execute();
+        assertEquals(Query.Status.OK, getQuery.getStatus());
+    }
+
+    @Test
+    public void testURLConnectionTransport() throws Exception {
+        testTransport(new URLConnectionTransport());
+    }
+
+    @Test
+    public void testPooledTransport() throws Exception {
+        PooledTransport transport = new PooledTransport();
+        testTransport(transport);
+
+        // All queries were executed over a single connection
+        assertEquals(1, clientPorts.getCount());
+        assertEquals(1, transport.getIdleConnectionCount());
+
+        transport.close();
+        assertEquals(0, transport.getIdleConnectionCount());
+    }
+
+    @Test
+    public void testDefaultTransport() throws Exception {
+        Transport defaultTransport = Query.getDefaultTransport();
+        assertTrue(defaultTransport instanceof URLConnectionTransport);
+
+        PooledTransport transport = new PooledTransport();
+        Query.setDefaultTransport(transport);
+
+        try {
+            GetQuery getQuery = new GetQuery("localhost", server.getAddress().getPort(),
+                "/items", false);
+            getQuery.execute();
+            getQuery.execute();
+            assertEquals(1, clientPorts.getCount());
+        } finally {
+            Query.setDefaultTransport(defaultTransport);
+            transport.close();
+        }
+    }
+
+    /**
+     * Minimal HTTP server that answers GET requests on persistent connections
+     * and closes the connection after reading any other request, without
+     * responding.
+     */
+    private static class ClosingServer extends Thread {
+        private ServerSocket serverSocket;
+        private boolean closeAfterGet;
+
+        public final AtomicInteger getCount = new AtomicInteger();
+        public final AtomicInteger postCount = new AtomicInteger();
+
+        public ClosingServer(boolean closeAfterGet) throws IOException {
+            this.closeAfterGet = closeAfterGet;
+
+            serverSocket = new ServerSocket(0, 0, InetAddress.getByName("localhost"));
+            setDaemon(true);
+        }
+
+        public int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Socket socket = serverSocket.accept();
+
+                    try {
+                        handle(socket);
+                    } catch (IOException exception) {
+                        // No-op
+                    } finally {
+                        socket.close();
+                    }
+                }
+            } catch (IOException exception) {
+                // The server socket was closed
+            }
+        }
+
+        private void handle(Socket socket) throws IOException {
+            InputStream inputStream = socket.getInputStream();
+            OutputStream outputStream = socket.getOutputStream();
+
+            while (true) {
+                String requestLine = readLine(inputStream);
+                if (requestLine == null) {
+                    break;
+                }
+
+                int contentLength = 0;
+                for (String line = readLine(inputStream); line != null && line.length() > 0;
+                    line = readLine(inputStream)) {
+                    if (line.toLowerCase().startsWith("content-length:")) {
+                        contentLength = Integer.parseInt(line.substring(15).trim());
+                    }
+                }
+
+                for (int i = 0; i < contentLength; i++) {
+                    inputStream.read();
+                }
+
+                if (requestLine.startsWith("GET ")) {
+                    getCount.incrementAndGet();
+
+                    outputStream.write(("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\n{}")
+                        .getBytes("ISO-8859-1"));
+                    outputStream.flush();
+
+                    if (closeAfterGet) {
+                        // Close the connection without telling the client, as
+                        // a server would when the connection has been idle
+                        try {
+                            Thread.sleep(100);
+                        } catch (InterruptedException exception) {
+                            // No-op
+                        }
+
+                        break;
+                    }
+                } else {
+                    postCount.incrementAndGet();
+                    break;
+                }
+            }
+        }
+
+        private static String readLine(InputStream inputStream) throws IOException {
+            StringBuilder line = new StringBuilder();
+
+            int b = inputStream.read();
+            if (b == -1) {
+                return null;
+            }
+
+            while (b != -1
+                && b != '\n') {
+                if (b != '\r') {
+                    line.append((char)b);
+                }
+
+                b = inputStream.read();
+            }
+
+            return line.toString();
+        }
+
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+
+    @Test
+    public void testPooledTransportRetry() throws Exception {
+        ClosingServer closingServer = new ClosingServer(true);
+        closingServer.start();
+
+        PooledTransport transport = new PooledTransport();
+
+        try {
+            GetQuery getQuery = new GetQuery("localhost", closingServer.getPort(), "/", false);
+            getQuery.setTransport(transport);
+            getQuery.execute();
+
+            // Wait for the server to close the pooled connection
+            Thread.sleep(300);
+
+            // The GET is idempotent, so it is retried on a new connection
+            getQuery.execute();
+            assertEquals(2, closingServer.getCount.get());
+        } finally {
+            transport.close();
+            closingServer.close();
+        }
+    }
+
+    @Test
+    public void testPooledTransportNoPostRetry() throws Exception {
+        ClosingServer closingServer = new ClosingServer(false);
+        closingServer.start();
+
+        PooledTransport transport = new PooledTransport();
+
+        try {
+            GetQuery getQuery = new GetQuery("localhost", closingServer.getPort(), "/", false);
+            getQuery.setTransport(transport);
+            getQuery.execute();
+            assertEquals(1, transport.getIdleConnectionCount());
+
+            // The server reads the POST on the pooled connection and closes
+            // it; the POST must not be sent again
+            PostQuery postQuery = new PostQuery("localhost", closingServer.getPort(), "/", false);
+            postQuery.setTransport(transport);
+            postQuery.setValue(CONTENT);
+
+            try {
+                postQuery.execute();
+                fail("Expecting " + QueryException.class);
+            } catch (QueryException exception) {
+                // expecting this
+            }
+
+            Thread.sleep(100);
+            assertEquals(1, closingServer.postCount.get());
+        } finally {
+            transport.close();
+            closingServer.close();
+        }
+    }
+}
@@ -19,7 +19,6 @@ package org.apache.pivot.wtk.skin.terra;
 import java.awt.Color;
 import java.awt.Font;
 import java.io.File;
-import java.io.FileFilter;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.util.Comparator;
@@ -36,7 +35,11 @@ import org.apache.pivot.serialization.SerializationException;
 import org.apache.pivot.text.FileSizeFormat;
 import org.apache.pivot.util.Filter;
 import org.apache.pivot.util.Resources;
+import org.apache.pivot.util.concurrent.AbortException;
+import org.apache.pivot.util.concurrent.Task;
 import org.apache.pivot.util.concurrent.TaskExecutionException;
+import org.apache.pivot.util.concurrent.TaskListener;
+import org.apache.pivot.wtk.ApplicationContext;
 import org.apache.pivot.wtk.BoxPane;
 import org.apache.pivot.wtk.Button;
 import org.apache.pivot.wtk.ButtonPressListener;
@@ -65,6 +68,7 @@ import org.apache.pivot.wtk.Span;
 import org.apache.pivot.wtk.TableView;
 import org.apache.pivot.wtk.TableViewSelectionListener;
 import org.apache.pivot.wtk.TableViewSortListener;
+import org.apache.pivot.wtk.TaskAdapter;
 import org.apache.pivot.wtk.TextInput;
 import org.apache.pivot.wtk.TextInputTextListener;
 import org.apache.pivot.wtk.VerticalAlignment;
@@ -457,7 +461,162 @@ public class TerraFileBrowserSkin extends FileBrowserSkin {
     }
 
     /**
-     * File comparator.
+     * File whose attributes are read once, when it is created, rather than
+     * each time they are requested. Sorting and rendering a directory listing
+     * therefore does not access the file system.
+     */
+    public static class CachedFile extends File {
+        private static final long serialVersionUID = -3346640733962286373L;
+
+        private boolean directory;
+        private boolean hidden;
+        private long length;
+        private long lastModified;
+
+        public CachedFile(File parent, String name) {
+            super(parent, name);
+
+            directory = super.isDirectory();
+            hidden = super.isHidden();
+            length = super.length();
+            lastModified = super.lastModified();
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        @Override
+        public boolean isHidden() {
+            return hidden;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public long lastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Tests whether the cached attributes of this file differ from those
+         * of another instance of the same file.
+         *
+         * @param file
+         */
+        public boolean isModified(CachedFile file) {
+            return (directory != file.directory
+                || hidden != file.hidden
+                || length != file.length
+                || lastModified != file.lastModified);
+        }
+    }
+
+    /**
+     * Task that loads the contents of a directory in the background. Entries
+     * are added to the file list in chunks as they are read, so that large or
+     * slow directories can be browsed while they are loading. When
+     * refreshing, the existing file list is updated incrementally once the
+     * directory has been read.
+     */
+    private class DirectoryLoader extends Task<Void> {
+        private File directory;
+        private ArrayList<File> fileList;
+        private boolean refresh;
+
+        private ArrayList<File> chunk = new ArrayList<File>();
+
+        public DirectoryLoader(File directory, ArrayList<File> fileList, boolean refresh) {
+            this.directory = directory;
+            this.fileList = fileList;
+            this.refresh = refresh;
+        }
+
+        @Override
+        public Void execute() throws TaskExecutionException {
+            String[] names = directory.list();
+
+            if (names != null) {
+                for (int i = 0; i < names.length; i++) {
+                    if (abort) {
+                        throw new AbortException();
+                    }
+
+                    CachedFile file = new CachedFile(directory, names[i]);
+
+                    if (!file.isHidden()) {
+                        chunk.add(file);
+
+                        if (!refresh
+                            && chunk.getLength() == LOAD_CHUNK_SIZE) {
+                            final ArrayList<File> files = chunk;
+                            chunk = new ArrayList<File>();
+
+                            ApplicationContext.queueCallback(new Runnable() {
+                                @Override
+                                public void run() {
+                                    if (directoryLoader == DirectoryLoader.this) {
+                                        fileList.addAll(files);
+                                    }
+                                }
+                            });
+                        }
+                    }
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * Adds the remaining entries to the file list; called on the UI thread
+         * once the task has completed.
+         */
+        public void complete() {
+            if (refresh) {
+                java.util.HashMap<File, CachedFile> files = new java.util.HashMap<File, CachedFile>();
+                for (File file : chunk) {
+                    files.put(file, (CachedFile)file);
+                }
+
+                // Remove the files that no longer exist and update those whose
+                // attributes have changed
+                for (int i = fileList.getLength() - 1; i >= 0; i--) {
+                    CachedFile file = (CachedFile)fileList.get(i);
+                    CachedFile updatedFile = files.remove(file);
+
+                    if (updatedFile == null) {
+                        fileList.remove(i, 1);
+                    } else if (file.isModified(updatedFile)) {
+                        fileList.update(i, updatedFile);
+                    }
+                }
+
+                // Add the new files
+                ArrayList<File> addedFiles = new ArrayList<File>();
+                for (File file : chunk) {
+                    if (files.containsKey(file)) {
+                        addedFiles.add(file);
+                    }
+                }
+
+                chunk = addedFiles;
+            }
+
+            if (chunk.getLength() > 0) {
+                fileList.addAll(chunk);
+            }
+        }
+    }
+
+    /**
+     * File comparator. The comparator reads the attributes of each file as
+     * it is compared; sorting {@link CachedFile} instances avoids accessing
+     * the file system.
      */
     public static class FileComparator implements Comparator<File> {
         private String columnName = null;
@@ -560,12 +719,10 @@ public class TerraFileBrowserSkin extends FileBrowserSkin {
 
     private boolean updatingSelection = false;
 
-    private static final FileFilter HIDDEN_FILE_FILTER = new FileFilter() {
-        @Override
-        public boolean accept(File file) {
-            return !file.isHidden();
-        }
-    };
+    private ArrayList<File> fileList = null;
+    private DirectoryLoader directoryLoader = null;
+
+    private static final int LOAD_CHUNK_SIZE = 256;
 
     @Override
     public void install(Component component) {
@@ -893,7 +1050,7 @@ public class TerraFileBrowserSkin extends FileBrowserSkin {
                 consumed = true;
             }
         } else if (keyCode == Keyboard.KeyCode.F5) {
-            refreshFileList();
+            loadFileList(true);
             consumed = true;
         }
 
@@ -961,7 +1118,7 @@ public class TerraFileBrowserSkin extends FileBrowserSkin {
         fileScrollPane.setScrollTop(0);
         fileScrollPane.setScrollLeft(0);
 
-        refreshFileList();
+        loadFileList(false);
 
         fileTableView.requestFocus();
     }
@@ -1028,10 +1185,52 @@ public class TerraFileBrowserSkin extends FileBrowserSkin {
         }
     }
 
-    private void refreshFileList() {
-        FileBrowser fileBrowser = (FileBrowser)getComponent();
+    /**
+     * Loads the contents of the root directory in the background.
+     *
+     * @param refresh
+     * If <tt>true</tt>, the current file list is updated with the changes to
+     * the directory; otherwise, it is replaced.
+     */
+    private void loadFileList(boolean refresh) {
+        final FileBrowser fileBrowser = (FileBrowser)getComponent();
         File rootDirectory = fileBrowser.getRootDirectory();
 
-        files.setSource(new ArrayList<File>(rootDirectory.listFiles(HIDDEN_FILE_FILTER)));
+        if (directoryLoader != null
+            && directoryLoader.isPending()) {
+            directoryLoader.abort();
+
+            // Any partially loaded list must be reloaded
+            refresh = false;
+        }
+
+        if (!refresh
+            || fileList == null) {
+            fileList = new ArrayList<File>();
+            files.setSource(fileList);
+            refresh = false;
+        }
+
+        directoryLoader = new DirectoryLoader(rootDirectory, fileList, refresh);
+        directoryLoader.execute(new TaskAdapter<Void>(new TaskListener<Void>() {
+            @Override
+            public void taskExecuted(Task<Void> task) {
+                if (task == directoryLoader) {
+                    directoryLoader.complete();
+                    directoryLoader = null;
+
+                    // Select any files that were not yet loaded when the
+                    // selection was set
+                    selectedFilesChanged(fileBrowser, null);
+                }
+            }
+
+            @Override
+            public void executeFailed(Task<Void> task) {
+                if (task == directoryLoader) {
+                    directoryLoader = null;
+                }
+            }
+        }));
     }
 }
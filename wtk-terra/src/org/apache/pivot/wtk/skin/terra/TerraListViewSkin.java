@@ -24,6 +24,7 @@ import java.awt.Transparency;
 
 import org.apache.pivot.collections.ArrayList;
 import org.apache.pivot.collections.Dictionary;
+import org.apache.pivot.collections.IntArrayList;
 import org.apache.pivot.collections.List;
 import org.apache.pivot.collections.Sequence;
 import org.apache.pivot.util.Filter;
@@ -67,7 +68,7 @@ public class TerraListViewSkin extends ComponentSkin implements ListView.Skin,
     private int highlightedIndex = -1;
     private int editIndex = -1;
 
-    private ArrayList<Integer> itemBoundaries = null;
+    private IntArrayList itemBoundaries = null;
     private int fixedItemHeight;
 
     private boolean validateSelection = false;
@@ -220,7 +221,7 @@ public class TerraListViewSkin extends ComponentSkin implements ListView.Skin,
             }
 
             int n = listData.getLength();
-            itemBoundaries = new ArrayList<Integer>(n);
+            itemBoundaries = new IntArrayList(n);
 
             int itemY = 0;
             for (int i = 0; i < n; i++) {
@@ -406,7 +407,7 @@ public class TerraListViewSkin extends ComponentSkin implements ListView.Skin,
             if (y == 0) {
                 index = 0;
             } else {
-                index = ArrayList.binarySearch(itemBoundaries, y);
+                index = IntArrayList.binarySearch(itemBoundaries, y);
                 if (index < 0) {
                     index = -(index + 1);
                 }
@@ -1143,6 +1144,11 @@ public class TerraListViewSkin extends ComponentSkin implements ListView.Skin,
         invalidateComponent();
     }
 
+    @Override
+    public void itemsInserted(ListView listView, int index, int count) {
+        invalidateComponent();
+    }
+
     @Override
     public void itemsRemoved(ListView listView, int index, int count) {
         invalidateComponent();
@@ -24,8 +24,8 @@ import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.geom.GeneralPath;
 
-import org.apache.pivot.collections.ArrayList;
 import org.apache.pivot.collections.Dictionary;
+import org.apache.pivot.collections.IntArrayList;
 import org.apache.pivot.collections.List;
 import org.apache.pivot.collections.Sequence;
 import org.apache.pivot.wtk.Bounds;
@@ -118,7 +118,7 @@ public class TerraTableViewHeaderSkin extends ComponentSkin
     private Color pressedBevelColor;
     private Color disabledBevelColor;
 
-    private ArrayList<Integer> headerWidths = null;
+    private IntArrayList headerWidths = null;
 
     private int pressedHeaderIndex = -1;
     private int resizeHeaderIndex = -1;
@@ -216,7 +216,7 @@ public class TerraTableViewHeaderSkin extends ComponentSkin
         TableView tableView = tableViewHeader.getTableView();
 
         if (tableView != null) {
-            ArrayList<Integer> headerWidths = TerraTableViewSkin.getColumnWidths(tableView, width);
+            IntArrayList headerWidths = TerraTableViewSkin.getColumnWidths(tableView, width);
             int rowHeight = getPreferredHeight(width) - 1;
 
             TableView.ColumnSequence columns = tableView.getColumns();
@@ -24,6 +24,7 @@ import java.awt.Transparency;
 
 import org.apache.pivot.collections.ArrayList;
 import org.apache.pivot.collections.Dictionary;
+import org.apache.pivot.collections.IntArrayList;
 import org.apache.pivot.collections.List;
 import org.apache.pivot.collections.Sequence;
 import org.apache.pivot.util.Filter;
@@ -76,8 +77,8 @@ public class TerraTableViewSkin extends ComponentSkin implements TableView.Skin,
     private boolean includeTrailingHorizontalGridLine;
     private boolean variableRowHeight;
 
-    private ArrayList<Integer> columnWidths = null;
-    private ArrayList<Integer> rowBoundaries = null;
+    private IntArrayList columnWidths = null;
+    private IntArrayList rowBoundaries = null;
     private int fixedRowHeight = -1;
     private int defaultWidthColumnCount = 0;
 
@@ -180,7 +181,7 @@ public class TerraTableViewSkin extends ComponentSkin implements TableView.Skin,
         int n = tableView.getTableData().getLength();
 
         if (variableRowHeight) {
-            ArrayList<Integer> columnWidths = getColumnWidths(tableView, width);
+            IntArrayList columnWidths = getColumnWidths(tableView, width);
 
             for (int i = 0; i < n; i++) {
                 preferredHeight += getVariableRowHeight(i, columnWidths);
@@ -214,7 +215,7 @@ public class TerraTableViewSkin extends ComponentSkin implements TableView.Skin,
         int baseline = -1;
 
         TableView.ColumnSequence columns = tableView.getColumns();
-        ArrayList<Integer> columnWidths = getColumnWidths(tableView, width);
+        IntArrayList columnWidths = getColumnWidths(tableView, width);
 
         if (variableRowHeight) {
             int rowHeight = getVariableRowHeight(0, columnWidths);
@@ -253,7 +254,7 @@ public class TerraTableViewSkin extends ComponentSkin implements TableView.Skin,
             List<Object> tableData = (List<Object>)tableView.getTableData();
 
             int n = tableData.getLength();
-            rowBoundaries = new ArrayList<Integer>(n);
+            rowBoundaries = new IntArrayList(n);
 
             int rowY = 0;
             for (int i = 0; i < n; i++) {
@@ -541,7 +542,7 @@ public class TerraTableViewSkin extends ComponentSkin implements TableView.Skin,
     }
 
     @SuppressWarnings("unchecked")
-    protected int getVariableRowHeight(int rowIndex, ArrayList<Integer> columnWidths) {
+    protected int getVariableRowHeight(int rowIndex, IntArrayList columnWidths) {
         TableView tableView = (TableView)getComponent();
         List<Object> tableData = (List<Object>)tableView.getTableData();
 
@@ -576,7 +577,7 @@ public class TerraTableViewSkin extends ComponentSkin implements TableView.Skin,
             if (y == 0) {
                 rowIndex = 0;
             } else {
-                rowIndex = ArrayList.binarySearch(rowBoundaries, y);
+                rowIndex = IntArrayList.binarySearch(rowBoundaries, y);
                 if (rowIndex < 0) {
                     rowIndex = -(rowIndex + 1);
                 }
@@ -654,14 +655,14 @@ public class TerraTableViewSkin extends ComponentSkin implements TableView.Skin,
         return new Bounds(cellX, rowIndex * (rowHeight + 1), columnWidths.get(columnIndex), rowHeight);
     }
 
-    public static ArrayList<Integer> getColumnWidths(TableView tableView, int width) {
+    public static IntArrayList getColumnWidths(TableView tableView, int width) {
         int fixedWidth = 0;
         int relativeWidth = 0;
 
         TableView.ColumnSequence columns = tableView.getColumns();
         int n = columns.getLength();
 
-        ArrayList<Integer> columnWidths = new ArrayList<Integer>(n);
+        IntArrayList columnWidths = new IntArrayList(n);
 
         for (int i = 0; i < n; i++) {
             TableView.Column column = columns.get(i);
@@ -1456,6 +1457,11 @@ public class TerraTableViewSkin extends ComponentSkin implements TableView.Skin,
         invalidateComponent();
     }
 
+    @Override
+    public void rowsInserted(TableView tableView, int index, int count) {
+        invalidateComponent();
+    }
+
     @Override
     public void rowsRemoved(TableView tableView, int index, int count) {
         invalidateComponent();
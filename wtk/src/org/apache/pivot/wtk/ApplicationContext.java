@@ -68,6 +68,10 @@ public abstract class ApplicationContext {
     public final class DisplayHost extends java.awt.Canvas {
         private static final long serialVersionUID = -815713849595314026L;
 
+        private static final int DEFAULT_FRAME_INTERVAL = 16;
+        private static final int MAXIMUM_DIRTY_REGION_COUNT = 16;
+        private static final int BACK_BUFFER_INCREMENT = 128;
+
         private Component focusedComponent = null;
 
         private Point dragLocation = null;
@@ -84,6 +88,29 @@ public abstract class ApplicationContext {
 
         private boolean debugPaint = false;
 
+        // Regions awaiting repaint, in device coordinates
+        private ArrayList<Bounds> dirtyRegions = new ArrayList<Bounds>();
+        private boolean paintScheduled = false;
+        private int frameInterval = DEFAULT_FRAME_INTERVAL;
+        private long lastPaintTime = 0;
+
+        private transient Runnable paintCallback = new Runnable() {
+            @Override
+            public void run() {
+                paintDirtyRegions();
+            }
+        };
+
+        // Offscreen buffers, retained across frames
+        private transient java.awt.image.VolatileImage volatileBackBuffer = null;
+        private transient java.awt.image.BufferedImage backBuffer = null;
+
+        // Paint statistics
+        private long frameCount = 0;
+        private long totalFrameTime = 0;
+        private long lastFrameTime = 0;
+        private long paintedArea = 0;
+
         private Random random = null;
 
         private transient DropTargetListener dropTargetListener = new DropTargetListener() {
@@ -280,6 +307,15 @@ public abstract class ApplicationContext {
                 if (debugPaint == true)
                     random = new Random();
 
+                String frameInterval = System.getProperty("org.apache.pivot.wtk.frameinterval");
+                if (frameInterval != null) {
+                    try {
+                        setFrameInterval(Integer.parseInt(frameInterval));
+                    } catch (IllegalArgumentException exception) {
+                        // Also catches NumberFormatException
+                        System.err.println("\"" + frameInterval + "\" is not a valid frame interval.");
+                    }
+                }
             } catch (SecurityException ex) {
                 // No-op
             }
@@ -341,6 +377,59 @@ public abstract class ApplicationContext {
             setScale(newScale);
         }
 
+        /**
+         * Returns the minimum interval between repaints, in milliseconds.
+         */
+        public int getFrameInterval() {
+            return frameInterval;
+        }
+
+        /**
+         * Sets the minimum interval between repaints. Repaint requests made
+         * within a single interval are merged and painted together.
+         *
+         * @param frameInterval
+         * The frame interval, in milliseconds, or <tt>0</tt> to paint as soon
+         * as the UI thread is idle.
+         */
+        public void setFrameInterval(int frameInterval) {
+            if (frameInterval < 0) {
+                throw new IllegalArgumentException("frameInterval is negative.");
+            }
+
+            this.frameInterval = frameInterval;
+        }
+
+        /**
+         * Returns the number of frames painted by this display host.
+         */
+        public long getFrameCount() {
+            return frameCount;
+        }
+
+        /**
+         * Returns the time taken to paint the most recent frame, in
+         * milliseconds.
+         */
+        public double getLastFrameTime() {
+            return lastFrameTime / 1000000d;
+        }
+
+        /**
+         * Returns the average time taken to paint a frame, in milliseconds.
+         */
+        public double getAverageFrameTime() {
+            return (frameCount == 0) ? 0 : totalFrameTime / (frameCount * 1000000d);
+        }
+
+        /**
+         * Returns the total area painted by this display host, in device
+         * pixels.
+         */
+        public long getPaintedArea() {
+            return paintedArea;
+        }
+
         @Override
         public void repaint(int x, int y, int width, int height) {
             // Ensure that the repaint call is properly bounded (some
@@ -359,19 +448,153 @@ public abstract class ApplicationContext {
 
             if (width > 0
                 && height > 0) {
+                Bounds dirtyRegion;
                 if (scale == 1) {
-                    super.repaint(x, y, width, height);
+                    dirtyRegion = new Bounds(x, y, width, height);
                 } else {
-                    super.repaint((int)Math.floor(x * scale), (int)Math.floor(y * scale),
+                    dirtyRegion = new Bounds((int)Math.floor(x * scale), (int)Math.floor(y * scale),
                         (int)Math.ceil(width * scale) + 1, (int)Math.ceil(height * scale) + 1);
                 }
 
+                addDirtyRegion(dirtyRegion);
                 paintPending = true;
             }
         }
 
+        /**
+         * Adds a region to the dirty region list, merging it with any regions
+         * it overlaps, and schedules a paint if one is not already pending.
+         *
+         * @param dirtyRegion
+         */
+        private void addDirtyRegion(Bounds dirtyRegion) {
+            synchronized (dirtyRegions) {
+                int i = 0;
+                while (i < dirtyRegions.getLength()) {
+                    Bounds region = dirtyRegions.get(i);
+
+                    if (region.contains(dirtyRegion)) {
+                        dirtyRegion = null;
+                        break;
+                    }
+
+                    if (region.intersects(dirtyRegion)) {
+                        // Merge the regions and start over, since the union
+                        // may now overlap regions that were already checked
+                        dirtyRegion = dirtyRegion.union(region);
+                        dirtyRegions.remove(i, 1);
+                        i = 0;
+                    } else {
+                        i++;
+                    }
+                }
+
+                if (dirtyRegion != null) {
+                    if (dirtyRegions.getLength() == MAXIMUM_DIRTY_REGION_COUNT) {
+                        // Painting many small regions costs more than painting
+                        // their union
+                        for (Bounds region : dirtyRegions) {
+                            dirtyRegion = dirtyRegion.union(region);
+                        }
+
+                        dirtyRegions.clear();
+                    }
+
+                    dirtyRegions.add(dirtyRegion);
+                }
+
+                if (!paintScheduled) {
+                    paintScheduled = true;
+
+                    long delay = lastPaintTime + frameInterval - System.currentTimeMillis();
+                    if (delay > 0) {
+                        scheduleCallback(paintCallback, delay);
+                    } else {
+                        queueCallback(paintCallback);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Paints all dirty regions as a single frame.
+         */
+        private void paintDirtyRegions() {
+            Bounds[] regions;
+
+            synchronized (dirtyRegions) {
+                regions = new Bounds[dirtyRegions.getLength()];
+                for (int i = 0; i < regions.length; i++) {
+                    regions[i] = dirtyRegions.get(i);
+                }
+
+                dirtyRegions.clear();
+                paintScheduled = false;
+            }
+
+            lastPaintTime = System.currentTimeMillis();
+
+            Graphics graphics = isShowing() ? getGraphics() : null;
+
+            if (graphics == null) {
+                // We can't paint directly; let AWT paint when it is able to
+                for (int i = 0; i < regions.length; i++) {
+                    Bounds region = regions[i];
+                    super.repaint(region.x, region.y, region.width, region.height);
+                }
+            } else {
+                long startTime = System.nanoTime();
+
+                try {
+                    for (int i = 0; i < regions.length; i++) {
+                        Bounds region = regions[i];
+                        Graphics regionGraphics = graphics.create(region.x, region.y,
+                            region.width, region.height);
+
+                        try {
+                            regionGraphics.translate(-region.x, -region.y);
+                            paintRegion(regionGraphics);
+                        } finally {
+                            regionGraphics.dispose();
+                        }
+                    }
+                } finally {
+                    graphics.dispose();
+                }
+
+                updateFrameStatistics(startTime);
+                paintPending = false;
+            }
+        }
+
         @Override
         public void paint(Graphics graphics) {
+            long startTime = System.nanoTime();
+
+            paintRegion(graphics);
+
+            updateFrameStatistics(startTime);
+            paintPending = false;
+        }
+
+        @Override
+        public void update(Graphics graphics) {
+            paint(graphics);
+        }
+
+        private void updateFrameStatistics(long startTime) {
+            lastFrameTime = System.nanoTime() - startTime;
+            totalFrameTime += lastFrameTime;
+            frameCount++;
+        }
+
+        /**
+         * Paints the region of the display defined by the clip bounds of the
+         * given graphics context.
+         *
+         * @param graphics
+         */
+        private void paintRegion(Graphics graphics) {
             // Intersect the clip region with the bounds of this component
             // (for some reason, AWT does not do this automatically)
             graphics.clipRect(0, 0, getWidth(), getHeight());
@@ -395,14 +618,46 @@ public abstract class ApplicationContext {
                     System.err.println("Exception thrown during paint(): " + exception);
                     throw exception;
                 }
-            }
 
-            paintPending = false;
+                paintedArea += (long)clipBounds.width * clipBounds.height;
+            }
         }
 
         @Override
-        public void update(Graphics graphics) {
-            paint(graphics);
+        public void removeNotify() {
+            super.removeNotify();
+
+            // Release the offscreen buffers; they will be recreated if this
+            // display host is made displayable again
+            if (volatileBackBuffer != null) {
+                volatileBackBuffer.flush();
+                volatileBackBuffer = null;
+            }
+
+            if (backBuffer != null) {
+                backBuffer.flush();
+                backBuffer = null;
+            }
+        }
+
+        /**
+         * Returns a back buffer dimension large enough to hold the given
+         * dimension. Buffer sizes are rounded up so that the buffer does not
+         * need to be recreated on every frame of an interactive resize.
+         */
+        private int getBackBufferSize(int size) {
+            return ((size + BACK_BUFFER_INCREMENT - 1) / BACK_BUFFER_INCREMENT)
+                * BACK_BUFFER_INCREMENT;
+        }
+
+        private boolean isBackBufferValid(java.awt.Image image) {
+            int width = image.getWidth(null);
+            int height = image.getHeight(null);
+
+            return (width >= getWidth()
+                && height >= getHeight()
+                && width <= getBackBufferSize(getWidth())
+                && height <= getBackBufferSize(getHeight()));
         }
 
         /**
@@ -421,18 +676,25 @@ public abstract class ApplicationContext {
             // Paint the display into an offscreen buffer
             GraphicsConfiguration gc = graphics.getDeviceConfiguration();
             java.awt.Rectangle clipBounds = graphics.getClipBounds();
-            java.awt.image.BufferedImage bufferedImage =
-                gc.createCompatibleImage(clipBounds.width, clipBounds.height,
-                    Transparency.OPAQUE);
 
-            if (bufferedImage != null) {
-                Graphics2D bufferedImageGraphics = (Graphics2D)bufferedImage.getGraphics();
-                bufferedImageGraphics.setClip(0, 0, clipBounds.width, clipBounds.height);
-                bufferedImageGraphics.translate(-clipBounds.x, -clipBounds.y);
+            if (backBuffer == null
+                || !isBackBufferValid(backBuffer)) {
+                if (backBuffer != null) {
+                    backBuffer.flush();
+                }
+
+                backBuffer = gc.createCompatibleImage(getBackBufferSize(getWidth()),
+                    getBackBufferSize(getHeight()), Transparency.OPAQUE);
+            }
+
+            if (backBuffer != null) {
+                Graphics2D bufferedImageGraphics = (Graphics2D)backBuffer.getGraphics();
+                bufferedImageGraphics.setClip(clipBounds.x, clipBounds.y,
+                    clipBounds.width, clipBounds.height);
 
                 try {
                     paintDisplay(bufferedImageGraphics);
-                    graphics.drawImage(bufferedImage, clipBounds.x, clipBounds.y, this);
+                    drawBackBuffer(graphics, backBuffer, clipBounds);
                 } finally {
                     bufferedImageGraphics.dispose();
                 }
@@ -459,35 +721,57 @@ public abstract class ApplicationContext {
             // Paint the display into a volatile offscreen buffer
             GraphicsConfiguration gc = graphics.getDeviceConfiguration();
             java.awt.Rectangle clipBounds = graphics.getClipBounds();
-            java.awt.image.VolatileImage volatileImage =
-                gc.createCompatibleVolatileImage(clipBounds.width, clipBounds.height,
-                    Transparency.OPAQUE);
 
-            // If we have a valid volatile image, attempt to paint the
-            // display to it
-            if (volatileImage != null) {
-                int valid = volatileImage.validate(gc);
+            int valid = java.awt.image.VolatileImage.IMAGE_INCOMPATIBLE;
+            if (volatileBackBuffer != null
+                && isBackBufferValid(volatileBackBuffer)) {
+                valid = volatileBackBuffer.validate(gc);
+            }
 
-                if (valid == java.awt.image.VolatileImage.IMAGE_OK
-                    || valid == java.awt.image.VolatileImage.IMAGE_RESTORED) {
-                    Graphics2D volatileImageGraphics = volatileImage.createGraphics();
-                    volatileImageGraphics.setClip(0, 0, clipBounds.width, clipBounds.height);
-                    volatileImageGraphics.translate(-clipBounds.x, -clipBounds.y);
+            if (valid == java.awt.image.VolatileImage.IMAGE_INCOMPATIBLE) {
+                if (volatileBackBuffer != null) {
+                    volatileBackBuffer.flush();
+                }
 
-                    try {
-                        paintDisplay(volatileImageGraphics);
-                        graphics.drawImage(volatileImage, clipBounds.x, clipBounds.y, this);
-                    } finally {
-                        volatileImageGraphics.dispose();
-                    }
+                volatileBackBuffer = gc.createCompatibleVolatileImage(getBackBufferSize(getWidth()),
+                    getBackBufferSize(getHeight()), Transparency.OPAQUE);
 
-                    painted = !volatileImage.contentsLost();
+                if (volatileBackBuffer != null) {
+                    valid = volatileBackBuffer.validate(gc);
                 }
             }
 
+            // If we have a valid volatile image, attempt to paint the
+            // display to it
+            if (valid == java.awt.image.VolatileImage.IMAGE_OK
+                || valid == java.awt.image.VolatileImage.IMAGE_RESTORED) {
+                Graphics2D volatileImageGraphics = volatileBackBuffer.createGraphics();
+                volatileImageGraphics.setClip(clipBounds.x, clipBounds.y,
+                    clipBounds.width, clipBounds.height);
+
+                try {
+                    paintDisplay(volatileImageGraphics);
+                    drawBackBuffer(graphics, volatileBackBuffer, clipBounds);
+                } finally {
+                    volatileImageGraphics.dispose();
+                }
+
+                painted = !volatileBackBuffer.contentsLost();
+            }
+
             return painted;
         }
 
+        private void drawBackBuffer(Graphics2D graphics, java.awt.Image image,
+            java.awt.Rectangle clipBounds) {
+            int x1 = clipBounds.x;
+            int y1 = clipBounds.y;
+            int x2 = x1 + clipBounds.width;
+            int y2 = y1 + clipBounds.height;
+
+            graphics.drawImage(image, x1, y1, x2, y2, x1, y1, x2, y2, this);
+        }
+
         /**
          * Paints the display including any decorators.
          *
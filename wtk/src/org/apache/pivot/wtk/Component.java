@@ -181,6 +181,10 @@ public abstract class Component implements ConstrainedVisual {
 
             decorators.insert(decorator, index);
 
+            if (parent != null) {
+                parent.invalidateComponentBounds();
+            }
+
             // Repaint the the component's current decorated region
             if (parent != null) {
                 parent.repaint(getDecoratedBounds());
@@ -202,6 +206,10 @@ public abstract class Component implements ConstrainedVisual {
 
             Decorator previousDecorator = decorators.update(index, decorator);
 
+            if (parent != null) {
+                parent.invalidateComponentBounds();
+            }
+
             // Repaint the the component's current decorated region
             if (parent != null) {
                 parent.repaint(getDecoratedBounds());
@@ -236,6 +244,8 @@ public abstract class Component implements ConstrainedVisual {
 
             if (count > 0) {
                 if (parent != null) {
+                    parent.invalidateComponentBounds();
+
                     // Repaint the the component's current decorated region
                     parent.repaint(getDecoratedBounds());
                 }
@@ -419,7 +429,9 @@ public abstract class Component implements ConstrainedVisual {
         public boolean mouseMove(Component component, int x, int y) {
             boolean consumed = false;
 
-            for (ComponentMouseListener listener : this) {
+            Object[] listeners = getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ComponentMouseListener listener = (ComponentMouseListener)listeners[i];
                 consumed |= listener.mouseMove(component, x, y);
             }
 
@@ -428,14 +440,18 @@ public abstract class Component implements ConstrainedVisual {
 
         @Override
         public void mouseOver(Component component) {
-            for (ComponentMouseListener listener : this) {
+            Object[] listeners = getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ComponentMouseListener listener = (ComponentMouseListener)listeners[i];
                 listener.mouseOver(component);
             }
         }
 
         @Override
         public void mouseOut(Component component) {
-            for (ComponentMouseListener listener : this) {
+            Object[] listeners = getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ComponentMouseListener listener = (ComponentMouseListener)listeners[i];
                 listener.mouseOut(component);
             }
         }
@@ -447,7 +463,9 @@ public abstract class Component implements ConstrainedVisual {
         public boolean mouseDown(Component component, Mouse.Button button, int x, int y) {
             boolean consumed = false;
 
-            for (ComponentMouseButtonListener listener : this) {
+            Object[] listeners = getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ComponentMouseButtonListener listener = (ComponentMouseButtonListener)listeners[i];
                 consumed |= listener.mouseDown(component, button, x, y);
             }
 
@@ -458,7 +476,9 @@ public abstract class Component implements ConstrainedVisual {
         public boolean mouseUp(Component component, Mouse.Button button, int x, int y) {
             boolean consumed = false;
 
-            for (ComponentMouseButtonListener listener : this) {
+            Object[] listeners = getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ComponentMouseButtonListener listener = (ComponentMouseButtonListener)listeners[i];
                 consumed |= listener.mouseUp(component, button, x, y);
             }
 
@@ -469,7 +489,9 @@ public abstract class Component implements ConstrainedVisual {
         public boolean mouseClick(Component component, Mouse.Button button, int x, int y, int count) {
             boolean consumed = false;
 
-            for (ComponentMouseButtonListener listener : this) {
+            Object[] listeners = getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ComponentMouseButtonListener listener = (ComponentMouseButtonListener)listeners[i];
                 consumed |= listener.mouseClick(component, button, x, y, count);
             }
 
@@ -484,7 +506,9 @@ public abstract class Component implements ConstrainedVisual {
             int scrollAmount, int wheelRotation, int x, int y) {
             boolean consumed = false;
 
-            for (ComponentMouseWheelListener listener : this) {
+            Object[] listeners = getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ComponentMouseWheelListener listener = (ComponentMouseWheelListener)listeners[i];
                 consumed |= listener.mouseWheel(component, scrollType, scrollAmount,
                     wheelRotation, x, y);
             }
@@ -890,6 +914,7 @@ public abstract class Component implements ConstrainedVisual {
 
             // Redraw the region currently occupied by this component
             if (parent != null) {
+                parent.invalidateComponentBounds();
                 parent.repaint(getDecoratedBounds());
             }
 
@@ -1415,6 +1440,7 @@ public abstract class Component implements ConstrainedVisual {
 
             // Redraw the region currently occupied by this component
             if (parent != null) {
+                parent.invalidateComponentBounds();
                 parent.repaint(getDecoratedBounds());
             }
 
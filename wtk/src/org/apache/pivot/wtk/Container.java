@@ -18,6 +18,7 @@ package org.apache.pivot.wtk;
 
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.util.Arrays;
 import java.util.Iterator;
 
 import org.apache.pivot.collections.ArrayList;
@@ -69,7 +70,9 @@ public abstract class Container extends Component
         public boolean mouseMove(Container container, int x, int y) {
             boolean consumed = false;
 
-            for (ContainerMouseListener listener : this) {
+            Object[] listeners = getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ContainerMouseListener listener = (ContainerMouseListener)listeners[i];
                 consumed |= listener.mouseMove(container, x, y);
             }
 
@@ -80,7 +83,9 @@ public abstract class Container extends Component
         public boolean mouseDown(Container container, Mouse.Button button, int x, int y) {
             boolean consumed = false;
 
-            for (ContainerMouseListener listener : this) {
+            Object[] listeners = getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ContainerMouseListener listener = (ContainerMouseListener)listeners[i];
                 consumed |= listener.mouseDown(container, button, x, y);
             }
 
@@ -91,7 +96,9 @@ public abstract class Container extends Component
         public boolean mouseUp(Container container, Mouse.Button button, int x, int y) {
             boolean consumed = false;
 
-            for (ContainerMouseListener listener : this) {
+            Object[] listeners = getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ContainerMouseListener listener = (ContainerMouseListener)listeners[i];
                 consumed |= listener.mouseUp(container, button, x, y);
             }
 
@@ -103,7 +110,9 @@ public abstract class Container extends Component
             int scrollAmount, int wheelRotation, int x, int y) {
             boolean consumed = false;
 
-            for (ContainerMouseListener listener : this) {
+            Object[] listeners = getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ContainerMouseListener listener = (ContainerMouseListener)listeners[i];
                 consumed |= listener.mouseWheel(container, scrollType, scrollAmount, wheelRotation, x, y);
             }
 
@@ -111,8 +120,247 @@ public abstract class Container extends Component
         }
     }
 
+    /**
+     * Grid-based index of the bounds of a container's components. Components
+     * that have decorators are not indexed, since their decorated bounds may
+     * change without notice; they are included in the results of every
+     * query.
+     */
+    private static class SpatialIndex {
+        private ArrayList<Component> components;
+
+        private int x;
+        private int y;
+        private int cellWidth;
+        private int cellHeight;
+        private int columnCount;
+        private int rowCount;
+
+        // Component indexes by cell, in ascending order
+        private int[][] cells;
+
+        // Indexes of components that are included in every query
+        private int[] unindexed;
+
+        // Scratch state for query()
+        private int[] results;
+        private int[] marks;
+        private int mark = 0;
+
+        private static final int MINIMUM_CELL_SIZE = 8;
+
+        public SpatialIndex(ArrayList<Component> components) {
+            this.components = components;
+
+            int n = components.getLength();
+            Bounds[] bounds = new Bounds[n];
+
+            int[] unindexed = new int[n];
+            int unindexedCount = 0;
+
+            // Determine the extent of the indexed components
+            int minX = Integer.MAX_VALUE;
+            int minY = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE;
+            int maxY = Integer.MIN_VALUE;
+            int indexedCount = 0;
+
+            for (int i = 0; i < n; i++) {
+                Component component = components.get(i);
+
+                if (component.getDecorators().getLength() > 0) {
+                    unindexed[unindexedCount++] = i;
+                } else {
+                    Bounds componentBounds = component.getBounds();
+
+                    if (!componentBounds.isEmpty()) {
+                        bounds[i] = componentBounds;
+
+                        minX = Math.min(minX, componentBounds.x);
+                        minY = Math.min(minY, componentBounds.y);
+                        maxX = Math.max(maxX, componentBounds.x + componentBounds.width);
+                        maxY = Math.max(maxY, componentBounds.y + componentBounds.height);
+                        indexedCount++;
+                    }
+                }
+            }
+
+            this.unindexed = new int[unindexedCount];
+            System.arraycopy(unindexed, 0, this.unindexed, 0, unindexedCount);
+
+            if (indexedCount == 0) {
+                columnCount = 0;
+                rowCount = 0;
+                cells = new int[0][];
+            } else {
+                // Size the grid so that each cell holds roughly one component
+                int gridSize = (int)Math.ceil(Math.sqrt(indexedCount));
+
+                x = minX;
+                y = minY;
+                cellWidth = Math.max((maxX - minX + gridSize - 1) / gridSize, MINIMUM_CELL_SIZE);
+                cellHeight = Math.max((maxY - minY + gridSize - 1) / gridSize, MINIMUM_CELL_SIZE);
+                columnCount = (maxX - minX + cellWidth - 1) / cellWidth;
+                rowCount = (maxY - minY + cellHeight - 1) / cellHeight;
+
+                // Count the components in each cell, then fill the cells
+                int[] cellLengths = new int[columnCount * rowCount];
+                for (int pass = 0; pass < 2; pass++) {
+                    if (pass == 1) {
+                        cells = new int[cellLengths.length][];
+                        for (int i = 0; i < cells.length; i++) {
+                            cells[i] = new int[cellLengths[i]];
+                            cellLengths[i] = 0;
+                        }
+                    }
+
+                    for (int i = 0; i < n; i++) {
+                        Bounds componentBounds = bounds[i];
+
+                        if (componentBounds != null) {
+                            int column0 = getColumn(componentBounds.x);
+                            int row0 = getRow(componentBounds.y);
+                            int column1 = getColumn(componentBounds.x + componentBounds.width - 1);
+                            int row1 = getRow(componentBounds.y + componentBounds.height - 1);
+
+                            for (int row = row0; row <= row1; row++) {
+                                for (int column = column0; column <= column1; column++) {
+                                    int cell = row * columnCount + column;
+
+                                    if (pass == 1) {
+                                        cells[cell][cellLengths[cell]] = i;
+                                    }
+
+                                    cellLengths[cell]++;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+
+            results = new int[n];
+            marks = new int[n];
+        }
+
+        private int getColumn(int x) {
+            return Math.min(Math.max((x - this.x) / cellWidth, 0), columnCount - 1);
+        }
+
+        private int getRow(int y) {
+            return Math.min(Math.max((y - this.y) / cellHeight, 0), rowCount - 1);
+        }
+
+        /**
+         * Returns the index of the topmost visible component containing the
+         * given point, or <tt>-1</tt> if there is no such component.
+         */
+        public int getComponentAt(int x, int y) {
+            int index = -1;
+
+            if (x >= this.x
+                && y >= this.y
+                && x < this.x + columnCount * cellWidth
+                && y < this.y + rowCount * cellHeight) {
+                int[] cell = cells[getRow(y) * columnCount + getColumn(x)];
+
+                int i = cell.length - 1;
+                while (i >= 0
+                    && !contains(cell[i], x, y)) {
+                    i--;
+                }
+
+                if (i >= 0) {
+                    index = cell[i];
+                }
+            }
+
+            int i = unindexed.length - 1;
+            while (i >= 0
+                && unindexed[i] > index
+                && !contains(unindexed[i], x, y)) {
+                i--;
+            }
+
+            if (i >= 0
+                && unindexed[i] > index) {
+                index = unindexed[i];
+            }
+
+            return index;
+        }
+
+        private boolean contains(int index, int x, int y) {
+            Component component = components.get(index);
+            return (component.isVisible()
+                && component.getBounds().contains(x, y));
+        }
+
+        /**
+         * Returns the indexes of the components that may intersect the given
+         * area, in ascending order.
+         */
+        public int[] query(int x, int y, int width, int height) {
+            int count = 0;
+            mark++;
+
+            if (columnCount > 0
+                && width > 0
+                && height > 0
+                && x + width > this.x
+                && y + height > this.y
+                && x < this.x + columnCount * cellWidth
+                && y < this.y + rowCount * cellHeight) {
+                int column0 = getColumn(x);
+                int row0 = getRow(y);
+                int column1 = getColumn(x + width - 1);
+                int row1 = getRow(y + height - 1);
+
+                for (int row = row0; row <= row1; row++) {
+                    for (int column = column0; column <= column1; column++) {
+                        int[] cell = cells[row * columnCount + column];
+
+                        for (int i = 0; i < cell.length; i++) {
+                            int index = cell[i];
+
+                            if (marks[index] != mark) {
+                                marks[index] = mark;
+                                results[count++] = index;
+                            }
+                        }
+                    }
+                }
+            }
+
+            for (int i = 0; i < unindexed.length; i++) {
+                results[count++] = unindexed[i];
+            }
+
+            Arrays.sort(results, 0, count);
+
+            return Arrays.copyOf(results, count);
+        }
+    }
+
     private ArrayList<Component> components = new ArrayList<Component>();
 
+    private boolean spatialIndexEnabled = true;
+    private SpatialIndex spatialIndex = null;
+
+    // The topmost component that covers the entire container, if any
+    private Component opaqueCover = null;
+    private boolean opaqueCoverValid = false;
+    private int opaqueCoverWidth = 0;
+    private int opaqueCoverHeight = 0;
+
+    // Scratch rectangle used to retrieve the clip bounds when painting
+    private Rectangle clipBounds = new Rectangle();
+
+    private static PaintMonitor paintMonitor = null;
+
+    // Containers with fewer components than this are searched linearly
+    private static final int SPATIAL_INDEX_THRESHOLD = 32;
+
     private FocusTraversalPolicy focusTraversalPolicy = null;
 
     private Component mouseOverComponent = null;
@@ -150,6 +398,7 @@ public abstract class Container extends Component
 
         component.setParent(Container.this);
         components.insert(component, index);
+        invalidateComponentBounds();
 
         // Repaint the area occupied by the new component
         repaint(component.getDecoratedBounds());
@@ -177,6 +426,7 @@ public abstract class Container extends Component
     @Override
     public Sequence<Component> remove(int index, int count) {
         Sequence<Component> removed = components.remove(index, count);
+        invalidateComponentBounds();
 
         // Set the removed components' parent to null and repaint the area
         // formerly occupied by the components
@@ -228,6 +478,7 @@ public abstract class Container extends Component
             Sequence<Component> removed = components.remove(from, 1);
             Component component = removed.get(0);
             components.insert(component, to);
+            invalidateComponentBounds();
 
             // Repaint the area occupied by the component
             repaint(component.getDecoratedBounds());
@@ -269,7 +520,79 @@ public abstract class Container extends Component
         super.setParent(parent);
     }
 
+    /**
+     * Indicates whether this container maintains a spatial index of its
+     * components' bounds.
+     *
+     * @see #setSpatialIndexEnabled(boolean)
+     */
+    public boolean isSpatialIndexEnabled() {
+        return spatialIndexEnabled;
+    }
+
+    /**
+     * Enables or disables the spatial index. When enabled, a container with a
+     * large number of components uses an index of the components' bounds to
+     * speed up hit testing and painting. The index is rebuilt on demand after
+     * components are added, removed, moved, or resized. The index is enabled
+     * by default.
+     *
+     * @param spatialIndexEnabled
+     */
+    public void setSpatialIndexEnabled(boolean spatialIndexEnabled) {
+        this.spatialIndexEnabled = spatialIndexEnabled;
+        spatialIndex = null;
+    }
+
+    /**
+     * Returns the paint monitor that is notified when components are painted.
+     *
+     * @return
+     * The current paint monitor, or <tt>null</tt> if no monitor is installed.
+     */
+    public static PaintMonitor getPaintMonitor() {
+        return paintMonitor;
+    }
+
+    /**
+     * Installs a paint monitor that is notified whenever a container paints
+     * one of its components. This is intended for diagnostic use; see
+     * {@link PaintStatistics}.
+     *
+     * @param paintMonitor
+     * The paint monitor, or <tt>null</tt> to remove the current monitor.
+     */
+    public static void setPaintMonitor(PaintMonitor paintMonitor) {
+        Container.paintMonitor = paintMonitor;
+    }
+
+    /**
+     * Discards cached information about the bounds of this container's
+     * components; called when a component is added, removed, moved, or
+     * resized, or when its decorators change.
+     */
+    void invalidateComponentBounds() {
+        spatialIndex = null;
+        opaqueCoverValid = false;
+    }
+
+    private SpatialIndex getSpatialIndex() {
+        if (spatialIndex == null
+            && spatialIndexEnabled
+            && components.getLength() >= SPATIAL_INDEX_THRESHOLD) {
+            spatialIndex = new SpatialIndex(components);
+        }
+
+        return spatialIndex;
+    }
+
     public Component getComponentAt(int x, int y) {
+        SpatialIndex spatialIndex = getSpatialIndex();
+        if (spatialIndex != null) {
+            int index = spatialIndex.getComponentAt(x, y);
+            return (index == -1) ? null : components.get(index);
+        }
+
         Component component = null;
 
         int i = components.getLength() - 1;
@@ -330,26 +653,51 @@ public abstract class Container extends Component
 
     @Override
     public void paint(Graphics2D graphics) {
-        int count = getLength();
+        int width = getWidth();
+        int height = getHeight();
 
-        // Determine the paint bounds
-        Bounds paintBounds = new Bounds(0, 0, getWidth(), getHeight());
-        Rectangle clipBounds = graphics.getClipBounds();
-        if (clipBounds != null) {
-            paintBounds = paintBounds.intersect(new Bounds(clipBounds));
+        // Determine the paint bounds; if the graphics context has no clip,
+        // the scratch rectangle is left unchanged
+        clipBounds.setBounds(0, 0, width, height);
+        graphics.getClipBounds(clipBounds);
+
+        int paintX = Math.max(clipBounds.x, 0);
+        int paintY = Math.max(clipBounds.y, 0);
+        int paintWidth = Math.min(clipBounds.x + clipBounds.width, width) - paintX;
+        int paintHeight = Math.min(clipBounds.y + clipBounds.height, height) - paintY;
+
+        // If the container has a spatial index, only consider the components
+        // that may intersect the paint bounds
+        int count = getLength();
+        int[] indexes = null;
+        SpatialIndex spatialIndex = getSpatialIndex();
+        if (spatialIndex != null) {
+            indexes = spatialIndex.query(paintX, paintY, paintWidth, paintHeight);
+            count = indexes.length;
         }
 
         // Determine if we need to paint the container, or if it's completely
         // obscured by a child component.
         boolean paintContainer = true;
-        for (int i = 0; i < count; i++) {
-            Component component = get(i);
 
-            if (component.isVisible()
-                && component.isOpaque()
-                && component.getBounds().contains(paintBounds)) {
-                paintContainer = false;
-                break;
+        Component opaqueCover = getOpaqueCover();
+        if (opaqueCover != null
+            && opaqueCover.isVisible()
+            && opaqueCover.isOpaque()) {
+            paintContainer = false;
+        } else {
+            for (int i = 0; i < count; i++) {
+                Component component = get((indexes == null) ? i : indexes[i]);
+
+                if (component.isVisible()
+                    && component.isOpaque()
+                    && component.getX() <= paintX
+                    && component.getY() <= paintY
+                    && component.getX() + component.getWidth() >= paintX + paintWidth
+                    && component.getY() + component.getHeight() >= paintY + paintHeight) {
+                    paintContainer = false;
+                    break;
+                }
             }
         }
 
@@ -363,45 +711,117 @@ public abstract class Container extends Component
         }
 
         for (int i = 0; i < count; i++) {
-            Component component = get(i);
-
-            // Calculate the decorated bounds
-            Bounds decoratedBounds = component.getDecoratedBounds();
-
-            // Only paint components that are visible and intersect the
-            // current clip rectangle
-            if (component.isVisible()
-                && decoratedBounds.intersects(paintBounds)) {
-                Bounds componentBounds = component.getBounds();
-
-                // Create a copy of the current graphics context and
-                // translate to the component's coordinate system
-                Graphics2D decoratedGraphics = (Graphics2D)graphics.create();
-                decoratedGraphics.translate(componentBounds.x, componentBounds.y);
-
-                // Prepare the decorators
-                DecoratorSequence decorators = component.getDecorators();
-                int n = decorators.getLength();
-                for (int j = n - 1; j >= 0; j--) {
-                    Decorator decorator = decorators.get(j);
-                    decoratedGraphics = decorator.prepare(component, decoratedGraphics);
+            Component component = get((indexes == null) ? i : indexes[i]);
+
+            if (!component.isVisible()) {
+                continue;
+            }
+
+            int componentX = component.getX();
+            int componentY = component.getY();
+            int componentWidth = component.getWidth();
+            int componentHeight = component.getHeight();
+
+            DecoratorSequence decorators = component.getDecorators();
+            int n = decorators.getLength();
+
+            if (n == 0) {
+                // Only paint components that intersect the current clip
+                // rectangle
+                if (componentWidth > 0
+                    && componentHeight > 0
+                    && componentX + componentWidth > paintX
+                    && componentY + componentHeight > paintY
+                    && componentX < paintX + paintWidth
+                    && componentY < paintY + paintHeight) {
+                    // Create a copy of the current graphics context, translated
+                    // to the component's coordinate system and clipped to its
+                    // bounds
+                    Graphics2D componentGraphics = (Graphics2D)graphics.create();
+                    componentGraphics.translate(componentX, componentY);
+                    componentGraphics.clipRect(0, 0, componentWidth, componentHeight);
+                    paintComponent(component, componentGraphics);
+                    componentGraphics.dispose();
                 }
+            } else {
+                // Only paint components whose decorated bounds intersect the
+                // current clip rectangle
+                Bounds decoratedBounds = component.getDecoratedBounds();
+
+                if (decoratedBounds.intersects(paintX, paintY, paintWidth, paintHeight)) {
+                    // Create a copy of the current graphics context and
+                    // translate to the component's coordinate system
+                    Graphics2D decoratedGraphics = (Graphics2D)graphics.create();
+                    decoratedGraphics.translate(componentX, componentY);
+
+                    // Prepare the decorators
+                    for (int j = n - 1; j >= 0; j--) {
+                        Decorator decorator = decorators.get(j);
+                        decoratedGraphics = decorator.prepare(component, decoratedGraphics);
+                    }
 
-                // Paint the component
-                Graphics2D componentGraphics = (Graphics2D)decoratedGraphics.create();
-                componentGraphics.clipRect(0, 0, componentBounds.width, componentBounds.height);
-                component.paint(componentGraphics);
-                componentGraphics.dispose();
+                    // Paint the component
+                    Graphics2D componentGraphics = (Graphics2D)decoratedGraphics.create();
+                    componentGraphics.clipRect(0, 0, componentWidth, componentHeight);
+                    paintComponent(component, componentGraphics);
+                    componentGraphics.dispose();
 
-                // Update the decorators
-                for (int j = 0; j < n; j++) {
-                    Decorator decorator = decorators.get(j);
-                    decorator.update();
+                    // Update the decorators
+                    for (int j = 0; j < n; j++) {
+                        Decorator decorator = decorators.get(j);
+                        decorator.update();
+                    }
                 }
             }
         }
     }
 
+    private static void paintComponent(Component component, Graphics2D graphics) {
+        PaintMonitor paintMonitor = Container.paintMonitor;
+
+        if (paintMonitor == null) {
+            component.paint(graphics);
+        } else {
+            long startTime = System.nanoTime();
+            component.paint(graphics);
+            paintMonitor.componentPainted(component, System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Returns the topmost component whose bounds cover this entire container,
+     * or <tt>null</tt> if there is no such component. The result is cached
+     * until the bounds of the container or its components change.
+     */
+    private Component getOpaqueCover() {
+        int width = getWidth();
+        int height = getHeight();
+
+        if (!opaqueCoverValid
+            || opaqueCoverWidth != width
+            || opaqueCoverHeight != height) {
+            opaqueCover = null;
+
+            for (int i = components.getLength() - 1; i >= 0; i--) {
+                Component component = components.get(i);
+
+                if (component.getX() <= 0
+                    && component.getY() <= 0
+                    && component.getX() + component.getWidth() >= width
+                    && component.getY() + component.getHeight() >= height) {
+                    opaqueCover = component;
+                    break;
+                }
+            }
+
+            opaqueCoverValid = true;
+            opaqueCoverWidth = width;
+            opaqueCoverHeight = height;
+        }
+
+        return opaqueCover;
+    }
+
     /**
      * Tests if this container is an ancestor of a given component. A container
      * is considered to be its own ancestor.
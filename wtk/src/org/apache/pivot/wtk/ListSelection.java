@@ -314,6 +314,17 @@ class ListSelection {
      * @param index
      */
     public void insertIndex(int index) {
+        insertIndexes(index, 1);
+    }
+
+    /**
+     * Inserts a range of indexes into the span sequence (e.g. when items are
+     * inserted into the model data).
+     *
+     * @param index
+     * @param count
+     */
+    public void insertIndexes(int index, int count) {
         // Get the insertion point for the range corresponding to the given index
         Span range = new Span(index);
         int i = ArrayList.binarySearch(selectedRanges, range, INTERSECTION_COMPARATOR);
@@ -328,7 +339,7 @@ class ListSelection {
             // If the inserted index falls within the current range, increment
             // the endpoint only
             if (selectedRange.start < index) {
-                selectedRanges.update(i, new Span(selectedRange.start, selectedRange.end + 1));
+                selectedRanges.update(i, new Span(selectedRange.start, selectedRange.end + count));
 
                 // Start incrementing range bounds beginning at the next range
                 i++;
@@ -339,7 +350,7 @@ class ListSelection {
         int n = selectedRanges.getLength();
         while (i < n) {
             Span selectedRange = selectedRanges.get(i);
-            selectedRanges.update(i, new Span(selectedRange.start + 1, selectedRange.end + 1));
+            selectedRanges.update(i, new Span(selectedRange.start + count, selectedRange.end + count));
             i++;
         }
     }
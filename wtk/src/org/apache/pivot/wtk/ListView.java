@@ -21,6 +21,7 @@ import java.net.URL;
 import java.util.Comparator;
 
 import org.apache.pivot.collections.ArrayList;
+import org.apache.pivot.collections.IntArrayList;
 import org.apache.pivot.collections.List;
 import org.apache.pivot.collections.ListListener;
 import org.apache.pivot.collections.Map;
@@ -481,6 +482,13 @@ public class ListView extends Component {
             }
         }
 
+        @Override
+        public void itemsInserted(ListView listView, int index, int count) {
+            for (ListViewItemListener listener : this) {
+                listener.itemsInserted(listView, index, count);
+            }
+        }
+
         @Override
         public void itemsRemoved(ListView listView, int index, int count) {
             for (ListViewItemListener listener : this) {
@@ -644,7 +652,7 @@ public class ListView extends Component {
     private SelectMode selectMode = SelectMode.SINGLE;
 
     private boolean checkmarksEnabled = false;
-    private ArrayList<Integer> checkedIndexes = new ArrayList<Integer>();
+    private IntArrayList checkedIndexes = new IntArrayList();
 
     private Filter<?> disabledItemFilter = null;
     private Filter<?> disabledCheckmarkFilter = null;
@@ -668,25 +676,31 @@ public class ListView extends Component {
     private ListListener<Object> listDataListener = new ListListener<Object>() {
         @Override
         public void itemInserted(List<Object> list, int index) {
-            // Increment selected ranges
-            selectedRanges.insertIndex(index);
+            insertIndexes(index, 1);
+
+            // Notify listeners that items were inserted
+            listViewItemListeners.itemInserted(ListView.this, index);
+        }
+
+        @Override
+        public void itemsInserted(List<Object> list, int index, int count) {
+            insertIndexes(index, count);
+
+            // Notify listeners that items were inserted
+            listViewItemListeners.itemsInserted(ListView.this, index, count);
+        }
 
-            int i, n;
+        private void insertIndexes(int index, int count) {
+            // Increment selected ranges
+            selectedRanges.insertIndexes(index, count);
 
             // Increment checked indexes
-            i = ArrayList.binarySearch(checkedIndexes, index);
+            int i = IntArrayList.binarySearch(checkedIndexes, index);
             if (i < 0) {
                 i = -(i + 1);
             }
 
-            n = checkedIndexes.getLength();
-            while (i < n) {
-                checkedIndexes.update(i, checkedIndexes.get(i) + 1);
-                i++;
-            }
-
-            // Notify listeners that items were inserted
-            listViewItemListeners.itemInserted(ListView.this, index);
+            checkedIndexes.increment(i, checkedIndexes.getLength() - i, count);
         }
 
         @Override
@@ -697,12 +711,12 @@ public class ListView extends Component {
             selectedRanges.removeIndexes(index, count);
 
             // Remove and decrement checked indexes
-            int i = ArrayList.binarySearch(checkedIndexes, index);
+            int i = IntArrayList.binarySearch(checkedIndexes, index);
             if (i < 0) {
                 i = -(i + 1);
             }
 
-            int j = ArrayList.binarySearch(checkedIndexes, index + count - 1);
+            int j = IntArrayList.binarySearch(checkedIndexes, index + count - 1);
             if (j < 0) {
                 j = -(j + 1);
             } else {
@@ -711,11 +725,7 @@ public class ListView extends Component {
 
             checkedIndexes.remove(i, j - i);
 
-            int n = checkedIndexes.getLength();
-            while (i < n) {
-                checkedIndexes.update(i, checkedIndexes.get(i) - count);
-                i++;
-            }
+            checkedIndexes.increment(i, checkedIndexes.getLength() - i, -count);
 
             // Notify listeners that items were removed
             listViewItemListeners.itemsRemoved(ListView.this, index, count);
@@ -1392,7 +1402,7 @@ public class ListView extends Component {
      * @param index
      */
     public boolean isItemChecked(int index) {
-        return (ArrayList.binarySearch(checkedIndexes, index) >= 0);
+        return (IntArrayList.binarySearch(checkedIndexes, index) >= 0);
     }
 
     /**
@@ -1406,7 +1416,7 @@ public class ListView extends Component {
             throw new IllegalStateException("Checkmarks are not enabled.");
         }
 
-        int i = ArrayList.binarySearch(checkedIndexes, index);
+        int i = IntArrayList.binarySearch(checkedIndexes, index);
 
         if ((i < 0 && checked)
             || (i >= 0 && !checked)) {
@@ -1437,11 +1447,11 @@ public class ListView extends Component {
      * Clears the checked state of all checked items.
      */
     public void clearCheckmarks() {
-        ArrayList<Integer> checkedIndexes = this.checkedIndexes;
-        this.checkedIndexes = new ArrayList<Integer>();
+        IntArrayList checkedIndexes = this.checkedIndexes;
+        this.checkedIndexes = new IntArrayList();
 
-        for (Integer index : checkedIndexes) {
-            listViewItemStateListeners.itemCheckedChanged(this, index);
+        for (int i = 0, n = checkedIndexes.getLength(); i < n; i++) {
+            listViewItemStateListeners.itemCheckedChanged(this, checkedIndexes.get(i));
         }
     }
 
@@ -1919,7 +1929,7 @@ public class ListView extends Component {
                 ArrayList<Object> items = new ArrayList<Object>();
 
                 for (int i = 0, n = checkedIndexes.getLength(); i < n; i++) {
-                    Integer index = checkedIndexes.get(i);
+                    int index = checkedIndexes.get(i);
 
                     Object item;
                     if (checkedItemsBindMapping == null) {
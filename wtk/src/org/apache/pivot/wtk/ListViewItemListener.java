@@ -28,6 +28,17 @@ public interface ListViewItemListener {
         public void itemInserted(ListView listView, int index) {
         }
 
+        /**
+         * Calls {@link #itemInserted(ListView, int)} once for each inserted
+         * item.
+         */
+        @Override
+        public void itemsInserted(ListView listView, int index, int count) {
+            for (int i = 0; i < count; i++) {
+                itemInserted(listView, index + i);
+            }
+        }
+
         @Override
         public void itemsRemoved(ListView listView, int index, int count) {
         }
@@ -56,6 +67,21 @@ public interface ListViewItemListener {
      */
     public void itemInserted(ListView listView, int index);
 
+    /**
+     * Called when a contiguous range of items has been inserted into the list
+     * view.
+     *
+     * @param listView
+     * The source of the event.
+     *
+     * @param index
+     * The index of the first item that was inserted.
+     *
+     * @param count
+     * The number of items that were inserted.
+     */
+    public void itemsInserted(ListView listView, int index, int count);
+
     /**
      * Called when items have been removed from the list view.
      *
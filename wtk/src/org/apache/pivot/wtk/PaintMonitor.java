@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.wtk;
+
+/**
+ * Paint monitor interface. A paint monitor installed via
+ * {@link Container#setPaintMonitor(PaintMonitor)} is notified each time a
+ * container paints one of its components.
+ */
+public interface PaintMonitor {
+    /**
+     * Called when a component has been painted by its parent container.
+     *
+     * @param component
+     * The component that was painted.
+     *
+     * @param paintTime
+     * The time taken to paint the component, in nanoseconds. This includes
+     * the time taken to paint the component's descendants, but not its
+     * decorators.
+     */
+    public void componentPainted(Component component, long paintTime);
+}
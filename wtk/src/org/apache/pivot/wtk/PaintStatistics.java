@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.wtk;
+
+import java.util.Iterator;
+
+import org.apache.pivot.collections.HashMap;
+import org.apache.pivot.util.ImmutableIterator;
+
+/**
+ * Paint monitor that records the number of times each component is painted
+ * and the total time spent painting it.
+ * <p>
+ * NOTE This class is not thread safe; it is intended to be accessed only
+ * from the UI thread.
+ */
+public class PaintStatistics implements PaintMonitor {
+    private static class Entry {
+        private long paintCount = 0;
+        private long paintTime = 0;
+    }
+
+    private HashMap<Component, Entry> entries = new HashMap<Component, Entry>();
+
+    @Override
+    public void componentPainted(Component component, long paintTime) {
+        Entry entry = entries.get(component);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(component, entry);
+        }
+
+        entry.paintCount++;
+        entry.paintTime += paintTime;
+    }
+
+    /**
+     * Returns the number of times a component has been painted.
+     *
+     * @param component
+     */
+    public long getPaintCount(Component component) {
+        if (component == null) {
+            throw new IllegalArgumentException("component is null.");
+        }
+
+        Entry entry = entries.get(component);
+        return (entry == null) ? 0 : entry.paintCount;
+    }
+
+    /**
+     * Returns the total time spent painting a component, in milliseconds.
+     *
+     * @param component
+     */
+    public double getPaintTime(Component component) {
+        if (component == null) {
+            throw new IllegalArgumentException("component is null.");
+        }
+
+        Entry entry = entries.get(component);
+        return (entry == null) ? 0 : entry.paintTime / 1000000d;
+    }
+
+    /**
+     * Returns the components that have been painted since the statistics
+     * were last reset.
+     */
+    public Iterable<Component> getComponents() {
+        return new Iterable<Component>() {
+            @Override
+            public Iterator<Component> iterator() {
+                return new ImmutableIterator<Component>(entries.iterator());
+            }
+        };
+    }
+
+    /**
+     * Discards all recorded statistics.
+     */
+    public void reset() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pivot.wtk;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Executor that runs commands on the UI thread, via
+ * {@link ApplicationContext#queueCallback(Runnable)}. This allows APIs that
+ * deliver results through an executor to update the UI directly; for
+ * example, a streaming web query can append items to a list that is bound to
+ * a table view.
+ */
+public class QueuedCallbackExecutor implements Executor {
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new IllegalArgumentException("command is null.");
+        }
+
+        ApplicationContext.queueCallback(command);
+    }
+}
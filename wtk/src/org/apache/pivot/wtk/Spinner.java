@@ -271,6 +271,13 @@ public class Spinner extends Container {
             spinnerItemListeners.itemInserted(Spinner.this, index);
         }
 
+        @Override
+        public void itemsInserted(List<Object> list, int index, int count) {
+            for (int i = 0; i < count; i++) {
+                itemInserted(list, index + i);
+            }
+        }
+
         @Override
         public void itemsRemoved(List<Object> list, int index, Sequence<Object> items) {
             int count = items.getLength();
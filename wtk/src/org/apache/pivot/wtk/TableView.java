@@ -1105,6 +1105,13 @@ public class TableView extends Component {
             }
         }
 
+        @Override
+        public void rowsInserted(TableView tableView, int index, int count) {
+            for (TableViewRowListener listener : this) {
+                listener.rowsInserted(tableView, index, count);
+            }
+        }
+
         @Override
         public void rowsRemoved(TableView tableView, int index, int count) {
             for (TableViewRowListener listener : this) {
@@ -1295,6 +1302,15 @@ public class TableView extends Component {
             tableViewRowListeners.rowInserted(TableView.this, index);
         }
 
+        @Override
+        public void itemsInserted(List<Object> list, int index, int count) {
+            // Increment selected ranges
+            selectedRanges.insertIndexes(index, count);
+
+            // Notify listeners that items were inserted
+            tableViewRowListeners.rowsInserted(TableView.this, index, count);
+        }
+
         @Override
         public void itemsRemoved(List<Object> list, int index, Sequence<Object> items) {
             int count = items.getLength();
@@ -28,6 +28,17 @@ public interface TableViewRowListener {
         public void rowInserted(TableView tableView, int index) {
         }
 
+        /**
+         * Calls {@link #rowInserted(TableView, int)} once for each inserted
+         * row.
+         */
+        @Override
+        public void rowsInserted(TableView tableView, int index, int count) {
+            for (int i = 0; i < count; i++) {
+                rowInserted(tableView, index + i);
+            }
+        }
+
         @Override
         public void rowsRemoved(TableView tableView, int index, int count) {
         }
@@ -56,6 +67,21 @@ public interface TableViewRowListener {
      */
     public void rowInserted(TableView tableView, int index);
 
+    /**
+     * Called when a contiguous range of rows has been inserted into the table
+     * view.
+     *
+     * @param tableView
+     * The source of the event.
+     *
+     * @param index
+     * The index of the first row that was inserted.
+     *
+     * @param count
+     * The number of rows that were inserted.
+     */
+    public void rowsInserted(TableView tableView, int index, int count);
+
     /**
      * Called when rows have been removed from the table view.
      *
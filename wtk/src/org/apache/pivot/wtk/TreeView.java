@@ -738,6 +738,13 @@ public class TreeView extends Component {
             treeViewNodeListeners.nodeInserted(TreeView.this, path, index);
         }
 
+        @Override
+        public void itemsInserted(List<Object> list, int index, int count) {
+            for (int i = 0; i < count; i++) {
+                itemInserted(list, index + i);
+            }
+        }
+
         @Override
         public void itemsRemoved(List<Object> list, int index, Sequence<Object> items) {
             Path path = getPath();
@@ -210,6 +210,26 @@ public class CalendarDateSpinnerData implements List<CalendarDate> {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void addAll(Sequence<CalendarDate> items) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void insertAll(Sequence<CalendarDate> items, int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int removeAll(Sequence<CalendarDate> items) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAll(Sequence<CalendarDate> items) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public boolean isEmpty() {
         return (length == 0);
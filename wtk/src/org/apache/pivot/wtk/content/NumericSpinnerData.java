@@ -195,6 +195,26 @@ public class NumericSpinnerData implements List<Integer> {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void addAll(Sequence<Integer> items) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void insertAll(Sequence<Integer> items, int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int removeAll(Sequence<Integer> items) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAll(Sequence<Integer> items) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public boolean isEmpty() {
         return (getLength() == 0);
@@ -587,6 +587,11 @@ public class TableViewRowEditor implements TableView.RowEditor {
             cancelEdit();
         }
 
+        @Override
+        public void rowsInserted(TableView tableView, int index, int count) {
+            cancelEdit();
+        }
+
         @Override
         public void rowsRemoved(TableView tableView, int index, int count) {
             cancelEdit();
@@ -40,6 +40,39 @@ public class TreeBranch extends TreeNode implements List<TreeNode> {
     private ArrayList<TreeNode> treeNodes = new ArrayList<TreeNode>();
     private ListListenerList<TreeNode> listListeners = new ListListenerList<TreeNode>();
 
+    // Re-fires the events generated by bulk operations on the tree nodes
+    private ListListener<TreeNode> bulkListListener = new ListListener<TreeNode>() {
+        @Override
+        public void itemInserted(List<TreeNode> list, int index) {
+            listListeners.itemInserted(TreeBranch.this, index);
+        }
+
+        @Override
+        public void itemsInserted(List<TreeNode> list, int index, int count) {
+            listListeners.itemsInserted(TreeBranch.this, index, count);
+        }
+
+        @Override
+        public void itemsRemoved(List<TreeNode> list, int index, Sequence<TreeNode> items) {
+            listListeners.itemsRemoved(TreeBranch.this, index, items);
+        }
+
+        @Override
+        public void itemUpdated(List<TreeNode> list, int index, TreeNode previousItem) {
+            listListeners.itemUpdated(TreeBranch.this, index, previousItem);
+        }
+
+        @Override
+        public void listCleared(List<TreeNode> list) {
+            listListeners.listCleared(TreeBranch.this);
+        }
+
+        @Override
+        public void comparatorChanged(List<TreeNode> list, Comparator<TreeNode> previousComparator) {
+            listListeners.comparatorChanged(TreeBranch.this, previousComparator);
+        }
+    };
+
     public TreeBranch() {
         this(null, null, null);
     }
@@ -171,6 +204,50 @@ public class TreeBranch extends TreeNode implements List<TreeNode> {
         }
     }
 
+    @Override
+    public void addAll(Sequence<TreeNode> treeNodes) {
+        this.treeNodes.getListListeners().add(bulkListListener);
+
+        try {
+            this.treeNodes.addAll(treeNodes);
+        } finally {
+            this.treeNodes.getListListeners().remove(bulkListListener);
+        }
+    }
+
+    @Override
+    public void insertAll(Sequence<TreeNode> treeNodes, int index) {
+        this.treeNodes.getListListeners().add(bulkListListener);
+
+        try {
+            this.treeNodes.insertAll(treeNodes, index);
+        } finally {
+            this.treeNodes.getListListeners().remove(bulkListListener);
+        }
+    }
+
+    @Override
+    public int removeAll(Sequence<TreeNode> treeNodes) {
+        this.treeNodes.getListListeners().add(bulkListListener);
+
+        try {
+            return this.treeNodes.removeAll(treeNodes);
+        } finally {
+            this.treeNodes.getListListeners().remove(bulkListListener);
+        }
+    }
+
+    @Override
+    public void setAll(Sequence<TreeNode> treeNodes) {
+        this.treeNodes.getListListeners().add(bulkListListener);
+
+        try {
+            this.treeNodes.setAll(treeNodes);
+        } finally {
+            this.treeNodes.getListListeners().remove(bulkListListener);
+        }
+    }
+
     @Override
     public TreeNode get(int index) {
         return treeNodes.get(index);